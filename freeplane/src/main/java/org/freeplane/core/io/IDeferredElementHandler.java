@@ -0,0 +1,10 @@
+package org.freeplane.core.io;
+
+/**
+ * Keeps elements as XML text instead of reading them, so that they can be read when they are needed.
+ */
+public interface IDeferredElementHandler {
+	boolean defersElement(Object parent, String tag);
+
+	void elementDeferred(Object parent, String tag, String xml);
+}
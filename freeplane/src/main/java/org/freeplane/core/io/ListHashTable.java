@@ -21,11 +21,18 @@ package org.freeplane.core.io;
 
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Lists of handlers per key.
+ *
+ * Handlers are registered rarely and looked up by every read and write,
+ * possibly on several threads at once, so only the registration is synchronized
+ * and the lists are copied on write.
+ */
 public class ListHashTable<K, V> {
 	/**
 	 * @author Dimitry Polivaev
@@ -46,10 +53,10 @@ public class ListHashTable<K, V> {
 
 	final private Map<K, List<V>> table = new Hashtable<K, List<V>>();
 
-	public void add(final K tag, final V element) {
+	public synchronized void add(final K tag, final V element) {
 		List<V> elementsForTag = table.get(tag);
 		if (elementsForTag == null) {
-			elementsForTag = new LinkedList<V>();
+			elementsForTag = new CopyOnWriteArrayList<V>();
 			table.put(tag, elementsForTag);
 		}
 		elementsForTag.add(element);
@@ -75,7 +82,7 @@ public class ListHashTable<K, V> {
 		return table.get(tag);
 	}
 
-	public boolean remove(final K tag, final V element) {
+	public synchronized boolean remove(final K tag, final V element) {
 		final List<V> elementsForTag = list(tag);
 		if (elementsForTag == null) {
 			return false;
@@ -22,22 +22,30 @@ package org.freeplane.core.io;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
+/**
+ * Handlers used to read maps.
+ *
+ * Maps can be read on several threads at once: the handlers are registered under a lock
+ * and looked up without locking, the state of each read is kept by the reader.
+ */
 public class ReadManager {
 	final private Hashtable<String, Hashtable<String, IAttributeHandler>> attributeHandlers;
 	final private ListHashTable<String, IElementHandler> elementHandlers;
 	final private Collection<IReadCompletionListener> readCompletionListeners;
+	final private Hashtable<String, IDeferredElementHandler> deferredElementHandlers;
 
 	public ReadManager() {
 		super();
 		elementHandlers = new ListHashTable<String, IElementHandler>();
 		attributeHandlers = new Hashtable<String, Hashtable<String, IAttributeHandler>>();
-		readCompletionListeners = new LinkedList<IReadCompletionListener>();
+		readCompletionListeners = new CopyOnWriteArrayList<IReadCompletionListener>();
+		deferredElementHandlers = new Hashtable<String, IDeferredElementHandler>();
 	}
 
 	/*
@@ -45,7 +53,7 @@ public class ReadManager {
 	 * @see freeplane.persistence.Reader#addAttributeLoader(java.lang.String,
 	 * freeplane.persistence.AttributeLoader)
 	 */
-	public void addAttributeHandler(final String parentTag, final String attributeName, final IAttributeHandler a) {
+	public synchronized void addAttributeHandler(final String parentTag, final String attributeName, final IAttributeHandler a) {
 		Hashtable<String, IAttributeHandler> tagHandlers = attributeHandlers.get(parentTag);
 		if (tagHandlers == null) {
 			tagHandlers = new Hashtable<String, IAttributeHandler>();
@@ -65,6 +73,16 @@ public class ReadManager {
 		elementHandlers.add(parentTag, handler);
 	}
 
+	public void addDeferredElementHandler(final String tag, final IDeferredElementHandler handler) {
+		if (null != deferredElementHandlers.put(tag, handler)) {
+			throw new RuntimeException("deferred element handler " + tag + " already registered");
+		}
+	}
+
+	public IDeferredElementHandler getDeferredElementHandler(final String tag) {
+		return deferredElementHandlers.get(tag);
+	}
+
 	public void addReadCompletionListener(final IReadCompletionListener listener) {
 		readCompletionListeners.add(listener);
 	}
@@ -89,7 +107,7 @@ public class ReadManager {
 	 * @see freeplane.persistence.Reader#removeAttributeLoader(java.lang.String,
 	 * freeplane.persistence.AttributeLoader)
 	 */
-	public void removeAttributeHandler(final String parentTag, final String attributeName, final IAttributeHandler a) {
+	public synchronized void removeAttributeHandler(final String parentTag, final String attributeName, final IAttributeHandler a) {
 		final Hashtable<String, IAttributeHandler> hashtable = attributeHandlers.get(parentTag);
 		hashtable.remove(attributeName);
 	}
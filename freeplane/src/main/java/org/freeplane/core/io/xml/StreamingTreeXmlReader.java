@@ -0,0 +1,930 @@
+package org.freeplane.core.io.xml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.freeplane.core.io.IAttributeHandler;
+import org.freeplane.core.io.IDeferredElementHandler;
+import org.freeplane.core.io.IElementContentHandler;
+import org.freeplane.core.io.IElementDOMHandler;
+import org.freeplane.core.io.IElementHandler;
+import org.freeplane.core.io.ReadManager;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.n3.nanoxml.XMLElement;
+import org.freeplane.n3.nanoxml.XMLException;
+import org.freeplane.n3.nanoxml.XMLParseException;
+
+/**
+ * Alternative to {@link TreeXmlReader} which scans the input in a single char array
+ * and dispatches elements and attributes directly to the handlers registered in the {@link ReadManager}.
+ *
+ * Handlers observe the same calls and DOM elements as with {@link TreeXmlReader},
+ * but attributes consumed by attribute handlers are never stored in the DOM elements
+ * and no intermediate objects are created per scanned character.
+ *
+ * The dispatched elements can be recorded by a {@link TreeSnapshotWriter}
+ * and dispatched again from the resulting {@link TreeSnapshotReader} without scanning the XML.
+ */
+public class StreamingTreeXmlReader {
+	public static final String USE_STREAMING_XML_READER_PROPERTY = "use_streaming_xml_reader";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int EOF = -1;
+	private static final int NO_CHARACTER = -2;
+
+	final private ReadManager parseManager;
+	private Reader reader;
+	private char[] buffer;
+	private int position;
+	private int limit;
+	private int pushedBack;
+	private int lineNr;
+	private final NameTable names = new NameTable();
+	private final StringBuilder chars = new StringBuilder();
+	private final List<String> attributeNames = new ArrayList<String>();
+	private final List<String> attributeValues = new ArrayList<String>();
+
+	private Hashtable<String, IAttributeHandler> attributeHandlersForTag;
+	private Object currentElement;
+	private String elementContentAsString;
+	final private ArrayList<Object> elementStack = new ArrayList<Object>();
+	private IElementHandler nodeCreator;
+	final private ArrayList<IElementHandler> nodeCreatorStack = new ArrayList<IElementHandler>();
+	final private ArrayList<XMLElement> domStack = new ArrayList<XMLElement>();
+	private Object parentElement;
+	private XMLElement saveAsXmlUntil;
+	private TreeSnapshotWriter snapshotWriter;
+
+	public StreamingTreeXmlReader(final ReadManager parseManager) {
+		super();
+		this.parseManager = parseManager;
+	}
+
+	/** Records all dispatched elements of the following loads. */
+	public void recordTo(final TreeSnapshotWriter snapshotWriter) {
+		this.snapshotWriter = snapshotWriter;
+	}
+
+	public void load(final Object currentElement, final TreeSnapshotReader snapshot) throws XMLException {
+		this.currentElement = currentElement;
+		lineNr = 0;
+		try {
+			dispatchSnapshot(snapshot);
+		}
+		catch (final XMLException e) {
+			throw e;
+		}
+		catch (final Exception e) {
+			throw new XMLException(e);
+		}
+		finally {
+			domStack.clear();
+		}
+	}
+
+	public void load(final Object currentElement, final Reader pReader) throws XMLException {
+		this.currentElement = currentElement;
+		load(pReader);
+	}
+
+	public void load(final Reader pReader) throws XMLException {
+		reader = pReader;
+		buffer = new char[BUFFER_SIZE];
+		position = limit = 0;
+		pushedBack = NO_CHARACTER;
+		lineNr = 1;
+		try {
+			parseDocument();
+		}
+		catch (final XMLException e) {
+			throw e;
+		}
+		catch (final Exception e) {
+			throw new XMLException(null, lineNr, e);
+		}
+		finally {
+			buffer = null;
+			reader = null;
+			domStack.clear();
+		}
+	}
+
+	private void parseDocument() throws Exception {
+		boolean rootElementRead = false;
+		for (;;) {
+			int ch = read();
+			if (ch == EOF) {
+				if (!rootElementRead) {
+					throw parseException("No root element found");
+				}
+				return;
+			}
+			if (ch == '<') {
+				ch = read();
+				if (ch == '?') {
+					skipUntil("?>");
+				}
+				else if (ch == '!') {
+					skipDeclarationOrComment();
+				}
+				else if (!rootElementRead) {
+					unread(ch);
+					parseElement();
+					rootElementRead = true;
+				}
+				else {
+					throw parseException("Only one root element is allowed");
+				}
+			}
+			else if (!isWhitespace(ch)) {
+				throw parseException("Unexpected character '" + (char) ch + "' outside of the root element");
+			}
+		}
+	}
+
+	private void dispatchSnapshot(final TreeSnapshotReader snapshot) throws Exception {
+		for (;;) {
+			switch (snapshot.nextEvent()) {
+				case TreeSnapshotReader.START:
+					final String name = snapshot.readName();
+					attributeNames.clear();
+					attributeValues.clear();
+					for (int count = snapshot.readAttributeCount(); count > 0; count--) {
+						attributeNames.add(snapshot.readName());
+						attributeValues.add(snapshot.readString());
+					}
+					if (startElement(name, lineNr)) {
+						final int event = snapshot.nextEvent();
+						if (event == TreeSnapshotReader.CONTENT) {
+							elementContentAsString = snapshot.readString();
+						}
+						else if (event != TreeSnapshotReader.END) {
+							throw parseException("Element content expected");
+						}
+						endElement(name);
+					}
+					break;
+				case TreeSnapshotReader.END:
+					if (domStack.isEmpty()) {
+						throw parseException("Unexpected element end");
+					}
+					endElement(domStack.get(domStack.size() - 1).getFullName());
+					break;
+				case TreeSnapshotReader.TEXT:
+					addPCData(snapshot.readString());
+					break;
+				case TreeSnapshotReader.END_OF_DATA:
+					if (!domStack.isEmpty()) {
+						throw parseException("Unexpected end of data");
+					}
+					return;
+				default:
+					throw parseException("Unexpected element content");
+			}
+		}
+	}
+
+	private void parseElement() throws Exception {
+		final int startDepth = domStack.size();
+		scanStartTag();
+		while (domStack.size() > startDepth) {
+			final int ch = readRequired();
+			if (ch == '<') {
+				final int next = readRequired();
+				if (next == '/') {
+					if (snapshotWriter != null) {
+						snapshotWriter.endElement();
+					}
+					endElement(scanName(readRequired()));
+					skipWhitespace();
+					expect('>');
+				}
+				else if (next == '!') {
+					if (skipDeclarationOrComment()) {
+						addPCData(chars.toString());
+					}
+				}
+				else if (next == '?') {
+					skipUntil("?>");
+				}
+				else {
+					unread(next);
+					scanStartTag();
+				}
+			}
+			else {
+				unread(ch);
+				if (scanText()) {
+					addPCData(chars.toString());
+				}
+			}
+		}
+	}
+
+	private void scanStartTag() throws Exception {
+		final String name = scanName(readRequired());
+		final int startLineNr = lineNr;
+		final boolean isEmpty = scanAttributes();
+		if (snapshotWriter == null && saveAsXmlUntil == null) {
+			final IDeferredElementHandler deferredElementHandler = parseManager.getDeferredElementHandler(name);
+			if (deferredElementHandler != null && deferredElementHandler.defersElement(currentElement, name)) {
+				deferredElementHandler.elementDeferred(currentElement, name, readElementXml(name, isEmpty));
+				return;
+			}
+		}
+		if (snapshotWriter != null) {
+			snapshotWriter.startElement(name, attributeNames, attributeValues);
+		}
+		final boolean collectsContent = startElement(name, startLineNr);
+		if (isEmpty) {
+			if (snapshotWriter != null) {
+				snapshotWriter.endElement();
+			}
+			endElement(name);
+		}
+		else if (collectsContent) {
+			final boolean findsClosingTagByName = ((IElementContentHandler) nodeCreator).findsClosingTagByName();
+			elementContentAsString = collectContentUntilMatchingTag(name, findsClosingTagByName);
+			if (snapshotWriter != null) {
+				snapshotWriter.content(elementContentAsString);
+			}
+			endElement(name);
+		}
+	}
+
+	/**
+	 * Scans the attributes of a start tag into {@link #attributeNames} and {@link #attributeValues}.
+	 * @return true if the element is empty
+	 */
+	private boolean scanAttributes() throws IOException, XMLParseException {
+		attributeNames.clear();
+		attributeValues.clear();
+		for (;;) {
+			skipWhitespace();
+			final int ch = readRequired();
+			if (ch == '>') {
+				return false;
+			}
+			if (ch == '/') {
+				expect('>');
+				return true;
+			}
+			attributeNames.add(scanName(ch));
+			skipWhitespace();
+			expect('=');
+			skipWhitespace();
+			attributeValues.add(scanAttributeValue());
+		}
+	}
+
+	/**
+	 * Reads the element whose start tag has just been scanned without dispatching it
+	 * and returns it as XML text. Comments and processing instructions are dropped,
+	 * the content of elements read by content handlers is kept as it is.
+	 */
+	private String readElementXml(final String name, final boolean isEmpty) throws IOException, XMLParseException {
+		final StringBuilder xml = new StringBuilder();
+		appendStartTag(xml, name, isEmpty);
+		int depth = isEmpty ? 0 : 1;
+		while (depth > 0) {
+			final int ch = readRequired();
+			if (ch == '<') {
+				final int next = readRequired();
+				if (next == '/') {
+					final String closingName = scanName(readRequired());
+					skipWhitespace();
+					expect('>');
+					xml.append("</").append(closingName).append('>');
+					depth--;
+				}
+				else if (next == '!') {
+					if (skipDeclarationOrComment()) {
+						appendEscaped(xml, chars);
+					}
+				}
+				else if (next == '?') {
+					skipUntil("?>");
+				}
+				else {
+					unread(next);
+					final String childName = scanName(readRequired());
+					final boolean isEmptyChild = scanAttributes();
+					appendStartTag(xml, childName, isEmptyChild);
+					if (isEmptyChild) {
+						continue;
+					}
+					if (findsClosingTagByName(childName)) {
+						xml.append(collectContentUntilMatchingTag(childName, true));
+						xml.append("</").append(childName).append('>');
+					}
+					else {
+						depth++;
+					}
+				}
+			}
+			else {
+				unread(ch);
+				if (scanText()) {
+					appendEscaped(xml, chars);
+				}
+			}
+		}
+		return xml.toString();
+	}
+
+	private boolean findsClosingTagByName(final String name) {
+		final List<IElementHandler> handlers = parseManager.getElementHandlers().list(name);
+		if (handlers != null) {
+			for (final IElementHandler handler : handlers) {
+				if (handler instanceof IElementContentHandler
+				        && ((IElementContentHandler) handler).findsClosingTagByName()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void appendStartTag(final StringBuilder xml, final String name, final boolean isEmpty) {
+		xml.append('<').append(name);
+		for (int i = 0; i < attributeNames.size(); i++) {
+			xml.append(' ').append(attributeNames.get(i)).append("=\"");
+			appendEscaped(xml, attributeValues.get(i));
+			xml.append('"');
+		}
+		xml.append(isEmpty ? "/>" : ">");
+	}
+
+	private static void appendEscaped(final StringBuilder xml, final CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+				case '&':
+					xml.append("&amp;");
+					break;
+				case '<':
+					xml.append("&lt;");
+					break;
+				case '>':
+					xml.append("&gt;");
+					break;
+				case '"':
+					xml.append("&quot;");
+					break;
+				default:
+					if (c < 0x20) {
+						xml.append("&#x").append(Integer.toHexString(c)).append(';');
+					}
+					else {
+						xml.append(c);
+					}
+			}
+		}
+	}
+
+	private boolean startElement(final String name, final int startLineNr) {
+		final XMLElement dom = new XMLElement(name, null, startLineNr);
+		if (!domStack.isEmpty()) {
+			domStack.get(domStack.size() - 1).addChild(dom);
+		}
+		domStack.add(dom);
+		if (saveAsXmlUntil != null) {
+			addAttributesTo(dom);
+			return false;
+		}
+		elementStack.add(currentElement);
+		nodeCreatorStack.add(nodeCreator);
+		parentElement = currentElement;
+		currentElement = null;
+		nodeCreator = null;
+		final List<IElementHandler> handlers = parseManager.getElementHandlers().list(name);
+		if (handlers != null && handlers.size() == 1) {
+			nodeCreator = handlers.get(0);
+			currentElement = createElement(nodeCreator, name, null);
+		}
+		if (currentElement != null) {
+			attributeHandlersForTag = parseManager.getAttributeHandlers().get(name);
+			for (int i = 0; i < attributeNames.size(); i++) {
+				final String attributeName = attributeNames.get(i);
+				final String value = attributeValues.get(i);
+				if (!addAttribute(attributeName, value)) {
+					dom.setAttribute(attributeName, value);
+				}
+			}
+		}
+		else {
+			nodeCreator = null;
+			addAttributesTo(dom);
+			if (handlers != null) {
+				for (final IElementHandler handler : handlers) {
+					currentElement = createElement(handler, name, dom);
+					if (currentElement != null) {
+						nodeCreator = handler;
+						break;
+					}
+				}
+			}
+			if (currentElement != null) {
+				attributeHandlersForTag = parseManager.getAttributeHandlers().get(name);
+				if (attributeHandlersForTag != null) {
+					for (int i = 0; i < attributeNames.size(); i++) {
+						final String attributeName = attributeNames.get(i);
+						if (addAttribute(attributeName, attributeValues.get(i))) {
+							dom.removeAttribute(attributeName);
+						}
+					}
+				}
+			}
+			else {
+				saveAsXmlUntil = dom;
+			}
+		}
+		return currentElement != null && nodeCreator instanceof IElementContentHandler;
+	}
+
+	private Object createElement(final IElementHandler handler, final String name, final XMLElement dom) {
+		try {
+			return handler.createElement(parentElement, name, dom);
+		}
+		catch (final Exception e) {
+			LogUtils.severe("Can not process element" + name, e);
+			return null;
+		}
+	}
+
+	private void addAttributesTo(final XMLElement dom) {
+		for (int i = 0; i < attributeNames.size(); i++) {
+			dom.setAttribute(attributeNames.get(i), attributeValues.get(i));
+		}
+	}
+
+	private boolean addAttribute(final String key, final String value) {
+		if (attributeHandlersForTag != null) {
+			final IAttributeHandler attributeHandler = attributeHandlersForTag.get(key);
+			if (attributeHandler != null) {
+				try {
+					attributeHandler.setAttribute(currentElement, value);
+					return true;
+				}
+				catch (final Exception e) {
+					LogUtils.severe("Can not process attribute " + key + " = '" + value + "'", e);
+				}
+			}
+		}
+		return false;
+	}
+
+	private void endElement(final String name) throws XMLParseException {
+		if (domStack.isEmpty()) {
+			throw parseException("Unexpected closing tag </" + name + ">");
+		}
+		final XMLElement dom = domStack.remove(domStack.size() - 1);
+		if (!name.equals(dom.getFullName())) {
+			throw parseException("Closing tag </" + name + "> does not match <" + dom.getFullName() + ">");
+		}
+		if (dom.getChildrenCount() == 1) {
+			final XMLElement child = dom.getChildAtIndex(0);
+			if (child.getName() == null) {
+				dom.setContent(child.getContent());
+				dom.removeChildAtIndex(0);
+			}
+		}
+		if (saveAsXmlUntil == dom) {
+			saveAsXmlUntil = null;
+		}
+		if (saveAsXmlUntil != null || elementStack.isEmpty()) {
+			return;
+		}
+		final Object element = currentElement;
+		currentElement = elementStack.remove(elementStack.size() - 1);
+		try {
+			if (nodeCreator instanceof IElementContentHandler) {
+				((IElementContentHandler) nodeCreator).endElement(currentElement, name, element, dom,
+				    elementContentAsString);
+			}
+			else if (nodeCreator instanceof IElementDOMHandler) {
+				((IElementDOMHandler) nodeCreator).endElement(currentElement, name, element, dom);
+			}
+		}
+		catch (final Exception e) {
+			LogUtils.severe("Can not process element" + name, e);
+		}
+		final XMLElement top = dom.getParent();
+		if (nodeCreator != null && top != null && top.hasChildren()) {
+			top.removeChildAtIndex(top.getChildrenCount() - 1);
+		}
+		nodeCreator = nodeCreatorStack.remove(nodeCreatorStack.size() - 1);
+		elementContentAsString = null;
+	}
+
+	private void addPCData(final String content) {
+		if (snapshotWriter != null) {
+			snapshotWriter.text(content);
+		}
+		final XMLElement pcData = new XMLElement();
+		pcData.setContent(content);
+		domStack.get(domStack.size() - 1).addChild(pcData);
+	}
+
+	/**
+	 * Scans text with resolved references into {@link #chars}.
+	 * @return true unless the text consists of white space only
+	 */
+	private boolean scanText() throws IOException, XMLParseException {
+		chars.setLength(0);
+		boolean whitespaceOnly = true;
+		for (;;) {
+			final int ch = read();
+			if (ch == EOF) {
+				throw parseException("Unexpected end of data");
+			}
+			if (ch == '<') {
+				unread(ch);
+				break;
+			}
+			if (ch == '&') {
+				appendReference();
+				whitespaceOnly = false;
+			}
+			else {
+				if (whitespaceOnly && !isWhitespace(ch)) {
+					whitespaceOnly = false;
+				}
+				chars.append((char) ch);
+			}
+		}
+		return !whitespaceOnly;
+	}
+
+	/**
+	 * Collects the unparsed element content exactly like {@link XMLParser} does for
+	 * {@link IElementContentHandler}s. The closing tag is consumed.
+	 */
+	private String collectContentUntilMatchingTag(final String fullName, final boolean findsClosingTagByName)
+	        throws IOException, XMLParseException {
+		final StringBuilder contentBuffer = new StringBuilder();
+		boolean inComment = false;
+		int level = 1;
+		int confirmedContentBufferLength = 0;
+		int closingTagMatchingCharacters = -2;
+		for (;;) {
+			int ch = readRequired();
+			if (inComment) {
+				contentBuffer.append((char) ch);
+				if (ch != '-') {
+					continue;
+				}
+				ch = readRequired();
+				contentBuffer.append((char) ch);
+				if (ch != '-') {
+					continue;
+				}
+				ch = readRequired();
+				contentBuffer.append((char) ch);
+				if (ch != '>') {
+					continue;
+				}
+				inComment = false;
+				continue;
+			}
+			if (ch == '<') {
+				ch = readRequired();
+				if (ch == '/') {
+					if (!findsClosingTagByName) {
+						level--;
+						if (level == 0) {
+							scanName(readRequired());
+							skipWhitespace();
+							expect('>');
+							return contentBuffer.toString();
+						}
+					}
+					else {
+						confirmedContentBufferLength = contentBuffer.length();
+						closingTagMatchingCharacters = -1;
+					}
+				}
+				else if (!findsClosingTagByName) {
+					if (ch == '!') {
+						final int read1 = readRequired();
+						final int read2 = readRequired();
+						if (read1 != '-' || read2 != '-') {
+							throw parseException("Invalid input: <!" + (char) read1 + (char) read2);
+						}
+						inComment = true;
+						contentBuffer.append("<!--");
+						continue;
+					}
+					else {
+						level++;
+					}
+				}
+				contentBuffer.append('<');
+			}
+			else if (!findsClosingTagByName && ch == '/') {
+				ch = readRequired();
+				if (ch == '>') {
+					level--;
+					if (level == 0) {
+						throw parseException("Invalid input: />");
+					}
+				}
+				else if (ch == '<') {
+					contentBuffer.append('/');
+					unread(ch);
+					continue;
+				}
+				contentBuffer.append('/');
+			}
+			if (findsClosingTagByName) {
+				if (closingTagMatchingCharacters == -1
+				        || closingTagMatchingCharacters >= 0 && closingTagMatchingCharacters < fullName.length()
+				                && fullName.charAt(closingTagMatchingCharacters) == ch) {
+					if ((closingTagMatchingCharacters >= 0 && closingTagMatchingCharacters < fullName.length())
+					        || (ch != ' ' && ch != '\t' && ch != '\n'))
+						closingTagMatchingCharacters++;
+				}
+				else if (ch == '>' && closingTagMatchingCharacters == fullName.length()) {
+					contentBuffer.setLength(confirmedContentBufferLength);
+					return contentBuffer.toString();
+				}
+				else
+					closingTagMatchingCharacters = -2;
+			}
+			contentBuffer.append((char) ch);
+		}
+	}
+
+	private String scanName(int ch) throws IOException, XMLParseException {
+		chars.setLength(0);
+		while (ch != EOF && !isWhitespace(ch) && ch != '=' && ch != '>' && ch != '/' && ch != '<') {
+			chars.append((char) ch);
+			ch = read();
+		}
+		if (chars.length() == 0) {
+			throw parseException("Name expected");
+		}
+		unread(ch);
+		return names.get(chars);
+	}
+
+	private String scanAttributeValue() throws IOException, XMLParseException {
+		final int delimiter = readRequired();
+		if (delimiter != '"' && delimiter != '\'') {
+			throw parseException("Delimited string expected");
+		}
+		chars.setLength(0);
+		for (;;) {
+			final int ch = readRequired();
+			if (ch == delimiter) {
+				return chars.toString();
+			}
+			if (ch == '&') {
+				appendReference();
+			}
+			else if (ch == '\t' || ch == '\n') {
+				chars.append(' ');
+			}
+			else {
+				chars.append((char) ch);
+			}
+		}
+	}
+
+	private void appendReference() throws IOException, XMLParseException {
+		final int start = chars.length();
+		for (;;) {
+			final int ch = readRequired();
+			if (ch == ';') {
+				break;
+			}
+			if (chars.length() - start > 10 || isWhitespace(ch)) {
+				throw parseException("Unterminated entity reference");
+			}
+			chars.append((char) ch);
+		}
+		final String entity = chars.substring(start);
+		chars.setLength(start);
+		if (entity.startsWith("#x")) {
+			chars.appendCodePoint(parseCharacterReference(entity.substring(2), 16));
+		}
+		else if (entity.startsWith("#")) {
+			chars.appendCodePoint(parseCharacterReference(entity.substring(1), 10));
+		}
+		else if (entity.equals("amp")) {
+			chars.append('&');
+		}
+		else if (entity.equals("lt")) {
+			chars.append('<');
+		}
+		else if (entity.equals("gt")) {
+			chars.append('>');
+		}
+		else if (entity.equals("quot")) {
+			chars.append('"');
+		}
+		else if (entity.equals("apos")) {
+			chars.append('\'');
+		}
+		else {
+			throw parseException("Unknown entity &" + entity + ";");
+		}
+	}
+
+	private int parseCharacterReference(final String number, final int radix) throws XMLParseException {
+		try {
+			return Integer.parseInt(number, radix);
+		}
+		catch (final NumberFormatException e) {
+			throw parseException("Invalid character reference " + number);
+		}
+	}
+
+	/**
+	 * Skips a comment or a document type declaration, or reads a CDATA section into {@link #chars}.
+	 * @return true if a CDATA section has been read
+	 */
+	private boolean skipDeclarationOrComment() throws IOException, XMLParseException {
+		final int ch = readRequired();
+		if (ch == '-') {
+			expect('-');
+			skipUntil("-->");
+			return false;
+		}
+		if (ch == '[') {
+			for (final char expected : "CDATA[".toCharArray()) {
+				expect(expected);
+			}
+			chars.setLength(0);
+			readUntil("]]>");
+			return true;
+		}
+		int nestingLevel = 1;
+		int quote = NO_CHARACTER;
+		while (nestingLevel > 0) {
+			final int next = readRequired();
+			if (quote != NO_CHARACTER) {
+				if (next == quote) {
+					quote = NO_CHARACTER;
+				}
+			}
+			else if (next == '"' || next == '\'') {
+				quote = next;
+			}
+			else if (next == '<') {
+				nestingLevel++;
+			}
+			else if (next == '>') {
+				nestingLevel--;
+			}
+		}
+		return false;
+	}
+
+	private void skipUntil(final String terminator) throws IOException, XMLParseException {
+		chars.setLength(0);
+		readUntil(terminator);
+		chars.setLength(0);
+	}
+
+	private void readUntil(final String terminator) throws IOException, XMLParseException {
+		final int terminatorLength = terminator.length();
+		for (;;) {
+			chars.append((char) readRequired());
+			final int length = chars.length();
+			if (length >= terminatorLength && chars.charAt(length - 1) == terminator.charAt(terminatorLength - 1)
+			        && chars.indexOf(terminator, length - terminatorLength) >= 0) {
+				chars.setLength(length - terminatorLength);
+				return;
+			}
+		}
+	}
+
+	private void skipWhitespace() throws IOException {
+		int ch;
+		do {
+			ch = read();
+		} while (isWhitespace(ch));
+		unread(ch);
+	}
+
+	private void expect(final int expected) throws IOException, XMLParseException {
+		final int ch = readRequired();
+		if (ch != expected) {
+			throw parseException("'" + (char) expected + "' expected");
+		}
+	}
+
+	private static boolean isWhitespace(final int ch) {
+		return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+	}
+
+	private int readRequired() throws IOException, XMLParseException {
+		final int ch = read();
+		if (ch == EOF) {
+			throw parseException("Unexpected end of data");
+		}
+		return ch;
+	}
+
+	private int read() throws IOException {
+		if (pushedBack != NO_CHARACTER) {
+			final int ch = pushedBack;
+			pushedBack = NO_CHARACTER;
+			return ch;
+		}
+		if (position == limit && !fill()) {
+			return EOF;
+		}
+		char ch = buffer[position++];
+		if (ch == '\r') {
+			if ((position < limit || fill()) && buffer[position] == '\n') {
+				position++;
+			}
+			ch = '\n';
+		}
+		if (ch == '\n') {
+			lineNr++;
+		}
+		return ch;
+	}
+
+	private void unread(final int ch) {
+		if (ch == '\n') {
+			lineNr--;
+		}
+		pushedBack = ch;
+	}
+
+	private boolean fill() throws IOException {
+		final int count = reader.read(buffer, 0, buffer.length);
+		position = 0;
+		limit = Math.max(count, 0);
+		return count > 0;
+	}
+
+	private XMLParseException parseException(final String message) {
+		return new XMLParseException(null, lineNr, message);
+	}
+
+	/** Shares one String instance per distinct element or attribute name. */
+	private static class NameTable {
+		private String[] table = new String[64];
+		private int size;
+
+		String get(final CharSequence name) {
+			int index = hash(name) & (table.length - 1);
+			for (;;) {
+				final String candidate = table[index];
+				if (candidate == null) {
+					final String newName = name.toString();
+					table[index] = newName;
+					if (++size * 2 > table.length) {
+						rehash();
+					}
+					return newName;
+				}
+				if (contentEquals(candidate, name)) {
+					return candidate;
+				}
+				index = (index + 1) & (table.length - 1);
+			}
+		}
+
+		private void rehash() {
+			final String[] oldTable = table;
+			table = new String[oldTable.length * 2];
+			for (final String name : oldTable) {
+				if (name != null) {
+					int index = hash(name) & (table.length - 1);
+					while (table[index] != null) {
+						index = (index + 1) & (table.length - 1);
+					}
+					table[index] = name;
+				}
+			}
+		}
+
+		private static int hash(final CharSequence name) {
+			int hash = 0;
+			for (int i = 0; i < name.length(); i++) {
+				hash = 31 * hash + name.charAt(i);
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean contentEquals(final String candidate, final CharSequence name) {
+			if (candidate.length() != name.length()) {
+				return false;
+			}
+			for (int i = 0; i < candidate.length(); i++) {
+				if (candidate.charAt(i) != name.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package org.freeplane.core.io.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.freeplane.n3.nanoxml.XMLParseException;
+
+/**
+ * Reads a snapshot recorded by {@link TreeSnapshotWriter}.
+ *
+ * The snapshot file is read into one buffer and closed, its strings are decoded one by one
+ * while {@link StreamingTreeXmlReader} dispatches them to the handlers,
+ * no intermediate representation of the whole tree is created.
+ */
+public class TreeSnapshotReader {
+	static final int MAGIC = 0x46505453;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 36;
+	static final int END_OF_DATA = -1;
+	static final int START = 1;
+	static final int END = 2;
+	static final int CONTENT = 3;
+	static final int TEXT = 4;
+
+	private final ByteBuffer data;
+	private final List<String> names = new ArrayList<String>();
+	private byte[] stringBytes = new byte[256];
+
+	private TreeSnapshotReader(final ByteBuffer data) {
+		this.data = data;
+	}
+
+	/**
+	 * Opens the snapshot if it was recorded from the source file with the given path, length and modification time.
+	 * Returns null if the snapshot does not exist, belongs to another source file or version of it, or is damaged.
+	 */
+	public static TreeSnapshotReader open(final File file, final String sourcePath, final long sourceLength,
+	                                      final long sourceModificationTime) throws IOException {
+		if (!file.isFile() || file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE) {
+			return null;
+		}
+		final ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		if (snapshot.limit() < HEADER_SIZE || snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION
+		        || snapshot.getLong() != sourceLength || snapshot.getLong() != sourceModificationTime) {
+			return null;
+		}
+		final int sourcePathLength = snapshot.getInt();
+		final int size = snapshot.getInt();
+		final int checksum = snapshot.getInt();
+		if (sourcePathLength < 0 || size < 0 || (long) sourcePathLength + size != snapshot.remaining()) {
+			return null;
+		}
+		final byte[] sourcePathBytes = new byte[sourcePathLength];
+		snapshot.get(sourcePathBytes);
+		if (!sourcePath.equals(new String(sourcePathBytes, StandardCharsets.UTF_8))) {
+			return null;
+		}
+		final ByteBuffer data = snapshot.slice();
+		final CRC32 crc = new CRC32();
+		crc.update(data.duplicate());
+		if ((int) crc.getValue() != checksum) {
+			return null;
+		}
+		return new TreeSnapshotReader(data);
+	}
+
+	int nextEvent() {
+		return data.hasRemaining() ? data.get() : END_OF_DATA;
+	}
+
+	String readName() throws XMLParseException {
+		final int number = readInt();
+		if (number < names.size()) {
+			return names.get(number);
+		}
+		if (number != names.size()) {
+			throw new XMLParseException("Invalid name reference " + number);
+		}
+		final String name = readString();
+		names.add(name);
+		return name;
+	}
+
+	int readAttributeCount() throws XMLParseException {
+		return readInt();
+	}
+
+	String readString() throws XMLParseException {
+		final int length = readInt();
+		if (length > data.remaining()) {
+			throw new XMLParseException("Unexpected end of snapshot");
+		}
+		if (length > stringBytes.length) {
+			stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+		}
+		data.get(stringBytes, 0, length);
+		return new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private int readInt() throws XMLParseException {
+		try {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				final byte b = data.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+		catch (final BufferUnderflowException e) {
+			throw new XMLParseException("Unexpected end of snapshot");
+		}
+		throw new XMLParseException("Invalid number in snapshot");
+	}
+}
@@ -0,0 +1,127 @@
+package org.freeplane.core.io.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Records the elements, attributes and texts dispatched by {@link StreamingTreeXmlReader}
+ * in the compact binary layout read by {@link TreeSnapshotReader}.
+ *
+ * Element and attribute names are written once and referenced by their number afterwards,
+ * all other strings are written as UTF-8 bytes prefixed by their length.
+ */
+public class TreeSnapshotWriter {
+	private byte[] data = new byte[64 * 1024];
+	private int size;
+	private final Map<String, Integer> names = new HashMap<String, Integer>();
+
+	void startElement(final String name, final List<String> attributeNames, final List<String> attributeValues) {
+		writeByte(TreeSnapshotReader.START);
+		writeName(name);
+		final int attributeCount = attributeNames.size();
+		writeInt(attributeCount);
+		for (int i = 0; i < attributeCount; i++) {
+			writeName(attributeNames.get(i));
+			writeString(attributeValues.get(i));
+		}
+	}
+
+	void endElement() {
+		writeByte(TreeSnapshotReader.END);
+	}
+
+	void content(final String content) {
+		writeByte(TreeSnapshotReader.CONTENT);
+		writeString(content);
+	}
+
+	void text(final String text) {
+		writeByte(TreeSnapshotReader.TEXT);
+		writeString(text);
+	}
+
+	/**
+	 * Writes the recorded snapshot bound to the given path, length and modification time of its source file.
+	 * The file is replaced atomically, so that readers never see a partially written snapshot.
+	 */
+	public void writeTo(final File file, final String sourcePath, final long sourceLength, final long sourceModificationTime)
+	        throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(data, 0, size);
+		final byte[] sourcePathBytes = sourcePath.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer header = ByteBuffer.allocate(TreeSnapshotReader.HEADER_SIZE + sourcePathBytes.length);
+		header.putInt(TreeSnapshotReader.MAGIC).putInt(TreeSnapshotReader.VERSION).putLong(sourceLength)
+		    .putLong(sourceModificationTime).putInt(sourcePathBytes.length).putInt(size).putInt((int) crc.getValue())
+		    .put(sourcePathBytes);
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		final File newFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		try {
+			try (FileOutputStream out = new FileOutputStream(newFile)) {
+				out.write(header.array());
+				out.write(data, 0, size);
+			}
+			try {
+				Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(newFile.toPath());
+		}
+	}
+
+	private void writeName(final String name) {
+		final Integer number = names.get(name);
+		if (number != null) {
+			writeInt(number);
+		}
+		else {
+			final int newNumber = names.size();
+			names.put(name, newNumber);
+			writeInt(newNumber);
+			writeString(name);
+		}
+	}
+
+	private void writeString(final String string) {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, data, size, bytes.length);
+		size += bytes.length;
+	}
+
+	private void writeInt(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			data[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[size++] = (byte) value;
+	}
+
+	private void writeByte(final int value) {
+		ensureCapacity(1);
+		data[size++] = (byte) value;
+	}
+
+	private void ensureCapacity(final int additionalBytes) {
+		final int requiredSize = size + additionalBytes;
+		if (requiredSize > data.length) {
+			data = Arrays.copyOf(data, Math.max(requiredSize, data.length * 2));
+		}
+	}
+}
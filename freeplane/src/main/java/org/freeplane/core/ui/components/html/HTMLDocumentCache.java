@@ -0,0 +1,197 @@
+package org.freeplane.core.ui.components.html;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.swing.JLabel;
+import javax.swing.text.Document;
+import javax.swing.text.html.StyleSheet;
+
+/**
+ * Process wide cache of parsed html documents of labels and of their measured sizes.
+ *
+ * Labels showing the same text with the same font, color, alignment and style sheet share one parsed document,
+ * each of them gets its own views. The sizes measured for one label are reused by all labels
+ * with the same document and the same font render context, which reflects the zoom of the label.
+ *
+ * The cache evicts least recently used documents when their total weight exceeds its budget.
+ * The weight of a document is the length of its text plus a fixed weight for its element tree, views and measurements,
+ * so that many short texts are limited too.
+ * Cached documents must not be modified.
+ */
+class HTMLDocumentCache {
+	static final int MAXIMAL_TOTAL_WEIGHT = 2 * 1024 * 1024;
+	static final int DOCUMENT_WEIGHT = 1024;
+	static final int MAXIMAL_TEXT_LENGTH = 64 * 1024;
+
+	static class Key {
+		private final String text;
+		private final Font font;
+		private final Color foreground;
+		private final int horizontalAlignment;
+		private final StyleSheet customStyleSheet;
+		private final String base;
+		private final int hashCode;
+
+		Key(JLabel label, String text) {
+			this.text = text;
+			this.font = label.getFont();
+			this.foreground = label.getForeground();
+			this.horizontalAlignment = label.getHorizontalAlignment();
+			this.customStyleSheet = (StyleSheet) label.getClientProperty(StyleSheet.class);
+			final Object base = label.getClientProperty(ScaledHTML.documentBaseKey);
+			this.base = base instanceof URL ? ((URL) base).toExternalForm() : null;
+			this.hashCode = Objects.hash(text, font, foreground, horizontalAlignment,
+			    System.identityHashCode(customStyleSheet), this.base);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			final Key other = (Key) obj;
+			return hashCode == other.hashCode
+			        && horizontalAlignment == other.horizontalAlignment
+			        && customStyleSheet == other.customStyleSheet
+			        && text.equals(other.text)
+			        && Objects.equals(font, other.font)
+			        && Objects.equals(foreground, other.foreground)
+			        && Objects.equals(base, other.base);
+		}
+	}
+
+	static class Entry {
+		private final Document document;
+		private final Map<FontRenderContext, Measurements> measurements = new HashMap<>(2);
+
+		Entry(Document document) {
+			this.document = document;
+		}
+
+		Document getDocument() {
+			return document;
+		}
+
+		synchronized Measurements getMeasurements(FontRenderContext fontRenderContext) {
+			return measurements.computeIfAbsent(fontRenderContext, x -> new Measurements());
+		}
+	}
+
+	/** Sizes of the root view of a document, unknown sizes are NaN. */
+	static class Measurements {
+		private static final int MAXIMAL_MEASURED_WIDTH_COUNT = 8;
+		private float preferredWidth = Float.NaN;
+		private float preferredHeight = Float.NaN;
+		private float minimumWidth = Float.NaN;
+		private final LinkedHashMap<Integer, Float> preferredHeightsByWidth = new LinkedHashMap<>();
+
+		synchronized boolean hasPreferredSize() {
+			return !Float.isNaN(preferredWidth);
+		}
+
+		synchronized float getPreferredWidth() {
+			return preferredWidth;
+		}
+
+		synchronized float getPreferredHeight() {
+			return preferredHeight;
+		}
+
+		synchronized void setPreferredSize(float width, float height) {
+			this.preferredWidth = width;
+			this.preferredHeight = height;
+		}
+
+		synchronized float getMinimumWidth() {
+			return minimumWidth;
+		}
+
+		synchronized void setMinimumWidth(float minimumWidth) {
+			this.minimumWidth = minimumWidth;
+		}
+
+		synchronized float getPreferredHeight(int width) {
+			final Float height = preferredHeightsByWidth.get(width);
+			return height != null ? height : Float.NaN;
+		}
+
+		synchronized void setPreferredHeight(int width, float height) {
+			preferredHeightsByWidth.put(width, height);
+			if (preferredHeightsByWidth.size() > MAXIMAL_MEASURED_WIDTH_COUNT) {
+				final Iterator<Integer> iterator = preferredHeightsByWidth.keySet().iterator();
+				iterator.next();
+				iterator.remove();
+			}
+		}
+	}
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+	private final int maximalTotalWeight;
+	private long totalWeight = 0;
+	private long hitCount = 0;
+	private long missCount = 0;
+
+	HTMLDocumentCache(int maximalTotalWeight) {
+		this.maximalTotalWeight = maximalTotalWeight;
+	}
+
+	static boolean isCacheable(String text) {
+		return text.length() <= MAXIMAL_TEXT_LENGTH;
+	}
+
+	synchronized Entry get(Key key) {
+		final Entry entry = entries.get(key);
+		if (entry != null)
+			hitCount++;
+		else
+			missCount++;
+		return entry;
+	}
+
+	synchronized void put(Key key, Entry entry) {
+		final Entry oldEntry = entries.put(key, entry);
+		if (oldEntry == null)
+			totalWeight += weightOf(key);
+		for (Iterator<Key> iterator = entries.keySet().iterator();
+				totalWeight > maximalTotalWeight && entries.size() > 1;) {
+			final Key evictedKey = iterator.next();
+			iterator.remove();
+			totalWeight -= weightOf(evictedKey);
+		}
+	}
+
+	private static int weightOf(Key key) {
+		return key.text.length() + DOCUMENT_WEIGHT;
+	}
+
+	synchronized void clear() {
+		entries.clear();
+		totalWeight = 0;
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	synchronized long getMissCount() {
+		return missCount;
+	}
+}
@@ -44,12 +44,31 @@ import org.freeplane.core.util.HtmlUtils;
 
 public class ScaledHTML extends BasicHTML{
 
+    private static final HTMLDocumentCache documentCache = new HTMLDocumentCache(HTMLDocumentCache.MAXIMAL_TOTAL_WEIGHT);
+
     /**
      * Create an html renderer for the given component and
-     * string of html.
+     * string of html. Parsed documents are shared by components showing the same html
+     * with the same style.
      */
     static Renderer createHTMLView(JLabel c, String html) {
         ScaledEditorKit kit = SynchronousScaledEditorKit.create();
+        ViewFactory f = kit.getViewFactory();
+        if(! HTMLDocumentCache.isCacheable(html)) {
+            Document doc = parse(kit, c, html);
+            return new Renderer(c, f, f.create(doc.getDefaultRootElement()), null);
+        }
+        HTMLDocumentCache.Key key = new HTMLDocumentCache.Key(c, html);
+        HTMLDocumentCache.Entry entry = documentCache.get(key);
+        if(entry == null) {
+            entry = new HTMLDocumentCache.Entry(parse(kit, c, html));
+            documentCache.put(key, entry);
+        }
+        View hview = f.create(entry.getDocument().getDefaultRootElement());
+        return new Renderer(c, f, hview, entry);
+    }
+
+    private static Document parse(ScaledEditorKit kit, JLabel c, String html) {
         Document doc = kit.createDefaultDocument(c);
         Object base = c.getClientProperty(documentBaseKey);
         if (base instanceof URL) {
@@ -60,10 +79,7 @@ public class ScaledHTML extends BasicHTML{
             kit.read(r, doc, 0);
         } catch (Throwable e) {
         }
-        ViewFactory f = kit.getViewFactory();
-        View hview = f.create(doc.getDefaultRootElement());
-        Renderer v = new Renderer(c, f, hview);
-        return v;
+        return doc;
     }
 
     public static void resetPainter() {
@@ -143,14 +159,18 @@ public class ScaledHTML extends BasicHTML{
     	private boolean setSizeRunning;
     	private float initialWidth = NOT_INITIALIZED;
     	private float initialHeight = NOT_INITIALIZED;
+    	private final HTMLDocumentCache.Entry cacheEntry;
+    	private HTMLDocumentCache.Measurements measurements;
+    	private boolean isViewSizeValid;
 
 
-		Renderer(JComponent c, ViewFactory f, View v) {
+		Renderer(JComponent c, ViewFactory f, View v, HTMLDocumentCache.Entry cacheEntry) {
     		super(null);
     		setSizeRunning = true;
     		host = c;
     		factory = f;
     		view = v;
+    		this.cacheEntry = cacheEntry;
     		view.setParent(this);
     		// initially layout to the preferred size
     	}
@@ -176,21 +196,61 @@ public class ScaledHTML extends BasicHTML{
         		 // width currently laid out to
         		 return width;
         	 }
-        	 return view.getPreferredSpan(axis);
+        	 if(measurements != null) {
+        		 float cachedHeight = measurements.getPreferredHeight(width);
+        		 if(! Float.isNaN(cachedHeight))
+        			 return cachedHeight;
+        	 }
+        	 layoutView();
+        	 float preferredHeight = view.getPreferredSpan(axis);
+        	 if(measurements != null)
+        		 measurements.setPreferredHeight(width, preferredHeight);
+        	 return preferredHeight;
          }
 
          private void initialize() {
         	 if(initialWidth == NOT_INITIALIZED) {
-        		 initialWidth = view.getPreferredSpan(X_AXIS);
-        		 initialHeight = view.getPreferredSpan(Y_AXIS);
+        		 if(cacheEntry != null)
+        			 measurements = cacheEntry.getMeasurements(host.getFontMetrics(host.getFont()).getFontRenderContext());
+        		 if(measurements != null && measurements.hasPreferredSize()) {
+        			 initialWidth = measurements.getPreferredWidth();
+        			 initialHeight = measurements.getPreferredHeight();
+        		 }
+        		 else {
+        			 initialWidth = view.getPreferredSpan(X_AXIS);
+        			 initialHeight = view.getPreferredSpan(Y_AXIS);
+        			 if(measurements != null)
+        				 measurements.setPreferredSize(initialWidth, initialHeight);
+        		 }
         		 setSize(initialWidth, initialHeight);
         	 }
          }
 
+         /** Lays out the views to the current size, which is postponed until the views are painted or measured. */
+         private void layoutView() {
+        	 if(isViewSizeValid)
+        		 return;
+        	 setSizeRunning = true;
+        	 try {
+        		 view.setSize(width, height);
+        		 isViewSizeValid = true;
+        	 }
+        	 finally {
+        		 setSizeRunning = false;
+        	 }
+         }
+
        @Override
        public float getMinimumSpan(int axis) {
     	   initialize();
-    	   return view.getMinimumSpan(axis);
+    	   if(axis != X_AXIS || measurements == null)
+    		   return view.getMinimumSpan(axis);
+    	   float minimumWidth = measurements.getMinimumWidth();
+    	   if(Float.isNaN(minimumWidth)) {
+    		   minimumWidth = view.getMinimumSpan(axis);
+    		   measurements.setMinimumWidth(minimumWidth);
+    	   }
+    	   return minimumWidth;
         }
 
         @Override
@@ -215,6 +275,7 @@ public class ScaledHTML extends BasicHTML{
 		public void paint(Graphics g, Shape allocation) {
 	    Rectangle alloc = allocation.getBounds();
 	    view.setSize(alloc.width, alloc.height);
+	    isViewSizeValid = alloc.width == width && alloc.height == height;
 	    view.paint(g, allocation);
         }
 
@@ -233,17 +294,20 @@ public class ScaledHTML extends BasicHTML{
         }
         @Override
 		public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+	    layoutView();
 	    return view.modelToView(pos, a, b);
         }
 
 	@Override
 	public Shape modelToView(int p0, Position.Bias b0, int p1,
 				 Position.Bias b1, Shape a) throws BadLocationException {
+	    layoutView();
 	    return view.modelToView(p0, b0, p1, b1, a);
 	}
 
         @Override
 		public int viewToModel(float x, float y, Shape a, Position.Bias[] bias) {
+	    layoutView();
 	    return view.viewToModel(x, y, a, bias);
         }
 
@@ -269,15 +333,10 @@ public class ScaledHTML extends BasicHTML{
 
         @Override
 		public void setSize(float width, float height) {
-        	setSizeRunning = true;
-        	try {
         	this.width = (int) width;
         	this.height = (int) height;
-        	view.setSize(width, height);
-        	}
-        	finally {
-        		setSizeRunning = false;
-			}
+        	isViewSizeValid = false;
+        	setSizeRunning = false;
         }
 
         public void resetWidth() {
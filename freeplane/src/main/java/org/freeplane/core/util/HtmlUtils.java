@@ -86,7 +86,7 @@ public class HtmlUtils {
 	}
 
 	private static final Pattern FIND_TAGS_PATTERN = Pattern.compile("([^<]*)(<[^>]+>)");
-	private static Pattern[] PATTERNS;
+	private static volatile Pattern[] PATTERNS;
 	private static HtmlUtils sInstance = new HtmlUtils();
 	private static final Pattern SLASHED_TAGS_PATTERN = Pattern.compile("<((" + "br|area|base|basefont|"
 	        + "bgsound|button|col|colgroup|embed|hr" + "|img|input|isindex|keygen|link|meta"
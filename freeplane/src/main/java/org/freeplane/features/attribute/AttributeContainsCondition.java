@@ -20,12 +20,15 @@
 package org.freeplane.features.attribute;
 
 import java.awt.FontMetrics;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.explorer.MapExplorerConditionController;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy.Type;
 import org.freeplane.features.filter.condition.ASelectableCondition;
@@ -130,4 +133,9 @@ public class AttributeContainsCondition extends StringConditionAdapter {
     protected String conditionValue() {
         return comparedValue;
     }
+
+    @Override
+    protected Set<NodeTextIndex.Field> indexedFields() {
+        return EnumSet.of(NodeTextIndex.Field.ATTRIBUTES);
+    }
 }
@@ -91,4 +91,14 @@ public class AttributeExistsCondition extends ASelectableCondition {
     protected String getName() {
 	    return NAME;
     }
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public boolean checksOnlyNodeAndRelatives() {
+		return true;
+	}
 }
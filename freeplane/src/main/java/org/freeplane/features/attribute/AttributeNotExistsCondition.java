@@ -89,4 +89,14 @@ public class AttributeNotExistsCondition extends ASelectableCondition {
     protected String getName() {
 	    return NAME;
     }
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public boolean checksOnlyNodeAndRelatives() {
+		return true;
+	}
 }
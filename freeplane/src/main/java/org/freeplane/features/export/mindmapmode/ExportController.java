@@ -1,6 +1,7 @@
 package org.freeplane.features.export.mindmapmode;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
@@ -140,6 +141,19 @@ public class ExportController implements IExtension{
 		return mapExportFileFilters;
 	}
 
+	/** Returns the filter of the map export with the given description or file extension, or null if there is none. */
+	public FileFilter findMapExportFileFilter(String descriptionOrExtension) {
+		final File fileWithExtension = new File("map." + descriptionOrExtension);
+		FileFilter filterByExtension = null;
+		for (FileFilter filter : getMapExportFileFilters()) {
+			if (filter.getDescription().equalsIgnoreCase(descriptionOrExtension))
+				return filter;
+			if (filterByExtension == null && filter.accept(fileWithExtension))
+				filterByExtension = filter;
+		}
+		return filterByExtension;
+	}
+
 	public List<FileFilter> getBranchExportFileFilters() {
 		sortFileFilters();
 		return branchExportFileFilters;
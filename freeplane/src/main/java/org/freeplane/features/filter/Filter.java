@@ -19,10 +19,13 @@
  */
 package org.freeplane.features.filter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import javax.swing.Icon;
 
@@ -49,13 +52,50 @@ public class Filter implements IExtension {
 		return new Filter(null, false, resourceController.getBooleanProperty("filter.showAncestors"), resourceController.getBooleanProperty("filter.showDescendants"), false, filteredElement, null);
 	}
 
+	/**
+	 * Keeps the filter results of the nodes of one map in an array indexed by node ordinals.
+	 * Nodes of other maps and nodes without map are reported as not checked and their results are not kept.
+	 */
 	static class FilterInfoAccessor {
-	    private final WeakHashMap<NodeModel, FilterInfo> filterInfos = new WeakHashMap<>();
+	    private static final byte[] NO_INFOS = {};
+	    private MapModel map;
+	    private byte[] infos = NO_INFOS;
+
+	    int get(NodeModel node) {
+	        if(map == null || node.getMap() != map)
+	            return FilterInfo.SHOW_AS_INITIAL_VALUE;
+	        final int ordinal = node.getOrdinal();
+	        final int info = ordinal < infos.length ? infos[ordinal] : 0;
+	        return info != 0 ? info : FilterInfo.SHOW_AS_INITIAL_VALUE;
+	    }
 
-	    FilterInfo getFilterInfo(NodeModel node) {
-	        return filterInfos.computeIfAbsent(node, x -> new FilterInfo());
+	    void set(NodeModel node, int info) {
+	        final MapModel nodeMap = node.getMap();
+	        if(nodeMap == null)
+	            return;
+	        if(map == null)
+	            map = nodeMap;
+	        else if(nodeMap != map)
+	            return;
+	        final int ordinal = node.getOrdinal();
+	        if(ordinal >= infos.length)
+	            infos = Arrays.copyOf(infos, Math.max(map.getNodeOrdinalCount(), infos.length + (infos.length >> 1)));
+	        infos[ordinal] = (byte) info;
 	    }
 
+	    FilterInfo getFilterInfo(NodeModel node) {
+	        return new FilterInfo() {
+	            @Override
+	            int info() {
+	                return FilterInfoAccessor.this.get(node);
+	            }
+
+	            @Override
+	            void store(int info) {
+	                FilterInfoAccessor.this.set(node, info);
+	            }
+	        };
+	    }
 	}
 
 	static public Filter createFilter(final ICondition condition, final boolean areAncestorsShown,
@@ -63,10 +103,15 @@ public class Filter implements IExtension {
 		return new Filter(condition, false, areAncestorsShown, areDescendantsShown, appliesToVisibleElementsOnly, baseFilter);
 	}
 
+	private static final int MINIMAL_NODE_COUNT_FOR_PARALLEL_EVALUATION = 10_000;
+
 	final private ICondition condition;
 	final int options;
 
 	private FilterInfoAccessor accessor;
+	private Set<NodeModel> candidates;
+	private boolean[] evaluatedMatches;
+	private int evaluatedMatchIndex;
 	private final boolean hidesMatchingElements;
 	private final boolean appliesToVisibleElementsOnly;
 	private final Filter baseFilter;
@@ -112,11 +157,11 @@ public class Filter implements IExtension {
 	}
 
     void addFilterResult(final NodeModel node, final int flags) {
-        getFilterInfo(node).add(flags);
+        accessor.set(node, FilterInfo.add(accessor.get(node), flags));
     }
 
     void setFilterResult(final NodeModel node, final int flags) {
-        getFilterInfo(node).set(flags);
+        accessor.set(node, flags);
     }
 
 	protected boolean appliesToVisibleElementsOnly() {
@@ -140,14 +185,63 @@ public class Filter implements IExtension {
 	public void calculateFilterResults(final MapModel map) {
 	    this.accessor = new FilterInfoAccessor();
 		final NodeModel root = map.getRootNode();
-		resetFilter(root);
-		int ownStateAsAncestor = checkNode(root) ? FilterInfo.HAS_MATCHED_ANCESTOR : FilterInfo.HAS_HIDDEN_ANCESTOR;
-        addFilterResult(root, filterChildrenGetDescendantState(root, ownStateAsAncestor));
+		candidates = NodeTextIndex.candidates(condition, map);
+		try {
+			resetFilter(root);
+			evaluateConcurrently(root);
+			int ownStateAsAncestor = checkNode(root) ? FilterInfo.HAS_MATCHED_ANCESTOR : FilterInfo.HAS_HIDDEN_ANCESTOR;
+			addFilterResult(root, filterChildrenGetDescendantState(root, ownStateAsAncestor));
+		}
+		finally {
+			candidates = null;
+			evaluatedMatches = null;
+		}
 	}
 
     public void calculateFilterResults(final NodeModel root) {
         this.accessor = new FilterInfoAccessor();
-        applyFilterGetDescendantState(root, 0);
+        candidates = NodeTextIndex.candidates(condition, root.getMap());
+        try {
+            evaluateConcurrently(root);
+            applyFilterGetDescendantState(root, 0);
+        }
+        finally {
+            candidates = null;
+            evaluatedMatches = null;
+        }
+    }
+
+    /**
+     * Evaluates a thread safe condition for all nodes of a large subtree on the common fork join pool.
+     *
+     * The nodes are collected in the order the subtree is filtered afterwards.
+     * Visibility of the nodes for the base filter is checked while collecting them
+     * because filter results are not stored thread safe.
+     * The filtering pass takes the evaluated matches in the same order
+     * and combines ancestor and descendant states as usual.
+     */
+    private void evaluateConcurrently(final NodeModel root) {
+        if(condition == null || ! condition.isThreadSafe())
+            return;
+        final List<NodeModel> nodes = new ArrayList<>();
+        collectCheckedNodes(root, nodes);
+        if(nodes.size() < MINIMAL_NODE_COUNT_FOR_PARALLEL_EVALUATION)
+            return;
+        final boolean[] matches = new boolean[nodes.size()];
+        IntStream.range(0, matches.length).parallel().forEach(i -> {
+            final NodeModel node = nodes.get(i);
+            matches[i] = node != null && condition.checkNode(node);
+        });
+        evaluatedMatches = matches;
+        evaluatedMatchIndex = 0;
+    }
+
+    private void collectCheckedNodes(final NodeModel node, final List<NodeModel> nodes) {
+        final boolean isChecked = ! shouldRemainInvisible(node) && (candidates == null || candidates.contains(node));
+        nodes.add(isChecked ? node : null);
+        for (final NodeModel child : children(node)) {
+            collectCheckedNodes(child, nodes);
+        }
     }
 
     private int filterChildrenGetDescendantState(final NodeModel node, int state) {
@@ -198,7 +292,10 @@ public class Filter implements IExtension {
     }
 
     private boolean checkNode(final NodeModel node) {
-		return condition == null || ! shouldRemainInvisible(node) && condition.checkNode(node);
+		if(evaluatedMatches != null)
+			return evaluatedMatches[evaluatedMatchIndex++];
+		return condition == null || ! shouldRemainInvisible(node)
+		        && (candidates == null || candidates.contains(node)) && condition.checkNode(node);
 	}
 
 	private boolean shouldRemainInvisible(final NodeModel node) {
@@ -255,13 +352,13 @@ public class Filter implements IExtension {
 		if (condition == null || node.isRoot()) {
 			return true;
 		}
-		FilterInfo filterInfo = getFilterInfo(node);
-        return filterInfo.isNotChecked() || filterInfo.matches(options);
+		final int info = accessor.get(node);
+        return (info & (FilterInfo.SHOW_AS_INITIAL_VALUE | options)) != 0;
     }
 
 
 	void resetFilter(final NodeModel node) {
-		getFilterInfo(node).reset();
+		accessor.set(node, FilterInfo.SHOW_AS_INITIAL_VALUE);
 	}
 
 	public FilterInfo getFilterInfo(final NodeModel node) {
@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.security.AccessControlException;
 import java.util.Collection;
+import java.util.Set;
 import java.util.Vector;
 import java.util.stream.Stream;
 
@@ -1036,6 +1037,7 @@ public class FilterController implements IExtension, IMapViewChangeListener {
 	NodeModel findNext(final NodeModel from, final NodeModel end, final Direction direction,
 	                   final ICondition condition, Filter filter) {
 		NodeModel next = from;
+		final Set<NodeModel> candidates = NodeTextIndex.candidates(condition, from != null ? from.getMap() : null);
 		for (;;) {
 		    do {
 		        if (direction.isForward())
@@ -1049,7 +1051,7 @@ public class FilterController implements IExtension, IMapViewChangeListener {
 			if (next == from) {
 				break;
 			}
-			if (condition == null || condition.checkNode(next)) {
+			if (condition == null || (candidates == null || candidates.contains(next)) && condition.checkNode(next)) {
 				return next;
 			}
 		}
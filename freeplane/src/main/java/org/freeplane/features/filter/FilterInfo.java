@@ -47,41 +47,51 @@ public class FilterInfo {
         this(SHOW_AS_INITIAL_VALUE);
     }
 
-    private FilterInfo(int info) {
+    FilterInfo(int info) {
+        this.info = info;
+    }
+
+    int info() {
+        return info;
+    }
+
+    void store(int info) {
         this.info = info;
     }
 
     boolean set(final int newInfo) {
-        if(info != newInfo) {
-            info = newInfo;
+        if(info() != newInfo) {
+            store(newInfo);
             return true;
         }
         return false;
     }
 
     boolean add(final int flag) {
-        int oldInfo = info;
+        return set(add(info(), flag));
+    }
+
+    static int add(final int info, final int flag) {
         if ((flag & (SHOW_AS_MATCHED | SHOW_AS_HIDDEN)) != 0) {
-            info &= ~SHOW_AS_INITIAL_VALUE;
+            return info & ~SHOW_AS_INITIAL_VALUE | flag;
         }
-        info |= flag;
-        return oldInfo != info;
+        return info | flag;
     }
 
 	/**
 	 */
 	public boolean canBeAncestor() {
-		return (info & (SHOW_AS_MATCHED_ANCESTOR|SHOW_AS_INITIAL_VALUE)) != 0;
+		return (info() & (SHOW_AS_MATCHED_ANCESTOR|SHOW_AS_INITIAL_VALUE)) != 0;
 	}
 
 	/**
 	 */
 	public boolean isMatched() {
-		return (info & SHOW_AS_MATCHED) != 0;
+		return (info() & SHOW_AS_MATCHED) != 0;
 	}
 
 	public void reset() {
-		info = SHOW_AS_INITIAL_VALUE;
+		store(SHOW_AS_INITIAL_VALUE);
 	}
 
     boolean matches(final int filterOptions) {
@@ -89,7 +99,7 @@ public class FilterInfo {
     }
 
     int get(final int filterOptions) {
-        return filterOptions & info;
+        return filterOptions & info();
     }
 
     boolean isNotChecked() {
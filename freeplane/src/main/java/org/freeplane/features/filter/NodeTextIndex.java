@@ -0,0 +1,368 @@
+package org.freeplane.features.filter;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.util.HtmlUtils;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.filter.condition.StringConditionAdapter;
+import org.freeplane.features.icon.IconController;
+import org.freeplane.features.icon.Tag;
+import org.freeplane.features.map.IMapChangeListener;
+import org.freeplane.features.map.INodeChangeListener;
+import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeDeletionEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.NodeModel.NodeChangeType;
+import org.freeplane.features.text.NodeTextConditionController;
+import org.freeplane.features.text.TextController;
+
+/**
+ * Inverted index of the texts of the nodes of a map, used by conditions
+ * to skip nodes which can not contain the searched text.
+ *
+ * The texts are reduced to their letters and digits without case and diacritics,
+ * so that a node containing a text in the sense of any string condition also contains it in the index.
+ * The index is built when it is first queried and kept up to date by {@link Updater}:
+ * changed nodes are indexed again on the next query, a map change discards the whole index.
+ * Nodes whose text is computed, e.g. by formulas or formats, are candidates for every query.
+ */
+public class NodeTextIndex implements IExtension {
+	public enum Field {
+		TEXT, DETAILS, NOTE, ATTRIBUTES, TAGS
+	}
+
+	private static final int NGRAM_LENGTH = 3;
+	private static final int POSTINGS_TABLE_SIZE = 1 << 18;
+	private static final int MINIMAL_REBUILT_POSTING_COUNT = 1 << 16;
+
+	private static class Entry {
+		final NodeModel node;
+		int ordinal;
+		String[] keys;
+		int computedFields;
+		int postingCount;
+
+		Entry(NodeModel node) {
+			this.node = node;
+		}
+
+		boolean containsKey(String key, int fieldMask) {
+			for (Field field : Field.values()) {
+				final String fieldKey = keys[field.ordinal()];
+				if ((fieldMask & mask(field)) != 0 && fieldKey != null && fieldKey.contains(key))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private static class Postings {
+		int[] ordinals = new int[4];
+		int size;
+
+		boolean add(int ordinal) {
+			if (size > 0 && ordinals[size - 1] == ordinal)
+				return false;
+			if (size == ordinals.length)
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+			ordinals[size++] = ordinal;
+			return true;
+		}
+	}
+
+	private final MapModel map;
+	private final Map<NodeModel, Entry> entries = new HashMap<>();
+	private final List<Entry> entriesByOrdinal = new ArrayList<>();
+	// n-grams are hashed to the table without collision handling, found nodes are checked against their keys anyway
+	private final Postings[] postings = new Postings[POSTINGS_TABLE_SIZE];
+	private final Set<Entry> computedEntries = new HashSet<>();
+	private final Set<NodeModel> changedNodes = new LinkedHashSet<>();
+	private boolean isBuilt;
+	private int postingCount;
+	private int livePostingCount;
+
+	private NodeTextIndex(MapModel map) {
+		this.map = map;
+	}
+
+	public static NodeTextIndex of(MapModel map) {
+		NodeTextIndex index = map.getExtension(NodeTextIndex.class);
+		if (index == null) {
+			index = new NodeTextIndex(map);
+			map.addExtension(index);
+		}
+		return index;
+	}
+
+	/** Returns the nodes which may satisfy the condition or null if the condition can not be answered by the index. */
+	static Set<NodeModel> candidates(ICondition condition, MapModel map) {
+		if (condition instanceof StringConditionAdapter && map != null && map.getRootNode() != null)
+			return ((StringConditionAdapter) condition).candidates(map);
+		return null;
+	}
+
+	/**
+	 * Returns the nodes which contain the text in one of the given fields or whose content in these fields is computed,
+	 * or null if the text is too short to be looked up.
+	 */
+	public Set<NodeModel> nodesContaining(String text, Set<Field> fields) {
+		final String key = key(text);
+		if (key.length() < NGRAM_LENGTH)
+			return null;
+		update();
+		Postings smallestPostings = null;
+		for (int i = 0; i + NGRAM_LENGTH <= key.length(); i++) {
+			final Postings ngramPostings = postings[ngram(key, i)];
+			if (ngramPostings == null) {
+				smallestPostings = null;
+				break;
+			}
+			if (smallestPostings == null || ngramPostings.size < smallestPostings.size)
+				smallestPostings = ngramPostings;
+		}
+		int fieldMask = 0;
+		for (Field field : fields)
+			fieldMask |= mask(field);
+		final Set<NodeModel> nodes = new HashSet<>();
+		if (smallestPostings != null) {
+			for (int i = 0; i < smallestPostings.size; i++) {
+				final Entry entry = entriesByOrdinal.get(smallestPostings.ordinals[i]);
+				if (entry != null && entry.containsKey(key, fieldMask))
+					nodes.add(entry.node);
+			}
+		}
+		for (Entry entry : computedEntries)
+			if ((entry.computedFields & fieldMask) != 0)
+				nodes.add(entry.node);
+		return nodes;
+	}
+
+	private static int mask(Field field) {
+		return 1 << field.ordinal();
+	}
+
+	static String key(CharSequence text) {
+		final CharSequence decomposedText = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+		final StringBuilder key = new StringBuilder(decomposedText.length());
+		for (int i = 0; i < decomposedText.length(); i++) {
+			final char c = decomposedText.charAt(i);
+			if (Character.isLetterOrDigit(c))
+				key.append(Character.toLowerCase(Character.toUpperCase(c)));
+		}
+		return key.toString();
+	}
+
+	private static boolean isAscii(CharSequence text) {
+		for (int i = 0; i < text.length(); i++)
+			if (text.charAt(i) >= 0x80)
+				return false;
+		return true;
+	}
+
+	private static int ngram(String key, int start) {
+		final int hash = (key.charAt(start) * 31 + key.charAt(start + 1)) * 31 + key.charAt(start + 2);
+		return (hash ^ hash >>> 16) & (POSTINGS_TABLE_SIZE - 1);
+	}
+
+	private void update() {
+		if (!isBuilt) {
+			build();
+			return;
+		}
+		for (NodeModel node : changedNodes)
+			index(node);
+		changedNodes.clear();
+		if (postingCount > MINIMAL_REBUILT_POSTING_COUNT && postingCount > 2 * livePostingCount)
+			rebuildPostings();
+	}
+
+	private void build() {
+		clear();
+		indexSubtree(map.getRootNode());
+		isBuilt = true;
+	}
+
+	private void clear() {
+		entries.clear();
+		entriesByOrdinal.clear();
+		Arrays.fill(postings, null);
+		computedEntries.clear();
+		changedNodes.clear();
+		postingCount = livePostingCount = 0;
+		isBuilt = false;
+	}
+
+	private void indexSubtree(NodeModel node) {
+		index(node);
+		for (NodeModel child : node.getChildren())
+			indexSubtree(child);
+	}
+
+	private void index(NodeModel node) {
+		Entry entry = entries.get(node);
+		final String[] keys = new String[Field.values().length];
+		final int computedFields = readKeys(node, keys);
+		if (entry != null) {
+			if (entry.computedFields == computedFields && Arrays.equals(entry.keys, keys))
+				return;
+			remove(entry);
+		}
+		entry = new Entry(node);
+		entry.ordinal = entriesByOrdinal.size();
+		entry.keys = keys;
+		entry.computedFields = computedFields;
+		entriesByOrdinal.add(entry);
+		entries.put(node, entry);
+		if (computedFields != 0)
+			computedEntries.add(entry);
+		addPostings(entry);
+	}
+
+	private void addPostings(Entry entry) {
+		for (String key : entry.keys) {
+			if (key == null)
+				continue;
+			for (int i = 0; i + NGRAM_LENGTH <= key.length(); i++) {
+				final int ngram = ngram(key, i);
+				if (postings[ngram] == null)
+					postings[ngram] = new Postings();
+				if (postings[ngram].add(entry.ordinal))
+					entry.postingCount++;
+			}
+		}
+		postingCount += entry.postingCount;
+		livePostingCount += entry.postingCount;
+	}
+
+	private void remove(Entry entry) {
+		entries.remove(entry.node);
+		entriesByOrdinal.set(entry.ordinal, null);
+		computedEntries.remove(entry);
+		livePostingCount -= entry.postingCount;
+	}
+
+	private void removeSubtree(NodeModel node) {
+		final Entry entry = entries.get(node);
+		if (entry != null)
+			remove(entry);
+		changedNodes.remove(node);
+		for (NodeModel child : node.getChildren())
+			removeSubtree(child);
+	}
+
+	private void rebuildPostings() {
+		final List<Entry> liveEntries = new ArrayList<>(entries.size());
+		for (Entry entry : entriesByOrdinal)
+			if (entry != null)
+				liveEntries.add(entry);
+		entriesByOrdinal.clear();
+		Arrays.fill(postings, null);
+		postingCount = livePostingCount = 0;
+		for (Entry entry : liveEntries) {
+			entry.ordinal = entriesByOrdinal.size();
+			entry.postingCount = 0;
+			entriesByOrdinal.add(entry);
+			addPostings(entry);
+		}
+	}
+
+	/** Stores the keys of the texts compared by the string conditions, returns the mask of the computed fields. */
+	private static int readKeys(NodeModel node, String[] keys) {
+		int computedFields = 0;
+		final TextController textController = TextController.getController();
+		final Object userObject = node.getUserObject();
+		final Object text = textController.withNodeNumbering(false, () -> textController.getTransformedObjectNoThrow(node));
+		if (userObject instanceof String && userObject.equals(text))
+			keys[Field.TEXT.ordinal()] = key(HtmlUtils.htmlToPlain((String) userObject));
+		else
+			computedFields |= mask(Field.TEXT);
+		keys[Field.DETAILS.ordinal()] = keyOf(
+		    NodeTextConditionController.getItemsForComparison(TextController.FILTER_DETAILS, node)[0]);
+		keys[Field.NOTE.ordinal()] = keyOf(
+		    NodeTextConditionController.getItemsForComparison(TextController.FILTER_NOTE, node)[0]);
+		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
+		final int attributeCount = attributes.getRowCount();
+		if (attributeCount > 0) {
+			final StringBuilder attributeTexts = new StringBuilder();
+			for (int i = 0; i < attributeCount; i++) {
+				final Object value = attributes.getValueAt(i, 1);
+				final String transformedValue = textController.getTransformedTextNoThrow(node, attributes, value);
+				if (value == null || !value.toString().equals(transformedValue))
+					computedFields |= mask(Field.ATTRIBUTES);
+				attributeTexts.append(attributes.getValueAt(i, 0)).append('\n').append(transformedValue).append('\n');
+			}
+			keys[Field.ATTRIBUTES.ordinal()] = key(attributeTexts);
+		}
+		final List<Tag> tags = IconController.getController().getTags(node);
+		if (!tags.isEmpty()) {
+			final StringBuilder tagTexts = new StringBuilder();
+			for (Tag tag : tags)
+				tagTexts.append(tag.getContent()).append('\n');
+			keys[Field.TAGS.ordinal()] = key(tagTexts);
+		}
+		return computedFields;
+	}
+
+	private static String keyOf(Object text) {
+		return text != null ? key(text.toString()) : null;
+	}
+
+	/** Keeps the indexes of all maps up to date. */
+	public static class Updater implements INodeChangeListener, IMapChangeListener {
+		@Override
+		public void nodeChanged(NodeChangeEvent event) {
+			final Object property = event.getProperty();
+			if (property == NodeChangeType.REFRESH || property == NodeChangeType.FOLDING)
+				return;
+			final NodeTextIndex index = builtIndex(event.getNode().getMap());
+			if (index != null)
+				index.changedNodes.add(event.getNode());
+		}
+
+		@Override
+		public void onNodeInserted(NodeModel parent, NodeModel child, int newIndex) {
+			final NodeTextIndex index = builtIndex(parent.getMap());
+			if (index != null)
+				addSubtree(index.changedNodes, child);
+		}
+
+		private static void addSubtree(Set<NodeModel> nodes, NodeModel node) {
+			nodes.add(node);
+			for (NodeModel child : node.getChildren())
+				addSubtree(nodes, child);
+		}
+
+		@Override
+		public void onNodeDeleted(NodeDeletionEvent nodeDeletionEvent) {
+			final NodeTextIndex index = builtIndex(nodeDeletionEvent.parent.getMap());
+			if (index != null)
+				index.removeSubtree(nodeDeletionEvent.node);
+		}
+
+		@Override
+		public void mapChanged(MapChangeEvent event) {
+			if (event.getProperty() == Filter.class)
+				return;
+			final NodeTextIndex index = event.getMap() != null ? builtIndex(event.getMap()) : null;
+			if (index != null)
+				index.clear();
+		}
+
+		private static NodeTextIndex builtIndex(MapModel map) {
+			final NodeTextIndex index = map.getExtension(NodeTextIndex.class);
+			return index != null && index.isBuilt ? index : null;
+		}
+	}
+}
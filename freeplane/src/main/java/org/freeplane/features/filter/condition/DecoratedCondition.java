@@ -134,6 +134,16 @@ abstract public class DecoratedCondition extends ASelectableCondition implements
         return originalCondition.checksDescendants();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return originalCondition.isThreadSafe();
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return originalCondition.checksOnlyNodeAndRelatives();
+    }
+
 
 
 }
@@ -39,4 +39,21 @@ public interface ICondition {
     default boolean checksDescendants() {
         return false;
     }
+
+    /**
+     * Returns true if {@link #checkNode(NodeModel)} reads no other nodes than the checked node,
+     * its position in the tree and the relatives announced by
+     * {@link #checksParent()}, {@link #checksAncestors()}, {@link #checksChildren()} and {@link #checksDescendants()}.
+     */
+    default boolean checksOnlyNodeAndRelatives() {
+        return false;
+    }
+
+    /**
+     * Returns true if {@link #checkNode(NodeModel)} only reads the map
+     * and can be called for different nodes from several threads at the same time.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
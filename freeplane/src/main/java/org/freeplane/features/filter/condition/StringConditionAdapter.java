@@ -1,13 +1,18 @@
 package org.freeplane.features.filter.condition;
 
 import java.awt.FontMetrics;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.StringMatchingStrategy.Type;
 import org.freeplane.features.filter.condition.ConditionFactory.ConditionOperator;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.text.TextController;
 import org.freeplane.n3.nanoxml.XMLElement;
 
@@ -39,6 +44,23 @@ public abstract class StringConditionAdapter extends ASelectableCondition {
 
     protected abstract Object conditionValue();
 
+    /**
+     * Returns the nodes of the map which may satisfy the condition,
+     * or null if the condition can not be checked using {@link NodeTextIndex}.
+     */
+    public Set<NodeModel> candidates(MapModel map) {
+        final Set<NodeTextIndex.Field> indexedFields = indexedFields();
+        if(matchApproximately || indexedFields.isEmpty())
+            return null;
+        final Object value = conditionValue();
+        return value == null ? null : NodeTextIndex.of(map).nodesContaining(value.toString(), indexedFields);
+    }
+
+    /** Fields one of which contains the condition value for every node satisfying the condition. */
+    protected Set<NodeTextIndex.Field> indexedFields() {
+        return Collections.emptySet();
+    }
+
     protected String normalize(Object value) {
         return StringTransformer.transform(value.toString(), !matchCase, ignoreDiacritics);
     }
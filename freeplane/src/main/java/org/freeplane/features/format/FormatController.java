@@ -72,9 +72,9 @@ public class FormatController implements IExtension, IFreeplanePropertyListener
 	private boolean formatsLoaded;
 	private SimpleDateFormat defaultDateFormat;
 	private SimpleDateFormat defaultDateTimeFormat;
-	private HashMap<String, SimpleDateFormat> dateFormatCache = new HashMap<String, SimpleDateFormat>();
-	private DecimalFormat defaultNumberFormat;
-	private HashMap<String, DecimalFormat> numberFormatCache = new HashMap<String, DecimalFormat>();
+	// formats are not thread safe and maps are also read on worker threads, so each thread caches its own instances
+	private final ThreadLocal<HashMap<String, SimpleDateFormat>> dateFormatCache = ThreadLocal.withInitial(HashMap::new);
+	private final ThreadLocal<HashMap<String, DecimalFormat>> numberFormatCache = ThreadLocal.withInitial(HashMap::new);
     static private boolean firstError = true;
 
 	public IValidator createValidator (){
@@ -451,33 +451,33 @@ public class FormatController implements IExtension, IFreeplanePropertyListener
 	}
 
 	public DecimalFormat getDefaultNumberFormat() {
-		if (defaultNumberFormat != null)
-			return defaultNumberFormat;
 	    final ResourceController resourceController = ResourceController.getResourceController();
 
 		// an empty number format does not make sense!
 		fixEmptyDataFormatProperty(resourceController, RESOURCES_NUMBER_FORMAT, "#0.####");
 
-		defaultNumberFormat = getDecimalFormat(resourceController.getProperty(RESOURCES_NUMBER_FORMAT));
-	    return defaultNumberFormat;
+	    return getDecimalFormat(resourceController.getProperty(RESOURCES_NUMBER_FORMAT));
     }
 
 	/** @param pattern either a string (see {@link DecimalFormat}) or null for a default formatter. */
 	public DecimalFormat getDecimalFormat(final String pattern) {
-		DecimalFormat format = numberFormatCache.get(pattern);
+		if (pattern == null)
+			return getDefaultNumberFormat();
+		final HashMap<String, DecimalFormat> formats = numberFormatCache.get();
+		DecimalFormat format = formats.get(pattern);
 		if (format == null) {
-			format = (pattern == null) ? getDefaultNumberFormat()
-			        : new DecimalFormat(pattern, new DecimalFormatSymbols(FormatUtils.getFormatLocaleFromResources()));
-			numberFormatCache.put(pattern, format);
+			format = new DecimalFormat(pattern, new DecimalFormatSymbols(FormatUtils.getFormatLocaleFromResources()));
+			formats.put(pattern, format);
 		}
 		return format;
 	}
 
 	public SimpleDateFormat getDateFormat(String pattern) {
-	    SimpleDateFormat parser = dateFormatCache.get(pattern);
+		final HashMap<String, SimpleDateFormat> parsers = dateFormatCache.get();
+	    SimpleDateFormat parser = parsers.get(pattern);
         if (parser == null) {
         	parser = new SimpleDateFormat(pattern, FormatUtils.getFormatLocaleFromResources());
-        	dateFormatCache.put(pattern, parser);
+        	parsers.put(pattern, parser);
         }
 	    return parser;
     }
@@ -495,9 +495,6 @@ public class FormatController implements IExtension, IFreeplanePropertyListener
             if (scannerController != null)
                 scannerController.addParsersForStandardFormats();
         }
-        else if (propertyName.equals(RESOURCES_NUMBER_FORMAT)) {
-            defaultNumberFormat = getDecimalFormat(newValue);
-        }
         else if (FormatUtils.equalsFormatLocaleName(propertyName)) {
             locale = FormatUtils.getFormatLocaleFromResources();
         }
@@ -107,6 +107,17 @@ abstract class TagCondition extends StringConditionAdapter {
     public boolean searchesAcrossAllCategories() {
         return searchesAcrossAllCategories;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return ! matchApproximately && ! searchesAcrossAllCategories;
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return true;
+    }
+
     protected TagIcon tagIcon(FontMetrics fontMetrics) {
         return tagIcon(comparedValue, fontMetrics);
     }
@@ -20,11 +20,15 @@
 package org.freeplane.features.icon;
 
 import java.awt.FontMetrics;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.condition.ASelectableCondition;
 import org.freeplane.features.filter.condition.ConditionFactory;
@@ -108,4 +112,10 @@ public class TagContainsCondition extends TagCondition {
     protected String conditionValue() {
         return comparedValue;
     }
+
+    @Override
+    protected Set<NodeTextIndex.Field> indexedFields() {
+        // categories of the tags are not indexed
+        return searchesAcrossAllCategories() ? Collections.<NodeTextIndex.Field>emptySet() : EnumSet.of(NodeTextIndex.Field.TAGS);
+    }
 }
@@ -0,0 +1,91 @@
+package org.freeplane.features.map;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.freeplane.core.extension.IExtension;
+
+/**
+ * Keeps track of the {@link DeferredChildren} of a map.
+ *
+ * The ids of the nodes which have not been read yet are reserved,
+ * so that new nodes do not get them and looking them up reads their branch.
+ */
+class DeferredBranches implements IExtension {
+	private final Map<String, DeferredChildren> branchesById = new HashMap<String, DeferredChildren>();
+	private final Set<DeferredChildren> collectedBranches = newBranchSet();
+	private final Set<DeferredChildren> requiredBranches = newBranchSet();
+
+	private static Set<DeferredChildren> newBranchSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<DeferredChildren, Boolean>());
+	}
+
+	static DeferredBranches of(MapModel map) {
+		DeferredBranches branches = map.getExtension(DeferredBranches.class);
+		if (branches == null) {
+			branches = new DeferredBranches();
+			map.addExtension(branches);
+		}
+		return branches;
+	}
+
+	static boolean containsId(MapModel map, String id) {
+		final DeferredBranches branches = map.getExtension(DeferredBranches.class);
+		return branches != null && branches.branchesById.containsKey(id);
+	}
+
+	/**
+	 * Reads the branches containing the node with the given id and announces their nodes as inserted,
+	 * returns false if there is no such branch.
+	 */
+	static boolean loadBranchContaining(MapModel map, String id) {
+		final DeferredBranches branches = map.getExtension(DeferredBranches.class);
+		if (branches == null)
+			return false;
+		boolean loaded = false;
+		for (DeferredChildren branch; (branch = branches.branchesById.get(id)) != null; loaded = true)
+			branch.loadAndAnnounce();
+		return loaded;
+	}
+
+	/**
+	 * Called after a part of the map has been read:
+	 * compresses the branches collected meanwhile and reads the branches which can not stay unread.
+	 */
+	static void readingCompleted(MapModel map) {
+		final DeferredBranches branches = map.getExtension(DeferredBranches.class);
+		if (branches == null)
+			return;
+		for (DeferredChildren branch : branches.collectedBranches)
+			branch.compress();
+		branches.collectedBranches.clear();
+		while (!branches.requiredBranches.isEmpty()) {
+			final DeferredChildren branch = branches.requiredBranches.iterator().next();
+			branches.requiredBranches.remove(branch);
+			branch.get(0);
+		}
+	}
+
+	void collect(DeferredChildren branch, boolean isRequired) {
+		collectedBranches.add(branch);
+		if (isRequired)
+			requiredBranches.add(branch);
+	}
+
+	void reserve(String id, DeferredChildren branch) {
+		branchesById.put(id, branch);
+	}
+
+	void release(String id, DeferredChildren branch) {
+		if (branchesById.get(id) == branch)
+			branchesById.remove(id);
+	}
+
+	void release(DeferredChildren branch) {
+		collectedBranches.remove(branch);
+		requiredBranches.remove(branch);
+	}
+}
@@ -0,0 +1,219 @@
+package org.freeplane.features.map;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.MapWriter.Hint;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.n3.nanoxml.XMLException;
+
+/**
+ * Children of a folded node which are kept as compressed XML text until they are accessed.
+ *
+ * The number of children is known without reading them, all other list operations
+ * read the children first and replace this list by the list of the created nodes.
+ */
+class DeferredChildren extends AbstractList<NodeModel> {
+	private static final String ID_ATTRIBUTE = " ID=\"";
+	private static final String[] REQUIRED_MARKERS = {"<arrowlink", " TREE_ID=\"", " CONTENT_ID=\"", " REFERENCE_ID=\""};
+	private final NodeModel parent;
+	private final MapReader mapReader;
+	private StringBuilder collectedXml;
+	private byte[] compressedXml;
+	private int xmlByteCount;
+	private int[] childEnds;
+	private int childCount;
+	private List<NodeModel> loadedChildren;
+
+	DeferredChildren(NodeModel parent, MapReader mapReader) {
+		this.parent = parent;
+		this.mapReader = mapReader;
+		this.collectedXml = new StringBuilder();
+		this.childEnds = new int[4];
+	}
+
+	static boolean isUnloaded(List<NodeModel> children) {
+		return children instanceof DeferredChildren && ((DeferredChildren) children).loadedChildren == null;
+	}
+
+	/** Returns the XML text of the children of the node if they have not been read yet, or null. */
+	static String unloadedXml(NodeModel node) {
+		final List<NodeModel> children = node.getChildrenInternal();
+		return isUnloaded(children) ? ((DeferredChildren) children).xml() : null;
+	}
+
+	void addChild(String xml) {
+		if (collectedXml == null)
+			collectedXml = new StringBuilder(xml());
+		compressedXml = null;
+		collectedXml.append(xml);
+		if (childCount == childEnds.length)
+			childEnds = Arrays.copyOf(childEnds, childCount * 2);
+		childEnds[childCount++] = collectedXml.length();
+		final DeferredBranches branches = DeferredBranches.of(parent.getMap());
+		forEachId(xml, id -> branches.reserve(id, this));
+		branches.collect(this, isRequired(xml));
+	}
+
+	private static void forEachId(String xml, Consumer<String> consumer) {
+		for (int start = xml.indexOf(ID_ATTRIBUTE); start >= 0; start = xml.indexOf(ID_ATTRIBUTE, start)) {
+			start += ID_ATTRIBUTE.length();
+			final int end = xml.indexOf('"', start);
+			if (end < 0)
+				break;
+			consumer.accept(xml.substring(start, end));
+		}
+	}
+
+	/** Connectors and clones must be known when the map is shown, so branches containing them are read after loading. */
+	private static boolean isRequired(String xml) {
+		for (String marker : REQUIRED_MARKERS)
+			if (xml.contains(marker))
+				return true;
+		return false;
+	}
+
+	void compress() {
+		if (collectedXml == null)
+			return;
+		final byte[] xmlBytes = collectedXml.toString().getBytes(StandardCharsets.UTF_8);
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(xmlBytes);
+			deflater.finish();
+			final ByteArrayOutputStream compressed = new ByteArrayOutputStream(xmlBytes.length / 4 + 16);
+			final byte[] buffer = new byte[8192];
+			while (!deflater.finished())
+				compressed.write(buffer, 0, deflater.deflate(buffer));
+			compressedXml = compressed.toByteArray();
+		}
+		finally {
+			deflater.end();
+		}
+		xmlByteCount = xmlBytes.length;
+		childEnds = Arrays.copyOf(childEnds, childCount);
+		collectedXml = null;
+	}
+
+	private String xml() {
+		if (collectedXml != null)
+			return collectedXml.toString();
+		final byte[] xmlBytes = new byte[xmlByteCount];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressedXml);
+			int length = 0;
+			while (length < xmlByteCount && !inflater.finished())
+				length += inflater.inflate(xmlBytes, length, xmlByteCount - length);
+		}
+		catch (DataFormatException e) {
+			throw new IllegalStateException(e);
+		}
+		finally {
+			inflater.end();
+		}
+		return new String(xmlBytes, StandardCharsets.UTF_8);
+	}
+
+	private List<NodeModel> load() {
+		if (loadedChildren != null)
+			return loadedChildren;
+		final String xml = xml();
+		loadedChildren = new ArrayList<NodeModel>(childCount);
+		collectedXml = null;
+		compressedXml = null;
+		final DeferredBranches branches = DeferredBranches.of(parent.getMap());
+		branches.release(this);
+		forEachId(xml, id -> branches.release(id, this));
+		if (parent.getChildrenInternal() == this)
+			parent.setChildrenInternal(loadedChildren);
+		int start = 0;
+		for (int i = 0; i < childCount; i++) {
+			final int end = childEnds[i];
+			try {
+				final NodeModel child = read(mapReader, parent.getMap(), xml.substring(start, end));
+				loadedChildren.add(child);
+				child.setParent(parent);
+			}
+			catch (Exception e) {
+				LogUtils.severe("Can not read folded node of " + parent.getID(), e);
+			}
+			start = end;
+		}
+		return loadedChildren;
+	}
+
+	/**
+	 * Reads the children like any other list operation, but also announces them as inserted
+	 * if the parent belongs to a shown map, so that listeners keeping state per node learn about them.
+	 * Children read while the map is loaded are not announced because the map tree is not attached yet.
+	 */
+	void loadAndAnnounce() {
+		final boolean announces = loadedChildren == null && parent.isAttached();
+		final List<NodeModel> children = load();
+		final NodeChangeAnnouncer announcer = parent.getMap().getNodeChangeAnnouncer();
+		if (announces && announcer instanceof MapController)
+			((MapController) announcer).fireChildrenLoaded(parent, children);
+	}
+
+	static NodeModel read(MapReader mapReader, MapModel map, String xml) throws IOException, XMLException {
+		final Map<Object, Object> hints = new HashMap<Object, Object>();
+		hints.put(Hint.MODE, Mode.FILE);
+		hints.put(NodeBuilder.FOLDING_LOADED, Boolean.TRUE);
+		return mapReader.createNodeTreeFromXml(map, new StringReader(xml), hints);
+	}
+
+	@Override
+	public int size() {
+		return loadedChildren != null ? loadedChildren.size() : childCount;
+	}
+
+	@Override
+	public NodeModel get(int index) {
+		return load().get(index);
+	}
+
+	@Override
+	public NodeModel set(int index, NodeModel element) {
+		return load().set(index, element);
+	}
+
+	@Override
+	public void add(int index, NodeModel element) {
+		load().add(index, element);
+	}
+
+	@Override
+	public NodeModel remove(int index) {
+		return load().remove(index);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return load().indexOf(o);
+	}
+
+	/** Lists of children are identified by their owner, comparing their elements would read them. */
+	@Override
+	public boolean equals(Object o) {
+		return this == o;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this);
+	}
+}
@@ -0,0 +1,59 @@
+package org.freeplane.features.map;
+
+import java.util.List;
+
+import org.freeplane.core.io.IDeferredElementHandler;
+import org.freeplane.core.io.ReadManager;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.MapWriter.Hint;
+import org.freeplane.features.map.MapWriter.Mode;
+
+/**
+ * Defers reading the children of nodes which are folded in the map file.
+ */
+class DeferredChildrenBuilder implements IDeferredElementHandler {
+	static final String LOAD_FOLDED_BRANCHES_LAZILY_PROPERTY = "load_folded_branches_lazily";
+	private final MapReader mapReader;
+
+	DeferredChildrenBuilder(MapReader mapReader) {
+		this.mapReader = mapReader;
+	}
+
+	static boolean isEnabled() {
+		return ResourceController.getResourceController().getBooleanProperty(LOAD_FOLDED_BRANCHES_LAZILY_PROPERTY);
+	}
+
+	void registerBy(ReadManager readManager) {
+		readManager.addDeferredElementHandler(NodeBuilder.XML_NODE, this);
+	}
+
+	@Override
+	public boolean defersElement(Object parent, String tag) {
+		return parent instanceof NodeModel && ((NodeModel) parent).isFolded()
+		        && Mode.FILE.equals(mapReader.getCurrentNodeTreeCreator().getHint(Hint.MODE)) && isEnabled();
+	}
+
+	@Override
+	public void elementDeferred(Object parent, String tag, String xml) {
+		final NodeModel parentNode = (NodeModel) parent;
+		final List<NodeModel> children = parentNode.getChildrenInternal();
+		if (DeferredChildren.isUnloaded(children)) {
+			((DeferredChildren) children).addChild(xml);
+		}
+		else if (children.isEmpty()) {
+			final DeferredChildren deferredChildren = new DeferredChildren(parentNode, mapReader);
+			parentNode.setChildrenInternal(deferredChildren);
+			deferredChildren.addChild(xml);
+		}
+		else {
+			// the children have already been read because a node from this branch was looked up
+			try {
+				parentNode.insert(DeferredChildren.read(mapReader, parentNode.getMap(), xml));
+			}
+			catch (Exception e) {
+				LogUtils.severe("Can not read folded node of " + parentNode.getID(), e);
+			}
+		}
+	}
+}
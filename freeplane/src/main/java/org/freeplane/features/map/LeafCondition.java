@@ -33,4 +33,14 @@ public class LeafCondition extends ASelectableCondition {
     protected List<Icon> createRenderedIcons(FontMetrics fontMetrics) {
         return createRenderedIconsFromDescription(fontMetrics);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return true;
+    }
 }
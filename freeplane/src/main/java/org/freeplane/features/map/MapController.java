@@ -58,6 +58,7 @@ import org.freeplane.features.clipboard.ClipboardControllers;
 import org.freeplane.features.explorer.MapExplorerController;
 import org.freeplane.features.filter.Filter;
 import org.freeplane.features.filter.FilterController;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.condition.ConditionFactory;
 import org.freeplane.features.map.MapWriter.Mode;
 import org.freeplane.features.map.NodeModel.NodeChangeType;
@@ -373,6 +374,9 @@ implements IExtension, NodeChangeAnnouncer{
 		addNodeSelectionListener(actionSelectorOnChange);
 		addUINodeChangeListener(actionSelectorOnChange);
 		addUIMapChangeListener(actionSelectorOnChange);
+		final NodeTextIndex.Updater nodeTextIndexUpdater = new NodeTextIndex.Updater();
+		addNodeChangeListener(nodeTextIndexUpdater);
+		addMapChangeListener(nodeTextIndexUpdater);
 		final MapClipboardController mapClipboardController = createMapClipboardController();
 		modeController.addExtension(MapClipboardController.class, mapClipboardController);
 		createActions(modeController);
@@ -738,6 +742,14 @@ implements IExtension, NodeChangeAnnouncer{
 		node.getMap().unregistryNodes(node);
 	}
 
+	/** Announces children of a folded node which have been read from the map file after the map has been loaded. */
+	void fireChildrenLoaded(final NodeModel parent, final List<NodeModel> children) {
+		sortMapChangeListeners();
+		final IMapChangeListener[] list = mapChangeListeners.toArray(new IMapChangeListener[]{});
+		for (int index = 0; index < children.size(); index++)
+			parent.fireNodeInserted(list, children.get(index), index);
+	}
+
 	protected void fireNodeInserted(final NodeModel parent, final NodeModel child, final int index) {
 	    sortMapChangeListeners();
 		parent.getMap().registryNodeRecursive(child);
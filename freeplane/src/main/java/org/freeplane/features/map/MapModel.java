@@ -27,6 +27,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.freeplane.core.extension.ExtensionContainer;
 import org.freeplane.core.extension.IExtension;
@@ -54,6 +55,7 @@ public class MapModel {
 	private URL url;
 	private NodeChangeAnnouncer nodeChangeAnnouncer;
     private final INodeDuplicator nodeDuplicator;
+	private final AtomicInteger nodeOrdinalCount = new AtomicInteger();
 
 	public MapModel(INodeDuplicator nodeDuplicator, IconRegistry iconRegistry, NodeChangeAnnouncer nodeChangeAnnouncer) {
 		this.nodeDuplicator = nodeDuplicator;
@@ -117,7 +119,8 @@ public class MapModel {
 	}
 
 	public String generateNodeID(final String proposedID) {
-		if (proposedID != null && !"".equals(proposedID) && getNodeForID(proposedID) == null) {
+		if (proposedID != null && !"".equals(proposedID) && nodes.get(proposedID) == null
+		        && !DeferredBranches.containsId(this, proposedID)) {
 			return proposedID;
 		}
 		String returnValue;
@@ -128,7 +131,7 @@ public class MapModel {
 			 * XML/DTD.
 			 */
 			returnValue = prefix + Integer.toString(ran.nextInt(UNDEFINED_NODE_ID));
-		} while (nodes.containsKey(returnValue));
+		} while (nodes.containsKey(returnValue) || DeferredBranches.containsId(this, returnValue));
 		return returnValue;
 	}
 
@@ -162,6 +165,8 @@ public class MapModel {
 	 */
 	public NodeModel getNodeForID(final String nodeID) {
 		final NodeModel node = nodes.get(nodeID);
+		if (node == null && DeferredBranches.loadBranchContaining(this, nodeID))
+			return nodes.get(nodeID);
 		return node;
 	}
 
@@ -208,6 +213,16 @@ public class MapModel {
 		if (null != old && nodeModel != old) {
 			throw new RuntimeException("id " + value + " already registered");
 		}
+		nodeModel.getOrdinal();
+	}
+
+	int createNodeOrdinal() {
+		return nodeOrdinalCount.getAndIncrement();
+	}
+
+	/** Returns an upper bound of the ordinals of the nodes of this map. */
+	public int getNodeOrdinalCount() {
+		return nodeOrdinalCount.get();
 	}
 
 	/**
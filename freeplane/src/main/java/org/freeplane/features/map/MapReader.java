@@ -27,7 +27,11 @@ import java.util.Map;
 import org.freeplane.core.io.IElementDOMHandler;
 import org.freeplane.core.io.ReadManager;
 import org.freeplane.core.io.UnknownElements;
+import org.freeplane.core.io.xml.StreamingTreeXmlReader;
+import org.freeplane.core.io.xml.TreeSnapshotReader;
+import org.freeplane.core.io.xml.TreeSnapshotWriter;
 import org.freeplane.core.io.xml.TreeXmlReader;
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.features.map.MapWriter.Hint;
 import org.freeplane.features.map.MapWriter.Mode;
 import org.freeplane.n3.nanoxml.XMLElement;
@@ -55,45 +59,98 @@ public class MapReader implements IElementDOMHandler {
         }
 
 		public NodeModel create(final Reader pReader) throws XMLException {
-			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator;
-			final TreeXmlReader reader = new TreeXmlReader(readManager);
+			return create(pReader, null);
+		}
+
+		private NodeModel create(final Reader pReader, final TreeSnapshotWriter snapshotWriter) throws XMLException {
+			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator.get();
+			try {
+				nodeTreeCreator.set(this);
+				if (snapshotWriter != null) {
+					final StreamingTreeXmlReader reader = new StreamingTreeXmlReader(readManager);
+					reader.recordTo(snapshotWriter);
+					reader.load(createdMap, pReader);
+				}
+				else if (usesStreamingReader())
+					new StreamingTreeXmlReader(readManager).load(createdMap, pReader);
+				else
+					new TreeXmlReader(readManager).load(createdMap, pReader);
+				return nodeBuilder.getMapChild();
+			}
+			finally {
+				nodeBuilder.reset();
+				nodeTreeCreator.set(oldNodeTreeCreator);
+			}
+		}
+
+		private NodeModel create(final TreeSnapshotReader snapshot) throws XMLException {
+			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator.get();
 			try {
-				nodeTreeCreator = this;
-				reader.load(createdMap, pReader);
+				nodeTreeCreator.set(this);
+				new StreamingTreeXmlReader(readManager).load(createdMap, snapshot);
 				final NodeModel node = nodeBuilder.getMapChild();
 				return node;
 			}
 			finally {
 				nodeBuilder.reset();
-				nodeTreeCreator = oldNodeTreeCreator;
+				nodeTreeCreator.set(oldNodeTreeCreator);
 			}
 		}
 
+		private boolean usesStreamingReader() {
+			return ResourceController.getResourceController()
+			    .getBooleanProperty(StreamingTreeXmlReader.USE_STREAMING_XML_READER_PROPERTY)
+			        || DeferredChildrenBuilder.isEnabled();
+		}
+
 		public NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader) throws IOException,
 		XMLException {
-			synchronized(this) {
-				start(map);
-				final NodeModel node = create(pReader);
-				if (node == null)
-					throw new RuntimeException("corrupted map, no root node found");
-				finish(node);
-				return node;
-			}
+			return createNodeTreeFromXml(map, pReader, null);
+		}
+
+		NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader, final TreeSnapshotWriter snapshotWriter)
+		        throws IOException, XMLException {
+			start(map);
+			final NodeModel node = finishCreatedTree(create(pReader, snapshotWriter));
+			DeferredBranches.readingCompleted(map);
+			return node;
+		}
+
+		NodeModel createNodeTreeFromSnapshot(final MapModel map, final TreeSnapshotReader snapshot) throws XMLException {
+			start(map);
+			return finishCreatedTree(create(snapshot));
+		}
+
+		private NodeModel finishCreatedTree(final NodeModel node) {
+			if (node == null)
+				throw new RuntimeException("corrupted map, no root node found");
+			finish(node);
+			return node;
 		}
 
 		public void finish(final NodeModel node) {
-			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator;
+			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator.get();
 			try {
-				nodeTreeCreator = this;
+				nodeTreeCreator.set(this);
 				readManager.readingCompleted(node, newIds);
 				newIds.clear();
 				createdMap = null;
 			}
 			finally {
-				nodeTreeCreator = oldNodeTreeCreator;
+				nodeTreeCreator.set(oldNodeTreeCreator);
 			}
 		}
 
+		/**
+		 * Completes the trees created one after another like a single tree read from one document:
+		 * the given node contains all of them, and the branches deferred while reading them are compressed or read.
+		 */
+		public void finishCreatedTrees(final NodeModel topNode) {
+			final MapModel map = createdMap;
+			finish(topNode);
+			DeferredBranches.readingCompleted(map);
+		}
+
 		void start(final MapModel map) {
 			createdMap = map;
 		}
@@ -139,42 +196,81 @@ public class MapReader implements IElementDOMHandler {
 
 	private final NodeBuilder nodeBuilder;
 	final private ReadManager readManager;
-	private NodeTreeCreator nodeTreeCreator;
+	/**
+	 * The reader and its handlers are shared by all loads, the load state is not:
+	 * each thread sees the creator of the map it is currently reading,
+	 * and the handlers keep the state of a load in this creator or in the created map,
+	 * so that several maps can be parsed in parallel.
+	 */
+	private final ThreadLocal<NodeTreeCreator> nodeTreeCreator = new ThreadLocal<NodeTreeCreator>();
 
 	public NodeTreeCreator getCurrentNodeTreeCreator() {
-		return nodeTreeCreator;
+		return nodeTreeCreator.get();
 	}
 
 	public MapReader(final ReadManager readManager) {
 		this.readManager = readManager;
 		nodeBuilder = new NodeBuilder(this);
 		nodeBuilder.registerBy(readManager);
+		new DeferredChildrenBuilder(this).registerBy(readManager);
 	}
 
 	@Override
 	public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
-		return nodeTreeCreator.getCreatedMap();
+		return getCurrentNodeTreeCreator().getCreatedMap();
 	}
 
 	public NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader, final Mode mode)
 	        throws IOException, XMLException {
-		final Map<Object, Object> hints = new HashMap<Object, Object>(1);
-		hints.put(Hint.MODE, mode);
-		return createNodeTreeFromXml(map, pReader, hints);
+		return createNodeTreeFromXml(map, pReader, modeHints(mode));
 	}
 	public NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader, final Map<Object, Object> hints)
 	        throws IOException, XMLException {
-		final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator;
+		return createNodeTreeFromXml(map, pReader, hints, null);
+	}
+
+	/** Creates the node tree and records it into the given snapshot writer unless it is null. */
+	public NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader, final Mode mode,
+	                                       final TreeSnapshotWriter snapshotWriter)
+	        throws IOException, XMLException {
+		return createNodeTreeFromXml(map, pReader, modeHints(mode), snapshotWriter);
+	}
+
+	private NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader, final Map<Object, Object> hints,
+	                                        final TreeSnapshotWriter snapshotWriter)
+	        throws IOException, XMLException {
+		final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator.get();
 		try {
-			nodeTreeCreator = new NodeTreeCreator(hints);
-			final NodeModel topNode = nodeTreeCreator.createNodeTreeFromXml(map, pReader);
+			final NodeTreeCreator newNodeTreeCreator = new NodeTreeCreator(hints);
+			nodeTreeCreator.set(newNodeTreeCreator);
+			final NodeModel topNode = newNodeTreeCreator.createNodeTreeFromXml(map, pReader, snapshotWriter);
 			return topNode;
 		}
 		finally {
-			nodeTreeCreator = oldNodeTreeCreator;
+			nodeTreeCreator.set(oldNodeTreeCreator);
 		}
 	}
 
+	/** Creates the node tree from a snapshot recorded by {@link #createNodeTreeFromXml(MapModel, Reader, Mode, TreeSnapshotWriter)}. */
+	public NodeModel createNodeTreeFromSnapshot(final MapModel map, final TreeSnapshotReader snapshot, final Mode mode)
+	        throws XMLException {
+		final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator.get();
+		try {
+			final NodeTreeCreator newNodeTreeCreator = new NodeTreeCreator(modeHints(mode));
+			nodeTreeCreator.set(newNodeTreeCreator);
+			return newNodeTreeCreator.createNodeTreeFromSnapshot(map, snapshot);
+		}
+		finally {
+			nodeTreeCreator.set(oldNodeTreeCreator);
+		}
+	}
+
+	private static Map<Object, Object> modeHints(final Mode mode) {
+		final Map<Object, Object> hints = new HashMap<Object, Object>(1);
+		hints.put(Hint.MODE, mode);
+		return hints;
+	}
+
 	@Override
 	public void endElement(final Object parent, final String tag, final Object element, final XMLElement dom) {
 		final MapModel map = (MapModel) element;
@@ -184,7 +280,7 @@ public class MapReader implements IElementDOMHandler {
 	}
 
 	public boolean isMapLoadingInProcess() {
-		return nodeTreeCreator != null;
+		return nodeTreeCreator.get() != null;
 	}
 
 	public NodeTreeCreator nodeTreeCreator(final MapModel map) {
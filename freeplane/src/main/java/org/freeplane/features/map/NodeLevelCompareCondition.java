@@ -91,4 +91,14 @@ class NodeLevelCompareCondition extends CompareConditionAdapter {
     protected String getName() {
 	    return NAME;
     }
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public boolean checksOnlyNodeAndRelatives() {
+		return true;
+	}
 }
@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.freeplane.api.ChildrenSides;
 import org.freeplane.core.extension.ExtensionContainer;
@@ -65,6 +66,8 @@ public class NodeModel{
 	public enum CloneType{TREE, CONTENT}
 	final static int TREE_CLONE_INDEX = CloneType.TREE.ordinal();
 	final static int CONTENT_CLONE_INDEX = CloneType.CONTENT.ordinal();
+	/** Lets concurrent readers, e.g. parallel filters, agree on one ordinal for a node. */
+	private static final AtomicIntegerFieldUpdater<NodeModel> ORDINAL_UPDATER = AtomicIntegerFieldUpdater.newUpdater(NodeModel.class, "ordinal");
 
 	private static final boolean ALLOWSCHILDREN = true;
 	public static final String NODE_TEXT = "node_text";
@@ -77,6 +80,7 @@ public class NodeModel{
 	private List<NodeModel> children;
 	private NodeModel parent;
 	private String id;
+	private volatile int ordinal = -1;
 	private boolean folded;
 
 	private MapModel map = null;
@@ -173,6 +177,11 @@ public class NodeModel{
 		this.children = chidren;
 	}
 
+	/** Children which have been created, children of folded nodes may not have been read from the map file yet. */
+	private List<NodeModel> readChildren() {
+		return DeferredChildren.isUnloaded(children) ? Collections.<NodeModel>emptyList() : children;
+	}
+
 	public Enumeration<NodeModel> children() {
 		final Iterator<NodeModel> i = getChildrenInternal().iterator();
 		return new Enumeration<NodeModel>() {
@@ -339,6 +348,24 @@ public class NodeModel{
 		return map;
 	}
 
+	/**
+	 * Returns a number identifying the node within its map.
+	 * Ordinals are small consecutive numbers, so that node properties can be kept in arrays indexed by them.
+	 * They are assigned when the node is registered in the map or when the ordinal is first requested,
+	 * and they are not reused for other nodes of the same map.
+	 * Nodes without map have no ordinal, -1 is returned for them.
+	 */
+	public int getOrdinal() {
+		final int currentOrdinal = ordinal;
+		if (currentOrdinal >= 0)
+			return currentOrdinal;
+		final MapModel map = this.map;
+		if (map == null)
+			return -1;
+		final int createdOrdinal = map.createNodeOrdinal();
+		return ORDINAL_UPDATER.compareAndSet(this, -1, createdOrdinal) ? createdOrdinal : ordinal;
+	}
+
 	public int getNodeLevel() {
 		return getNodeLevel(true, null);
 	}
@@ -585,8 +612,11 @@ public class NodeModel{
 	/**
 	 */
 	public void setMap(final MapModel map) {
+		if (this.map != map) {
+			ordinal = -1;
+		}
 		this.map = map;
-		for (final NodeModel child : children) {
+		for (final NodeModel child : readChildren()) {
 			child.setMap(map);
 		}
 	}
@@ -602,7 +632,7 @@ public class NodeModel{
 
 	void attach() {
 		attachClones();
-		for(NodeModel child : children)
+		for(NodeModel child : readChildren())
 			child.attach();
 	}
 
@@ -613,7 +643,7 @@ public class NodeModel{
 
 	private void detach() {
 		detachClones();
-		for(NodeModel child : children)
+		for(NodeModel child : readChildren())
 			child.detach();
 	}
 
@@ -719,7 +749,7 @@ public class NodeModel{
 		for(NodeModel clone : node.subtreeClones())
 			if(equals(clone))
 				return true;
-		for(NodeModel child : children)
+		for(NodeModel child : readChildren())
 			if(child.subtreeContainsCloneOf(node))
 				return true;
 		return false;
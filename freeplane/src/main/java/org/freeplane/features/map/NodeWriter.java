@@ -80,6 +80,13 @@ public class NodeWriter implements IElementWriter, IAttributeWriter {
 	}
 
 	private void saveChildren(final ITreeWriter writer, final NodeModel node) throws IOException {
+		if (copiedNodeSet == CopiedNodeSet.ALL_NODES && writeFolded && Mode.FILE.equals(mode(writer))) {
+			final String unreadChildren = DeferredChildren.unloadedXml(node);
+			if (unreadChildren != null) {
+				writer.addElementContent(unreadChildren);
+				return;
+			}
+		}
 		for (final NodeModel child: node.getChildren()) {
 		if (copiedNodeSet == CopiedNodeSet.ALL_NODES || child.hasVisibleContent(FilterController.getFilter(node.getMap()))) {
 				writer.setHint(WriterHint.ALREADY_WRITTEN, isAlreadyWritten(child));
@@ -55,6 +55,16 @@ public class PeriodicLevelCondition extends ASelectableCondition {
         return createRenderedIconsFromDescription(fontMetrics);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return true;
+    }
+
     public static PeriodicLevelCondition[] createConditions(int n) {
 		PeriodicLevelCondition[] conditions = new PeriodicLevelCondition[n * (n + 1) / 2 - 1];
 		int k = 0;
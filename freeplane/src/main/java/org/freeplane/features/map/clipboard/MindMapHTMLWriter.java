@@ -45,6 +45,7 @@ import org.freeplane.features.icon.IconController;
 import org.freeplane.features.icon.MindIcon;
 import org.freeplane.features.icon.NamedIcon;
 import org.freeplane.features.link.NodeLinks;
+import org.freeplane.features.map.IMapSelection;
 import org.freeplane.features.map.MapController;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
@@ -165,7 +166,8 @@ class MindMapHTMLWriter {
 		writeFoldingCode = false;
 		basedOnHeadings = getProperty("html_export_folding").equals("html_export_based_on_headings");
 		writesColors = ResourceController.getResourceController().getBooleanProperty("html_export_includes_colors");
-		filter = modeController.getController().getSelection().getFilter();
+		final IMapSelection selection = modeController.getController().getSelection();
+		filter = selection != null ? selection.getFilter() : Filter.createTransparentFilter();
 	}
 
 
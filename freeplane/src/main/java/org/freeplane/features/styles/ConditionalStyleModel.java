@@ -3,10 +3,12 @@ package org.freeplane.features.styles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import javax.swing.table.AbstractTableModel;
@@ -129,23 +131,30 @@ public class ConditionalStyleModel implements IExtension, Iterable<ConditionalSt
 		for (Item style : prototypeStyles)
 			styles.add(new Item(style));
 	}
-	private boolean isDisabled;
+	// models whose conditions are evaluated by the current thread, formulas can evaluate them on worker threads
+	private static final ThreadLocal<Set<ConditionalStyleModel>> disabledModels =
+	        ThreadLocal.withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
 
 
+	/** Tells whether the styles are disabled for the current thread. */
 	public boolean isDisabled() {
-		return isDisabled;
+		return disabledModels.get().contains(this);
 	}
 
+	/** Disables or enables the styles for the current thread. */
 	public void setDisabled(boolean isDisabled) {
-		this.isDisabled = isDisabled;
+		if(isDisabled)
+			disabledModels.get().add(this);
+		else
+			disabledModels.get().remove(this);
 	}
 
 	public Collection<IStyle> getStyles(NodeModel node){
-		if(isDisabled){
+		if(isDisabled()){
 			return Collections.emptyList();
 		}
 		try{
-			isDisabled = true;
+			setDisabled(true);
 			Collection<IStyle> matchingStyles = new LinkedHashSet<IStyle>();
 			for(Item item : styles){
 				final ASelectableCondition condition = item.getCondition();
@@ -159,7 +168,7 @@ public class ConditionalStyleModel implements IExtension, Iterable<ConditionalSt
 			return matchingStyles;
 		}
 		finally{
-			isDisabled = false;
+			setDisabled(false);
 		}
 	}
 
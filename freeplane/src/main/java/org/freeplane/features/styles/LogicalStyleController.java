@@ -20,13 +20,13 @@
 package org.freeplane.features.styles;
 
 import java.awt.Component;
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.freeplane.core.extension.IExtension;
 import org.freeplane.core.io.IAttributeHandler;
@@ -57,6 +57,7 @@ import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.IPropertyHandler;
 import org.freeplane.features.mode.ModeController;
 import org.freeplane.features.styles.ConditionalStyleModel.Item;
+import org.freeplane.features.styles.ResolvedStyleCache.ResolvedStyles;
 
 /**
  * @author Dimitry Polivaev
@@ -68,9 +69,9 @@ public class LogicalStyleController implements IExtension {
 	public static enum StyleOption{FOR_SELECTED_NODE, FOR_UNSELECTED_NODE, STYLES_ONLY}
 
     private static final int STYLE_TOOLTIP = 0;
-	private WeakReference<NodeModel> cachedNode;
-    private Collection<IStyle>  cachedStyles;
-    private List<IStyle>  cachedStylesForSeletedNode;
+	// styles are also resolved by formulas evaluated on worker threads
+	private final Map<MapModel, ResolvedStyleCache> resolvedStyleCaches = Collections.synchronizedMap(new WeakHashMap<>());
+	private final ThreadLocal<Integer> conditionEvaluationDepth = ThreadLocal.withInitial(() -> 0);
 	final private CombinedPropertyChain<Collection<IStyle>, NodeModel> styleHandlers;
 
 	public LogicalStyleController(ModeController modeController) {
@@ -90,7 +91,7 @@ public class LogicalStyleController implements IExtension {
 				MapModel map = node.getMap();
 				if(! (map instanceof StyleMapModel)) {
 					final MapStyleModel styleModel = MapStyleModel.getExtension(map);
-					Collection<IStyle> condStyles = styleModel.getConditionalStyleModel().getStyles(node);
+					Collection<IStyle> condStyles = getConditionalStyles(styleModel.getConditionalStyleModel(), node);
 					addAll(node, styleModel, currentValue, condStyles);
 				}
 				return currentValue;
@@ -106,7 +107,7 @@ public class LogicalStyleController implements IExtension {
 			public String getTooltip(ModeController modeController, NodeModel node, Component view) {
 				if(!ResourceController.getResourceController().getBooleanProperty("show_styles_in_tooltip"))
 					return null;
-				final Collection<IStyle> styles = getStyles(node, StyleOption.FOR_UNSELECTED_NODE);
+				final Collection<IStyle> styles = new LinkedHashSet<IStyle>(getStyles(node, StyleOption.FOR_UNSELECTED_NODE));
 				if(styles.size() > 0)
 					styles.remove(styles.iterator().next());
 				final String label = TextUtils.getText("node_styles");
@@ -150,8 +151,7 @@ public class LogicalStyleController implements IExtension {
 			final ConditionalStyleModel conditionalStyleModel = styleNode.getExtension(ConditionalStyleModel.class);
 			if(conditionalStyleModel == null)
 				return;
-			Collection<IStyle> styles = conditionalStyleModel.getStyles(node);
-			cachedNode = null;
+			Collection<IStyle> styles = getConditionalStyles(conditionalStyleModel, node);
 			addAll(node, styleModel, currentValue, styles);
     }
 
@@ -160,32 +160,40 @@ public class LogicalStyleController implements IExtension {
 		final MapController mapController = modeController.getMapController();
 		mapController.addMapChangeListener(new IMapChangeListener() {
 			public void onPreNodeMoved(NodeMoveEvent nodeMoveEvent) {
-				clearCache();
+				clearCache(nodeMoveEvent.child.getMap());
 			}
 
 			public void onPreNodeDelete(NodeDeletionEvent nodeDeletionEvent) {
-				clearCache();
+				clearCache(nodeDeletionEvent.node.getMap());
 			}
 
 			public void onNodeMoved(NodeMoveEvent nodeMoveEvent) {
-				clearCache();
+				clearCache(nodeMoveEvent.child.getMap());
 			}
 
 			public void onNodeInserted(NodeModel parent, NodeModel child, int newIndex) {
-				clearCache();
+				clearCache(parent.getMap());
 			}
 
 			public void onNodeDeleted(NodeDeletionEvent nodeDeletionEvent) {
-				clearCache();
+				clearCache(nodeDeletionEvent.node.getMap());
 			}
 
 			public void mapChanged(MapChangeEvent event) {
-				clearCache();
+				clearCache(event.getMap());
 			}
 		});
 		mapController.addNodeChangeListener(new INodeChangeListener() {
 			public void nodeChanged(NodeChangeEvent event) {
-				clearCache();
+				final NodeModel node = event.getNode();
+				final MapModel map = node.getMap();
+				if(map instanceof StyleMapModel)
+					clearCache();
+				else {
+					final ResolvedStyleCache cache = resolvedStyleCaches.get(map);
+					if(cache != null)
+						cache.nodeChanged(node);
+				}
 			}
 		});
 
@@ -310,67 +318,98 @@ public class LogicalStyleController implements IExtension {
 		return MapStyleModel.DEFAULT_STYLE;
 	}
 	public Collection<IStyle>  getStyles(final NodeModel node, StyleOption option) {
-		if(cachedNode == null || !node.equals(cachedNode.get())) {
-		    cachedStyles = null;
-		    cachedNode = null;
-		    cachedStyles = styleHandlers.getProperty(node, option, new LinkedHashSet<IStyle>());
-		    cachedNode = new WeakReference<NodeModel>(node);
-		    cachedStylesForSeletedNode = new ArrayList<>(cachedStyles.size() + 1);
-		    cachedStylesForSeletedNode.add(MapStyleModel.SELECTION_STYLE);
-		    cachedStylesForSeletedNode.addAll(cachedStyles);
+		final ResolvedStyleCache cache = resolvedStyleCaches.computeIfAbsent(node.getMap(), map -> new ResolvedStyleCache());
+		ResolvedStyles resolvedStyles = cache.get(node);
+		if(resolvedStyles == null) {
+			final boolean evaluatedForOtherNode = conditionEvaluationDepth.get() > 0;
+			resolvedStyles = new ResolvedStyles(styleHandlers.getProperty(node, option, new LinkedHashSet<IStyle>()));
+			// styles resolved while conditions of another node are evaluated miss the disabled conditional styles
+			if(! evaluatedForOtherNode)
+				cache.put(node, resolvedStyles);
+		}
+		final List<IStyle> stylesForSelectedNode = resolvedStyles.stylesForSelectedNode;
+		return option == StyleOption.FOR_SELECTED_NODE ? stylesForSelectedNode :
+		    option == StyleOption.FOR_UNSELECTED_NODE ? resolvedStyles.styles :
+		        stylesForSelectedNode.subList(2, stylesForSelectedNode.size())    ;
+	}
+
+	private Collection<IStyle> getConditionalStyles(ConditionalStyleModel conditionalStyleModel, NodeModel node) {
+		final ResolvedStyleCache cache = resolvedStyleCaches.get(node.getMap());
+		if(cache != null)
+			cache.addDependencies(conditionalStyleModel);
+		final int depth = conditionEvaluationDepth.get();
+		conditionEvaluationDepth.set(depth + 1);
+		try {
+			return conditionalStyleModel.getStyles(node);
+		}
+		finally {
+			conditionEvaluationDepth.set(depth);
 		}
-		return option == StyleOption.FOR_SELECTED_NODE ? cachedStylesForSeletedNode :
-		    option == StyleOption.FOR_UNSELECTED_NODE ? cachedStyles :
-		        cachedStylesForSeletedNode.subList(2, cachedStylesForSeletedNode.size())    ;
 	}
 
 	public void moveConditionalStyleDown(final ConditionalStyleModel conditionalStyleModel, int index) {
 	    conditionalStyleModel.moveDown(index);
+	    clearCache();
     }
 
 	public void moveConditionalStyleUp(final ConditionalStyleModel conditionalStyleModel, int index) {
 	    conditionalStyleModel.moveUp(index);
+	    clearCache();
     }
 
 	public void moveConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, int toIndex) {
 		conditionalStyleModel.move(index, toIndex);
+		clearCache();
 	}
 
 	public void addConditionalStyle(final ConditionalStyleModel conditionalStyleModel, boolean isActive,
                                     ASelectableCondition condition, IStyle style, boolean isLast) {
 	    conditionalStyleModel.addCondition(isActive, condition, style, isLast);
+	    clearCache();
     }
 
 	public void insertConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, boolean isActive,
                                        ASelectableCondition condition, IStyle style, boolean isLast) {
 	    conditionalStyleModel.insertCondition(index, isActive, condition, style, isLast);
+	    clearCache();
     }
 
 	public Item removeConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index) {
+	    clearCache();
 	    return conditionalStyleModel.removeCondition(index);
     }
 
 	public void setActiveForConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, boolean isActive) {
 		conditionalStyleModel.setActive(index, isActive);
+		clearCache();
 	}
 
 	public void setConditionForConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, ASelectableCondition condition) {
 		conditionalStyleModel.setCondition(index, condition);
+		clearCache();
 	}
 
 	public void setStyleForConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, IStyle style) {
 		conditionalStyleModel.setStyle(index, style);
+		clearCache();
 	}
 
 	public void setLastForConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, boolean isLast) {
 		conditionalStyleModel.setLast(index, isLast);
+		clearCache();
 	}
 
 	private void clearCache() {
-	    cachedStyles = null;
-	    cachedNode = null;
+		resolvedStyleCaches.clear();
     }
 
+	private void clearCache(MapModel map) {
+		if(map == null || map instanceof StyleMapModel)
+			clearCache();
+		else
+			resolvedStyleCaches.remove(map);
+	}
+
 	public IPropertyHandler<Collection<IStyle>, NodeModel> addStyleGetter(
 		final Integer key,
 		final IPropertyHandler<Collection<IStyle>, NodeModel> getter) {
@@ -397,8 +436,7 @@ public class LogicalStyleController implements IExtension {
 
 	public Collection<IStyle>  getConditionalMapStyles(final NodeModel node) {
 		final MapStyleModel styleModel = MapStyleModel.getExtension(node.getMap());
-		Collection<IStyle> condStyles = styleModel.getConditionalStyleModel().getStyles(node);
-		clearCache();
+		Collection<IStyle> condStyles = getConditionalStyles(styleModel.getConditionalStyleModel(), node);
 		return getResursively(node, condStyles);
 	}
 
@@ -411,8 +449,7 @@ public class LogicalStyleController implements IExtension {
 
 		final ConditionalStyleModel conditionalStyleModel = node.getExtension(ConditionalStyleModel.class);
 		if(conditionalStyleModel != null) {
-			Collection<IStyle> styles = conditionalStyleModel.getStyles(node);
-			clearCache();
+			Collection<IStyle> styles = getConditionalStyles(conditionalStyleModel, node);
 			condStyles.addAll(styles);
 		}
 		final Collection<IStyle> all = getResursively(node, condStyles);
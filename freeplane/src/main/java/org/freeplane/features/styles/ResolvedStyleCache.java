@@ -0,0 +1,98 @@
+package org.freeplane.features.styles;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.map.NodeModel;
+
+/**
+ * Keeps the resolved styles of the nodes of one map until a change can affect them.
+ *
+ * The cache remembers on which relatives the conditions of all conditional styles evaluated for its nodes depend.
+ * A changed node invalidates only itself and the relatives whose conditional styles check it.
+ * If any of the evaluated conditions may read other parts of the map, each change invalidates all nodes.
+ * Styles can also be resolved on worker threads evaluating formulas, so the cache is synchronized.
+ */
+class ResolvedStyleCache {
+	static final int CHECKS_PARENT = 1;
+	static final int CHECKS_ANCESTORS = 2;
+	static final int CHECKS_CHILDREN = 4;
+	static final int CHECKS_DESCENDANTS = 8;
+	static final int CHECKS_OTHER_NODES = 16;
+
+	static class ResolvedStyles {
+		final Collection<IStyle> styles;
+		final List<IStyle> stylesForSelectedNode;
+
+		ResolvedStyles(Collection<IStyle> styles) {
+			this.styles = styles;
+			stylesForSelectedNode = new ArrayList<>(styles.size() + 1);
+			stylesForSelectedNode.add(MapStyleModel.SELECTION_STYLE);
+			stylesForSelectedNode.addAll(styles);
+		}
+	}
+
+	private final Map<NodeModel, ResolvedStyles> resolvedStyles = new WeakHashMap<>();
+	private int dependencies;
+
+	synchronized ResolvedStyles get(NodeModel node) {
+		return resolvedStyles.get(node);
+	}
+
+	synchronized void put(NodeModel node, ResolvedStyles styles) {
+		resolvedStyles.put(node, styles);
+	}
+
+	synchronized int size() {
+		return resolvedStyles.size();
+	}
+
+	synchronized void addDependencies(ConditionalStyleModel conditionalStyleModel) {
+		if (conditionalStyleModel.dependsOnCondition(ICondition::checksParent))
+			dependencies |= CHECKS_PARENT;
+		if (conditionalStyleModel.dependsOnCondition(ICondition::checksAncestors))
+			dependencies |= CHECKS_ANCESTORS;
+		if (conditionalStyleModel.dependsOnCondition(ICondition::checksChildren))
+			dependencies |= CHECKS_CHILDREN;
+		if (conditionalStyleModel.dependsOnCondition(ICondition::checksDescendants))
+			dependencies |= CHECKS_DESCENDANTS;
+		if (conditionalStyleModel.dependsOnCondition(condition -> !condition.checksOnlyNodeAndRelatives()))
+			dependencies |= CHECKS_OTHER_NODES;
+	}
+
+	synchronized int getDependencies() {
+		return dependencies;
+	}
+
+	synchronized void nodeChanged(NodeModel node) {
+		if (resolvedStyles.isEmpty())
+			return;
+		if ((dependencies & CHECKS_OTHER_NODES) != 0) {
+			clear();
+			return;
+		}
+		resolvedStyles.remove(node);
+		if ((dependencies & CHECKS_DESCENDANTS) != 0) {
+			for (NodeModel ancestor = node.getParentNode(); ancestor != null; ancestor = ancestor.getParentNode())
+				resolvedStyles.remove(ancestor);
+		}
+		else if ((dependencies & CHECKS_CHILDREN) != 0) {
+			final NodeModel parent = node.getParentNode();
+			if (parent != null)
+				resolvedStyles.remove(parent);
+		}
+		if ((dependencies & CHECKS_ANCESTORS) != 0)
+			resolvedStyles.keySet().removeIf(cachedNode -> cachedNode.isDescendantOf(node));
+		else if ((dependencies & CHECKS_PARENT) != 0)
+			resolvedStyles.keySet().removeIf(cachedNode -> cachedNode.getParentNode() == node);
+	}
+
+	synchronized void clear() {
+		resolvedStyles.clear();
+		dependencies = 0;
+	}
+}
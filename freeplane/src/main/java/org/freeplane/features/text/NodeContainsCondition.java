@@ -20,11 +20,15 @@
 package org.freeplane.features.text;
 
 import java.awt.FontMetrics;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy.Type;
 import org.freeplane.features.filter.condition.ASelectableCondition;
@@ -123,4 +127,26 @@ public class NodeContainsCondition extends StringConditionAdapter implements Nod
         return value;
     }
 
+    @Override
+    protected Set<NodeTextIndex.Field> indexedFields() {
+        if (nodeItem.equals(TextController.FILTER_NODE))
+            return EnumSet.of(NodeTextIndex.Field.TEXT);
+        if (nodeItem.equals(TextController.FILTER_DETAILS))
+            return EnumSet.of(NodeTextIndex.Field.DETAILS);
+        if (nodeItem.equals(TextController.FILTER_NOTE))
+            return EnumSet.of(NodeTextIndex.Field.NOTE);
+        if (nodeItem.equals(TextController.FILTER_ANYTEXT))
+            return EnumSet.of(NodeTextIndex.Field.TEXT, NodeTextIndex.Field.DETAILS, NodeTextIndex.Field.NOTE);
+        return Collections.emptySet();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return ! matchApproximately && NodeTextConditionController.comparesUntransformedItems(nodeItem);
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return NodeTextConditionController.comparesUntransformedItems(nodeItem);
+    }
 }
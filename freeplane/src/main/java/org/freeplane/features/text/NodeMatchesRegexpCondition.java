@@ -113,4 +113,14 @@ public class NodeMatchesRegexpCondition extends ASelectableCondition implements
 	public String getNodeItem() {
 		return nodeItem;
 	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return NodeTextConditionController.comparesUntransformedItems(nodeItem);
+	}
+
+	@Override
+	public boolean checksOnlyNodeAndRelatives() {
+		return NodeTextConditionController.comparesUntransformedItems(nodeItem);
+	}
 }
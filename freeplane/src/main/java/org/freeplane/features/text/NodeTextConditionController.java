@@ -48,7 +48,7 @@ import org.freeplane.n3.nanoxml.XMLElement;
  * @author Dimitry Polivaev
  * 21.12.2008
  */
-class NodeTextConditionController implements IElementaryConditionController {
+public class NodeTextConditionController implements IElementaryConditionController {
 	private final ComboBoxModel values = new DefaultComboBoxModel();
 
 	public boolean canEditValues(final Object selectedItem, final TranslatedObject simpleCond) {
@@ -197,6 +197,11 @@ class NodeTextConditionController implements IElementaryConditionController {
 			return new Object[] { getItemForComparison(nodeItem, node) };
 	}
 
+	/** Returns true if the compared items are read from the model without text transformation. */
+	static boolean comparesUntransformedItems(Object nodeItem) {
+		return nodeItem.equals(TextController.FILTER_DETAILS) || nodeItem.equals(TextController.FILTER_NOTE);
+	}
+
 	private static Object getItemForComparison(Object nodeItem, final NodeModel node) {
 		final Object result;
 		if(nodeItem.equals(TextController.FILTER_NODE)){
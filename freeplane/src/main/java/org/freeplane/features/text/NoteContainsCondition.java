@@ -20,12 +20,15 @@
 package org.freeplane.features.text;
 
 import java.awt.FontMetrics;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.freeplane.core.util.HtmlUtils;
 import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.filter.NodeTextIndex;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy.Type;
 import org.freeplane.features.filter.condition.ASelectableCondition;
@@ -111,4 +114,19 @@ public class NoteContainsCondition extends StringConditionAdapter {
     protected Object conditionValue() {
         return value;
     }
+
+    @Override
+    protected Set<NodeTextIndex.Field> indexedFields() {
+        return EnumSet.of(NodeTextIndex.Field.NOTE);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return ! matchApproximately;
+    }
+
+    @Override
+    public boolean checksOnlyNodeAndRelatives() {
+        return true;
+    }
 }
\ No newline at end of file
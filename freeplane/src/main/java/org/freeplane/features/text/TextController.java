@@ -78,7 +78,8 @@ public class TextController implements IExtension {
 	public static final String MARK_TRANSFORMED_TEXT = "highlight_formulas";
 	private final List<IContentTransformer> textTransformers;
 	protected final ModeController modeController;
-	private boolean nodeNumberingEnabled = true;
+	/** Per thread, because formulas may be evaluated on several threads at once. */
+	private final ThreadLocal<Boolean> nodeNumberingEnabled = ThreadLocal.withInitial(() -> Boolean.TRUE);
 
 	public static boolean isMarkTransformedTextSet() {
 		return Controller.getCurrentController().getResourceController().getBooleanProperty(MARK_TRANSFORMED_TEXT);
@@ -265,13 +266,13 @@ public class TextController implements IExtension {
 	}
 
 	public <T> T withNodeNumbering(boolean isEnabled, Supplier<T> supplier) {
-		final boolean nodeNumberingWasEnabled = nodeNumberingEnabled;
-		nodeNumberingEnabled = isEnabled;
+		final Boolean nodeNumberingWasEnabled = nodeNumberingEnabled.get();
+		nodeNumberingEnabled.set(isEnabled);
 		try {
 			return supplier.get();
 		}
 		finally {
-			nodeNumberingEnabled = nodeNumberingWasEnabled;
+			nodeNumberingEnabled.set(nodeNumberingWasEnabled);
 		}
 
 	}
@@ -487,7 +488,7 @@ public class TextController implements IExtension {
 	}
 
 	public boolean getNodeNumbering(NodeModel node) {
-		return nodeNumberingEnabled && modeController.getExtension(NodeStyleController.class).getNodeNumbering(node);
+		return nodeNumberingEnabled.get() && modeController.getExtension(NodeStyleController.class).getNodeNumbering(node);
 	}
 
 	public ModeController getModeController() {
@@ -66,4 +66,14 @@ public abstract class TimeCondition extends ASelectableCondition {
 	public void fillXML(final XMLElement child) {
 		child.setAttribute(DATE, Long.toString(getDate().getTime()));
 	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public boolean checksOnlyNodeAndRelatives() {
+		return true;
+	}
 }
@@ -0,0 +1,105 @@
+package org.freeplane.features.url.mindmapmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.freeplane.core.util.Compat;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+
+/**
+ * Parses map files on worker threads ahead of their opening.
+ *
+ * Only the parsing runs in the background: the map models are created by the caller,
+ * and the file is bound to a parsed map and the map is registered, announced and shown
+ * by {@link MapLoader} on the calling thread as for any other loaded map.
+ * The map reader keeps the state of each load apart, so up to one map per processor is parsed at once.
+ * Maps which can not be parsed without user interaction or fail to parse
+ * are dropped, so that {@link MapLoader} loads them the usual way.
+ */
+class BackgroundMapParser {
+	private final MFileManager fileManager;
+	private final Map<File, Future<MMapModel>> parsedMaps;
+	private ThreadPoolExecutor executor;
+
+	BackgroundMapParser(MFileManager fileManager) {
+		this.fileManager = fileManager;
+		this.parsedMaps = new ConcurrentHashMap<>();
+	}
+
+	void parse(final URL url, final MMapModel map) {
+		final File file = canonicalFile(url);
+		if(file == null || ! file.canRead() || file.length() == 0 || parsedMaps.containsKey(file))
+			return;
+		parsedMaps.put(file, executor().submit(new Callable<MMapModel>() {
+			@Override
+			public MMapModel call() throws Exception {
+				return fileManager.loadTreeWithoutUserInteraction(map, file) != null ? map : null;
+			}
+		}));
+	}
+
+	MMapModel take(final URL url) {
+		final File file = canonicalFile(url);
+		if(file == null)
+			return null;
+		final Future<MMapModel> parsedMap = parsedMaps.remove(file);
+		if(parsedMap == null)
+			return null;
+		try {
+			final MMapModel map = parsedMap.get();
+			if(map != null)
+				fileManager.setFile(map, file);
+			return map;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e) {
+			LogUtils.warn("Background parsing failed for " + file, e.getCause());
+			return null;
+		}
+	}
+
+	void discard() {
+		for(Future<MMapModel> parsedMap : parsedMaps.values())
+			parsedMap.cancel(true);
+		parsedMaps.clear();
+	}
+
+	private synchronized ThreadPoolExecutor executor() {
+		if(executor == null) {
+			final int threadCount = Runtime.getRuntime().availableProcessors();
+			executor = new ThreadPoolExecutor(threadCount, threadCount, 10, TimeUnit.SECONDS,
+			    new LinkedBlockingQueue<Runnable>(), r -> {
+				    final Thread thread = Executors.defaultThreadFactory().newThread(r);
+				    thread.setName("map parser " + thread.getName());
+				    thread.setDaemon(true);
+				    return thread;
+			    });
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	private static File canonicalFile(final URL url) {
+		try {
+			final File file = Compat.urlToFile(url);
+			return file != null ? file.getCanonicalFile() : null;
+		}
+		catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+}
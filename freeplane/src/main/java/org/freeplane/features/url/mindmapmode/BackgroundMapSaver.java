@@ -0,0 +1,134 @@
+package org.freeplane.features.url.mindmapmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.clipboard.MapClipboardController.CopiedNodeSet;
+import org.freeplane.features.map.mindmapmode.MMapController;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.ui.ViewController;
+
+/**
+ * Saves maps on a worker thread.
+ *
+ * The map is serialized to XML text on the calling thread, which gives a consistent snapshot
+ * of the map without copying it. Writing the file, copying the previous version to a backup
+ * and replacing the map file run in the background. The map file is replaced by an atomic move,
+ * so it always contains either the previous or the new version.
+ */
+class BackgroundMapSaver {
+	private static final String STATUS_KEY = "background_save";
+	private final MMapController mapController;
+	private final Map<MMapModel, Future<?>> runningSaves;
+	private final ExecutorService executor;
+
+	BackgroundMapSaver(MMapController mapController) {
+		this.mapController = mapController;
+		this.runningSaves = new ConcurrentHashMap<>();
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			final Thread thread = Executors.defaultThreadFactory().newThread(r);
+			thread.setName("map saver " + thread.getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	boolean isSaving(MMapModel map) {
+		return runningSaves.containsKey(map);
+	}
+
+	/**
+	 * Starts saving the map to its file, the previous file content is copied to the given backup file.
+	 * Returns false without saving if a previous save of this map has not finished yet.
+	 * After the save the callback for its success or its failure runs on the event dispatch thread.
+	 */
+	boolean save(final MMapModel map, final File file, final File backupFile, final Runnable onSaved,
+	             final Runnable onFailed) throws IOException {
+		if(isSaving(map))
+			return false;
+		final StringWriter snapshot = new StringWriter();
+		mapController.getMapWriter().writeMapAsXml(map, snapshot, Mode.FILE, CopiedNodeSet.ALL_NODES, false);
+		final int savedChanges = map.getNumberOfChangesSinceLastSave();
+		final ViewController viewController = Controller.getCurrentController().getViewController();
+		viewController.addStatusInfo(STATUS_KEY, TextUtils.format("automatically_saving_message", file.getName()));
+		runningSaves.put(map, executor.submit(() -> {
+			boolean saved = false;
+			try {
+				final byte[] content = snapshot.toString().getBytes(StandardCharsets.UTF_8);
+				write(content, file, backupFile);
+				saved = true;
+			}
+			catch (IOException e) {
+				LogUtils.warn(TextUtils.format("save_failed", file.getName()), e);
+			}
+			final boolean success = saved;
+			viewController.invokeLater(() -> {
+				runningSaves.remove(map);
+				if(success) {
+					map.updateLastKnownFileModificationTime();
+					onSaved.run();
+					if(map.getNumberOfChangesSinceLastSave() == savedChanges)
+						mapController.mapSaved(map, true);
+				}
+				else
+					onFailed.run();
+				if(runningSaves.isEmpty())
+					viewController.removeStatus(STATUS_KEY);
+				if(success)
+					viewController.out(TextUtils.format("automatically_save_message", file));
+				else
+					viewController.out(TextUtils.format("save_failed", file.getName()));
+			});
+		}));
+		return true;
+	}
+
+	/** Blocks until a running save of the map is written, so that it can not overwrite a newer version. */
+	void waitFor(MMapModel map) {
+		final Future<?> runningSave = runningSaves.get(map);
+		if(runningSave == null)
+			return;
+		try {
+			runningSave.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			LogUtils.severe(e);
+		}
+	}
+
+	private void write(byte[] content, File file, File backupFile) throws IOException {
+		final File newFile = File.createTempFile(file.getName(), ".saving", file.getAbsoluteFile().getParentFile());
+		try {
+			Files.write(newFile.toPath(), content);
+			if(file.exists())
+				Files.copy(file.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			try {
+				Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(newFile.toPath());
+		}
+	}
+}
@@ -26,6 +26,7 @@ import java.net.URL;
 
 import javax.swing.Timer;
 
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.map.MapModel;
@@ -37,6 +38,7 @@ import org.freeplane.features.url.UrlManager;
 
 public class DoAutomaticSave implements ActionListener {
     static final String AUTOSAVE_EXTENSION = "autosave";
+    static final String AUTOSAVE_IN_BACKGROUND_PROPERTY = "autosave_in_background";
     /**
      * This value is compared with the result of
      * getNumberOfChangesSinceLastSave(). If the values coincide, no further
@@ -61,6 +63,13 @@ public class DoAutomaticSave implements ActionListener {
         if (model.getNumberOfChangesSinceLastSave() == changeState) {
             return;
         }
+        /* Previous background save still running? Try again on the next tick. */
+        final UrlManager urlManager = UrlManager.getController();
+        if (model instanceof MMapModel && urlManager instanceof MFileManager
+                && ((MFileManager) urlManager).isSavingInBackground((MMapModel) model)) {
+            return;
+        }
+        final int previousChangeState = changeState;
         changeState = model.getNumberOfChangesSinceLastSave();
         if (changeState == 0) {
             /* map was recently saved. */
@@ -92,7 +101,13 @@ public class DoAutomaticSave implements ActionListener {
             if(tempFile.isFile() && tempFile.canWrite()) {
                 tempFile.delete();
             }
-            if (file.renameTo(tempFile)) {
+            if (savesInBackground(file)) {
+                /* Not saved? Try again on the next tick. */
+                if (! ((MFileManager) fileManager).saveInBackground((MMapModel) model, tempFile))
+                    changeState = previousChangeState;
+                timer.start();
+            }
+            else if (file.renameTo(tempFile)) {
                 ((MFileManager) fileManager).save(model);
                 modeController.getController().getViewController()
                 .out(TextUtils.format("automatically_save_message", model.getFile()));
@@ -103,4 +118,12 @@ public class DoAutomaticSave implements ActionListener {
         }
     }
 
+    private boolean savesInBackground(final File file) {
+        return model instanceof MMapModel
+                && model.getURL() != null
+                && ! model.isReadOnly()
+                && file.exists()
+                && ResourceController.getResourceController().getBooleanProperty(AUTOSAVE_IN_BACKGROUND_PROPERTY);
+    }
+
 }
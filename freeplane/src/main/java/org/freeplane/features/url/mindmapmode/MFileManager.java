@@ -59,6 +59,8 @@ import javax.swing.plaf.FileChooserUI;
 import javax.swing.plaf.basic.BasicFileChooserUI;
 
 import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.io.xml.TreeSnapshotReader;
+import org.freeplane.core.io.xml.TreeSnapshotWriter;
 import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.resources.components.ComboProperty;
 import org.freeplane.core.resources.components.IPropertyControl;
@@ -156,6 +158,9 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 	private static final String BACKUP_FILE_NUMBER = "backup_file_number";
 	private static File singleBackupDirectory;
     private final MMapController mapController;
+	private final BackgroundMapParser backgroundMapParser;
+	private final BackgroundMapSaver backgroundMapSaver;
+	private final MapChangeJournal changeJournal;
 	private File[] findFileRevisions(final File file, final File backupDir, final AlternativeFileMode mode) {
 		final String fileExtensionPattern;
 		if (mode == AlternativeFileMode.ALL)
@@ -181,7 +186,7 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 	}
 
 	/** prevents name conflicts with singleBackupDirectory in most cases (uses the file's hashcode). */
-	private static String backupFileName(final File file) {
+	static String backupFileName(final File file) {
 		if (singleBackupDirectory == null)
 			return file.getName();
 		return file.getName() + "." + file.hashCode();
@@ -265,6 +270,28 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 	public MFileManager(MMapController mapController) {
 		super(new File(getDefaultSaveDirFromPrefs()));
         this.mapController = mapController;
+        this.backgroundMapParser = new BackgroundMapParser(this);
+        this.backgroundMapSaver = new BackgroundMapSaver(mapController);
+        this.changeJournal = new MapChangeJournal(this, mapController);
+        changeJournal.registerBy(mapController);
+        MapSnapshots.removeUnused();
+	}
+
+	/**
+	 * Starts parsing of the given map files on worker threads.
+	 * The parsed maps are picked up when they are opened, e.g. on restoring the last session.
+	 */
+	public void parseInBackground(final Collection<URL> urls) {
+		for(URL url : urls)
+			backgroundMapParser.parse(url, new MMapModel(mapController.duplicator()));
+	}
+
+	public void discardMapsParsedInBackground() {
+		backgroundMapParser.discard();
+	}
+
+	MMapModel takeMapParsedInBackground(final URL url) {
+		return backgroundMapParser.take(url);
 	}
 
 	private static String getDefaultSaveDirFromPrefs() {
@@ -544,6 +571,21 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 	}
 
 	private NodeModel loadTreeImpl(final MapModel map, final File f) throws FileNotFoundException, IOException,
+	        XMLException {
+		return loadTreeImpl(map, f, true);
+	}
+
+	/**
+	 * Parses the map file without showing any dialog, so that it can run on a worker thread.
+	 * Returns null if the file needs user interaction (dialect warning or conversion),
+	 * such files must be loaded by {@link #loadTree(MapModel, File)}.
+	 */
+	NodeModel loadTreeWithoutUserInteraction(final MapModel map, final File f) throws FileNotFoundException, IOException,
+	        XMLException {
+		return loadTreeImpl(map, f, false);
+	}
+
+	private NodeModel loadTreeImpl(final MapModel map, final File f, boolean interactive) throws FileNotFoundException, IOException,
 	        XMLException {
 		int versionInfoLength = 1000;
 		final byte[] buffer = new byte[versionInfoLength];
@@ -552,16 +594,31 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
             final String mapStart = new String(buffer, StandardCharsets.UTF_8.name());
             final ByteArrayInputStream readBytes = new ByteArrayInputStream(buffer, 0, readCount);
             MapVersionInterpreter versionInterpreter = MapVersionInterpreter.getVersionInterpreter(mapStart);
+            if (! interactive && (versionInterpreter.anotherDialect || versionInterpreter.needsConversion))
+                return null;
             map.addExtension(versionInterpreter);
             if (versionInterpreter.anotherDialect) {
                 String message = versionInterpreter.getDialectInfo(f.getAbsolutePath());
                 UITools.showMessage(message, JOptionPane.WARNING_MESSAGE);
             }
-            try (final InputStream sequencedInput = new SequenceInputStream(readBytes, file);
-                    Reader reader = openInputStream(f, sequencedInput, versionInterpreter)) {
-                return mapController.getMapReader()
-                    .createNodeTreeFromXml(map, reader, Mode.FILE);
+            final TreeSnapshotReader snapshot = versionInterpreter.needsConversion ? null : MapSnapshots.open(f);
+            if (snapshot != null)
+                mapController.getMapReader().createNodeTreeFromSnapshot(map, snapshot, Mode.FILE);
+            else {
+                final long length = f.length();
+                final long lastModified = f.lastModified();
+                final TreeSnapshotWriter snapshotWriter = ! versionInterpreter.needsConversion && MapSnapshots.areEnabled()
+                        ? new TreeSnapshotWriter() : null;
+                try (final InputStream sequencedInput = new SequenceInputStream(readBytes, file);
+                        Reader reader = openInputStream(f, sequencedInput, versionInterpreter)) {
+                    mapController.getMapReader()
+                        .createNodeTreeFromXml(map, reader, Mode.FILE, snapshotWriter);
+                }
+                if (snapshotWriter != null)
+                    MapSnapshots.save(snapshotWriter, f, length, lastModified);
             }
+            changeJournal.replay(map, f);
+            return map.getRootNode();
         }
 	}
 
@@ -826,7 +883,11 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 			if (map.getTimerForAutomaticSaving() != null) {
 				map.getTimerForAutomaticSaving().stop();
 			}
-			writeToFile(map, file);
+			backgroundMapSaver.waitFor(map);
+			if (! changeJournal.append(map, file)) {
+				writeToFile(map, file);
+				changeJournal.fullSaveCompleted(map, file);
+			}
 			map.scheduleTimerForAutomaticSaving();
 			return true;
 		}
@@ -847,6 +908,34 @@ public class MFileManager extends UrlManager implements IMapViewChangeListener {
 		return false;
 	}
 
+	/**
+	 * Saves the map to its file on a worker thread, the previous file content is copied to the backup file.
+	 * Returns false without saving if the map file is locked by another user
+	 * or the previous background save of the map is still running.
+	 */
+	boolean saveInBackground(final MMapModel map, final File backupFile) throws Exception {
+		final File file = map.getFile();
+		if (null == map.getExtension(BackupFlag.class)) {
+			map.addExtension(new BackupFlag());
+			backup(file);
+		}
+		final String lockingUser = tryToLock(map, file);
+		if (lockingUser != null) {
+			Controller.getCurrentController().getViewController()
+			    .out(TextUtils.format("map_locked_by_save_as", file.getName(), lockingUser));
+			return false;
+		}
+		final boolean started = backgroundMapSaver.save(map, file, backupFile,
+		    () -> changeJournal.fullSaveCompleted(map, file), () -> changeJournal.fullSaveFailed(map));
+		if (started)
+			changeJournal.fullSaveStarted(map);
+		return started;
+	}
+
+	boolean isSavingInBackground(final MMapModel map) {
+		return backgroundMapSaver.isSaving(map);
+	}
+
 	/**@deprecated -- use MMapIO*/
 	@Deprecated
 	public void writeToFile(final MapModel map, final File file) throws FileNotFoundException, IOException {
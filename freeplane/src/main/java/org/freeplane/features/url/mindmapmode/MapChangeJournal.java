@@ -0,0 +1,458 @@
+package org.freeplane.features.url.mindmapmode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.io.xml.XMLLocalParserFactory;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.EncryptionModel;
+import org.freeplane.features.map.IMapChangeListener;
+import org.freeplane.features.map.IMapLifeCycleListener;
+import org.freeplane.features.map.INodeChangeListener;
+import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader.NodeTreeCreator;
+import org.freeplane.features.map.MapWriter.Hint;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeBuilder;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeDeletionEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.NodeMoveEvent;
+import org.freeplane.features.map.clipboard.MapClipboardController.CopiedNodeSet;
+import org.freeplane.features.map.mindmapmode.MMapController;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.n3.nanoxml.IXMLParser;
+import org.freeplane.n3.nanoxml.StdXMLReader;
+import org.freeplane.n3.nanoxml.XMLElement;
+import org.freeplane.n3.nanoxml.XMLException;
+import org.freeplane.n3.nanoxml.XMLWriter;
+
+/**
+ * Append-only journal of node changes, which makes saving a large map proportional to the number of changes.
+ *
+ * Node changes, insertions, moves and deletions reported to the map controller are collected per map.
+ * On save, the changed nodes are appended to the journal file as one batch, each node written without its children
+ * together with its parent and its position. The map file itself is only rewritten if the map changed as a whole,
+ * or if the journal became too large compared to the map file, and when a map with a journal is closed.
+ * The journal is bound to the map file by the length and the modification time the file had after its last full save,
+ * like the snapshots of {@link MapSnapshots}, and replayed when the map is loaded.
+ * Each batch carries a checksum of its own records, so a batch torn by a crash is detected and dropped.
+ * Journals which do not belong to the map file and dropped batches are moved aside to a file with extension
+ * {@value #IGNORED_JOURNAL_EXTENSION} instead of being replayed.
+ */
+class MapChangeJournal implements INodeChangeListener, IMapChangeListener, IMapLifeCycleListener {
+	static final String SAVE_INCREMENTALLY_PROPERTY = "save_incrementally";
+	private static final String JOURNAL_EXTENSION = "journal";
+	private static final String IGNORED_JOURNAL_EXTENSION = "ignored";
+	private static final int MAP_TO_JOURNAL_SIZE_RATIO = 4;
+	private static final String JOURNAL = "journal";
+	private static final String BATCH = "batch";
+	private static final String PUT = "put";
+	private static final String REMOVE = "remove";
+	private static final String BATCH_END = "</" + BATCH + ">";
+	private static final String LENGTH = "LENGTH";
+	private static final String MODIFIED = "MODIFIED";
+	private static final String CRC = "CRC";
+	private static final String ID = "ID";
+	private static final String PARENT = "PARENT";
+	private static final String INDEX = "INDEX";
+
+	private static class Changes implements IExtension {
+		final Set<NodeModel> changedNodes = Collections.newSetFromMap(new IdentityHashMap<NodeModel, Boolean>());
+		final Set<String> removedNodeIds = new LinkedHashSet<>();
+		boolean requiresFullSave;
+		boolean fullSaveRunning;
+		File baseFile;
+		long baseLength;
+		long baseModified;
+
+		void bindTo(File file) {
+			baseFile = file;
+			baseLength = file.length();
+			baseModified = file.lastModified();
+		}
+
+		boolean isBoundTo(File file) {
+			return file.equals(baseFile) && file.length() == baseLength && file.lastModified() == baseModified;
+		}
+
+		void clear() {
+			changedNodes.clear();
+			removedNodeIds.clear();
+			requiresFullSave = false;
+		}
+	}
+
+	private final MFileManager fileManager;
+	private final MMapController mapController;
+
+	MapChangeJournal(MFileManager fileManager, MMapController mapController) {
+		this.fileManager = fileManager;
+		this.mapController = mapController;
+	}
+
+	void registerBy(MMapController mapController) {
+		mapController.addNodeChangeListener(this);
+		mapController.addMapChangeListener(this);
+		mapController.addMapLifeCycleListener(this);
+	}
+
+	private static boolean isEnabled() {
+		return ResourceController.getResourceController().getBooleanProperty(SAVE_INCREMENTALLY_PROPERTY);
+	}
+
+	private static Changes changes(MapModel map) {
+		Changes changes = map.getExtension(Changes.class);
+		if (changes == null) {
+			changes = new Changes();
+			map.addExtension(changes);
+		}
+		return changes;
+	}
+
+	static File journalFile(File mapFile) {
+		return new File(MFileManager.backupDir(mapFile), MFileManager.backupFileName(mapFile) + '.' + JOURNAL_EXTENSION);
+	}
+
+	@Override
+	public void nodeChanged(NodeChangeEvent event) {
+		final NodeModel node = event.getNode();
+		if (isEnabled() && node.getMap() instanceof MMapModel)
+			changes(node.getMap()).changedNodes.add(node);
+	}
+
+	@Override
+	public void onNodeInserted(NodeModel parent, NodeModel child, int newIndex) {
+		if (isEnabled() && child.getMap() instanceof MMapModel)
+			addSubtree(changes(child.getMap()), child);
+	}
+
+	private void addSubtree(Changes changes, NodeModel node) {
+		changes.changedNodes.add(node);
+		for (NodeModel child : node.getChildren())
+			addSubtree(changes, child);
+	}
+
+	@Override
+	public void onNodeMoved(NodeMoveEvent nodeMoveEvent) {
+		final NodeModel node = nodeMoveEvent.child;
+		if (isEnabled() && node.getMap() instanceof MMapModel)
+			changes(node.getMap()).changedNodes.add(node);
+	}
+
+	@Override
+	public void onNodeDeleted(NodeDeletionEvent nodeDeletionEvent) {
+		final NodeModel node = nodeDeletionEvent.node;
+		if (isEnabled() && node.getMap() instanceof MMapModel && node.hasID())
+			changes(node.getMap()).removedNodeIds.add(node.getID());
+	}
+
+	@Override
+	public void mapChanged(MapChangeEvent event) {
+		if (!isEnabled() || !event.setsDirtyFlag())
+			return;
+		final MapModel map = event.getMap() != null ? event.getMap() : Controller.getCurrentController().getMap();
+		if (map instanceof MMapModel)
+			changes(map).requiresFullSave = true;
+	}
+
+	@Override
+	public void onRemove(MapModel map) {
+		final Changes changes = map.getExtension(Changes.class);
+		final File file = map.getFile();
+		if (changes == null || file == null || !map.isSaved() || changes.fullSaveRunning
+		        || !changes.isBoundTo(file) || !journalFile(file).exists())
+			return;
+		try {
+			fileManager.writeToFile(map, file);
+			fullSaveCompleted(map, file);
+		}
+		catch (IOException e) {
+			LogUtils.warn("Compaction of map change journal failed for " + file, e);
+		}
+	}
+
+	/**
+	 * Appends the changes since the last save to the journal.
+	 * Returns false if the map must be saved completely.
+	 */
+	boolean append(MMapModel map, File file) throws IOException {
+		if (!isEnabled())
+			return false;
+		final Changes changes = map.getExtension(Changes.class);
+		if (changes == null || changes.requiresFullSave || changes.fullSaveRunning || !changes.isBoundTo(file))
+			return false;
+		final File journalFile = journalFile(file);
+		if (journalFile.length() * MAP_TO_JOURNAL_SIZE_RATIO > file.length())
+			return false;
+		final List<NodeModel> changedNodes = new ArrayList<>(changes.changedNodes.size());
+		for (NodeModel node : changes.changedNodes) {
+			if (!belongsTo(node, map))
+				continue;
+			if (node.isCloneNode() || EncryptionModel.getModel(node) != null)
+				return false;
+			changedNodes.add(node);
+		}
+		if (changedNodes.isEmpty() && changes.removedNodeIds.isEmpty())
+			return false;
+		changedNodes.sort(PREORDER);
+		final StringWriter records = new StringWriter();
+		final XMLWriter recordWriter = new XMLWriter(records);
+		for (String id : changes.removedNodeIds) {
+			final XMLElement remove = new XMLElement(REMOVE);
+			remove.setAttribute(ID, id);
+			recordWriter.write(remove, true);
+		}
+		for (NodeModel node : changedNodes) {
+			final XMLElement put = new XMLElement(PUT);
+			put.setAttribute(ID, node.createID());
+			final NodeModel parent = node.getParentNode();
+			if (parent != null) {
+				put.setAttribute(PARENT, parent.createID());
+				put.setAttribute(INDEX, Integer.toString(parent.getIndex(node)));
+			}
+			final StringWriter nodeXml = new StringWriter();
+			mapController.getMapWriter().writeNodeAsXml(nodeXml, node, Mode.FILE, CopiedNodeSet.ALL_NODES, false, false);
+			put.setContent(nodeXml.toString());
+			recordWriter.write(put, true);
+		}
+		final StringBuilder batch = new StringBuilder();
+		if (!journalFile.exists()) {
+			journalFile.getParentFile().mkdirs();
+			batch.append("<" + JOURNAL + " " + LENGTH + "=\"" + changes.baseLength + "\" " + MODIFIED + "=\""
+			        + changes.baseModified + "\">\n");
+		}
+		final String recordText = records.toString();
+		batch.append("<" + BATCH + " " + CRC + "=\"" + Long.toHexString(checksum(recordText)) + "\">")
+		    .append(recordText).append(BATCH_END).append('\n');
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+			out.getFD().sync();
+		}
+		changes.clear();
+		return true;
+	}
+
+	private static boolean belongsTo(NodeModel node, MapModel map) {
+		NodeModel ancestor = node;
+		while (ancestor.getParentNode() != null)
+			ancestor = ancestor.getParentNode();
+		return ancestor == map.getRootNode();
+	}
+
+	private static final Comparator<NodeModel> PREORDER = new Comparator<NodeModel>() {
+		@Override
+		public int compare(NodeModel first, NodeModel second) {
+			final NodeModel[] firstPath = first.getPathToRoot();
+			final NodeModel[] secondPath = second.getPathToRoot();
+			final int commonLength = Math.min(firstPath.length, secondPath.length);
+			for (int i = 1; i < commonLength; i++) {
+				if (firstPath[i] != secondPath[i])
+					return Integer.compare(firstPath[i].getIndex(), secondPath[i].getIndex());
+			}
+			return Integer.compare(firstPath.length, secondPath.length);
+		}
+	};
+
+	/** Called before the whole map is written in the background, changes made from now on go to the next save. */
+	void fullSaveStarted(MapModel map) {
+		final Changes changes = changes(map);
+		changes.clear();
+		changes.fullSaveRunning = true;
+	}
+
+	/** Called after the whole map was written to the file, the journal is obsolete. */
+	void fullSaveCompleted(MapModel map, File file) {
+		final Changes changes = changes(map);
+		if (!changes.fullSaveRunning)
+			changes.clear();
+		changes.fullSaveRunning = false;
+		try {
+			Files.deleteIfExists(journalFile(file).toPath());
+			changes.bindTo(file);
+		}
+		catch (IOException e) {
+			changes.baseFile = null;
+			LogUtils.warn(e);
+		}
+	}
+
+	/** Called if the whole map could not be written in the background, the next save must write it again. */
+	void fullSaveFailed(MapModel map) {
+		final Changes changes = changes(map);
+		changes.fullSaveRunning = false;
+		changes.requiresFullSave = true;
+	}
+
+	private static long checksum(String records) {
+		final CRC32 crc = new CRC32();
+		final byte[] bytes = records.getBytes(StandardCharsets.UTF_8);
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	/**
+	 * Applies the journal of the map file to the map just loaded from it.
+	 * A journal which does not belong to the current map file is moved aside,
+	 * batches following a damaged batch are dropped and moved aside too.
+	 */
+	void replay(MapModel map, File file) throws IOException {
+		final File journalFile = journalFile(file);
+		final boolean journalExists = journalFile.exists();
+		if (!journalExists && !isEnabled())
+			return;
+		final Changes changes = changes(map);
+		changes.clear();
+		changes.bindTo(file);
+		if (!journalExists)
+			return;
+		final String journalText = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+		final int headerEnd = journalText.indexOf('>') + 1;
+		if (headerEnd == 0 || !isJournalOf(journalText.substring(0, headerEnd), file)) {
+			LogUtils.warn("Ignored map change journal " + journalFile + " because it does not belong to the map file");
+			moveAside(journalFile);
+			return;
+		}
+		int replayedEnd = headerEnd;
+		for (;;) {
+			final int batchStart = journalText.indexOf("<" + BATCH, replayedEnd);
+			if (batchStart == -1)
+				return;
+			final XMLElement batch = readBatch(journalText, batchStart);
+			if (batch == null)
+				break;
+			replayBatch(map, batch);
+			replayedEnd = journalText.indexOf(BATCH_END, batchStart) + BATCH_END.length();
+		}
+		LogUtils.warn("Dropped damaged end of map change journal " + journalFile);
+		Files.copy(journalFile.toPath(), ignoredJournalFile(journalFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		try (FileChannel journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+			journal.truncate(journalText.substring(0, replayedEnd).getBytes(StandardCharsets.UTF_8).length);
+		}
+	}
+
+	private static boolean isJournalOf(String header, File file) {
+		try {
+			final XMLElement journal = parse(header + "</" + JOURNAL + ">");
+			return Long.toString(file.length()).equals(journal.getAttribute(LENGTH, null))
+			        && Long.toString(file.lastModified()).equals(journal.getAttribute(MODIFIED, null));
+		}
+		catch (Exception e) {
+			return false;
+		}
+	}
+
+	/** Returns the batch starting at the given position, or null if it is incomplete or its checksum does not match. */
+	private static XMLElement readBatch(String journalText, int batchStart) {
+		final int batchEnd = journalText.indexOf(BATCH_END, batchStart);
+		if (batchEnd == -1)
+			return null;
+		final XMLElement batch;
+		try {
+			batch = parse(journalText.substring(batchStart, batchEnd + BATCH_END.length()));
+		}
+		catch (Exception e) {
+			return null;
+		}
+		final String records = journalText.substring(journalText.indexOf('>', batchStart) + 1, batchEnd);
+		return Long.toHexString(checksum(records)).equals(batch.getAttribute(CRC, null)) ? batch : null;
+	}
+
+	private static XMLElement parse(String xml) throws Exception {
+		final IXMLParser parser = XMLLocalParserFactory.createLocalXMLParser();
+		parser.setReader(new StdXMLReader(new StringReader(xml)));
+		return (XMLElement) parser.parse();
+	}
+
+	static File ignoredJournalFile(File journalFile) {
+		return new File(journalFile.getPath() + '.' + IGNORED_JOURNAL_EXTENSION);
+	}
+
+	private static void moveAside(File journalFile) throws IOException {
+		Files.move(journalFile.toPath(), ignoredJournalFile(journalFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void replayBatch(MapModel map, XMLElement batch) throws IOException {
+		final List<XMLElement> puts = new ArrayList<>();
+		final List<NodeModel> oldNodes = new ArrayList<>();
+		for (XMLElement record : batch.getChildren()) {
+			if (!PUT.equals(record.getName()))
+				continue;
+			puts.add(record);
+			final NodeModel oldNode = map.getNodeForID(record.getAttribute(ID, null));
+			if (oldNode != null) {
+				final NodeModel parent = oldNode.getParentNode();
+				if (parent != null)
+					parent.remove(parent.getIndex(oldNode));
+			}
+			oldNodes.add(oldNode);
+		}
+		for (XMLElement record : batch.getChildren()) {
+			if (!REMOVE.equals(record.getName()))
+				continue;
+			final NodeModel node = map.getNodeForID(record.getAttribute(ID, null));
+			if (node != null && node.getParentNode() != null) {
+				node.getParentNode().remove(node.getParentNode().getIndex(node));
+				map.unregistryNodes(node);
+			}
+		}
+		final NodeTreeCreator nodeTreeCreator = mapController.getMapReader().nodeTreeCreator(map);
+		nodeTreeCreator.setHint(Hint.MODE, Mode.FILE);
+		nodeTreeCreator.setHint(NodeBuilder.FOLDING_LOADED, Boolean.TRUE);
+		for (int i = 0; i < puts.size(); i++) {
+			final XMLElement record = puts.get(i);
+			final NodeModel oldNode = oldNodes.get(i);
+			final List<NodeModel> children;
+			if (oldNode != null) {
+				children = new ArrayList<>(oldNode.getChildren());
+				while (oldNode.getChildCount() > 0)
+					oldNode.remove(0);
+				map.unregistryNodes(oldNode);
+			}
+			else
+				children = Collections.emptyList();
+			final NodeModel newNode;
+			try {
+				newNode = nodeTreeCreator.create(new StringReader(record.getContent()));
+			}
+			catch (XMLException e) {
+				throw new IOException(e);
+			}
+			for (NodeModel child : children)
+				newNode.insert(child, newNode.getChildCount());
+			final String parentId = record.getAttribute(PARENT, null);
+			if (parentId == null) {
+				map.setRoot(newNode);
+			}
+			else {
+				final NodeModel parent = map.getNodeForID(parentId);
+				if (parent == null)
+					throw new IOException("Parent node " + parentId + " of journaled node not found");
+				final int index = Math.min(record.getAttribute(INDEX, 0), parent.getChildCount());
+				parent.insert(newNode, index);
+			}
+		}
+		if (!puts.isEmpty())
+			nodeTreeCreator.finishCreatedTrees(map.getRootNode());
+	}
+}
@@ -217,22 +217,25 @@ public class MapLoader{
 		final URL actualSourceLocation = inputStream != null ? null : asDocumentation ? sourceLocation : alternativeSourceLocation();
 		if(actualSourceLocation == null)
 		    return null;
-		final MMapModel map = createMindMap();
-		AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
-
-			@Override
-			public Void run() throws FileNotFoundException, XMLException, URISyntaxException, IOException {
-				if(inputStream != null) {
-					loadMapContent(map);
-				}
-				else {
-					if(actualSourceLocation != null) {
-						loadMap(map, actualSourceLocation);
+		final MMapModel mapParsedInBackground = asDocumentation ? null : fileManager().takeMapParsedInBackground(actualSourceLocation);
+		final MMapModel map = mapParsedInBackground != null ? mapParsedInBackground : createMindMap();
+		if(mapParsedInBackground == null) {
+			AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+
+				@Override
+				public Void run() throws FileNotFoundException, XMLException, URISyntaxException, IOException {
+					if(inputStream != null) {
+						loadMapContent(map);
+					}
+					else {
+						if(actualSourceLocation != null) {
+							loadMap(map, actualSourceLocation);
+						}
 					}
+					return null;
 				}
-				return null;
-			}
-		});
+			});
+		}
 
 		if (map.getRootNode() == null)
 			map.createNewRoot();
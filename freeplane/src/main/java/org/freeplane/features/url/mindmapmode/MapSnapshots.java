@@ -0,0 +1,121 @@
+package org.freeplane.features.url.mindmapmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.freeplane.core.io.xml.TreeSnapshotReader;
+import org.freeplane.core.io.xml.TreeSnapshotWriter;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.util.LogUtils;
+
+/**
+ * Binary snapshots of map files kept in the user directory.
+ *
+ * A snapshot is recorded while a map file is parsed and used instead of parsing the file
+ * as long as the map file keeps the length and modification time it had when the snapshot was recorded.
+ * Snapshot files are named by a hash of the canonical path of their map file,
+ * the path itself is stored in the snapshot and checked when it is opened.
+ * Snapshots which do not match their map file any more are deleted when they are opened,
+ * snapshots of maps not opened for a long time are deleted on start up.
+ */
+class MapSnapshots {
+	static final String USE_MAP_SNAPSHOTS_PROPERTY = "use_map_snapshots";
+	private static final String SNAPSHOT_DIRECTORY = "snapshots";
+	private static final String SNAPSHOT_EXTENSION = "snapshot";
+	private static final long UNUSED_SNAPSHOT_LIFETIME = TimeUnit.DAYS.toMillis(30);
+	private static final long MAXIMAL_TOTAL_SIZE = 256L << 20;
+	private static boolean unusedSnapshotsRemoved = false;
+
+	static boolean areEnabled() {
+		return ResourceController.getResourceController().getBooleanProperty(USE_MAP_SNAPSHOTS_PROPERTY);
+	}
+
+	static File snapshotFile(String canonicalPath) {
+		return new File(snapshotDirectory(), hash(canonicalPath) + '.' + SNAPSHOT_EXTENSION);
+	}
+
+	private static File snapshotDirectory() {
+		return new File(ResourceController.getResourceController().getFreeplaneUserDirectory(), SNAPSHOT_DIRECTORY);
+	}
+
+	/**
+	 * Deletes all snapshots if they are disabled, otherwise the snapshots not used for 30 days
+	 * and the least recently used ones exceeding a total size of 256 MB. Runs only once.
+	 */
+	static synchronized void removeUnused() {
+		if (unusedSnapshotsRemoved || ResourceController.getResourceController().getFreeplaneUserDirectory() == null)
+			return;
+		unusedSnapshotsRemoved = true;
+		final File directory = snapshotDirectory();
+		if (!areEnabled())
+			FileUtils.deleteQuietly(directory);
+		else
+			removeUnused(directory, System.currentTimeMillis() - UNUSED_SNAPSHOT_LIFETIME, MAXIMAL_TOTAL_SIZE);
+	}
+
+	static void removeUnused(File directory, long oldestUseTime, long maximalTotalSize) {
+		final File[] snapshots = directory.listFiles((dir, name) -> name.endsWith('.' + SNAPSHOT_EXTENSION));
+		if (snapshots == null)
+			return;
+		Arrays.sort(snapshots, Comparator.comparingLong(File::lastModified).reversed());
+		long totalSize = 0;
+		for (File snapshot : snapshots) {
+			final long size = snapshot.length();
+			if (snapshot.lastModified() < oldestUseTime || totalSize + size > maximalTotalSize)
+				snapshot.delete();
+			else
+				totalSize += size;
+		}
+	}
+
+	private static String hash(String path) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder hash = new StringBuilder(32);
+			for (int i = 0; i < 16; i++)
+				hash.append(String.format("%02x", digest[i]));
+			return hash.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static TreeSnapshotReader open(File mapFile) {
+		if (!areEnabled())
+			return null;
+		try {
+			final String canonicalPath = mapFile.getCanonicalPath();
+			final File snapshotFile = snapshotFile(canonicalPath);
+			final TreeSnapshotReader snapshot = TreeSnapshotReader.open(snapshotFile, canonicalPath, mapFile.length(),
+			    mapFile.lastModified());
+			// the modification time of a snapshot is the time it was last used
+			if (snapshot != null)
+				snapshotFile.setLastModified(System.currentTimeMillis());
+			else if (snapshotFile.isFile())
+				snapshotFile.delete();
+			return snapshot;
+		}
+		catch (IOException e) {
+			LogUtils.warn("Can not read snapshot of " + mapFile, e);
+			return null;
+		}
+	}
+
+	static void save(TreeSnapshotWriter snapshotWriter, File mapFile, long length, long lastModified) {
+		try {
+			final String canonicalPath = mapFile.getCanonicalPath();
+			snapshotWriter.writeTo(snapshotFile(canonicalPath), canonicalPath, length, lastModified);
+		}
+		catch (IOException e) {
+			LogUtils.warn("Can not write snapshot of " + mapFile, e);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.freeplane.main.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Options of the batch mode started by <code>--batch &lt;command&gt;</code>,
+ * which processes the given maps and directories of maps without user interface.
+ */
+public class BatchOptions {
+	private static final String MAP_EXTENSION = ".mm";
+	private final String command;
+	private File outputDirectory;
+	private String format;
+	private File script;
+	private final Map<File, Path> relativeDirectories = new HashMap<>();
+
+	BatchOptions(String command) {
+		this.command = command;
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
+	/** Returns the directory for written files, or null if they are written next to the processed maps. */
+	public File getOutputDirectory() {
+		return outputDirectory;
+	}
+
+	void setOutputDirectory(File outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
+
+	/** Returns the export type given by a file extension like "html" or by its description. */
+	public String getFormat() {
+		return format;
+	}
+
+	void setFormat(String format) {
+		this.format = format;
+	}
+
+	public File getScript() {
+		return script;
+	}
+
+	void setScript(File script) {
+		this.script = script;
+	}
+
+	/** Returns the output file for the given map with the given extension. */
+	public File getOutputFile(File mapFile, String extension) {
+		final String name = mapFile.getName();
+		final int extensionStart = name.lastIndexOf('.');
+		final String baseName = extensionStart > 0 ? name.substring(0, extensionStart) : name;
+		return getOutputFileNamed(mapFile, baseName + '.' + extension);
+	}
+
+	/** Returns the output file for the given map with the name of the map. */
+	public File getOutputFile(File mapFile) {
+		return getOutputFileNamed(mapFile, mapFile.getName());
+	}
+
+	/**
+	 * Maps found in a directory keep their path relative to this directory in the output directory,
+	 * so that maps with the same name in different subdirectories do not overwrite each other.
+	 */
+	private File getOutputFileNamed(File mapFile, String name) {
+		if (outputDirectory == null)
+			return new File(mapFile.getAbsoluteFile().getParentFile(), name);
+		final Path relativeDirectory = relativeDirectories.get(canonicalFile(mapFile));
+		final File directory = relativeDirectory != null
+		        ? outputDirectory.toPath().resolve(relativeDirectory).toFile() : outputDirectory;
+		return new File(directory, name);
+	}
+
+	/** Returns the given map files and the map files found in the given directories and their subdirectories. */
+	public List<File> findMapFiles(String[] paths) throws IOException {
+		final List<File> mapFiles = new ArrayList<>();
+		for (String path : paths) {
+			final File file = new File(path);
+			if (file.isDirectory()) {
+				final Path root = file.toPath();
+				final List<Path> foundFiles;
+				try (Stream<Path> files = Files.walk(root)) {
+					foundFiles = files
+						.filter(p -> p.getFileName().toString().endsWith(MAP_EXTENSION) && Files.isRegularFile(p))
+						.sorted()
+						.collect(Collectors.toList());
+				}
+				for (Path foundFile : foundFiles) {
+					final File mapFile = foundFile.toFile();
+					relativeDirectories.put(canonicalFile(mapFile), root.relativize(foundFile.getParent()));
+					mapFiles.add(mapFile);
+				}
+			}
+			else
+				mapFiles.add(file);
+		}
+		return mapFiles;
+	}
+
+	private static File canonicalFile(File file) {
+		try {
+			return file.getCanonicalFile();
+		}
+		catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BatchOptions(command: " + command + ", output: " + outputDirectory + ", format: " + format
+		        + ", script: " + script + ")";
+	}
+}
@@ -16,4 +16,7 @@ public interface CommandLineOptions {
 
 	boolean hasItemsToExecute();
 
+	/** Returns the options of the batch mode or null if Freeplane is not started in batch mode. */
+	BatchOptions getBatchOptions();
+
 }
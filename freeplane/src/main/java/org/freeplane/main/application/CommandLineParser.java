@@ -1,5 +1,6 @@
 package org.freeplane.main.application;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -17,13 +18,24 @@ public class CommandLineParser {
                 + "\n -N            : set the 'nonInteractive' system property to 'true'" //
                 + "\n -U<userdir>   : set the freeplane user config directory (default: "
                 + Compat.getDefaultFreeplaneUserDirectory() + ")" //
-                + "\n -h , --help   : print this help text";
+                + "\n -h , --help   : print this help text" //
+                + "\n\nBatch mode:\n\tfreeplane.bat --batch <command> [batch options] file1|dir1 [file2|dir2 ...]\n" //
+                + "\n --batch <command> : process the given maps and all maps in the given directories without" //
+                + "\n                     user interface and exit. Commands:" //
+                + "\n                     convert  - save the maps in the current file format" //
+                + "\n                     export   - export the maps to the format given by --format" //
+                + "\n                     evaluate - evaluate all formulas of the maps" //
+                + "\n                     script   - execute the script given by --script for each map" //
+                + "\n --output <dir>    : directory of converted and exported maps (default: next to the maps)" //
+                + "\n --format <type>   : export type given by its file extension, e.g. html, or its description" //
+                + "\n --script <file>   : script executed for the root node of each map";
         private List<String> filesToOpen = new ArrayList<String>();
         private List<String> menuItemsToExecute = new ArrayList<String>();
         private List<String> scriptsToExecute = new ArrayList<String>();
         private boolean stopAfterLaunch;
         private boolean nonInteractive;
         private boolean helpRequested = false;
+        private BatchOptions batchOptions;
 
         private void setFilesToOpen(final String[] filesToOpen) {
             this.filesToOpen = Arrays.asList(filesToOpen);
@@ -69,6 +81,15 @@ public class CommandLineParser {
             return nonInteractive;
         }
 
+        public BatchOptions getBatchOptions() {
+            return batchOptions;
+        }
+
+        private void setBatchCommand(String command) {
+            batchOptions = new BatchOptions(command);
+            nonInteractive = true;
+        }
+
         private boolean isHelpRequested() {
             return helpRequested;
         }
@@ -81,7 +102,7 @@ public class CommandLineParser {
         public String toString() {
             return "Options(files: " + filesToOpen + ", menuItems: " + menuItemsToExecute + 
             		", scripts: " + scriptsToExecute + ", stopAfterLaunch: "
-                    + stopAfterLaunch + ", nonInteractive: " + nonInteractive + ")";
+                    + stopAfterLaunch + ", nonInteractive: " + nonInteractive + ", batch: " + batchOptions + ")";
         }
 
         private String getHelpMessage() {
@@ -155,6 +176,27 @@ public class CommandLineParser {
             else if (arg.equals("--help")) {
                 result.setHelpRequested(true);
             }
+            else if (arg.equals("--batch")) {
+                if (args.length > i + 1)
+                    result.setBatchCommand(args[++i]);
+                else
+                    System.err.println("option --batch <command> misses its parameter");
+            }
+            else if (arg.equals("--output") || arg.equals("--format") || arg.equals("--script")) {
+                if (result.getBatchOptions() == null)
+                    System.err.println("option " + arg + " is only used after --batch <command>");
+                else if (args.length <= i + 1)
+                    System.err.println("option " + arg + " misses its parameter");
+                else {
+                    final String value = args[++i];
+                    if (arg.equals("--output"))
+                        result.getBatchOptions().setOutputDirectory(new File(value));
+                    else if (arg.equals("--format"))
+                        result.getBatchOptions().setFormat(value);
+                    else
+                        result.getBatchOptions().setScript(new File(value));
+                }
+            }
             else {
                 break;
             }
@@ -63,8 +63,10 @@ import org.freeplane.core.ui.components.UITools;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.mindmapmode.MModeController;
 import org.freeplane.features.ui.IMapViewChangeListener;
 import org.freeplane.features.url.mindmapmode.DroppedMindMapOpener;
+import org.freeplane.features.url.mindmapmode.MFileManager;
 import org.freeplane.view.swing.map.MapView;
 import org.freeplane.view.swing.map.NodeView;
 import org.freeplane.view.swing.ui.DefaultMapMouseListener;
@@ -521,6 +523,8 @@ class MapViewDockingWindows implements IMapViewChangeListener {
 		if(encodedBytes != null){
 			byte[] bytes = Base64.decodeBase64(encodedBytes);
 			ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
+			final MFileManager fileManager = MFileManager.getController(Controller.getCurrentController().getModeController(MModeController.MODENAME));
+			fileManager.parseInBackground(MapViewSerializer.readMapUrls(bytes));
 			try {
 				loadingLayoutFromObjectInputStream = true;
 				rootWindow.read(new ObjectInputStream(byteStream));
@@ -536,6 +540,7 @@ class MapViewDockingWindows implements IMapViewChangeListener {
 			finally{
 				viewSerializer.removeDummyViews();
 				loadingLayoutFromObjectInputStream = false;
+				fileManager.discardMapsParsedInBackground();
 			}
 			rootWindow.getWindowBar(Direction.DOWN).setEnabled(false);
 			initialTabNameLoadingWasDone = false;
@@ -20,6 +20,7 @@
 package org.freeplane.main.application;
 
 import java.awt.Component;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -29,6 +30,7 @@ import java.util.Collection;
 
 import javax.swing.JPanel;
 
+import org.freeplane.core.util.LogUtils;
 import org.freeplane.features.map.DocuMapAttribute;
 import org.freeplane.features.map.MapController;
 import org.freeplane.features.mode.Controller;
@@ -38,6 +40,7 @@ import org.freeplane.view.swing.map.MapView;
 import org.freeplane.view.swing.map.MapViewScrollPane;
 import org.freeplane.view.swing.map.overview.MapViewPane;
 
+import net.infonode.docking.RootWindow;
 import net.infonode.docking.View;
 import net.infonode.docking.ViewSerializer;
 
@@ -95,6 +98,43 @@ class MapViewSerializer implements ViewSerializer {
         }
     }
 
+	/**
+	 * Returns the map locations of a layout written by {@link #writeView(View, ObjectOutputStream)} without opening the maps.
+	 * The views of the layout reader hold no maps, so it writes them like views of other modes.
+	 */
+	static Collection<URL> readMapUrls(byte[] layout) {
+		final Collection<URL> mapUrls = new ArrayList<URL>();
+		final RootWindow layoutReader = new RootWindow(new ViewSerializer() {
+			@Override
+			public void writeView(View view, ObjectOutputStream out) throws IOException {
+				out.writeBoolean(false);
+			}
+
+			@Override
+			public View readView(ObjectInputStream in) throws IOException {
+				if (in.readBoolean()){
+					in.readUTF();
+					try {
+						final URL mapUrl = (URL) in.readObject();
+						if(mapUrl != null)
+							mapUrls.add(mapUrl);
+					}
+					catch (ClassNotFoundException e) {
+						LogUtils.warn(e);
+					}
+				}
+				return new View("", null, new JPanel());
+			}
+		});
+		try {
+			layoutReader.read(new ObjectInputStream(new ByteArrayInputStream(layout)));
+		}
+		catch (Exception e) {
+			LogUtils.warn(e);
+		}
+		return mapUrls;
+	}
+
 	private View newViewToBeRemoved() {
 	    View view = new View("", null, new JPanel());
 	    viewsToBeRemoved.add(view);
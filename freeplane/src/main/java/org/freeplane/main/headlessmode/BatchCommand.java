@@ -0,0 +1,13 @@
+package org.freeplane.main.headlessmode;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.main.application.BatchOptions;
+
+/**
+ * Processes one map in batch mode. Commands are registered in {@link BatchCommands} under the name
+ * given after <code>--batch</code> on the command line.
+ */
+public interface BatchCommand {
+	/** Is called on the main thread for each loaded map, thrown exceptions mark the map as failed. */
+	void process(MapModel map, BatchOptions options) throws Exception;
+}
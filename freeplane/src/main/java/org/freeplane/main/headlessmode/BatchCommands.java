@@ -0,0 +1,77 @@
+package org.freeplane.main.headlessmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.swing.filechooser.FileFilter;
+
+import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.ui.CaseSensitiveFileNameExtensionFilter;
+import org.freeplane.features.export.mindmapmode.ExportController;
+import org.freeplane.features.export.mindmapmode.IExportEngine;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.mapio.MapIO;
+import org.freeplane.features.mapio.mindmapmode.MMapIO;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.main.application.BatchOptions;
+
+/**
+ * Commands available in batch mode. The commands convert and export are built in,
+ * plugins add their own commands on installation.
+ */
+public class BatchCommands implements IExtension {
+	private final Map<String, BatchCommand> commands = new TreeMap<>();
+
+	public static BatchCommands getController() {
+		return Controller.getCurrentController().getExtension(BatchCommands.class);
+	}
+
+	static void install(Controller controller) {
+		final BatchCommands batchCommands = new BatchCommands();
+		batchCommands.add("convert", BatchCommands::save);
+		batchCommands.add("export", BatchCommands::export);
+		controller.addExtension(BatchCommands.class, batchCommands);
+	}
+
+	public void add(String name, BatchCommand command) {
+		commands.put(name, command);
+	}
+
+	public BatchCommand get(String name) {
+		return commands.get(name);
+	}
+
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(commands.keySet());
+	}
+
+	/** Writes the map in the current file format to the output directory or to its own file. */
+	public static void save(MapModel map, BatchOptions options) throws Exception {
+		final File outputFile = options.getOutputFile(map.getFile());
+		outputFile.getParentFile().mkdirs();
+		final MMapIO mapIO = (MMapIO) Controller.getCurrentModeController().getExtension(MapIO.class);
+		mapIO.writeToFile(map, outputFile);
+	}
+
+	private static void export(MapModel map, BatchOptions options) throws Exception {
+		final String format = options.getFormat();
+		if (format == null)
+			throw new IllegalArgumentException("export needs option --format <type>");
+		final ExportController exportController = ExportController.getContoller();
+		final FileFilter filter = exportController.findMapExportFileFilter(format);
+		if (filter == null)
+			throw new IllegalArgumentException("no export defined for '" + format + "'");
+		final String extension = filter instanceof CaseSensitiveFileNameExtensionFilter
+		        ? ((CaseSensitiveFileNameExtensionFilter) filter).getExtensionProposal() : format;
+		final IExportEngine exportEngine = exportController.getMapExportEngines().get(filter);
+		final File outputFile = options.getOutputFile(map.getFile(), extension);
+		outputFile.getParentFile().mkdirs();
+		exportEngine.export(Collections.singletonList(map.getRootNode()), outputFile);
+		if (!outputFile.exists())
+			throw new IOException("export failed, see log for details");
+	}
+}
@@ -0,0 +1,136 @@
+package org.freeplane.main.headlessmode;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.freeplane.core.util.Compat;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.ui.ViewController;
+import org.freeplane.features.url.mindmapmode.MFileManager;
+import org.freeplane.features.url.mindmapmode.MapLoader;
+import org.freeplane.main.application.BatchOptions;
+
+/**
+ * Runs a batch command for many maps and reports the time taken for each of them.
+ *
+ * The map files are parsed ahead by the background map parser, which parses one map per processor at once,
+ * so that parsing runs in parallel and overlaps with processing.
+ * At most one parsed map per processor waits for processing, which bounds the memory used by the batch.
+ * Each map is then registered, processed and closed on the main thread one at a time,
+ * because the commands, map registration and closing go through the shared mode controller and are not thread safe.
+ */
+class BatchProcessor {
+	private final BatchOptions options;
+	private final String[] paths;
+
+	BatchProcessor(BatchOptions options, String[] paths) {
+		this.options = options;
+		this.paths = paths;
+	}
+
+	/** Processes all maps and returns the number of failed maps, or -1 if the batch could not be started. */
+	int run() {
+		final BatchCommand command = BatchCommands.getController().get(options.getCommand());
+		if (command == null) {
+			System.err.println("unknown batch command '" + options.getCommand() + "', available commands: "
+			        + BatchCommands.getController().getNames());
+			return -1;
+		}
+		final List<File> mapFiles;
+		try {
+			mapFiles = options.findMapFiles(paths);
+		}
+		catch (Exception e) {
+			LogUtils.severe(e);
+			return -1;
+		}
+		if (options.getOutputDirectory() != null)
+			options.getOutputDirectory().mkdirs();
+		final ModeController modeController = Controller.getCurrentModeController();
+		final ViewController viewController = Controller.getCurrentController().getViewController();
+		final MFileManager fileManager = MFileManager.getController(modeController);
+		final int parsedAheadCount = Runtime.getRuntime().availableProcessors();
+		final long startTime = System.nanoTime();
+		int parsedCount = 0;
+		int failedCount = 0;
+		for (int i = 0; i < mapFiles.size(); i++) {
+			final List<URL> urlsToParse = new ArrayList<>();
+			for (; parsedCount < mapFiles.size() && parsedCount <= i + parsedAheadCount; parsedCount++) {
+				final URL url = toUrl(mapFiles.get(parsedCount));
+				if (url != null)
+					urlsToParse.add(url);
+			}
+			fileManager.parseInBackground(urlsToParse);
+			final File mapFile = mapFiles.get(i);
+			final long[] times = new long[2];
+			try {
+				viewController.invokeAndWait(() -> {
+					final long loadStartTime = System.nanoTime();
+					final MapModel map = new MapLoader(modeController).load(mapFile).getMap();
+					if (map == null)
+						throw new IllegalStateException("can not load map");
+					final long processStartTime = System.nanoTime();
+					times[0] = processStartTime - loadStartTime;
+					try {
+						command.process(map, options);
+					}
+					catch (RuntimeException e) {
+						throw e;
+					}
+					catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					finally {
+						times[1] = System.nanoTime() - processStartTime;
+						modeController.getMapController().closeWithoutSaving(map);
+					}
+				});
+				System.out.println(String.format("OK     %s (load %d ms, %s %d ms)", mapFile,
+				    millis(times[0]), options.getCommand(), millis(times[1])));
+			}
+			catch (InvocationTargetException | RuntimeException e) {
+				failedCount++;
+				final Throwable cause = e instanceof InvocationTargetException ? rootCause(e) : e;
+				LogUtils.warn("batch processing failed for " + mapFile, cause);
+				System.out.println(String.format("FAILED %s: %s", mapFile, cause));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		fileManager.discardMapsParsedInBackground();
+		System.out.println(String.format("%s: %d maps, %d failed, %d ms", options.getCommand(), mapFiles.size(),
+		    failedCount, millis(System.nanoTime() - startTime)));
+		return failedCount;
+	}
+
+	private static URL toUrl(File file) {
+		try {
+			return Compat.fileToUrl(file.getCanonicalFile());
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static Throwable rootCause(Throwable e) {
+		Throwable cause = e;
+		while ((cause instanceof InvocationTargetException || cause instanceof ExecutionException
+		        || cause.getClass() == RuntimeException.class) && cause.getCause() != null)
+			cause = cause.getCause();
+		return cause;
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
@@ -91,6 +91,8 @@ public class FreeplaneHeadlessStarter implements FreeplaneStarter {
 			MapController.install();
 
 			NodeHistory.install(controller);
+			if(options.getBatchOptions() != null)
+				BatchCommands.install(controller);
 			return controller;
 		}
 		catch (final Exception e) {
@@ -115,6 +117,10 @@ public class FreeplaneHeadlessStarter implements FreeplaneStarter {
 		ModeController modeController = controller.getModeController(MModeController.MODENAME);
 		controller.selectModeForBuild(modeController);
 		Controller.getCurrentController().fireStartupFinished();
+		if(options.getBatchOptions() != null) {
+			startBatch();
+			return;
+		}
 		if(options.shouldStopAfterLaunch()) {
 			stop();
 			System.exit(0);
@@ -122,6 +128,16 @@ public class FreeplaneHeadlessStarter implements FreeplaneStarter {
 
 	}
 
+	private void startBatch() {
+		final BatchProcessor batchProcessor = new BatchProcessor(options.getBatchOptions(), options.getFilesToOpenAsArray());
+		final Thread batchThread = new Thread(() -> {
+			final int failedMapCount = batchProcessor.run();
+			stop();
+			System.exit(failedMapCount == 0 ? 0 : 1);
+		}, "batch processor");
+		batchThread.start();
+	}
+
 	@Override
 	public void stop() {
 		if(viewController != null)
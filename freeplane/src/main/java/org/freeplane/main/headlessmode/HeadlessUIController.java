@@ -143,7 +143,6 @@ public class HeadlessUIController extends FrameController {
 
 	@Override
 	public void removeStatus(String key) {
-		throw methodNotImplementedException();
 	}
 
 	@Override
@@ -206,12 +206,13 @@ class ActivatorImpl implements BundleActivator {
 		}
 		// initialize ApplicationController - SingleInstanceManager needs the configuration
 		CommandLineOptions options = CommandLineParser.parse(getCallParameters());
-		if(options.isNonInteractive())
+		if(options.isNonInteractive() || options.getBatchOptions() != null)
 			System.setProperty(JAVA_HEADLESS_PROPERTY, "true");
 
 		Compat.setIsApplet(false);
 		starter =  createStarter(options);
-		final SingleInstanceManager singleInstanceManager = new SingleInstanceManager(starter, GraphicsEnvironment.isHeadless());
+		final boolean runsHeadless = options.getBatchOptions() != null || GraphicsEnvironment.isHeadless();
+		final SingleInstanceManager singleInstanceManager = new SingleInstanceManager(starter, runsHeadless);
 		singleInstanceManager.start(options);
 		if (singleInstanceManager.isSlave()) {
 			LogUtils.info("opened files in master - exiting now");
@@ -309,7 +310,7 @@ class ActivatorImpl implements BundleActivator {
 
 
 	public FreeplaneStarter createStarter(CommandLineOptions options) {
-		if(GraphicsEnvironment.isHeadless()) {
+		if(options.getBatchOptions() != null || GraphicsEnvironment.isHeadless()) {
 			return new FreeplaneHeadlessStarter(options);
 		} else {
 			return new FreeplaneGUIStarter(options);
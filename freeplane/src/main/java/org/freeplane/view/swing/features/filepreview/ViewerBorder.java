@@ -4,10 +4,14 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
+import org.freeplane.view.swing.map.MapView;
+
 @SuppressWarnings("serial") class ViewerBorder extends EmptyBorder {
 	private final int borderWidth;
 	private final Color borderColor;
@@ -35,10 +39,19 @@ import javax.swing.border.EmptyBorder;
 
 	public static void repaintBorder(JComponent component) {
 		final int borderWidth = ((ViewerBorder)component.getBorder()).borderWidth;
-		component.paintImmediately(0, 0, component.getWidth(), borderWidth);
-		component.paintImmediately(0, component.getHeight() - borderWidth, component.getWidth(), borderWidth);
-		component.paintImmediately(0, 0, borderWidth, component.getHeight());
-		component.paintImmediately(component.getWidth() - borderWidth, 0, borderWidth, component.getHeight());
+		paintImmediately(component, 0, 0, component.getWidth(), borderWidth);
+		paintImmediately(component, 0, component.getHeight() - borderWidth, component.getWidth(), borderWidth);
+		paintImmediately(component, 0, 0, borderWidth, component.getHeight());
+		paintImmediately(component, component.getWidth() - borderWidth, 0, borderWidth, component.getHeight());
+	}
+
+	/** Paints viewers in maps through their map view, which drops the cached map tiles of the area. */
+	private static void paintImmediately(JComponent component, int x, int y, int width, int height) {
+		final MapView map = (MapView) SwingUtilities.getAncestorOfClass(MapView.class, component);
+		if (map != null)
+			map.paintImmediately(SwingUtilities.convertRectangle(component, new Rectangle(x, y, width, height), map));
+		else
+			component.paintImmediately(x, y, width, height);
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,101 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.freeplane.view.swing.map.link.ILinkView;
+
+/**
+ * Uniform grid of the bounds of the connectors painted by a map view.
+ *
+ * It finds the connectors crossing a clip rectangle or lying near a point without testing all connectors of the map.
+ * Connectors without known bounds or covering too many cells are returned by every search.
+ * The found connectors keep the order in which they were added, which is their painting order.
+ */
+class LinkViewIndex {
+	private static final int CELL_SIZE = 256;
+	private static final int MAXIMAL_CELL_COUNT_PER_LINK = 64;
+	private static final int COLLISION_MARGIN = 16;
+
+	private final List<ILinkView> linkViews = new ArrayList<>();
+	private final Map<Long, List<Integer>> cells = new HashMap<>();
+	private final BitSet linksInAllCells = new BitSet();
+	private Rectangle indexedArea;
+
+	void clear() {
+		linkViews.clear();
+		cells.clear();
+		linksInAllCells.clear();
+		indexedArea = null;
+	}
+
+	/** Sets the area which contains all connectors that need to be painted, so that the index can replace painting them again. */
+	void setIndexedArea(Rectangle indexedArea) {
+		this.indexedArea = indexedArea;
+	}
+
+	boolean covers(Rectangle area) {
+		return indexedArea != null && indexedArea.contains(area);
+	}
+
+	void add(ILinkView linkView) {
+		final int index = linkViews.size();
+		linkViews.add(linkView);
+		final Rectangle bounds = new Rectangle(0, 0, -1, -1);
+		linkView.increaseBounds(bounds);
+		if (bounds.width < 0 || bounds.height < 0) {
+			linksInAllCells.set(index);
+			return;
+		}
+		bounds.grow(COLLISION_MARGIN, COLLISION_MARGIN);
+		final int firstColumn = cell(bounds.x);
+		final int lastColumn = cell(bounds.x + bounds.width);
+		final int firstRow = cell(bounds.y);
+		final int lastRow = cell(bounds.y + bounds.height);
+		if ((long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > MAXIMAL_CELL_COUNT_PER_LINK) {
+			linksInAllCells.set(index);
+			return;
+		}
+		for (int column = firstColumn; column <= lastColumn; column++)
+			for (int row = firstRow; row <= lastRow; row++)
+				cells.computeIfAbsent(key(column, row), x -> new ArrayList<>(2)).add(index);
+	}
+
+	List<ILinkView> getLinkViews() {
+		return Collections.unmodifiableList(linkViews);
+	}
+
+	List<ILinkView> find(Rectangle area) {
+		final BitSet found = (BitSet) linksInAllCells.clone();
+		final int lastColumn = cell(area.x + area.width);
+		final int lastRow = cell(area.y + area.height);
+		for (int column = cell(area.x); column <= lastColumn; column++)
+			for (int row = cell(area.y); row <= lastRow; row++) {
+				final List<Integer> cell = cells.get(key(column, row));
+				if (cell != null)
+					cell.forEach(found::set);
+			}
+		final List<ILinkView> foundLinkViews = new ArrayList<>(found.cardinality());
+		for (int index = found.nextSetBit(0); index >= 0; index = found.nextSetBit(index + 1))
+			foundLinkViews.add(linkViews.get(index));
+		return foundLinkViews;
+	}
+
+	List<ILinkView> find(Point point) {
+		return find(new Rectangle(point.x, point.y, 0, 0));
+	}
+
+	private static int cell(int coordinate) {
+		return Math.floorDiv(coordinate, CELL_SIZE);
+	}
+
+	private static long key(int column, int row) {
+		return ((long) column << 32) | (row & 0xFFFFFFFFL);
+	}
+}
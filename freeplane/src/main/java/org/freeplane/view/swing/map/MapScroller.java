@@ -224,6 +224,10 @@ class MapScroller {
 		anchor = view;
 	}
 
+	boolean refersTo(final NodeView view) {
+		return anchor == view || scrolledNode == view;
+	}
+
 	private Point getAnchorCenterPoint() {
 		if (! map.isDisplayable()) {
 			return null;
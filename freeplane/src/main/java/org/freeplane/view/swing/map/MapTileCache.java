@@ -0,0 +1,150 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps rendered tiles of a map view, so that repainting areas which did not change only copies images.
+ *
+ * Tiles have a fixed size in device pixels. They are dropped when the scale of the graphics changes,
+ * when a changed area of the map intersects them and when their total size exceeds the memory budget,
+ * least recently painted tiles first.
+ */
+class MapTileCache {
+	static final int TILE_SIZE = 512;
+	private static final int BYTES_PER_TILE = TILE_SIZE * TILE_SIZE * 4;
+
+	private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+	private double scale = 0;
+	private boolean opaque = true;
+	private int invalidationCount = 0;
+	private long hitCount = 0;
+	private long missCount = 0;
+
+	/** Returns true if tiles painted in device pixels can replace painting with the given graphics. */
+	static boolean canPaint(Graphics2D g) {
+		final AffineTransform transform = g.getTransform();
+		return g.getClipBounds() != null
+		        && (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) == 0
+		        && transform.getScaleX() > 0
+		        && isInteger(transform.getTranslateX()) && isInteger(transform.getTranslateY());
+	}
+
+	private static boolean isInteger(double value) {
+		return value == Math.rint(value);
+	}
+
+	void paint(Graphics2D g, boolean opaque, int memoryBudgetInMegabytes, Consumer<Graphics2D> painter) {
+		final AffineTransform transform = g.getTransform();
+		final double scale = transform.getScaleX();
+		if (scale != this.scale || opaque != this.opaque) {
+			clear();
+			this.scale = scale;
+			this.opaque = opaque;
+		}
+		final Rectangle clip = g.getClipBounds();
+		final int firstColumn = tileIndex(clip.x);
+		final int lastColumn = Math.max(firstColumn, lastTileIndex(clip.x + clip.width));
+		final int firstRow = tileIndex(clip.y);
+		final int lastRow = Math.max(firstRow, lastTileIndex(clip.y + clip.height));
+		final Graphics2D deviceGraphics = (Graphics2D) g.create();
+		try {
+			deviceGraphics.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+			for (int row = firstRow; row <= lastRow; row++)
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					final BufferedImage tile = getTile(g, column, row, painter);
+					deviceGraphics.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, null);
+				}
+		}
+		finally {
+			deviceGraphics.dispose();
+		}
+		final int visibleTileCount = (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+		final long maximumTileCount = Math.max(visibleTileCount, (long) memoryBudgetInMegabytes * 1024 * 1024 / BYTES_PER_TILE);
+		for (Iterator<Long> iterator = tiles.keySet().iterator(); tiles.size() > maximumTileCount;) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private BufferedImage getTile(Graphics2D g, int column, int row, Consumer<Graphics2D> painter) {
+		final long key = key(column, row);
+		final BufferedImage cachedTile = tiles.get(key);
+		if (cachedTile != null) {
+			hitCount++;
+			return cachedTile;
+		}
+		missCount++;
+		final BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE,
+		    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D tileGraphics = tile.createGraphics();
+		final int invalidationCountBeforePainting = invalidationCount;
+		try {
+			tileGraphics.setRenderingHints(g.getRenderingHints());
+			tileGraphics.setFont(g.getFont());
+			tileGraphics.setColor(g.getColor());
+			tileGraphics.translate(-column * TILE_SIZE, -row * TILE_SIZE);
+			tileGraphics.scale(scale, scale);
+			tileGraphics.clip(new Rectangle2D.Double(column * TILE_SIZE / scale, row * TILE_SIZE / scale,
+			    TILE_SIZE / scale, TILE_SIZE / scale));
+			painter.accept(tileGraphics);
+		}
+		finally {
+			tileGraphics.dispose();
+		}
+		if (invalidationCountBeforePainting == invalidationCount)
+			tiles.put(key, tile);
+		return tile;
+	}
+
+	/** Drops the tiles intersecting the given area given in the coordinates of the map view. */
+	void invalidate(Rectangle area) {
+		invalidationCount++;
+		if (tiles.isEmpty())
+			return;
+		final int firstColumn = tileIndex(area.x - 1L);
+		final int lastColumn = tileIndex(area.x + (long) area.width + 1);
+		final int firstRow = tileIndex(area.y - 1L);
+		final int lastRow = tileIndex(area.y + (long) area.height + 1);
+		tiles.keySet().removeIf(key -> {
+			final int column = (int) (key >> 32);
+			final int row = (int) (long) key;
+			return column >= firstColumn && column <= lastColumn && row >= firstRow && row <= lastRow;
+		});
+	}
+
+	void clear() {
+		invalidationCount++;
+		tiles.clear();
+	}
+
+	int getTileCount() {
+		return tiles.size();
+	}
+
+	long getHitCount() {
+		return hitCount;
+	}
+
+	long getMissCount() {
+		return missCount;
+	}
+
+	private int tileIndex(long coordinate) {
+		return (int) Math.floor(coordinate * scale / TILE_SIZE);
+	}
+
+	private int lastTileIndex(long endCoordinate) {
+		return (int) Math.ceil(endCoordinate * scale / TILE_SIZE) - 1;
+	}
+
+	private static long key(int column, int row) {
+		return ((long) column << 32) | (row & 0xFFFFFFFFL);
+	}
+}
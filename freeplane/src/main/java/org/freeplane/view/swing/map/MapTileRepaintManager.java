@@ -0,0 +1,44 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+/**
+ * Tells map views about repaint requests of their components, so that they can drop the cached tiles of the changed areas.
+ */
+class MapTileRepaintManager extends RepaintManager {
+
+	/** Installs the repaint manager unless another custom repaint manager is in use and returns whether it is installed. */
+	static boolean install() {
+		final RepaintManager currentManager = RepaintManager.currentManager(null);
+		if (currentManager instanceof MapTileRepaintManager)
+			return true;
+		if (currentManager.getClass() != RepaintManager.class)
+			return false;
+		final MapTileRepaintManager manager = new MapTileRepaintManager();
+		manager.setDoubleBufferingEnabled(currentManager.isDoubleBufferingEnabled());
+		manager.setDoubleBufferMaximumSize(currentManager.getDoubleBufferMaximumSize());
+		RepaintManager.setCurrentManager(manager);
+		return true;
+	}
+
+	static boolean isInstalled() {
+		return RepaintManager.currentManager(null) instanceof MapTileRepaintManager;
+	}
+
+	@Override
+	public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+		for (Component component = c; component != null; component = component.getParent()) {
+			if (component instanceof MapView) {
+				final Rectangle area = SwingUtilities.convertRectangle(c, new Rectangle(x, y, w, h), component);
+				((MapView) component).repaintRequested(area);
+				break;
+			}
+		}
+		super.addDirtyRegion(c, x, y, w, h);
+	}
+}
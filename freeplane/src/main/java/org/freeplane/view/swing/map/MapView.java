@@ -61,7 +61,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.Vector;
 
 import javax.swing.JComponent;
 import javax.swing.JOptionPane;
@@ -237,7 +236,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		}
 
 		private void centerNode(final NodeModel node, final boolean slowScroll) {
-			final NodeView nodeView = getNodeView(node);
+			final NodeView nodeView = getMaterializedNodeView(node);
 			if (nodeView != null) {
 				mapScroller.scrollNode(nodeView, NodePosition.CENTER, slowScroll);
 			}
@@ -256,7 +255,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		}
 
 		private void moveNodeTo(final NodeModel node, final NodePosition position, final boolean slowScroll) {
-			final NodeView nodeView = getNodeView(node);
+			final NodeView nodeView = getMaterializedNodeView(node);
 			if (nodeView != null) {
 				mapScroller.scrollNode(nodeView, position, slowScroll);
 			}
@@ -309,19 +308,19 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 
         @Override
         public void preserveNodeLocationOnScreen(NodeModel node) {
-            final NodeView nodeView = getNodeView(node);
+            final NodeView nodeView = getMaterializedNodeView(node);
             MapView.this.preserveNodeLocationOnScreen(nodeView);
         }
 
         @Override
         public void preserveNodeLocationOnScreen(final NodeModel node, final float horizontalPoint, final float verticalPoint) {
-            final NodeView nodeView = getNodeView(node);
+            final NodeView nodeView = getMaterializedNodeView(node);
             MapView.this.preserveNodeLocationOnScreen(nodeView, horizontalPoint, verticalPoint);
         }
 
 		@Override
 		public void scrollNodeTreeToVisible(final NodeModel  node) {
-			final NodeView nodeView = getNodeView(node);
+			final NodeView nodeView = getMaterializedNodeView(node);
 			if(nodeView != null)
 				mapScroller.scrollNodeTreeToVisible(nodeView);
 		}
@@ -329,7 +328,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 
 		@Override
 		public void makeTheSelected(final NodeModel node) {
-			final NodeView nodeView = getNodeView(node);
+			final NodeView nodeView = getMaterializedNodeView(node);
 			if (nodeView != null) {
 				addSelected(nodeView, false);
 			}
@@ -337,14 +336,14 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 
 		@Override
 		public void scrollNodeToVisible(final NodeModel node) {
-			mapScroller.scrollNodeToVisible(getNodeView(node));
+			mapScroller.scrollNodeToVisible(getMaterializedNodeView(node));
 		}
 
 		@Override
 		public void selectAsTheOnlyOneSelected(final NodeModel node) {
 			if(node.isVisible(filter) || currentRootView.getNode() == node)
 				display(node);
-			final NodeView nodeView = getNodeView(node);
+			final NodeView nodeView = getMaterializedNodeView(node);
 			if (nodeView != null) {
 				MapView.this.selectAsTheOnlyOneSelected(nodeView);
 			}
@@ -354,12 +353,18 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		public void selectBranch(final NodeModel node, final boolean extend) {
 			if(! extend)
 				selectAsTheOnlyOneSelected(node);
-			addBranchToSelection(getNodeView(node));
+			final NodeView nodeView = getMaterializedNodeView(node);
+			if (nodeView != null) {
+				nodeViewVirtualizer.materializeBranch(nodeView);
+				addBranchToSelection(nodeView);
+			}
 		}
 
 		@Override
 		public void selectContinuous(final NodeModel node) {
-			MapView.this.selectContinuous(getNodeView(node));
+			final NodeView nodeView = getMaterializedNodeView(node);
+			if (nodeView != null)
+				MapView.this.selectContinuous(nodeView);
 		}
 
 		@Override
@@ -382,7 +387,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		@Override
 		public void toggleSelected(final NodeModel node) {
 			display(node);
-			MapView.this.toggleSelected(getNodeView(node));
+			MapView.this.toggleSelected(getMaterializedNodeView(node));
 		}
 
         @Override
@@ -393,7 +398,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
             for(final NodeModel node : nodes) {
             	if(node != null && (node.isVisible(filter) || currentRootView.getNode() == node)){
             		display(node);
-            		final NodeView nodeView = getNodeView(node);
+            		final NodeView nodeView = getMaterializedNodeView(node);
             		if (nodeView != null) {
             			views.add(nodeView);
             		}
@@ -479,6 +484,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
         private boolean addToSelectedSet(final NodeView node) {
             boolean hasChanged = selectedSet.add(node);
             if(hasChanged) {
+                linkViewIndex.clear();
                 fireSelectionChangedLater();
             }
             return hasChanged;
@@ -524,6 +530,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
             boolean hasChanged = ! selectedSet.isEmpty();
             if(hasChanged) {
                 selectedSet.clear();
+                linkViewIndex.clear();
                 fireSelectionChangedLater();
             }
 
@@ -557,6 +564,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
         private boolean removeFromSelectedSet(final NodeView node) {
             boolean hasChanged = selectedSet.remove(node);
             if(hasChanged) {
+                linkViewIndex.clear();
                 fireSelectionChangedLater();
             }
             return hasChanged;
@@ -689,6 +697,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	private static final String SHOW_ARROWS_FOR_SELECTION_ONLY = "only_arrows_for_selection".intern();
 	private static final String SHOW_ICONS_PROPERTY = "show_icons";
 	private static final String OUTLINE_VIEW_FITS_WINDOW_WIDTH = "outline_view_fits_window_width";
+	private static final String VIRTUALIZE_NODE_VIEWS_PROPERTY = "virtualize_node_views";
+	private static final String CACHE_MAP_TILES_PROPERTY = "cache_map_tiles";
+	private static final String MAP_TILE_CACHE_SIZE_PROPERTY = "map_tile_cache_size";
 	private static final String OUTLINE_HGAP_PROPERTY = "outline_hgap";
 	private static final String DRAGGING_AREA_WIDTH_PROPERTY = "dragging_area_width";
 	private static final String INLINE_EDITOR_ACTIVE = "inline_editor_active";
@@ -706,8 +717,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	private static final long serialVersionUID = 1L;
 	static private boolean drawsRectangleForSelection;
 	static private Color selectionRectangleColor;
-	/** Used to identify a right click onto a link curve. */
-	private Vector<ILinkView> arrowLinkViews;
+	/** Used to identify a right click onto a link curve and to repaint connectors without traversing the map. */
+	private final LinkViewIndex linkViewIndex = new LinkViewIndex();
+	private Rectangle connectorPaintingArea;
 	private ScalableComponent backgroundComponent;
 	private Rectangle boundingRectangle = null;
 	private FitMap fitMap = FitMap.USER_DEFINED;
@@ -745,6 +757,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	private static Color spotlightBackgroundColor;
 	private static int outlineHGap;
 	private static boolean outlineViewFitsWindowWidth;
+	private static boolean virtualizesNodeViews;
+	private static boolean cachesMapTiles;
+	private static int mapTileCacheSize;
 	private static int draggingAreaWidth;
 	private Rectangle selectionRectangle = null;
 
@@ -757,6 +772,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 
     public static final int SCROLL_VELOCITY_PX = (int) (UITools.FONT_SCALE_FACTOR  * 10);
     private final NodeViewFolder nodeViewFolder;
+    private final NodeViewVirtualizer nodeViewVirtualizer;
+    private final MapTileCache tileCache = new MapTileCache();
 
 	static {
 	    final ResourceController resourceController = ResourceController.getResourceController();
@@ -775,6 +792,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	    outlineHGap = resourceController.getLengthProperty(OUTLINE_HGAP_PROPERTY);
 	    draggingAreaWidth = resourceController.getLengthProperty(DRAGGING_AREA_WIDTH_PROPERTY);
 	    outlineViewFitsWindowWidth = resourceController.getBooleanProperty(OUTLINE_VIEW_FITS_WINDOW_WIDTH);
+	    virtualizesNodeViews = resourceController.getBooleanProperty(VIRTUALIZE_NODE_VIEWS_PROPERTY);
+	    cachesMapTiles = resourceController.getBooleanProperty(CACHE_MAP_TILES_PROPERTY) && MapTileRepaintManager.install();
+	    mapTileCacheSize = resourceController.getIntProperty(MAP_TILE_CACHE_SIZE_PROPERTY, 64);
 
 	    createPropertyChangeListener();
 	}
@@ -816,14 +836,17 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 			@Override
 			public void nodeChanged(final NodeChangeEvent event) {
 				if(NodeLinks.CONNECTOR.equals(event.getProperty()) &&
-						event.getNode().getMap().equals(getMap()))
+						event.getNode().getMap().equals(getMap())) {
+					linkViewIndex.clear();
 					repaint();
+				}
 			}
 		};
 		addPropertyChangeListener(SPOTLIGHT_ENABLED, repaintOnClientPropertyChangeListener);
 		if(ResourceController.getResourceController().getBooleanProperty("activateSpotlightByDefault"))
 		    putClientProperty(SPOTLIGHT_ENABLED, Boolean.TRUE);
 		nodeViewFolder = new NodeViewFolder();
+		nodeViewVirtualizer = new NodeViewVirtualizer(this);
 		setMap(viewedMap);
         mapScroller.setAnchorView(currentRootView);
 	}
@@ -942,12 +965,16 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
     public void addNotify() {
 	    super.addNotify();
 	    modeController.getMapController().addUINodeChangeListener(connectorChangeListener);
+	    modeController.getMapController().addUINodeChangeListener(nodeViewVirtualizer);
+	    modeController.getMapController().addUIMapChangeListener(nodeViewVirtualizer);
 	    getParent().addComponentListener(viewportSizeChangeListener);
     }
 
 	@Override
     public void removeNotify() {
 		modeController.getMapController().removeNodeChangeListener(connectorChangeListener);
+		modeController.getMapController().removeNodeChangeListener(nodeViewVirtualizer);
+		modeController.getMapController().removeMapChangeListener(nodeViewVirtualizer);
 		getParent().removeComponentListener(viewportSizeChangeListener);
 	    super.removeNotify();
     }
@@ -1030,6 +1057,22 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 					}
 					return;
 				}
+				if(propertyName.equals(VIRTUALIZE_NODE_VIEWS_PROPERTY)) {
+					virtualizesNodeViews = ResourceController.getResourceController().getBooleanProperty(VIRTUALIZE_NODE_VIEWS_PROPERTY);
+					mapView.repaint();
+					return;
+				}
+				if(propertyName.equals(CACHE_MAP_TILES_PROPERTY)) {
+					cachesMapTiles = ResourceController.getResourceController().getBooleanProperty(CACHE_MAP_TILES_PROPERTY)
+							&& MapTileRepaintManager.install();
+					mapView.tileCache.clear();
+					mapView.repaint();
+					return;
+				}
+				if(propertyName.equals(MAP_TILE_CACHE_SIZE_PROPERTY)) {
+					mapTileCacheSize = ResourceController.getResourceController().getIntProperty(MAP_TILE_CACHE_SIZE_PROPERTY, 64);
+					return;
+				}
 			}
 		};
 		ResourceController.getResourceController().addPropertyChangeListener(MapView.propertyChangeListener);
@@ -1057,17 +1100,13 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	}
 
     public Object detectView(final Point p) {
-        if (arrowLinkViews == null) {
-            return null;
-        }
-        for (int i = 0; i < arrowLinkViews.size(); ++i) {
-            final ILinkView arrowView = arrowLinkViews.get(i);
+        final List<ILinkView> arrowLinkViews = linkViewIndex.find(p);
+        for (final ILinkView arrowView : arrowLinkViews) {
             if (arrowView.detectCollision(p, true)) {
                 return arrowView;
             }
         }
-        for (int i = 0; i < arrowLinkViews.size(); ++i) {
-            final ILinkView arrowView = arrowLinkViews.get(i);
+        for (final ILinkView arrowView : arrowLinkViews) {
             if (arrowView.detectCollision(p, false)) {
                 return arrowView;
             }
@@ -1092,6 +1131,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		paintingPurpose = PaintingPurpose.PAINTING;
 		updatePrintedNodes();
 		isPreparedForPrinting = false;
+		tileCache.clear();
 	}
 
 	/*
@@ -1114,11 +1154,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	public Rectangle getInnerBounds() {
 		final Rectangle innerBounds = currentRootView.getBounds();
 		final Rectangle maxBounds = new Rectangle(0, 0, getWidth(), getHeight());
-		if(arrowLinkViews != null)
-			for (int i = 0; i < arrowLinkViews.size(); ++i) {
-				final ILinkView arrowView = arrowLinkViews.get(i);
-				arrowView.increaseBounds(innerBounds);
-			}
+		for (final ILinkView arrowView : linkViewIndex.getLinkViews())
+			arrowView.increaseBounds(innerBounds);
 		return innerBounds.intersection(maxBounds);
 	}
 
@@ -1153,6 +1190,19 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 				||  nodeView != null && isAncestorOf(nodeView) ? nodeView : null;
 	}
 
+	/** Returns the view of the given node, creating it again if it was removed by {@link NodeViewVirtualizer}. */
+	NodeView getMaterializedNodeView(final NodeModel node) {
+		return nodeViewVirtualizer.materializePathTo(node);
+	}
+
+	boolean virtualizesNodeViews() {
+		return virtualizesNodeViews;
+	}
+
+	boolean isScrolledTo(final NodeView view) {
+		return mapScroller.refersTo(view);
+	}
+
 	public NodeView getNodeView(final NodeModel node) {
 		if (node == null) {
 			return null;
@@ -1422,6 +1472,10 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		return paintingPurpose != PaintingPurpose.PAINTING;
 	}
 
+	boolean isPaintingOverview() {
+		return paintingPurpose == PaintingPurpose.OVERVIEW;
+	}
+
 	public boolean isSelected(final NodeView n) {
 		if(isPrinting() || (! selectedsValid &&
 				(selection.selectedNode == null || ! SwingUtilities.isDescendingFrom(selection.selectedNode, this)  || ! selection.selectedNode.getContent().isVisible())))
@@ -1443,6 +1497,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 
 	@Override
 	public void mapChanged(final MapChangeEvent event) {
+		linkViewIndex.clear();
+		tileCache.clear();
 		final Object property = event.getProperty();
 		if (property.equals(MapStyle.RESOURCES_BACKGROUND_COLOR)) {
 			setBackground(requiredBackground());
@@ -2016,6 +2072,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 				g2.setRenderingHint(GraphicsHints.CACHE_ICONS, Boolean.TRUE);
 			}
 			Controller.getCurrentController().getMapViewManager().setTextRenderingHint(g2);
+			final String oldShowConnectors = showConnectors;
+			final boolean oldHideSingleEndConnectors = hideSingleEndConnectors;
 			if (containsExtension(Connectors.class)){
 				hideSingleEndConnectors = false;
 				showConnectors = SHOW_CONNECTOR_LINES;
@@ -2027,12 +2085,21 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 				paintConnectorsBehind = ResourceController.getResourceController().getBooleanProperty(
 						"paint_connectors_behind");
 			}
-			super.paint(g2);
+			if (showConnectors != oldShowConnectors || hideSingleEndConnectors != oldHideSingleEndConnectors) {
+				linkViewIndex.clear();
+				tileCache.clear();
+			}
+			if (cachesMapTiles && ! isPrinting() && MapTileCache.canPaint(g2) && MapTileRepaintManager.isInstalled())
+				tileCache.paint(g2, ! isBackgroundPaintedByViewport(), mapTileCacheSize, this::paintTile);
+			else
+				super.paint(g2);
 		}
 		finally {
 			paintingMode = null;
 			g2.dispose();
 		}
+		if (!isPrinting())
+			nodeViewVirtualizer.scheduleUpdate();
 	}
 
 	public void paintOverview(Graphics2D g) {
@@ -2046,10 +2113,34 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		isPreparedForPrinting = false;
 	}
 
+	private void paintTile(final Graphics2D g) {
+		paintComponent(g);
+		paintBorder(g);
+		paintChildren(g);
+	}
+
+	/** Drops the cached tiles of the given area, repaint requests from other threads are passed to the event dispatch thread. */
+	void repaintRequested(final Rectangle area) {
+		if (EventQueue.isDispatchThread())
+			tileCache.invalidate(area);
+		else
+			EventQueue.invokeLater(() -> tileCache.invalidate(area));
+	}
+
+	@Override
+	public void paintImmediately(int x, int y, int w, int h) {
+		tileCache.invalidate(new Rectangle(x, y, w, h));
+		super.paintImmediately(x, y, w, h);
+	}
+
+	private boolean isBackgroundPaintedByViewport() {
+		return paintingPurpose == PaintingPurpose.PAINTING && backgroundComponent != null && fitToViewport;
+	}
+
 	@Override
 	protected void paintComponent(final Graphics g) {
 	    boolean usesTransparentBackgroundForPrinting = paintingPurpose == PaintingPurpose.PRINTING && printOnWhiteBackground;
-	    boolean backgroundIsPaintedByViewport = paintingPurpose == PaintingPurpose.PAINTING && backgroundComponent != null && fitToViewport;
+	    boolean backgroundIsPaintedByViewport = isBackgroundPaintedByViewport();
         if(!usesTransparentBackgroundForPrinting && !backgroundIsPaintedByViewport) {
 	        g.setColor(getBackground() );
 	        g.fillRect(0, 0, getWidth(), getHeight() );
@@ -2222,7 +2313,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 						else
 							break;
 						arrowLink.paint(graphics);
-						arrowLinkViews.add(arrowLink);
+						linkViewIndex.add(arrowLink);
 					}
 				}
 			}
@@ -2250,24 +2341,46 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
         Rectangle connectorRectangle = sourceRectangle == null ? targetRectangle :
             targetRectangle == null ? sourceRectangle : sourceRectangle.union(targetRectangle);
 
-        final JViewport vp = (JViewport) getParent();
-        final Rectangle viewRect = vp.getViewRect();
-        viewRect.x -= viewRect.width;
-        viewRect.y -= viewRect.height;
-        viewRect.width *= 3;
-        viewRect.height *= 3;
-        return viewRect.intersects(connectorRectangle);
+        return connectorPaintingArea.intersects(connectorRectangle);
 	}
 
     private void paintConnectors(final Graphics2D graphics) {
-		arrowLinkViews = new Vector<ILinkView>();
 		final Object renderingHint = getModeController().getController().getMapViewManager().setEdgesRenderingHint(
 		    graphics);
-		if(hasNodeLinks())
-			paintConnectors(currentRootView, graphics, new HashSet<ConnectorModel>());
+		final Rectangle clipBounds = graphics.getClipBounds();
+		if (paintingPurpose == PaintingPurpose.PAINTING && clipBounds != null && linkViewIndex.covers(clipBounds))
+			repaintIndexedConnectors(graphics, clipBounds);
+		else {
+			linkViewIndex.clear();
+			connectorPaintingArea = paintingPurpose == PaintingPurpose.PAINTING ? calculateConnectorPaintingArea() : null;
+			if(hasNodeLinks())
+				paintConnectors(currentRootView, graphics, new HashSet<ConnectorModel>());
+			linkViewIndex.setIndexedArea(connectorPaintingArea);
+		}
 		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, renderingHint);
 	}
 
+	private void repaintIndexedConnectors(final Graphics2D graphics, final Rectangle clipBounds) {
+		final Font font = graphics.getFont();
+		try {
+			for (final ILinkView arrowLink : linkViewIndex.find(clipBounds))
+				arrowLink.paint(graphics);
+		}
+		finally {
+			graphics.setFont(font);
+		}
+	}
+
+	private Rectangle calculateConnectorPaintingArea() {
+		final JViewport vp = (JViewport) getParent();
+		final Rectangle viewRect = vp.getViewRect();
+		viewRect.x -= viewRect.width;
+		viewRect.y -= viewRect.height;
+		viewRect.width *= 3;
+		viewRect.height *= 3;
+		return viewRect;
+	}
+
 	private void paintConnectors(final NodeView source, final Graphics2D graphics, final HashSet<ConnectorModel> alreadyPaintedConnectors) {
 		final NodeModel node = source.getNode();
 		final Collection<? extends NodeLinkModel> outLinks = getLinksFrom(node);
@@ -2290,13 +2403,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 			    continue;
 			if (paintingPurpose == PaintingPurpose.PAINTING && ! child.isSelected()) {
 				final Rectangle bounds = SwingUtilities.convertRectangle(source, child.getBounds(), this);
-				final JViewport vp = (JViewport) getParent();
-				final Rectangle viewRect = vp.getViewRect();
-				viewRect.x -= viewRect.width;
-				viewRect.y -= viewRect.height;
-				viewRect.width *= 3;
-				viewRect.height *= 3;
-				if (!viewRect.intersects(bounds)) {
+				if (!connectorPaintingArea.intersects(bounds)) {
 				    paintDescendantConnectors(child, graphics, alreadyPaintedConnectors);
 					continue;
 				}
@@ -2391,6 +2498,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		paintingPurpose = PaintingPurpose.PRINTING;
 		if (!isPreparedForPrinting) {
 			isPreparedForPrinting = true;
+			tileCache.clear();
+			nodeViewVirtualizer.materializeAll();
 			updatePrintedNodes();
 			fitMap = FitMap.valueOf();
 			if (backgroundComponent != null && fitMap == FitMap.BACKGROUND) {
@@ -2735,6 +2844,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 			validateSelecteds();
 			getRoot().validateTree();
 			super.validateTree();
+			linkViewIndex.clear();
+			tileCache.clear();
+			nodeViewVirtualizer.layoutChanged();
 		}
 	}
 
@@ -0,0 +1,55 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+
+/**
+ * Layout of a node view measured before its child views were removed.
+ * It replaces the layout of the child views until they are created again,
+ * scaled to the current zoom if the map was zoomed in the meantime.
+ */
+class MeasuredSubtree {
+	private final float zoom;
+	private final Dimension size;
+	private final Rectangle contentBounds;
+	private final boolean contentVisible;
+	private final int topOverlap;
+	private final int bottomOverlap;
+
+	MeasuredSubtree(NodeView view) {
+		final JComponent content = view.getContent();
+		final NodeViewLayoutHelper layoutHelper = view.getLayoutHelper();
+		zoom = view.getMap().getZoom();
+		size = view.getSize();
+		contentBounds = content.getBounds();
+		contentVisible = content.isVisible();
+		topOverlap = layoutHelper.getTopOverlap();
+		bottomOverlap = layoutHelper.getBottomOverlap();
+	}
+
+	void applyTo(NodeView view) {
+		final JComponent content = view.getContent();
+		final NodeViewLayoutHelper layoutHelper = view.getLayoutHelper();
+		final float scale = view.getMap().getZoom() / zoom;
+		if (scale == 1f) {
+			content.setBounds(contentBounds);
+			view.setSize(size);
+			layoutHelper.setTopOverlap(topOverlap);
+			layoutHelper.setBottomOverlap(bottomOverlap);
+		}
+		else {
+			content.setBounds(scaled(contentBounds.x, scale), scaled(contentBounds.y, scale),
+			    scaled(contentBounds.width, scale), scaled(contentBounds.height, scale));
+			view.setSize(scaled(size.width, scale), scaled(size.height, scale));
+			layoutHelper.setTopOverlap(scaled(topOverlap, scale));
+			layoutHelper.setBottomOverlap(scaled(bottomOverlap, scale));
+		}
+		content.setVisible(contentVisible);
+	}
+
+	private static int scaled(int length, float scale) {
+		return Math.round(length * scale);
+	}
+}
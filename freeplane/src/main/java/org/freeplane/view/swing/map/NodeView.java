@@ -147,6 +147,7 @@ public class NodeView extends JComponent implements INodeView {
 	private boolean isFolded;
 	private Dash edgeDash = Dash.DEFAULT;
 	private final NodeViewLayoutHelper layoutHelper;
+	private MeasuredSubtree measuredSubtree;
     private Side side;
     private ChildNodesAlignment childNodesAlignment;
     private ChildNodesLayout childNodesLayout;
@@ -1013,6 +1014,30 @@ public class NodeView extends JComponent implements INodeView {
 		}
 	}
 
+	boolean hasVirtualizedChildViews() {
+		return measuredSubtree != null;
+	}
+
+	void virtualizeChildViews() {
+		measuredSubtree = new MeasuredSubtree(this);
+		lastSelectedChild = null;
+		for (NodeView child : getChildrenViews())
+			child.remove();
+		revalidate();
+	}
+
+	void materializeChildViews() {
+		if (measuredSubtree == null)
+			return;
+		measuredSubtree = null;
+		addChildViews();
+		revalidate();
+	}
+
+	void layoutVirtualizedChildViews() {
+		measuredSubtree.applyTo(this);
+	}
+
 	NodeView addChildView(final NodeModel newNode, int index) {
 	    updateFilterResults(newNode);
 	    return NodeViewFactory.getInstance().newNodeView(newNode, map, this, index);
@@ -1202,6 +1227,10 @@ public class NodeView extends JComponent implements INodeView {
     }
 
 	private void setFolded(boolean fold, boolean force) {
+		if (fold)
+			measuredSubtree = null;
+		else
+			materializeChildViews();
 		boolean wasFolded = isFolded;
 		this.isFolded = fold;
 		if(wasFolded != fold || force) {
@@ -1277,6 +1306,10 @@ public class NodeView extends JComponent implements INodeView {
             map.restoreRootNode(nodeDeletionEvent.index);
         else if (mapRootNode.isDescendantOf(nodeDeletionEvent.node))
             map.restoreRootNode();
+        if (hasVirtualizedChildViews()) {
+            materializeChildViews();
+            return;
+        }
         if (getComponentCount() <= 1) {
             return;
         }
@@ -1329,6 +1362,10 @@ public class NodeView extends JComponent implements INodeView {
 		}
 		if(child == map.getRoot().getNode())
 		    return;
+		if (hasVirtualizedChildViews()) {
+		    materializeChildViews();
+		    return;
+		}
 		if(! map.isSelected() && parent.getChildCount() == 1 && map.getFilter().getCondition() == null) {
             this.isFolded = true;
             revalidate();
@@ -1400,6 +1437,8 @@ public class NodeView extends JComponent implements INodeView {
 		        paintEdges(g2, this);
 		        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, renderingHint);
 		    }
+		    if (hasVirtualizedChildViews() && map.isPaintingOverview())
+		        paintVirtualizedChildViews(g2);
 		    break;
 		default:
 		    break;
@@ -1423,6 +1462,14 @@ public class NodeView extends JComponent implements INodeView {
 		}
     }
 
+	/** Shows the area measured for the removed child views, so the map overview still shows the branch. */
+	private void paintVirtualizedChildViews(final Graphics2D g) {
+		final int spaceAround = getSpaceAround();
+		final Color edgeColor = getEdgeColor();
+		g.setColor(new Color(edgeColor.getRed(), edgeColor.getGreen(), edgeColor.getBlue(), 64));
+		g.fillRect(spaceAround, spaceAround, getWidth() - 2 * spaceAround, getHeight() - 2 * spaceAround);
+	}
+
 	private void paintCloud(final Graphics g) {
 		if (!isSubtreeVisible()) {
 			return;
@@ -2002,6 +2049,7 @@ public class NodeView extends JComponent implements INodeView {
 		}
 	}
 	void resetLayoutPropertiesRecursively() {
+	    materializeChildViews();
 	    childNodesAlignment = null;
 	    childNodesLayout = null;
 		LinkedList<NodeView> childrenViews = getChildrenViews();
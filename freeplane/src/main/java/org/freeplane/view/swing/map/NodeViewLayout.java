@@ -40,8 +40,9 @@ public class NodeViewLayout implements INodeViewLayout{
         NodeView view = (NodeView) c;
  		if(view.getContent() != null){
         	boolean allowsCompactLayout = view.getMap().allowsCompactLayout();
-			final VerticalNodeViewLayoutStrategy layoutData = new VerticalNodeViewLayoutStrategy(view, allowsCompactLayout);
-        	layoutData.calculateLayoutData();
+        	final NodeViewLayoutInput layoutInput = NodeViewLayoutInput.of(view, allowsCompactLayout);
+			final VerticalNodeViewLayoutStrategy layoutData = new VerticalNodeViewLayoutStrategy(layoutInput);
+        	layoutData.calculateLayoutData().applyTo(view);
         }
     }
 
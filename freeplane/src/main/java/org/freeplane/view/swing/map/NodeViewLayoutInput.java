@@ -0,0 +1,209 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+import org.freeplane.api.ChildNodesAlignment;
+import org.freeplane.api.ChildrenSides;
+import org.freeplane.core.ui.components.UITools;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.filter.Filter;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.SummaryLevels;
+import org.freeplane.features.nodelocation.LocationModel;
+
+/**
+ * Immutable snapshot of everything the layout of a node view depends on:
+ * the sizes, gaps and flags of the view and of its already laid out child views.
+ *
+ * Taking the snapshot validates the child views and measures the content components,
+ * so it must run on the event dispatch thread. The layout calculated from it does not access any component.
+ */
+class NodeViewLayoutInput {
+	static private boolean wrongChildComponentsReported = false;
+
+	/** Snapshot of a child view, given in the coordinates of its parent layout. */
+	static class Child {
+		final boolean isLeft;
+		final boolean isFree;
+		final boolean isSummary;
+		final boolean isFirstGroupNode;
+		final boolean isContentVisible;
+		final boolean isSubtreeVisible;
+		final boolean paintsChildrenOnTheLeft;
+		final int width;
+		final int height;
+		final int contentX;
+		final int contentY;
+		final int contentYForSummary;
+		final int contentWidth;
+		final int contentHeight;
+		final int cloudHeight;
+		final int topOverlap;
+		final int bottomOverlap;
+		final int shift;
+		final int hGap;
+		final int minimumDistanceConsideringHandles;
+
+		Child(boolean isLeft, boolean isFree, boolean isSummary, boolean isFirstGroupNode,
+		      boolean isContentVisible, boolean isSubtreeVisible, boolean paintsChildrenOnTheLeft,
+		      int width, int height, int contentX, int contentY, int contentYForSummary,
+		      int contentWidth, int contentHeight, int cloudHeight, int topOverlap, int bottomOverlap,
+		      int shift, int hGap, int minimumDistanceConsideringHandles) {
+			this.isLeft = isLeft;
+			this.isFree = isFree;
+			this.isSummary = isSummary;
+			this.isFirstGroupNode = isFirstGroupNode;
+			this.isContentVisible = isContentVisible;
+			this.isSubtreeVisible = isSubtreeVisible;
+			this.paintsChildrenOnTheLeft = paintsChildrenOnTheLeft;
+			this.width = width;
+			this.height = height;
+			this.contentX = contentX;
+			this.contentY = contentY;
+			this.contentYForSummary = contentYForSummary;
+			this.contentWidth = contentWidth;
+			this.contentHeight = contentHeight;
+			this.cloudHeight = cloudHeight;
+			this.topOverlap = topOverlap;
+			this.bottomOverlap = bottomOverlap;
+			this.shift = shift;
+			this.hGap = hGap;
+			this.minimumDistanceConsideringHandles = minimumDistanceConsideringHandles;
+		}
+
+		private static Child of(NodeViewLayoutHelper parent, NodeViewLayoutHelper child) {
+			int hGap;
+			if (child.isContentVisible())
+				hGap = calculateDistance(child, NodeViewLayoutHelper::getHGap);
+			else if (child.isSummary())
+				hGap = child.getZoomed(LocationModel.DEFAULT_HGAP_PX*7/12);
+			else
+				hGap = 0;
+			if(parent.getNode().isHiddenSummary() && ! child.getNode().isHiddenSummary())
+				hGap -= child.getZoomed(LocationModel.DEFAULT_HGAP_PX*7/12);
+			return new Child(child.isLeft(), child.isFree(), child.isSummary(), child.isFirstGroupNode(),
+			    child.isContentVisible(), child.isSubtreeVisible(), child.paintsChildrenOnTheLeft(),
+			    child.getWidth(), child.getHeight(), child.getContentX(), child.getContentY(), child.getContentYForSummary(),
+			    child.getContentWidth(), child.getContentHeight(),
+			    CloudHeightCalculator.INSTANCE.getAdditionalCloudHeigth(child),
+			    child.getTopOverlap(), child.getBottomOverlap(),
+			    calculateDistance(child, NodeViewLayoutHelper::getShift), hGap,
+			    child.getMinimumDistanceConsideringHandles());
+		}
+
+		private static int calculateDistance(final NodeViewLayoutHelper child, ToIntFunction<NodeViewLayoutHelper> nodeDistance) {
+			if (!child.isContentVisible())
+				return 0;
+			int shift = nodeDistance.applyAsInt(child);
+			for(NodeViewLayoutHelper ancestor = child.getParentView();
+					ancestor != null && ! ancestor.isContentVisible();
+					ancestor = ancestor.getParentView()) {
+				if(ancestor.isFree())
+					shift += nodeDistance.applyAsInt(ancestor);
+			}
+			return shift;
+		}
+	}
+
+	final Child[] children;
+	final SummaryLevels viewLevels;
+	final boolean allowsCompactLayout;
+	final boolean usesHorizontalLayout;
+	final boolean isSummary;
+	final boolean isContentVisible;
+	final ChildNodesAlignment childNodesAlignment;
+	final ChildrenSides childrenSides;
+	final Dimension contentSize;
+	final int spaceAround;
+	final int cloudHeight;
+	final int defaultVGap;
+	final int minimalDistanceBetweenChildren;
+	final int baseDistanceToChildren;
+	final int minimalDistanceFromParentToChildren;
+
+	NodeViewLayoutInput(Child[] children, SummaryLevels viewLevels, boolean allowsCompactLayout,
+	                    boolean usesHorizontalLayout, boolean isSummary, boolean isContentVisible,
+	                    ChildNodesAlignment childNodesAlignment, ChildrenSides childrenSides, Dimension contentSize,
+	                    int spaceAround, int cloudHeight, int defaultVGap, int minimalDistanceBetweenChildren,
+	                    int baseDistanceToChildren, int minimalDistanceFromParentToChildren) {
+		this.children = children;
+		this.viewLevels = viewLevels;
+		this.allowsCompactLayout = allowsCompactLayout;
+		this.usesHorizontalLayout = usesHorizontalLayout;
+		this.isSummary = isSummary;
+		this.isContentVisible = isContentVisible;
+		this.childNodesAlignment = childNodesAlignment;
+		this.childrenSides = childrenSides;
+		this.contentSize = new Dimension(contentSize);
+		this.spaceAround = spaceAround;
+		this.cloudHeight = cloudHeight;
+		this.defaultVGap = defaultVGap;
+		this.minimalDistanceBetweenChildren = minimalDistanceBetweenChildren;
+		this.baseDistanceToChildren = baseDistanceToChildren;
+		this.minimalDistanceFromParentToChildren = minimalDistanceFromParentToChildren;
+	}
+
+	/** Lays out the child views of the given view and takes the snapshot of the view and its child views. */
+	static NodeViewLayoutInput of(NodeView nodeView, boolean allowsCompactLayout) {
+		final int childViewCount = layoutChildViews(nodeView);
+		final NodeViewLayoutHelper view = nodeView.getLayoutHelper();
+		final NodeModel node = view.getNode();
+		final MapView map = view.getMap();
+		final Filter filter = map.getFilter();
+		final NodeModel selectionRoot = map.getRoot().getNode();
+		final SummaryLevels viewLevels = childViewCount == 0 ? SummaryLevels.ignoringChildNodes(selectionRoot, node, filter) : SummaryLevels.of(selectionRoot, node, filter);
+		if(childViewCount > viewLevels.summaryLevels.length)
+			reportBadChildComponents(view, viewLevels.summaryLevels.length);
+		final Child[] children = new Child[childViewCount];
+		for (int i = 0; i < childViewCount; i++)
+			children[i] = Child.of(view, view.getComponent(i));
+		final boolean usesHorizontalLayout = view.usesHorizontalLayout();
+		return new NodeViewLayoutInput(children, viewLevels, allowsCompactLayout,
+		    usesHorizontalLayout, view.isSummary(), view.isContentVisible(),
+		    view.getChildNodesAlignment(), view.childrenSides(),
+		    ContentSizeCalculator.INSTANCE.calculateContentSize(view),
+		    view.getSpaceAround(), CloudHeightCalculator.INSTANCE.getAdditionalCloudHeigth(view),
+		    map.getZoomed(LocationModel.DEFAULT_VGAP.toBaseUnits()),
+		    view.getMinimalDistanceBetweenChildren(), view.getBaseDistanceToChildren(),
+		    map.getZoomed(usesHorizontalLayout ? LocationModel.DEFAULT_VGAP_PX * 2 : LocationModel.DEFAULT_VGAP_PX));
+	}
+
+	private static int layoutChildViews(NodeView view) {
+		final int childViewCount = view.getComponentCount() - 1;
+		for (int i = 0; i < childViewCount; i++) {
+			final Component component = view.getComponent(i);
+			if(component instanceof NodeView)
+				((NodeView) component).validateTree();
+			else {
+				if(! wrongChildComponentsReported) {
+					wrongChildComponentsReported = true;
+					final String wrongChildComponents = Arrays.toString(view.getComponents());
+					LogUtils.severe("Unexpected child components:" + wrongChildComponents, new Exception());
+				}
+				return i;
+			}
+		}
+		return childViewCount;
+	}
+
+	private static void reportBadChildComponents(NodeViewLayoutHelper view, int childViewIndex) {
+		final String errorMessage = "Bad node view child components: missing node for component " + childViewIndex;
+		UITools.errorMessage(errorMessage);
+		System.err.println(errorMessage);
+		for (int i = 0; i < view.getComponentCount(); i++){
+			final String component = view.describeComponent(i);
+			System.err.println(component);
+		}
+	}
+
+	int getChildCount() {
+		return children.length;
+	}
+
+	Child getChild(int index) {
+		return children[index];
+	}
+}
@@ -0,0 +1,39 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Bounds calculated by the layout of a node view, given in the coordinates of its layout.
+ */
+class NodeViewLayoutResult {
+	final Rectangle contentBounds;
+	final Point[] childLocations;
+	final int width;
+	final int height;
+	final int topOverlap;
+	final int bottomOverlap;
+
+	NodeViewLayoutResult(Rectangle contentBounds, Point[] childLocations, int width, int height,
+	                     int topOverlap, int bottomOverlap) {
+		this.contentBounds = contentBounds;
+		this.childLocations = childLocations;
+		this.width = width;
+		this.height = height;
+		this.topOverlap = topOverlap;
+		this.bottomOverlap = bottomOverlap;
+	}
+
+	void applyTo(NodeView nodeView) {
+		final NodeViewLayoutHelper view = nodeView.getLayoutHelper();
+		view.setContentVisible(view.isContentVisible());
+		view.setContentBounds(contentBounds.x, contentBounds.y, contentBounds.width, contentBounds.height);
+		for (int i = 0; i < childLocations.length; i++) {
+			final Point location = childLocations[i];
+			view.getComponent(i).setLocation(location.x, location.y);
+		}
+		view.setSize(width, height);
+		view.setTopOverlap(topOverlap);
+		view.setBottomOverlap(bottomOverlap);
+	}
+}
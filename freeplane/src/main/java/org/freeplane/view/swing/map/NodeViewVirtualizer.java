@@ -0,0 +1,182 @@
+package org.freeplane.view.swing.map;
+
+import java.awt.EventQueue;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import org.freeplane.core.ui.components.UITools;
+import org.freeplane.features.link.MapLinks;
+import org.freeplane.features.link.NodeLinks;
+import org.freeplane.features.map.IMapChangeListener;
+import org.freeplane.features.map.INodeChangeListener;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeDeletionEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.NodeMoveEvent;
+
+/**
+ * Removes the child views of node views which are far outside of the visible part of the map
+ * and creates them again when they come close to it.
+ *
+ * A node view without its child views keeps the size measured before they were removed,
+ * so the layout of the rest of the map does not change. Zooming scales the measured size,
+ * so only the views coming close to the visible part of the map are created again.
+ * Subtrees containing selected nodes, nodes with connectors or nodes the map is scrolled to are never removed.
+ * Any change of a node without view creates the child views of its nearest ancestor view again,
+ * so that the next layout measures the changed subtree.
+ */
+class NodeViewVirtualizer implements IMapChangeListener, INodeChangeListener {
+	private final MapView map;
+	private final Rectangle lastVisibleRectangle = new Rectangle();
+	private boolean isUpdateScheduled = false;
+	private boolean layoutChanged = true;
+	private boolean containsVirtualizedViews = false;
+	private Rectangle materializedArea;
+	private Rectangle retainedArea;
+	private MapLinks mapLinks;
+
+	NodeViewVirtualizer(MapView map) {
+		this.map = map;
+	}
+
+	void layoutChanged() {
+		layoutChanged = true;
+	}
+
+	void scheduleUpdate() {
+		if (isUpdateScheduled || !(map.virtualizesNodeViews() || containsVirtualizedViews))
+			return;
+		isUpdateScheduled = true;
+		EventQueue.invokeLater(this::update);
+	}
+
+	private void update() {
+		isUpdateScheduled = false;
+		if (!map.virtualizesNodeViews()) {
+			materializeAll();
+			return;
+		}
+		if (!map.isShowing() || map.isPrinting() || !map.isValid())
+			return;
+		final Rectangle visibleRectangle = map.getVisibleRect();
+		if (visibleRectangle.isEmpty() || !layoutChanged && visibleRectangle.equals(lastVisibleRectangle))
+			return;
+		lastVisibleRectangle.setBounds(visibleRectangle);
+		layoutChanged = false;
+		materializedArea = new Rectangle(visibleRectangle);
+		materializedArea.grow(visibleRectangle.width / 2, visibleRectangle.height / 2);
+		retainedArea = new Rectangle(visibleRectangle);
+		retainedArea.grow(visibleRectangle.width, visibleRectangle.height);
+		mapLinks = MapLinks.getLinks(map.getMap());
+		final NodeView root = map.getRoot();
+		final Point location = new Point();
+		UITools.convertPointToAncestor(root, location, map);
+		update(root, location.x, location.y);
+		mapLinks = null;
+	}
+
+	/** Returns true if the subtree of the given view contains views which must not be removed. */
+	private boolean update(NodeView view, int x, int y) {
+		if (view.hasVirtualizedChildViews()) {
+			if (materializedArea.intersects(x, y, view.getWidth(), view.getHeight()))
+				view.materializeChildViews();
+			return false;
+		}
+		boolean containsPinnedViews = false;
+		for (NodeView child : view.getChildrenViews()) {
+			final int childX = x + child.getX();
+			final int childY = y + child.getY();
+			final boolean childSubtreeIsPinned = update(child, childX, childY) || isPinned(child);
+			if (!childSubtreeIsPinned && child.isValid() && child.getComponentCount() > 1
+			        && !retainedArea.intersects(childX, childY, child.getWidth(), child.getHeight())) {
+				child.virtualizeChildViews();
+				containsVirtualizedViews = true;
+			}
+			containsPinnedViews = containsPinnedViews || childSubtreeIsPinned;
+		}
+		return containsPinnedViews;
+	}
+
+	private boolean isPinned(NodeView view) {
+		if (view.isSelected() || map.isScrolledTo(view))
+			return true;
+		final NodeModel node = view.getNode();
+		final NodeLinks links = NodeLinks.getLinkExtension(node);
+		if (links != null && !links.getLinks().isEmpty())
+			return true;
+		return mapLinks != null && mapLinks.containsTarget(node.getID());
+	}
+
+	void materializeAll() {
+		if (!containsVirtualizedViews)
+			return;
+		containsVirtualizedViews = false;
+		materializeAll(map.getRoot());
+	}
+
+	/** Creates the removed child views within the subtree of the given view. */
+	void materializeBranch(NodeView view) {
+		if (containsVirtualizedViews)
+			materializeAll(view);
+	}
+
+	private void materializeAll(NodeView view) {
+		view.materializeChildViews();
+		for (NodeView child : view.getChildrenViews())
+			materializeAll(child);
+	}
+
+	/** Returns the view of the given node, creating the child views of its ancestors if they were removed. */
+	NodeView materializePathTo(NodeModel node) {
+		final NodeView view = map.getNodeView(node);
+		if (view != null || !containsVirtualizedViews)
+			return view;
+		final NodeModel parentNode = node.getParentNode();
+		if (parentNode == null)
+			return null;
+		final NodeView parentView = materializePathTo(parentNode);
+		if (parentView == null || !parentView.hasVirtualizedChildViews())
+			return null;
+		parentView.materializeChildViews();
+		return map.getNodeView(node);
+	}
+
+	private void materializeViewContaining(NodeModel node) {
+		if (!containsVirtualizedViews || node == null || node.getMap() != map.getMap()
+		        || map.getNodeView(node) != null)
+			return;
+		for (NodeModel ancestor = node.getParentNode(); ancestor != null; ancestor = ancestor.getParentNode()) {
+			final NodeView ancestorView = map.getNodeView(ancestor);
+			if (ancestorView != null) {
+				ancestorView.materializeChildViews();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void nodeChanged(NodeChangeEvent event) {
+		final NodeModel node = event.getNode();
+		final NodeView view = containsVirtualizedViews && node.getMap() == map.getMap() ? map.getNodeView(node) : null;
+		if (view != null)
+			view.materializeChildViews();
+		else
+			materializeViewContaining(node);
+	}
+
+	@Override
+	public void onNodeInserted(NodeModel parent, NodeModel child, int newIndex) {
+		materializeViewContaining(parent);
+	}
+
+	@Override
+	public void onNodeDeleted(NodeDeletionEvent nodeDeletionEvent) {
+		materializeViewContaining(nodeDeletionEvent.parent);
+	}
+
+	@Override
+	public void onNodeMoved(NodeMoveEvent nodeMoveEvent) {
+		materializeViewContaining(nodeMoveEvent.oldParent);
+		materializeViewContaining(nodeMoveEvent.newParent);
+	}
+}
@@ -20,33 +20,29 @@
 
 package org.freeplane.view.swing.map;
 
-import java.awt.Component;
 import java.awt.Dimension;
-import java.util.Arrays;
-import java.util.function.ToIntFunction;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.stream.IntStream;
 
 import org.freeplane.api.ChildrenSides;
 import org.freeplane.api.ChildNodesAlignment;
-import org.freeplane.core.ui.components.UITools;
-import org.freeplane.core.util.LogUtils;
-import org.freeplane.features.filter.Filter;
-import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.map.SummaryLevels;
-import org.freeplane.features.nodelocation.LocationModel;
 
+/**
+ * Calculates the layout of a node view from the snapshot of its sizes and gaps.
+ * It does not access any component, the calculated bounds are applied to the components afterwards.
+ */
 class VerticalNodeViewLayoutStrategy {
 
-	static private boolean wrongChildComponentsReported = false;
-
-	private int childViewCount;
+	private final int childViewCount;
 	private final int spaceAround;
-	private final NodeViewLayoutHelper view;
+	private final NodeViewLayoutInput view;
 
 	private final int[] xCoordinates;
 	private final int[] yCoordinates;
 	private final boolean[] isChildFreeNode;
-	private SummaryLevels viewLevels;
+	private final SummaryLevels viewLevels;
 	private int top;
 	private boolean rightSideCoordinatesAreSet;
 	private boolean leftSideCoordinaresAreSet;
@@ -55,53 +51,33 @@ class VerticalNodeViewLayoutStrategy {
 
 	private final int defaultVGap;
 
-	public VerticalNodeViewLayoutStrategy(NodeView view, boolean allowsCompactLayout) {
-		this.view = view.getLayoutHelper();
-		childViewCount = view.getComponentCount() - 1;
-		layoutChildViews(view);
+	public VerticalNodeViewLayoutStrategy(NodeViewLayoutInput view) {
+		this.view = view;
+		childViewCount = view.getChildCount();
+		this.viewLevels = view.viewLevels;
 		this.top = 0;
 		rightSideCoordinatesAreSet = false;
 		leftSideCoordinaresAreSet = false;
 		this.xCoordinates = new int[childViewCount];
 		this.yCoordinates = new int[childViewCount];
 		this.isChildFreeNode = new boolean[childViewCount];
-		this.spaceAround = view.getSpaceAround();
-		this.defaultVGap = view.getMap().getZoomed(LocationModel.DEFAULT_VGAP.toBaseUnits());
-		this.allowsCompactLayout = allowsCompactLayout;
-	}
-
-	private void layoutChildViews(NodeView view) {
-		for (int i = 0; i < childViewCount; i++) {
-			final Component component = view.getComponent(i);
-			if(component instanceof NodeView)
-				((NodeView) component).validateTree();
-			else {
-				childViewCount = i;
-				if(! wrongChildComponentsReported) {
-					wrongChildComponentsReported = true;
-					final String wrongChildComponents = Arrays.toString(view.getComponents());
-					LogUtils.severe("Unexpected child components:" + wrongChildComponents, new Exception());
-				}
-			}
-		}
+		this.spaceAround = view.spaceAround;
+		this.defaultVGap = view.defaultVGap;
+		this.allowsCompactLayout = view.allowsCompactLayout;
 	}
 
 	private void setFreeChildNodes(final boolean laysOutLeftSide) {
 		for (int i = 0; i < childViewCount; i++) {
-			final NodeViewLayoutHelper child = view.getComponent(i);
-			if (child.isLeft() == laysOutLeftSide)
-				this.isChildFreeNode[i] = child.isFree();
+			final NodeViewLayoutInput.Child child = view.getChild(i);
+			if (child.isLeft == laysOutLeftSide)
+				this.isChildFreeNode[i] = child.isFree;
 		}
 	}
-	public void calculateLayoutData() {
-		final NodeModel node = view.getNode();
-		MapView map = view.getMap();
-		Filter filter = map.getFilter();
-		NodeModel selectionRoot = map.getRoot().getNode();
-		viewLevels = childViewCount == 0 ? SummaryLevels.ignoringChildNodes(selectionRoot, node, filter) : SummaryLevels.of(selectionRoot, node, filter);
+
+	public NodeViewLayoutResult calculateLayoutData() {
 		for(boolean isLeft : viewLevels.sides)
 			calculateLayoutData(isLeft);
-		applyLayoutToChildComponents();
+		return calculateLayoutOfChildComponents();
 	}
 
 	private void calculateLayoutData(final boolean isLeft) {
@@ -112,9 +88,9 @@ class VerticalNodeViewLayoutStrategy {
 	}
 
 	private void calculateLayoutY(final boolean laysOutLeftSide) {
-		final int minimalDistanceBetweenChildren = view.getMinimalDistanceBetweenChildren();
-		ChildNodesAlignment childNodesAlignment = view.getChildNodesAlignment();
-		final Dimension contentSize = ContentSizeCalculator.INSTANCE.calculateContentSize(view);
+		final int minimalDistanceBetweenChildren = view.minimalDistanceBetweenChildren;
+		ChildNodesAlignment childNodesAlignment = view.childNodesAlignment;
+		final Dimension contentSize = view.contentSize;
 		int childContentHeightSum = 0;
 		int top = 0;
 		int level = viewLevels.highestSummaryLevel + 1;
@@ -125,36 +101,27 @@ class VerticalNodeViewLayoutStrategy {
 		final int[] contentHeightSumAtGroupStart = new int[level];
 		final int[] groupUpperYCoordinate = new int[level];
 		final int[] groupLowerYCoordinate = new int[level];
-		NodeViewLayoutHelper alignedChild = null;
+		NodeViewLayoutInput.Child alignedChild = null;
         for (int childViewIndex = 0; childViewIndex < childViewCount; childViewIndex++) {
-			final NodeViewLayoutHelper child = view.getComponent(childViewIndex);
-			if (child.isLeft() == laysOutLeftSide) {
-				final int childHeight = child.getHeight() - 2 * spaceAround;
+			final NodeViewLayoutInput.Child child = view.getChild(childViewIndex);
+			if (child.isLeft == laysOutLeftSide) {
+				final int childHeight = child.height - 2 * spaceAround;
 				final int oldLevel = level;
-				if(childViewIndex >= viewLevels.summaryLevels.length){
-					final String errorMessage = "Bad node view child components: missing node for component " + childViewIndex;
-					UITools.errorMessage(errorMessage);
-					System.err.println(errorMessage);
-					for (int i = 0; i < view.getComponentCount(); i++){
-						final String component = view.describeComponent(i);
-						System.err.println(component);
-					}
-				}
 				level = viewLevels.summaryLevels[childViewIndex];
-				boolean isFreeNode = child.isFree();
+				boolean isFreeNode = child.isFree;
 				boolean isItem = level == 0;
 
-				int childShiftY = calculateDistance(child, NodeViewLayoutHelper::getShift);
+				int childShiftY = child.shift;
 
 				if (isItem) {
 					if (isFreeNode) {
-					    this.yCoordinates[childViewIndex] = childShiftY - child.getContentY();
+					    this.yCoordinates[childViewIndex] = childShiftY - child.contentY;
                     } else {
                         alignedChild = child;
 						int extraVGap = 0 ;
-                        final int childCloudHeigth = CloudHeightCalculator.INSTANCE.getAdditionalCloudHeigth(child);
+                        final int childCloudHeigth = child.cloudHeight;
 						if (childHeight != 0) {
-							final int childChildrenExtraHeight = childHeight - (child.getContentHeight() + childCloudHeigth);
+							final int childChildrenExtraHeight = childHeight - (child.contentHeight + childCloudHeigth);
                             if (childChildrenExtraHeight > 0) {
 								extraVGap = Math.min(childChildrenExtraHeight, calculateExtraGapForChildren(minimalDistanceBetweenChildren));
 							}
@@ -166,8 +133,8 @@ class VerticalNodeViewLayoutStrategy {
 							}
 						}
 
-						if (! isFirstVisibleLaidOutChild && child.paintsChildrenOnTheLeft() && view.usesHorizontalLayout()) {
-						    int missingWidth = child.getMinimumDistanceConsideringHandles() - vGap - extraVGap;
+						if (! isFirstVisibleLaidOutChild && child.paintsChildrenOnTheLeft && view.usesHorizontalLayout) {
+						    int missingWidth = child.minimumDistanceConsideringHandles - vGap - extraVGap;
 						    if (missingWidth > 0)  {
 						        top -= missingWidth;
 						        y += missingWidth;
@@ -178,20 +145,20 @@ class VerticalNodeViewLayoutStrategy {
 						if ((childShiftY < 0 || isFirstVisibleLaidOutChild) && !allowsCompactLayout)
 						    top += childShiftY;
 						if(childNodesAlignment == ChildNodesAlignment.BEFORE_PARENT || childNodesAlignment == ChildNodesAlignment.LAST_CHILD_BY_PARENT) {
-						    top += - child.getHeight() + childCloudHeigth + 2 * spaceAround + child.getBottomOverlap() + child.getContentHeight();
+						    top += - child.height + childCloudHeigth + 2 * spaceAround + child.bottomOverlap + child.contentHeight;
 						}
 						else if(childNodesAlignment == ChildNodesAlignment.BY_CENTER) {
-                            top += - child.getHeight()/2 + childCloudHeigth/2 + spaceAround + child.getBottomOverlap()/2 + child.getContentHeight()/2;
+                            top += - child.height/2 + childCloudHeigth/2 + spaceAround + child.bottomOverlap/2 + child.contentHeight/2;
                         }
 						else if(childNodesAlignment == ChildNodesAlignment.FIRST_CHILD_BY_PARENT && isFirstVisibleLaidOutChild) {
-						    top += - (child.getContentY() - spaceAround);
+						    top += - (child.contentY - spaceAround);
 						}
 						else if(childNodesAlignment != ChildNodesAlignment.AFTER_PARENT
 						        && childNodesAlignment != ChildNodesAlignment.FIRST_CHILD_BY_PARENT) {
-						    top += - (child.getContentY() - childCloudHeigth / 2 - spaceAround);
+						    top += - (child.contentY - childCloudHeigth / 2 - spaceAround);
 						}
-						top += child.getTopOverlap();
-						y -= child.getTopOverlap();
+						top += child.topOverlap;
+						y -= child.topOverlap;
 
 						int upperGap = align(extraVGap);
 						if(! isFirstVisibleLaidOutChild) {
@@ -212,8 +179,8 @@ class VerticalNodeViewLayoutStrategy {
 						    vGap = minimalDistanceBetweenChildren;
 						else if (childHeight != 0)
 						    vGap = summarizedNodeDistance(minimalDistanceBetweenChildren);
-                        if(! child.paintsChildrenOnTheLeft() && view.usesHorizontalLayout()) {
-                            int missingWidth = child.getMinimumDistanceConsideringHandles() - vGap - extraVGap;
+                        if(! child.paintsChildrenOnTheLeft && view.usesHorizontalLayout) {
+                            int missingWidth = child.minimumDistanceConsideringHandles - vGap - extraVGap;
                             if (missingWidth > 0) {
                                 y += missingWidth;
                                 if(! isFirstVisibleLaidOutChild)
@@ -222,8 +189,8 @@ class VerticalNodeViewLayoutStrategy {
                         }
 						y += extraVGap - upperGap;
 						if (childHeight != 0)
-							y += childHeight + vGap - child.getBottomOverlap();
-						childContentHeightSum += child.getContentHeight() + childCloudHeigth;
+							y += childHeight + vGap - child.bottomOverlap;
+						childContentHeightSum += child.contentHeight + childCloudHeigth;
 						if (oldLevel > 0) {
 						    for (int j = 0; j < oldLevel; j++) {
 						        groupStartIndex[j] = childViewIndex;
@@ -231,7 +198,7 @@ class VerticalNodeViewLayoutStrategy {
 						        groupLowerYCoordinate[j] = Integer.MIN_VALUE;
 						        contentHeightSumAtGroupStart[j] = childContentHeightSum;
 						    }
-						} else if (child.isFirstGroupNode()) {
+						} else if (child.isFirstGroupNode) {
 						    contentHeightSumAtGroupStart[0] = childContentHeightSum;
 						    groupStartIndex[0] = childViewIndex;
 						}
@@ -241,7 +208,7 @@ class VerticalNodeViewLayoutStrategy {
 				}
 				else {
 				    final int itemLevel = level - 1;
-				    if (child.isFirstGroupNode()) {
+				    if (child.isFirstGroupNode) {
 				        contentHeightSumAtGroupStart[level] = contentHeightSumAtGroupStart[itemLevel];
 				        groupStartIndex[level] = groupStartIndex[itemLevel];
 				    }
@@ -249,37 +216,37 @@ class VerticalNodeViewLayoutStrategy {
 				        groupUpperYCoordinate[itemLevel] = y;
 				        groupLowerYCoordinate[itemLevel] = y;
 				    }
-				    final int childCloudHeigth = CloudHeightCalculator.INSTANCE.getAdditionalCloudHeigth(child);
-				    final int childContentHeight = child.getContentHeight() + childCloudHeigth;
+				    final int childCloudHeigth = child.cloudHeight;
+				    final int childContentHeight = child.contentHeight + childCloudHeigth;
 				    int summaryY = (groupUpperYCoordinate[itemLevel] + groupLowerYCoordinate[itemLevel]) / 2
 				            - childContentHeight / 2 + childShiftY
-				            - (child.getContentYForSummary() - childCloudHeigth / 2 - spaceAround);
+				            - (child.contentYForSummary - childCloudHeigth / 2 - spaceAround);
 				    this.yCoordinates[childViewIndex] = summaryY;
 				    if (!isFreeNode) {
 				        final int deltaY = summaryY - groupUpperYCoordinate[itemLevel]
-				                + child.getTopOverlap();
+				                + child.topOverlap;
 				        if (deltaY < 0) {
 							top += deltaY;
 							y -= deltaY;
 							summaryY -= deltaY;
 							for (int j = groupStartIndex[itemLevel]; j <= childViewIndex; j++) {
-								NodeViewLayoutHelper groupItem = view.getComponent(j);
-								if (groupItem.isLeft() == laysOutLeftSide
+								NodeViewLayoutInput.Child groupItem = view.getChild(j);
+								if (groupItem.isLeft == laysOutLeftSide
 										&& (this.viewLevels.summaryLevels[j] > 0 || !this.isChildFreeNode[j]))
 									this.yCoordinates[j] -= deltaY;
 							}
 						}
 						if (childHeight != 0) {
 							summaryY += childHeight + minimalDistanceBetweenChildren
-									- child.getBottomOverlap();
+									- child.bottomOverlap;
 						}
 						y = Math.max(y, summaryY);
 					}
 				}
 				if (! (isItem && isFreeNode)) {
-					int childUpperCoordinate = this.yCoordinates[childViewIndex] + child.getTopOverlap();
-					int childBottomCoordinate = this.yCoordinates[childViewIndex] + childHeight - child.getBottomOverlap();
-					if (child.isFirstGroupNode()) {
+					int childUpperCoordinate = this.yCoordinates[childViewIndex] + child.topOverlap;
+					int childBottomCoordinate = this.yCoordinates[childViewIndex] + childHeight - child.bottomOverlap;
+					if (child.isFirstGroupNode) {
 						if(isItem){
 							groupUpperYCoordinate[level] = Integer.MAX_VALUE;
 							groupLowerYCoordinate[level] = Integer.MIN_VALUE;
@@ -296,7 +263,7 @@ class VerticalNodeViewLayoutStrategy {
 			}
 		}
         if (childNodesAlignment == ChildNodesAlignment.LAST_CHILD_BY_PARENT && alignedChild != null) {
-            top += alignedChild.getHeight() - (alignedChild.getContentY() + alignedChild.getContentHeight() + spaceAround + alignedChild.getBottomOverlap()) ;
+            top += alignedChild.height - (alignedChild.contentY + alignedChild.contentHeight + spaceAround + alignedChild.bottomOverlap) ;
         }
 
 		top += align(contentSize.height - childContentHeightSum);
@@ -311,8 +278,7 @@ class VerticalNodeViewLayoutStrategy {
 
     private int calculateAddedDistanceFromParentToChildren(final int minimalDistance,
             final Dimension contentSize) {
-        boolean usesHorizontalLayout = view.usesHorizontalLayout();
-        int distance = Math.max(view.getMap().getZoomed(usesHorizontalLayout ? LocationModel.DEFAULT_VGAP_PX * 2 : LocationModel.DEFAULT_VGAP_PX), minimalDistance);
+        int distance = Math.max(view.minimalDistanceFromParentToChildren, minimalDistance);
         return contentSize.height + distance;
     }
 
@@ -324,9 +290,9 @@ class VerticalNodeViewLayoutStrategy {
     }
 
 	private int align(int height) {
-		ChildNodesAlignment childNodesAlignment = view.getChildNodesAlignment();
+		ChildNodesAlignment childNodesAlignment = view.childNodesAlignment;
 		int deltaTop;
-		if (view.isSummary()
+		if (view.isSummary
 				|| childNodesAlignment == ChildNodesAlignment.NOT_SET
 				|| childNodesAlignment == ChildNodesAlignment.BY_CENTER
 				|| childNodesAlignment == ChildNodesAlignment.FLOW) {
@@ -339,19 +305,6 @@ class VerticalNodeViewLayoutStrategy {
 		return deltaTop;
 	}
 
-    private int calculateDistance(final NodeViewLayoutHelper child, ToIntFunction<NodeViewLayoutHelper> nodeDistance) {
-        if (!child.isContentVisible())
-            return 0;
-        int shift = nodeDistance.applyAsInt(child);
-        for(NodeViewLayoutHelper ancestor = child.getParentView();
-                ancestor != null && ! ancestor.isContentVisible();
-                ancestor = ancestor.getParentView()) {
-            if(ancestor.isFree())
-                shift += nodeDistance.applyAsInt(ancestor);
-        }
-        return shift;
-    }
-
 	private boolean isNextNodeSummaryNode(int childViewIndex) {
 		return childViewIndex + 1 < viewLevels.summaryLevels.length && viewLevels.summaryLevels[childViewIndex + 1] > 0;
 	}
@@ -364,37 +317,29 @@ class VerticalNodeViewLayoutStrategy {
 	}
 
 	private void calculateLayoutX(final boolean laysOutLeftSide) {
-		final Dimension contentSize = ContentSizeCalculator.INSTANCE.calculateContentSize(view);
-		final int baseDistanceToChildren = view.getBaseDistanceToChildren();
+		final Dimension contentSize = view.contentSize;
+		final int baseDistanceToChildren = view.baseDistanceToChildren;
 		int level = viewLevels.highestSummaryLevel + 1;
 		final int summaryBaseX[] = new int[level];
-		ChildNodesAlignment childNodesAlignment = view.getChildNodesAlignment();
+		ChildNodesAlignment childNodesAlignment = view.childNodesAlignment;
 		boolean areChildrenSeparatedByY = childNodesAlignment.isStacked();
 		for (int i = 0; i < childViewCount; i++) {
-			final NodeViewLayoutHelper child = view.getComponent(i);
-			if (child.isLeft() == laysOutLeftSide) {
+			final NodeViewLayoutInput.Child child = view.getChild(i);
+			if (child.isLeft == laysOutLeftSide) {
 				final int oldLevel = level;
 				level = viewLevels.summaryLevels[i];
-				boolean isFreeNode = child.isFree();
+				boolean isFreeNode = child.isFree;
 				boolean isItem = level == 0;
-				int childHGap;
-				if (child.isContentVisible()) {
-                    childHGap = calculateDistance(child, NodeViewLayoutHelper::getHGap);
-                } else if (child.isSummary())
-					childHGap = child.getZoomed(LocationModel.DEFAULT_HGAP_PX*7/12);
-				else
-					childHGap = 0;
-				if(view.getNode().isHiddenSummary() && ! child.getNode().isHiddenSummary())
-					childHGap -= child.getZoomed(LocationModel.DEFAULT_HGAP_PX*7/12);
-
-				if(isItem && ! isFreeNode && child.isSubtreeVisible())
+				int childHGap = child.hGap;
+
+				if(isItem && ! isFreeNode && child.isSubtreeVisible)
 				    childHGap += baseDistanceToChildren;
 
 				if (isItem) {
-					if (!isFreeNode && (oldLevel > 0 || child.isFirstGroupNode()))
+					if (!isFreeNode && (oldLevel > 0 || child.isFirstGroupNode))
 						summaryBaseX[0] = 0;
 				}
-				else if (child.isFirstGroupNode())
+				else if (child.isFirstGroupNode)
 					summaryBaseX[level] = 0;
 
 
@@ -403,20 +348,20 @@ class VerticalNodeViewLayoutStrategy {
 				if (level > 0)
 					baseX = summaryBaseX[level - 1];
 				else {
-				    if(isItem && areChildrenSeparatedByY && view.childrenSides() == ChildrenSides.BOTH_SIDES)
+				    if(isItem && areChildrenSeparatedByY && view.childrenSides == ChildrenSides.BOTH_SIDES)
 				        baseX = contentSize.width / 2;
-				    else if (child.isLeft() != (isItem && (isFreeNode || areChildrenSeparatedByY))) {
+				    else if (child.isLeft != (isItem && (isFreeNode || areChildrenSeparatedByY))) {
 						baseX = 0;
 					} else {
 						baseX = contentSize.width;
 					}
 				}
-				if (child.isLeft()) {
-					x = baseX - childHGap - child.getContentX() - child.getContentWidth();
+				if (child.isLeft) {
+					x = baseX - childHGap - child.contentX - child.contentWidth;
 					summaryBaseX[level] = Math.min(summaryBaseX[level], x + spaceAround);
 				} else {
-					x = baseX + childHGap - child.getContentX();
-					summaryBaseX[level] = Math.max(summaryBaseX[level], x + child.getWidth() - spaceAround);
+					x = baseX + childHGap - child.contentX;
+					summaryBaseX[level] = Math.max(summaryBaseX[level], x + child.width - spaceAround);
 				}
 				this.xCoordinates[i] = x;
 			}
@@ -437,8 +382,8 @@ class VerticalNodeViewLayoutStrategy {
 				changeLeft = isLeft;
 			}
 			for (int i = 0; i < childViewCount; i++) {
-				NodeViewLayoutHelper child = view.getComponent(i);
-				if (child.isLeft() == changeLeft
+				NodeViewLayoutInput.Child child = view.getChild(i);
+				if (child.isLeft == changeLeft
 						&& (viewLevels.summaryLevels[i] > 0 || !isChildFreeNode[i])) {
 					yCoordinates[i] += deltaTop;
 				}
@@ -450,16 +395,12 @@ class VerticalNodeViewLayoutStrategy {
 			rightSideCoordinatesAreSet = true;
 	}
 
-	private void applyLayoutToChildComponents() {
-		int spaceAround = view.getSpaceAround();
+	private NodeViewLayoutResult calculateLayoutOfChildComponents() {
 		int left = IntStream.of(xCoordinates).min().orElse(0);
 		final int contentX = Math.max(spaceAround, -left);
-		int cloudHeight = CloudHeightCalculator.INSTANCE
-				.getAdditionalCloudHeigth(view);
+		int cloudHeight = view.cloudHeight;
 		int contentY = spaceAround + cloudHeight / 2 - Math.min(0, this.top);
 
-		view.setContentVisible(view.isContentVisible());
-
 		int baseY = contentY - spaceAround + this.top;
 		int minY = 0;
 		for (int i = 0; i < childViewCount; i++) {
@@ -472,17 +413,17 @@ class VerticalNodeViewLayoutStrategy {
 			contentY -= minY;
 			baseY -= minY;
 		}
-		final Dimension contentSize = ContentSizeCalculator.INSTANCE
-				.calculateContentSize(view);
+		final Dimension contentSize = view.contentSize;
 		int width = contentX + contentSize.width + spaceAround;
 		int height = contentY + contentSize.height + cloudHeight / 2
 				+ spaceAround;
-		view.setContentBounds(contentX, contentY, contentSize.width,
+		final Rectangle contentBounds = new Rectangle(contentX, contentY, contentSize.width,
 				contentSize.height);
 		int topOverlap = -minY;
 		int heigthWithoutOverlap = height;
+		final Point[] childLocations = new Point[childViewCount];
 		for (int i = 0; i < childViewCount; i++) {
-			NodeViewLayoutHelper child = view.getComponent(i);
+			NodeViewLayoutInput.Child child = view.getChild(i);
 			final int y;
 			boolean isChildFreeNode = this.isChildFreeNode[i];
             if (this.viewLevels.summaryLevels[i] == 0 && isChildFreeNode) {
@@ -492,18 +433,17 @@ class VerticalNodeViewLayoutStrategy {
 				if (!this.isChildFreeNode[i])
 					heigthWithoutOverlap = Math.max(
 							heigthWithoutOverlap,
-							y + child.getHeight() + cloudHeight / 2
-									- child.getBottomOverlap());
+							y + child.height + cloudHeight / 2
+									- child.bottomOverlap);
 			}
 			final int x = contentX + this.xCoordinates[i];
-			child.setLocation(x, y);
-			width = Math.max(width, x + child.getWidth());
-			height = Math.max(height, y + child.getHeight() + cloudHeight / 2);
+			childLocations[i] = new Point(x, y);
+			width = Math.max(width, x + child.width);
+			height = Math.max(height, y + child.height + cloudHeight / 2);
 		}
 
-		view.setSize(width, height);
-		view.setTopOverlap(topOverlap);
-		view.setBottomOverlap(height - heigthWithoutOverlap);
+		return new NodeViewLayoutResult(contentBounds, childLocations, width, height,
+				topOverlap, height - heigthWithoutOverlap);
 	}
 
-}
\ No newline at end of file
+}
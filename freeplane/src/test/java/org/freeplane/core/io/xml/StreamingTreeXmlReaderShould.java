@@ -0,0 +1,155 @@
+package org.freeplane.core.io.xml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.freeplane.core.io.IDeferredElementHandler;
+import org.freeplane.core.io.IElementContentHandler;
+import org.freeplane.core.io.IElementDOMHandler;
+import org.freeplane.core.io.ReadManager;
+import org.freeplane.n3.nanoxml.XMLElement;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamingTreeXmlReaderShould {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	private ReadManager readManager;
+	private List<String> events;
+
+	@Before
+	public void setup() {
+		readManager = new ReadManager();
+		events = new ArrayList<>();
+		final IElementDOMHandler domHandler = new IElementDOMHandler() {
+			@Override
+			public Object createElement(Object parent, String tag, XMLElement attributes) {
+				return tag;
+			}
+
+			@Override
+			public void endElement(Object parent, String tag, Object element, XMLElement dom) {
+				events.add("end " + tag + " " + dom.getAttributeCount() + " " + dom.getChildrenCount()
+				        + (dom.getContent() != null ? " " + dom.getContent() : ""));
+			}
+		};
+		readManager.addElementHandler("map", domHandler);
+		readManager.addElementHandler("node", domHandler);
+		readManager.addAttributeHandler("node", "TEXT", (element, value) -> events.add("TEXT=" + value));
+		readManager.addElementHandler("richcontent", new IElementContentHandler() {
+			@Override
+			public Object createElement(Object parent, String tag, XMLElement attributes) {
+				return tag;
+			}
+
+			@Override
+			public boolean findsClosingTagByName() {
+				return true;
+			}
+
+			@Override
+			public void endElement(Object parent, String tag, Object node, XMLElement element, String content) {
+				events.add("content " + element.getAttribute("TYPE", null) + " " + content.trim());
+			}
+		});
+	}
+
+	private void load(String xml) throws Exception {
+		new StreamingTreeXmlReader(readManager).load(new StringReader(xml));
+	}
+
+	@Test
+	public void passDecodedAttributesToAttributeHandlers() throws Exception {
+		load("<map><node TEXT=\"a &amp; b&#xa;c\"/></map>");
+		assertThat(events).containsExactly("TEXT=a & b\nc", "end node 0 0", "end map 0 0");
+	}
+
+	@Test
+	public void keepUnhandledAttributesAndElementsInDom() throws Exception {
+		load("<?xml version=\"1.0\"?><!-- comment --><map version=\"1\"><unknown a='1'><x/></unknown><node/></map>");
+		assertThat(events).containsExactly("end node 0 0", "end map 1 1");
+	}
+
+	@Test
+	public void passRawContentToContentHandlers() throws Exception {
+		load("<map><node TEXT=\"t\"><richcontent TYPE=\"NOTE\"><html><p>a &amp; b<br></p></html></richcontent></node></map>");
+		assertThat(events).containsExactly("TEXT=t", "content NOTE <html><p>a &amp; b<br></p></html>", "end node 0 0",
+		    "end map 0 0");
+	}
+
+	@Test
+	public void setTextContentOfUnhandledElements() throws Exception {
+		load("<map>\r\n  <node>text<![CDATA[ <cdata>]]></node>\n</map>");
+		assertThat(events).containsExactly("end node 0 0 text <cdata>", "end map 0 0");
+	}
+
+	@Test
+	public void passDeferredElementsAsXmlText() throws Exception {
+		readManager.addDeferredElementHandler("node", new IDeferredElementHandler() {
+			@Override
+			public boolean defersElement(Object parent, String tag) {
+				return "node".equals(parent);
+			}
+
+			@Override
+			public void elementDeferred(Object parent, String tag, String xml) {
+				events.add("deferred " + xml);
+			}
+		});
+		load("<map><node TEXT=\"a\"><node TEXT=\"b &amp; c\"><!-- comment -->"
+		        + "<richcontent TYPE=\"NOTE\"><p>d<br></p></richcontent><node/></node></node></map>");
+		assertThat(events).containsExactly("TEXT=a",
+		    "deferred <node TEXT=\"b &amp; c\"><richcontent TYPE=\"NOTE\"><p>d<br></p></richcontent><node/></node>",
+		    "end node 0 0", "end map 0 0");
+	}
+
+	@Test
+	public void dispatchRecordedSnapshotLikeXml() throws Exception {
+		final String xml = "<map version=\"1\"><unknown a='1'><x/></unknown><node TEXT=\"a &amp; b\">text"
+		        + "<richcontent TYPE=\"NOTE\"><html><p>\u00e4</p></html></richcontent><node TEXT=\"c\"/></node></map>";
+		final StreamingTreeXmlReader recordingReader = new StreamingTreeXmlReader(readManager);
+		final TreeSnapshotWriter snapshotWriter = new TreeSnapshotWriter();
+		recordingReader.recordTo(snapshotWriter);
+		recordingReader.load(null, new StringReader(xml));
+		final List<String> xmlEvents = new ArrayList<>(events);
+		events.clear();
+		final File snapshotFile = temporaryFolder.newFile();
+		snapshotWriter.writeTo(snapshotFile, "/maps/a.mm", 10, 20);
+
+		new StreamingTreeXmlReader(readManager).load(null, TreeSnapshotReader.open(snapshotFile, "/maps/a.mm", 10, 20));
+
+		assertThat(events).isEqualTo(xmlEvents);
+	}
+
+	@Test
+	public void rejectSnapshotOfOtherSourceVersion() throws Exception {
+		final File snapshotFile = temporaryFolder.newFile();
+		new TreeSnapshotWriter().writeTo(snapshotFile, "/maps/a.mm", 10, 20);
+		assertThat(TreeSnapshotReader.open(snapshotFile, "/maps/a.mm", 10, 21)).isNull();
+	}
+
+	@Test
+	public void rejectSnapshotOfOtherSourceFile() throws Exception {
+		final File snapshotFile = temporaryFolder.newFile();
+		new TreeSnapshotWriter().writeTo(snapshotFile, "/maps/a.mm", 10, 20);
+		assertThat(TreeSnapshotReader.open(snapshotFile, "/other/a.mm", 10, 20)).isNull();
+	}
+
+	@Test
+	public void releaseSnapshotFileAfterOpening() throws Exception {
+		final File snapshotFile = temporaryFolder.newFile();
+		new TreeSnapshotWriter().writeTo(snapshotFile, "/maps/a.mm", 10, 20);
+		final TreeSnapshotReader reader = TreeSnapshotReader.open(snapshotFile, "/maps/a.mm", 10, 20);
+
+		new TreeSnapshotWriter().writeTo(snapshotFile, "/maps/a.mm", 10, 21);
+
+		assertThat(reader.nextEvent()).isEqualTo(TreeSnapshotReader.END_OF_DATA);
+		assertThat(snapshotFile.delete()).isTrue();
+	}
+}
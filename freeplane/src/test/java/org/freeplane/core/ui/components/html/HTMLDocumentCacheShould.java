@@ -0,0 +1,81 @@
+package org.freeplane.core.ui.components.html;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+
+import javax.swing.JLabel;
+import javax.swing.text.html.HTMLDocument;
+
+import org.junit.Test;
+
+public class HTMLDocumentCacheShould {
+	private final HTMLDocumentCache uut = new HTMLDocumentCache(10);
+
+	private static JLabel label(Font font, Color foreground) {
+		final JLabel label = new JLabel();
+		label.setFont(font);
+		label.setForeground(foreground);
+		return label;
+	}
+
+	@Test
+	public void findEntryForEqualTextAndStyle() throws Exception {
+		final Font font = new Font("Dialog", Font.PLAIN, 12);
+		final HTMLDocumentCache.Entry entry = new HTMLDocumentCache.Entry(new HTMLDocument());
+		uut.put(new HTMLDocumentCache.Key(label(font, Color.BLACK), "<html>x"), entry);
+
+		assertThat(uut.get(new HTMLDocumentCache.Key(label(font, Color.BLACK), "<html>x"))).isSameAs(entry);
+		assertThat(uut.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void distinguishTextsWithDifferentStyles() throws Exception {
+		final Font font = new Font("Dialog", Font.PLAIN, 12);
+		uut.put(new HTMLDocumentCache.Key(label(font, Color.BLACK), "<html>x"), new HTMLDocumentCache.Entry(new HTMLDocument()));
+
+		assertThat(uut.get(new HTMLDocumentCache.Key(label(font, Color.RED), "<html>x"))).isNull();
+		assertThat(uut.get(new HTMLDocumentCache.Key(label(font.deriveFont(14f), Color.BLACK), "<html>x"))).isNull();
+		assertThat(uut.get(new HTMLDocumentCache.Key(label(font, Color.BLACK), "<html>y"))).isNull();
+	}
+
+	@Test
+	public void evictLeastRecentlyUsedEntriesExceedingTotalWeight() throws Exception {
+		final JLabel label = label(new Font("Dialog", Font.PLAIN, 12), Color.BLACK);
+		final HTMLDocumentCache.Key first = new HTMLDocumentCache.Key(label, "<html>1");
+		final HTMLDocumentCache.Key second = new HTMLDocumentCache.Key(label, "<html>2");
+		uut.put(first, new HTMLDocumentCache.Entry(new HTMLDocument()));
+		uut.put(second, new HTMLDocumentCache.Entry(new HTMLDocument()));
+
+		assertThat(uut.size()).isEqualTo(1);
+		assertThat(uut.get(first)).isNull();
+		assertThat(uut.get(second)).isNotNull();
+	}
+
+	@Test
+	public void limitNumberOfEntriesWithShortTexts() throws Exception {
+		final HTMLDocumentCache cache = new HTMLDocumentCache(2 * HTMLDocumentCache.DOCUMENT_WEIGHT + 100);
+		final JLabel label = label(new Font("Dialog", Font.PLAIN, 12), Color.BLACK);
+		for (int i = 0; i < 3; i++)
+			cache.put(new HTMLDocumentCache.Key(label, "<html>" + i), new HTMLDocumentCache.Entry(new HTMLDocument()));
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get(new HTMLDocumentCache.Key(label, "<html>0"))).isNull();
+	}
+
+	@Test
+	public void keepMeasurementsPerFontRenderContext() throws Exception {
+		final HTMLDocumentCache.Entry entry = new HTMLDocumentCache.Entry(new HTMLDocument());
+		final FontRenderContext integerMetrics = new FontRenderContext(null, true, false);
+		final FontRenderContext fractionalMetrics = new FontRenderContext(null, true, true);
+		entry.getMeasurements(integerMetrics).setPreferredSize(100, 20);
+		entry.getMeasurements(integerMetrics).setPreferredHeight(50, 40);
+
+		assertThat(entry.getMeasurements(new FontRenderContext(null, true, false)).getPreferredWidth()).isEqualTo(100f);
+		assertThat(entry.getMeasurements(integerMetrics).getPreferredHeight(50)).isEqualTo(40f);
+		assertThat(entry.getMeasurements(integerMetrics).getPreferredHeight(60)).isNaN();
+		assertThat(entry.getMeasurements(fractionalMetrics).hasPreferredSize()).isFalse();
+	}
+}
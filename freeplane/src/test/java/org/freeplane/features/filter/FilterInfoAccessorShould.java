@@ -0,0 +1,41 @@
+package org.freeplane.features.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.junit.Test;
+
+public class FilterInfoAccessorShould {
+	private final MapModel map = new MapModel(null, null, null);
+	private final Filter.FilterInfoAccessor accessor = new Filter.FilterInfoAccessor();
+
+	@Test
+	public void keepInfoOfNodesOfItsMap() throws Exception {
+		final NodeModel node = new NodeModel("node", map);
+
+		accessor.set(node, FilterInfo.SHOW_AS_MATCHED);
+
+		assertThat(accessor.get(node)).isEqualTo(FilterInfo.SHOW_AS_MATCHED);
+	}
+
+	@Test
+	public void ignoreNodesOfOtherMaps() throws Exception {
+		accessor.set(new NodeModel("node", map), FilterInfo.SHOW_AS_MATCHED);
+		final NodeModel otherMapNode = new NodeModel("other", new MapModel(null, null, null));
+
+		accessor.set(otherMapNode, FilterInfo.SHOW_AS_MATCHED);
+
+		assertThat(accessor.get(otherMapNode)).isEqualTo(FilterInfo.SHOW_AS_INITIAL_VALUE);
+	}
+
+	@Test
+	public void ignoreNodesWithoutMap() throws Exception {
+		final NodeModel node = new NodeModel("node", map);
+		node.setMap(null);
+
+		accessor.set(node, FilterInfo.SHOW_AS_MATCHED);
+
+		assertThat(accessor.get(node)).isEqualTo(FilterInfo.SHOW_AS_INITIAL_VALUE);
+	}
+}
@@ -0,0 +1,116 @@
+package org.freeplane.features.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.junit.Test;
+
+public class FilterShould {
+	private final MapModel map = new MapModel(null, null, null);
+	private final List<NodeModel> nodes = new ArrayList<>();
+
+	private static class TextEndsWithCondition implements ICondition {
+		private final String suffix;
+		private final boolean isThreadSafe;
+		final AtomicInteger checkCount = new AtomicInteger();
+		final Set<Thread> checkingThreads = ConcurrentHashMap.newKeySet();
+
+		TextEndsWithCondition(String suffix, boolean isThreadSafe) {
+			this.suffix = suffix;
+			this.isThreadSafe = isThreadSafe;
+		}
+
+		@Override
+		public boolean checkNode(NodeModel node) {
+			checkCount.incrementAndGet();
+			checkingThreads.add(Thread.currentThread());
+			return node.getText().endsWith(suffix);
+		}
+
+		@Override
+		public boolean isThreadSafe() {
+			return isThreadSafe;
+		}
+	}
+
+	private void createMap(int childCount, int grandchildCount) {
+		final NodeModel root = node(null, "root");
+		map.setRoot(root);
+		for (int child = 0; child < childCount; child++) {
+			final NodeModel childNode = node(root, "child " + child);
+			for (int grandchild = 0; grandchild < grandchildCount; grandchild++)
+				node(childNode, "grandchild " + child + "." + grandchild);
+		}
+	}
+
+	private NodeModel node(NodeModel parent, String text) {
+		final NodeModel node = new NodeModel(text, map);
+		if (parent != null)
+			parent.insert(node, parent.getChildCount());
+		nodes.add(node);
+		return node;
+	}
+
+	private static Filter filter(ICondition condition) {
+		return new Filter(condition, false, true, false, false, null);
+	}
+
+	@Test
+	public void calculateSameResultsForThreadSafeConditionsOfLargeMaps() throws Exception {
+		createMap(100, 120);
+		final TextEndsWithCondition threadSafeCondition = new TextEndsWithCondition("7", true);
+		final Filter parallelFilter = filter(threadSafeCondition);
+		final Filter sequentialFilter = filter(new TextEndsWithCondition("7", false));
+
+		parallelFilter.calculateFilterResults(map);
+		sequentialFilter.calculateFilterResults(map);
+
+		assertThat(threadSafeCondition.checkCount.get()).isEqualTo(nodes.size());
+		for (NodeModel node : nodes)
+			assertThat(parallelFilter.getFilterInfo(node).info())
+			    .as(node.getText()).isEqualTo(sequentialFilter.getFilterInfo(node).info());
+	}
+
+	@Test
+	public void calculateSameResultsForThreadSafeConditionsOfLargeSubtrees() throws Exception {
+		createMap(100, 120);
+		final NodeModel root = map.getRootNode();
+		final Filter parallelFilter = filter(new TextEndsWithCondition("7", true));
+		final Filter sequentialFilter = filter(new TextEndsWithCondition("7", false));
+
+		parallelFilter.calculateFilterResults(root);
+		sequentialFilter.calculateFilterResults(root);
+
+		for (NodeModel node : nodes)
+			assertThat(parallelFilter.getFilterInfo(node).info())
+			    .as(node.getText()).isEqualTo(sequentialFilter.getFilterInfo(node).info());
+	}
+
+	@Test
+	public void checkNodesOfSmallMapsOnCallingThread() throws Exception {
+		createMap(10, 10);
+		final TextEndsWithCondition condition = new TextEndsWithCondition("7", true);
+
+		filter(condition).calculateFilterResults(map);
+
+		assertThat(condition.checkingThreads).containsExactly(Thread.currentThread());
+	}
+
+	@Test
+	public void checkNodesOnCallingThreadForConditionsWhichAreNotThreadSafe() throws Exception {
+		createMap(100, 120);
+		final TextEndsWithCondition condition = new TextEndsWithCondition("7", false);
+
+		filter(condition).calculateFilterResults(map);
+
+		assertThat(condition.checkingThreads).containsExactly(Thread.currentThread());
+	}
+}
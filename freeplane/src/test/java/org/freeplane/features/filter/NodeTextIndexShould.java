@@ -0,0 +1,190 @@
+package org.freeplane.features.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.EnumSet;
+import java.util.function.Supplier;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.attribute.Attribute;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.filter.NodeTextIndex.Field;
+import org.freeplane.features.filter.condition.StringTransformer;
+import org.freeplane.features.icon.IconController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeDeletionEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.text.DetailModel;
+import org.freeplane.features.text.NodeContainsCondition;
+import org.freeplane.features.text.TextController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeTextIndexShould {
+	private final NodeTextIndex.Updater updater = new NodeTextIndex.Updater();
+	private Controller backupController;
+	private MapModel map;
+	private NodeModel root;
+	private NodeModel first;
+	private NodeModel second;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation));
+		final ModeController modeControllerMock = mock(ModeController.class);
+		final TextController textControllerMock = mock(TextController.class);
+		when(textControllerMock.withNodeNumbering(anyBoolean(), any())).then(x -> x.getArgument(1, Supplier.class).get());
+		when(textControllerMock.getTransformedObjectNoThrow(any())).then(x -> {
+			final Object userObject = x.getArgument(0, NodeModel.class).getUserObject();
+			return "=1+2".equals(userObject) ? "3" : userObject;
+		});
+		when(textControllerMock.getTransformedTextNoThrow(any(), any(), any())).then(x -> x.getArgument(2).toString());
+		when(modeControllerMock.getExtension(TextController.class)).thenReturn(textControllerMock);
+		when(modeControllerMock.getExtension(IconController.class)).thenReturn(mock(IconController.class));
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		when(controllerMock.getModeController()).thenReturn(modeControllerMock);
+		Controller.setCurrentController(controllerMock);
+		map = new MapModel(null, null, null);
+		root = new NodeModel("root", map);
+		map.setRoot(root);
+		first = addNode("First node");
+		second = addNode("Second node");
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private NodeModel addNode(String text) {
+		final NodeModel node = new NodeModel(text, map);
+		root.insert(node);
+		return node;
+	}
+
+	private NodeTextIndex index() {
+		return NodeTextIndex.of(map);
+	}
+
+	private void changed(NodeModel node, Object property) {
+		updater.nodeChanged(new NodeChangeEvent(node, property, null, null, true, true));
+	}
+
+	@Test
+	public void keepLettersAndDigitsWithoutCaseAndDiacritics() throws Exception {
+		assertThat(NodeTextIndex.key("Ça, Dürer!  42")).isEqualTo("cadurer42");
+	}
+
+	@Test
+	public void createSameKeysForTextsNormalizedByConditions() throws Exception {
+		final String text = "ΟΔΟΣ İstanbul 中 文 Œuvre";
+		assertThat(NodeTextIndex.key(StringTransformer.transform(text, true, true)))
+		    .isEqualTo(NodeTextIndex.key(text));
+	}
+
+	@Test
+	public void findNodesContainingTextIgnoringCaseAndPunctuation() throws Exception {
+		assertThat(index().nodesContaining("SECOND-node", EnumSet.of(Field.TEXT))).containsExactly(second);
+		assertThat(index().nodesContaining("node", EnumSet.of(Field.TEXT))).containsExactlyInAnyOrder(first, second);
+		assertThat(index().nodesContaining("third", EnumSet.of(Field.TEXT))).isEmpty();
+	}
+
+	@Test
+	public void notLookUpTextsShorterThanNgrams() throws Exception {
+		assertThat(index().nodesContaining("no", EnumSet.of(Field.TEXT))).isNull();
+	}
+
+	@Test
+	public void findNodesOnlyInRequestedFields() throws Exception {
+		first.addExtension(new DetailModel("text/plain", "hidden details", null, false));
+
+		assertThat(index().nodesContaining("details", EnumSet.of(Field.TEXT))).isEmpty();
+		assertThat(index().nodesContaining("details", EnumSet.of(Field.DETAILS))).containsExactly(first);
+	}
+
+	@Test
+	public void returnNodesWithComputedTextForEveryQuery() throws Exception {
+		final NodeModel formula = addNode("=1+2");
+
+		assertThat(index().nodesContaining("third", EnumSet.of(Field.TEXT))).containsExactly(formula);
+		assertThat(index().nodesContaining("third", EnumSet.of(Field.DETAILS))).isEmpty();
+	}
+
+	@Test
+	public void returnCandidatesOfStringConditions() throws Exception {
+		final NodeContainsCondition condition = new NodeContainsCondition(TextController.FILTER_NODE, "first", false,
+		    false, false, false);
+
+		assertThat(NodeTextIndex.candidates(condition, map)).containsExactly(first);
+	}
+
+	@Test
+	public void returnNoCandidatesOfApproximateConditions() throws Exception {
+		final NodeContainsCondition condition = new NodeContainsCondition(TextController.FILTER_NODE, "first", false,
+		    true, false, false);
+
+		assertThat(NodeTextIndex.candidates(condition, map)).isNull();
+	}
+
+	@Test
+	public void updateChangedNodeText() throws Exception {
+		index().nodesContaining("first", EnumSet.of(Field.TEXT));
+
+		first.setText("Renamed node");
+		changed(first, NodeModel.NODE_TEXT);
+
+		assertThat(index().nodesContaining("first", EnumSet.of(Field.TEXT))).isEmpty();
+		assertThat(index().nodesContaining("renamed", EnumSet.of(Field.TEXT))).containsExactly(first);
+	}
+
+	@Test
+	public void updateChangedAttributes() throws Exception {
+		final NodeAttributeTableModel attributes = new NodeAttributeTableModel();
+		second.addExtension(attributes);
+		attributes.silentlyAddRowNoUndo(second, new Attribute("color", "green"));
+		index().nodesContaining("green", EnumSet.of(Field.ATTRIBUTES));
+
+		attributes.getAttribute(0).setValue("yellow");
+		changed(second, NodeAttributeTableModel.class);
+
+		assertThat(index().nodesContaining("green", EnumSet.of(Field.ATTRIBUTES))).isEmpty();
+		assertThat(index().nodesContaining("yellow", EnumSet.of(Field.ATTRIBUTES))).containsExactly(second);
+	}
+
+	@Test
+	public void updateChangedDetails() throws Exception {
+		final DetailModel details = new DetailModel("text/plain", "old details", null, false);
+		first.addExtension(details);
+		index().nodesContaining("old", EnumSet.of(Field.DETAILS));
+
+		details.setText("new details");
+		changed(first, DetailModel.class);
+
+		assertThat(index().nodesContaining("old", EnumSet.of(Field.DETAILS))).isEmpty();
+		assertThat(index().nodesContaining("new", EnumSet.of(Field.DETAILS))).containsExactly(first);
+	}
+
+	@Test
+	public void updateInsertedAndDeletedNodes() throws Exception {
+		index().nodesContaining("node", EnumSet.of(Field.TEXT));
+
+		final NodeModel third = addNode("Third node");
+		updater.onNodeInserted(root, third, 2);
+		root.remove(0);
+		updater.onNodeDeleted(new NodeDeletionEvent(root, first, 0));
+
+		assertThat(index().nodesContaining("node", EnumSet.of(Field.TEXT))).containsExactlyInAnyOrder(second, third);
+	}
+}
@@ -0,0 +1,88 @@
+package org.freeplane.features.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeferredChildrenShould {
+	private final MapController mapController = mock(MapController.class);
+	private final MapReader mapReader = mock(MapReader.class);
+	private final MapModel map = new MapModel(null, null, mapController);
+	private NodeModel root;
+	private NodeModel folded;
+
+	@Before
+	public void setup() throws Exception {
+		when(mapReader.createNodeTreeFromXml(same(map), any(Reader.class), anyMap())).then(invocation -> {
+			final String xml = new BufferedReader(invocation.getArgument(1, Reader.class)).readLine();
+			final String id = xml.substring(xml.indexOf('"') + 1, xml.lastIndexOf('"'));
+			final NodeModel node = new NodeModel(id, map);
+			node.setID(id);
+			return node;
+		});
+		root = new NodeModel("root", map);
+		folded = new NodeModel("folded", map);
+		root.insert(folded);
+	}
+
+	private DeferredChildren deferChildren(String... ids) {
+		final DeferredChildren children = new DeferredChildren(folded, mapReader);
+		folded.setChildrenInternal(children);
+		for (String id : ids)
+			children.addChild(" ID=\"" + id + "\"");
+		return children;
+	}
+
+	@Test
+	public void readBranchOfLookedUpNode() throws Exception {
+		map.setRoot(root);
+		deferChildren("ID_1", "ID_2");
+
+		final NodeModel node = map.getNodeForID("ID_2");
+
+		assertThat(node.getParentNode()).isSameAs(folded);
+		assertThat(folded.getChildren()).containsExactly(map.getNodeForID("ID_1"), node);
+	}
+
+	@Test
+	public void announceChildrenReadForLookedUpNodeOfShownMap() throws Exception {
+		map.setRoot(root);
+		deferChildren("ID_1", "ID_2");
+
+		map.getNodeForID("ID_1");
+
+		verify(mapController).fireChildrenLoaded(folded,
+		    Arrays.asList(map.getNodeForID("ID_1"), map.getNodeForID("ID_2")));
+	}
+
+	@Test
+	public void notAnnounceChildrenReadWhileMapIsLoaded() throws Exception {
+		deferChildren("ID_1");
+
+		map.getNodeForID("ID_1");
+
+		verify(mapController, never()).fireChildrenLoaded(any(), any());
+	}
+
+	@Test
+	public void notAnnounceChildrenReadByOtherListOperations() throws Exception {
+		map.setRoot(root);
+		deferChildren("ID_1");
+
+		folded.getChildren().get(0);
+
+		verify(mapController, never()).fireChildrenLoaded(any(), any());
+	}
+}
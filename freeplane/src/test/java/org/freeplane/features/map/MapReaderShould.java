@@ -0,0 +1,79 @@
+package org.freeplane.features.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.freeplane.core.io.ReadManager;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.mode.Controller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MapReaderShould {
+	private Controller backupController;
+	private MapReader mapReader;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation));
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+		final ReadManager readManager = new ReadManager();
+		mapReader = new MapReader(readManager);
+		readManager.addElementHandler("map", mapReader);
+		readManager.addAttributeHandler(NodeBuilder.XML_NODE, "TEXT", (node, value) -> ((NodeModel) node).setText(value));
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private MapModel read(int mapIndex) throws Exception {
+		final StringBuilder xml = new StringBuilder("<map><node TEXT=\"map " + mapIndex + "\" ID=\"ID_root\">");
+		for (int child = 0; child < 100; child++)
+			xml.append("<node TEXT=\"").append(mapIndex).append('.').append(child)
+			    .append("\" ID=\"ID_").append(child).append("\"/>");
+		xml.append("</node></map>");
+		final MapModel map = new MapModel(null, null, null);
+		mapReader.createNodeTreeFromXml(map, new StringReader(xml.toString()), Mode.FILE);
+		return map;
+	}
+
+	@Test
+	public void readMapsOnSeveralThreadsAtOnce() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<MapModel>> maps = new ArrayList<>();
+			for (int mapIndex = 0; mapIndex < 40; mapIndex++) {
+				final int index = mapIndex;
+				maps.add(executor.submit((Callable<MapModel>) () -> read(index)));
+			}
+			for (int mapIndex = 0; mapIndex < maps.size(); mapIndex++) {
+				final NodeModel root = maps.get(mapIndex).get().getRootNode();
+				assertThat(root.getText()).isEqualTo("map " + mapIndex);
+				assertThat(root.getChildCount()).isEqualTo(100);
+				assertThat(root.getChildAt(99).getText()).isEqualTo(mapIndex + ".99");
+				assertThat(root.getMap().getNodeForID("ID_99")).isSameAs(root.getChildAt(99));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
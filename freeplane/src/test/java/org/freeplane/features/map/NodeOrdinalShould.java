@@ -0,0 +1,72 @@
+package org.freeplane.features.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class NodeOrdinalShould {
+	private final MapModel map = new MapModel(null, null, null);
+
+	@Test
+	public void assignDistinctStableOrdinalsToNodesOfOneMap() throws Exception {
+		final NodeModel first = new NodeModel("first", map);
+		final NodeModel second = new NodeModel("second", map);
+
+		final int firstOrdinal = first.getOrdinal();
+		final int secondOrdinal = second.getOrdinal();
+
+		assertThat(firstOrdinal).isNotEqualTo(secondOrdinal);
+		assertThat(first.getOrdinal()).isEqualTo(firstOrdinal);
+		assertThat(map.getNodeOrdinalCount()).isGreaterThan(Math.max(firstOrdinal, secondOrdinal));
+	}
+
+	@Test
+	public void returnNoOrdinalForNodeWithoutMap() throws Exception {
+		final NodeModel node = new NodeModel("detached", map);
+		node.setMap(null);
+
+		assertThat(node.getOrdinal()).isEqualTo(-1);
+	}
+
+	@Test
+	public void assignOneOrdinalPerNodeWhenRequestedConcurrently() throws Exception {
+		final int threadCount = 8;
+		final List<NodeModel> nodes = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++)
+			nodes.add(new NodeModel("node" + i, map));
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<int[]>> results = new ArrayList<>();
+		for (int thread = 0; thread < threadCount; thread++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				final int[] ordinals = new int[nodes.size()];
+				for (int i = 0; i < ordinals.length; i++)
+					ordinals[i] = nodes.get(i).getOrdinal();
+				return ordinals;
+			}));
+		}
+		start.countDown();
+		final int[] expectedOrdinals = results.get(0).get();
+		for (final Future<int[]> result : results)
+			assertThat(result.get()).containsExactly(expectedOrdinals);
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+
+		final Set<Integer> distinctOrdinals = new HashSet<>();
+		for (final int ordinal : expectedOrdinals)
+			distinctOrdinals.add(ordinal);
+		assertThat(distinctOrdinals).hasSize(nodes.size());
+		assertThat(map.getNodeOrdinalCount()).isGreaterThan(distinctOrdinals.stream().mapToInt(Integer::intValue).max().getAsInt());
+	}
+}
@@ -0,0 +1,56 @@
+package org.freeplane.features.styles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.map.NodeModel;
+import org.junit.After;
+import org.junit.Test;
+
+public class ConditionalStyleModelShould {
+	private final ConditionalStyleModel model = new ConditionalStyleModel();
+	private final ASelectableCondition condition = mock(ASelectableCondition.class);
+	private final IStyle style = new StyleString("style");
+	private final NodeModel node = new NodeModel(null);
+	private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+	@After
+	public void tearDown() {
+		otherThread.shutdownNow();
+	}
+
+	@Test
+	public void notEvaluateConditionsRecursively() throws Exception {
+		model.addCondition(true, condition, style, false);
+		when(condition.checkNode(any())).then(invocation -> model.getStyles(node).isEmpty());
+
+		assertThat(model.getStyles(node)).containsExactly(style);
+	}
+
+	@Test
+	public void evaluateConditionsOnOtherThreadWhileTheyAreEvaluated() throws Exception {
+		model.addCondition(true, condition, style, false);
+		when(condition.checkNode(any())).thenReturn(true);
+		final ASelectableCondition waitingCondition = mock(ASelectableCondition.class);
+		final AtomicReference<Collection<IStyle>> stylesOfOtherThread = new AtomicReference<>();
+		final Thread testThread = Thread.currentThread();
+		when(waitingCondition.checkNode(any())).then(invocation -> {
+			if (Thread.currentThread() == testThread)
+				stylesOfOtherThread.set(otherThread.submit(() -> model.getStyles(node)).get());
+			return false;
+		});
+		model.insertCondition(0, true, waitingCondition, new StyleString("other"), false);
+
+		model.getStyles(node);
+
+		assertThat(stylesOfOtherThread.get()).containsExactly(style);
+	}
+}
@@ -0,0 +1,93 @@
+package org.freeplane.features.styles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.map.MapFake;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.styles.ResolvedStyleCache.ResolvedStyles;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolvedStyleCacheShould {
+	private final MapFake map = new MapFake();
+	private final NodeModel root = map.getRoot();
+	private NodeModel parent;
+	private NodeModel child;
+	private NodeModel sibling;
+	private final ResolvedStyleCache cache = new ResolvedStyleCache();
+	private final ASelectableCondition condition = mock(ASelectableCondition.class);
+
+	@Before
+	public void setup() {
+		parent = map.addNode("parent");
+		child = map.createNode("child");
+		parent.insert(child);
+		sibling = map.addNode("sibling");
+		when(condition.checksOnlyNodeAndRelatives()).thenReturn(true);
+	}
+
+	private void cacheAllNodesWithCondition() {
+		final ConditionalStyleModel conditionalStyleModel = new ConditionalStyleModel();
+		conditionalStyleModel.addCondition(true, condition, mock(IStyle.class), false);
+		cache.addDependencies(conditionalStyleModel);
+		for (NodeModel node : new NodeModel[] { root, parent, child, sibling })
+			cache.put(node, mock(ResolvedStyles.class));
+	}
+
+	@Test
+	public void removeOnlyChangedNode_whenConditionsCheckChangedNodeOnly() {
+		cacheAllNodesWithCondition();
+
+		cache.nodeChanged(parent);
+
+		assertThat(cache.get(parent)).isNull();
+		assertThat(cache.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void removeParent_whenConditionsCheckChildren() {
+		when(condition.checksChildren()).thenReturn(true);
+		cacheAllNodesWithCondition();
+
+		cache.nodeChanged(child);
+
+		assertThat(cache.get(parent)).isNull();
+		assertThat(cache.get(root)).isNotNull();
+		assertThat(cache.get(sibling)).isNotNull();
+	}
+
+	@Test
+	public void removeDescendants_whenConditionsCheckAncestors() {
+		when(condition.checksAncestors()).thenReturn(true);
+		cacheAllNodesWithCondition();
+
+		cache.nodeChanged(root);
+
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void removeOnlyChangedNode_whenConditionsCheckingChangedNodeOnlyAreNotThreadSafe() {
+		when(condition.isThreadSafe()).thenReturn(false);
+		cacheAllNodesWithCondition();
+
+		cache.nodeChanged(parent);
+
+		assertThat(cache.get(parent)).isNull();
+		assertThat(cache.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void removeAllNodes_whenConditionsMayReadOtherNodes() {
+		when(condition.checksOnlyNodeAndRelatives()).thenReturn(false);
+		cacheAllNodesWithCondition();
+
+		cache.nodeChanged(sibling);
+
+		assertThat(cache.size()).isZero();
+		assertThat(cache.getDependencies()).isZero();
+	}
+}
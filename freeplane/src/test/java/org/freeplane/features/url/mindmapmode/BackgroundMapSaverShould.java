@@ -0,0 +1,92 @@
+package org.freeplane.features.url.mindmapmode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.freeplane.core.resources.ResourceBundles;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapWriter;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.mindmapmode.MMapController;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.ui.ViewController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BackgroundMapSaverShould {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private Controller backupController;
+	private BackgroundMapSaver saver;
+	private MMapModel map;
+	private final AtomicBoolean saved = new AtomicBoolean();
+	private final AtomicBoolean failed = new AtomicBoolean();
+
+	@Before
+	public void setup() throws Exception {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class);
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		when(resourceControllerMock.getResources()).thenReturn(mock(ResourceBundles.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation)));
+		final ViewController viewControllerMock = mock(ViewController.class);
+		doAnswer(invocation -> {
+			invocation.getArgument(0, Runnable.class).run();
+			return null;
+		}).when(viewControllerMock).invokeLater(any());
+		when(controllerMock.getViewController()).thenReturn(viewControllerMock);
+		final ModeController modeControllerMock = mock(ModeController.class);
+		final MMapController mapControllerMock = mock(MMapController.class);
+		when(controllerMock.getModeController()).thenReturn(modeControllerMock);
+		when(modeControllerMock.getMapController()).thenReturn(mapControllerMock);
+		when(mapControllerMock.getMapWriter()).thenReturn(mock(MapWriter.class));
+		Controller.setCurrentController(controllerMock);
+		saver = new BackgroundMapSaver(mapControllerMock);
+		map = new MMapModel(null);
+		map.setRoot(new NodeModel("root", map));
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private void save(File file) throws Exception {
+		assertThat(saver.save(map, file, new File(file.getPath() + ".bak"), () -> saved.set(true), () -> failed.set(true)))
+		    .isTrue();
+		saver.waitFor(map);
+	}
+
+	@Test
+	public void reportSuccessfulSave() throws Exception {
+		final File file = new File(folder.getRoot(), "map.mm");
+
+		save(file);
+
+		assertThat(file).exists();
+		assertThat(saved).isTrue();
+		assertThat(failed).isFalse();
+	}
+
+	@Test
+	public void reportFailedSave() throws Exception {
+		save(new File(folder.getRoot(), "missing/map.mm"));
+
+		assertThat(saved).isFalse();
+		assertThat(failed).isTrue();
+		assertThat(saver.isSaving(map)).isFalse();
+	}
+}
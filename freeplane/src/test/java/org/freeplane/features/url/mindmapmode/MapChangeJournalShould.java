@@ -0,0 +1,223 @@
+package org.freeplane.features.url.mindmapmode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.freeplane.core.resources.ResourceBundles;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapReader.NodeTreeCreator;
+import org.freeplane.features.map.MapWriter;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.mindmapmode.MMapController;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MapChangeJournalShould {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private Controller backupController;
+	private MapChangeJournal journal;
+	private File mapFile;
+	private File journalFile;
+	private NodeTreeCreator nodeTreeCreator;
+
+	@Before
+	public void setup() throws Exception {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class);
+		when(resourceControllerMock.getBooleanProperty(MapChangeJournal.SAVE_INCREMENTALLY_PROPERTY)).thenReturn(true);
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		when(resourceControllerMock.getResources()).thenReturn(mock(ResourceBundles.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation)));
+		final ModeController modeControllerMock = mock(ModeController.class);
+		final MMapController mapControllerMock = mock(MMapController.class);
+		when(controllerMock.getModeController()).thenReturn(modeControllerMock);
+		when(modeControllerMock.getMapController()).thenReturn(mapControllerMock);
+		final MapWriter mapWriterMock = mock(MapWriter.class);
+		when(mapControllerMock.getMapWriter()).thenReturn(mapWriterMock);
+		doAnswer(invocation -> {
+			final NodeModel node = invocation.getArgument(1);
+			((Writer) invocation.getArgument(0)).write(node.getID() + "|" + node.getText());
+			return null;
+		}).when(mapWriterMock).writeNodeAsXml(any(), any(), any(), any(), anyBoolean(), anyBoolean());
+		final MapReader mapReaderMock = mock(MapReader.class);
+		when(mapControllerMock.getMapReader()).thenReturn(mapReaderMock);
+		when(mapReaderMock.nodeTreeCreator(any())).then(creatorInvocation -> {
+			nodeTreeCreator = mock(NodeTreeCreator.class);
+			when(nodeTreeCreator.create(any(Reader.class))).then(invocation -> {
+				final String[] content = new BufferedReader((Reader) invocation.getArgument(0)).readLine().split("\\|");
+				final NodeModel node = new NodeModel(content[1], creatorInvocation.getArgument(0));
+				node.setID(content[0]);
+				return node;
+			});
+			return nodeTreeCreator;
+		});
+		Controller.setCurrentController(controllerMock);
+		journal = new MapChangeJournal(null, mapControllerMock);
+		mapFile = folder.newFile("map.mm");
+		final byte[] mapContent = new byte[10_000];
+		Arrays.fill(mapContent, (byte) 'x');
+		Files.write(mapFile.toPath(), mapContent);
+		journalFile = MapChangeJournal.journalFile(mapFile);
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private static MMapModel loadedMap() {
+		final MMapModel map = new MMapModel(null);
+		final NodeModel root = node(map, "root");
+		map.setRoot(root);
+		root.insert(node(map, "a"), 0);
+		root.insert(node(map, "b"), 1);
+		return map;
+	}
+
+	private static NodeModel node(MMapModel map, String text) {
+		final NodeModel node = new NodeModel(text, map);
+		node.setID("ID_" + text);
+		return node;
+	}
+
+	private void changeText(MMapModel map, String id, String text) {
+		final NodeModel node = map.getNodeForID(id);
+		final String oldText = node.getText();
+		node.setText(text);
+		journal.nodeChanged(new NodeChangeEvent(node, NodeModel.NODE_TEXT, oldText, text, true, true));
+	}
+
+	private static String[] childTexts(MMapModel map) {
+		return map.getRootNode().getChildren().stream().map(NodeModel::getText).toArray(String[]::new);
+	}
+
+	@Test
+	public void replayAppendedChangesOnLoad() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		changeText(savedMap, "ID_a", "changed");
+		final NodeModel insertedNode = node(savedMap, "c");
+		savedMap.getRootNode().insert(insertedNode, 2);
+		journal.onNodeInserted(savedMap.getRootNode(), insertedNode, 2);
+
+		assertThat(journal.append(savedMap, mapFile)).isTrue();
+		final MMapModel map = loadedMap();
+		journal.replay(map, mapFile);
+
+		assertThat(childTexts(map)).containsExactly("changed", "b", "c");
+	}
+
+	@Test
+	public void replayNodesInsertedUnderNodeInsertedInSameBatch() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		final NodeModel insertedParent = node(savedMap, "c");
+		savedMap.getRootNode().insert(insertedParent, 2);
+		journal.onNodeInserted(savedMap.getRootNode(), insertedParent, 2);
+		final NodeModel insertedChild = node(savedMap, "d");
+		insertedParent.insert(insertedChild, 0);
+		journal.onNodeInserted(insertedParent, insertedChild, 0);
+
+		assertThat(journal.append(savedMap, mapFile)).isTrue();
+		final MMapModel map = loadedMap();
+		journal.replay(map, mapFile);
+
+		assertThat(childTexts(map)).containsExactly("a", "b", "c");
+		assertThat(map.getNodeForID("ID_d").getParentNode()).isSameAs(map.getNodeForID("ID_c"));
+		verify(nodeTreeCreator, times(1)).finishCreatedTrees(map.getRootNode());
+	}
+
+	@Test
+	public void requireFullSaveAfterFailedFullSave() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		journal.fullSaveStarted(savedMap);
+		changeText(savedMap, "ID_a", "changed");
+
+		journal.fullSaveFailed(savedMap);
+
+		assertThat(journal.append(savedMap, mapFile)).isFalse();
+		assertThat(journalFile).doesNotExist();
+	}
+
+	@Test
+	public void moveAsideJournalOfChangedMapFile() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		changeText(savedMap, "ID_a", "changed");
+		journal.append(savedMap, mapFile);
+		Files.write(mapFile.toPath(), "changed by another application".getBytes(StandardCharsets.UTF_8));
+
+		final MMapModel map = loadedMap();
+		journal.replay(map, mapFile);
+
+		assertThat(childTexts(map)).containsExactly("a", "b");
+		assertThat(journalFile).doesNotExist();
+		assertThat(MapChangeJournal.ignoredJournalFile(journalFile)).exists();
+	}
+
+	@Test
+	public void dropDamagedBatchAndFollowingBatches() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		changeText(savedMap, "ID_a", "first");
+		journal.append(savedMap, mapFile);
+		changeText(savedMap, "ID_b", "second");
+		journal.append(savedMap, mapFile);
+		final String journalText = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+		Files.write(journalFile.toPath(), journalText.replace("second", "damaged").getBytes(StandardCharsets.UTF_8));
+
+		final MMapModel map = loadedMap();
+		journal.replay(map, mapFile);
+
+		assertThat(childTexts(map)).containsExactly("first", "b");
+		assertThat(new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8))
+		    .contains("first").doesNotContain("damaged");
+		assertThat(MapChangeJournal.ignoredJournalFile(journalFile)).exists();
+	}
+
+	@Test
+	public void appendToTruncatedJournal() throws Exception {
+		final MMapModel savedMap = loadedMap();
+		journal.fullSaveCompleted(savedMap, mapFile);
+		changeText(savedMap, "ID_a", "first");
+		journal.append(savedMap, mapFile);
+		Files.write(journalFile.toPath(), "<batch CRC=\"0\">".getBytes(StandardCharsets.UTF_8),
+		    StandardOpenOption.APPEND);
+		final MMapModel map = loadedMap();
+		journal.replay(map, mapFile);
+
+		changeText(map, "ID_b", "second");
+		assertThat(journal.append(map, mapFile)).isTrue();
+		final MMapModel reloadedMap = loadedMap();
+		journal.replay(reloadedMap, mapFile);
+
+		assertThat(childTexts(reloadedMap)).containsExactly("first", "second");
+	}
+}
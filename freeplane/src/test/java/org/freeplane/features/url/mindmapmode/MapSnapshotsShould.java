@@ -0,0 +1,98 @@
+package org.freeplane.features.url.mindmapmode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.freeplane.core.io.xml.TreeSnapshotWriter;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.mode.Controller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MapSnapshotsShould {
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	private Controller backupController;
+	private File directory;
+	private final long now = System.currentTimeMillis();
+
+	@Before
+	public void setup() throws Exception {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class);
+		when(resourceControllerMock.getFreeplaneUserDirectory()).thenReturn(temporaryFolder.getRoot().getPath());
+		when(resourceControllerMock.getBooleanProperty(MapSnapshots.USE_MAP_SNAPSHOTS_PROPERTY)).thenReturn(true);
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+		directory = temporaryFolder.newFolder("snapshots");
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private File snapshot(String name, int size, long lastUsed) throws IOException {
+		final File snapshot = new File(directory, name + ".snapshot");
+		Files.write(snapshot.toPath(), new byte[size]);
+		snapshot.setLastModified(lastUsed);
+		return snapshot;
+	}
+
+	@Test
+	public void removeSnapshotsNotUsedForLong() throws Exception {
+		final File old = snapshot("old", 10, now - 40 * DAY);
+		final File recent = snapshot("recent", 10, now - DAY);
+
+		MapSnapshots.removeUnused(directory, now - 30 * DAY, 1000);
+
+		assertThat(old).doesNotExist();
+		assertThat(recent).exists();
+	}
+
+	@Test
+	public void removeLeastRecentlyUsedSnapshotsExceedingTotalSize() throws Exception {
+		final File oldest = snapshot("oldest", 400, now - 3 * DAY);
+		final File older = snapshot("older", 400, now - 2 * DAY);
+		final File newest = snapshot("newest", 400, now - DAY);
+
+		MapSnapshots.removeUnused(directory, now - 30 * DAY, 1000);
+
+		assertThat(oldest).doesNotExist();
+		assertThat(older).exists();
+		assertThat(newest).exists();
+	}
+
+	@Test
+	public void deleteSnapshotNotMatchingItsMapFile() throws Exception {
+		final File mapFile = temporaryFolder.newFile("map.mm");
+		final File snapshotFile = MapSnapshots.snapshotFile(mapFile.getCanonicalPath());
+		MapSnapshots.save(new TreeSnapshotWriter(), mapFile, mapFile.length() + 1, mapFile.lastModified());
+		assertThat(snapshotFile).exists();
+
+		assertThat(MapSnapshots.open(mapFile)).isNull();
+
+		assertThat(snapshotFile).doesNotExist();
+	}
+
+	@Test
+	public void keepSnapshotMatchingItsMapFile() throws Exception {
+		final File mapFile = temporaryFolder.newFile("map.mm");
+		final File snapshotFile = MapSnapshots.snapshotFile(mapFile.getCanonicalPath());
+		MapSnapshots.save(new TreeSnapshotWriter(), mapFile, mapFile.length(), mapFile.lastModified());
+
+		assertThat(MapSnapshots.open(mapFile)).isNotNull();
+
+		assertThat(snapshotFile).exists();
+	}
+}
@@ -0,0 +1,61 @@
+package org.freeplane.main.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommandLineParserShould {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void parseBatchOptionsBeforeFiles() throws Exception {
+		final CommandLineOptions options = CommandLineParser.parse("--batch", "export", "--format", "html",
+		    "--output", "out", "maps", "other.mm");
+
+		final BatchOptions batchOptions = options.getBatchOptions();
+		assertThat(batchOptions.getCommand()).isEqualTo("export");
+		assertThat(batchOptions.getFormat()).isEqualTo("html");
+		assertThat(batchOptions.getOutputDirectory()).isEqualTo(new File("out"));
+		assertThat(options.isNonInteractive()).isTrue();
+		assertThat(options.getFilesToOpenAsArray()).containsExactly("maps", "other.mm");
+	}
+
+	@Test
+	public void notCreateBatchOptionsWithoutBatchCommand() throws Exception {
+		final CommandLineOptions options = CommandLineParser.parse("-N", "map.mm");
+
+		assertThat(options.getBatchOptions()).isNull();
+	}
+
+	@Test
+	public void replaceExtensionOfOutputFile() throws Exception {
+		final BatchOptions batchOptions = new BatchOptions("export");
+		batchOptions.setOutputDirectory(new File("out"));
+
+		assertThat(batchOptions.getOutputFile(new File("maps", "a.b.mm"), "html")).isEqualTo(new File("out", "a.b.html"));
+	}
+
+	@Test
+	public void keepPathsOfMapsFoundInDirectoriesInOutputDirectory() throws Exception {
+		final File input = temporaryFolder.newFolder("maps");
+		new File(input, "a").mkdir();
+		new File(input, "b").mkdir();
+		new File(input, "a/same.mm").createNewFile();
+		new File(input, "b/same.mm").createNewFile();
+		final BatchOptions batchOptions = new BatchOptions("convert");
+		final File output = new File("out");
+		batchOptions.setOutputDirectory(output);
+
+		final List<File> mapFiles = batchOptions.findMapFiles(new String[] {input.getPath()});
+
+		assertThat(mapFiles).hasSize(2);
+		assertThat(batchOptions.getOutputFile(mapFiles.get(0))).isEqualTo(new File(output, "a/same.mm"));
+		assertThat(batchOptions.getOutputFile(mapFiles.get(1), "html")).isEqualTo(new File(output, "b/same.html"));
+	}
+}
@@ -0,0 +1,67 @@
+package org.freeplane.view.swing.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import org.freeplane.view.swing.map.link.ILinkView;
+import org.junit.Test;
+
+public class LinkViewIndexShould {
+	private final LinkViewIndex index = new LinkViewIndex();
+
+	private ILinkView linkView(Rectangle bounds) {
+		final ILinkView linkView = mock(ILinkView.class);
+		doAnswer(invocation -> {
+			invocation.<Rectangle>getArgument(0).add(bounds);
+			return null;
+		}).when(linkView).increaseBounds(any());
+		return linkView;
+	}
+
+	@Test
+	public void findOnlyLinksNearGivenArea() {
+		final ILinkView near = linkView(new Rectangle(100, 100, 50, 50));
+		final ILinkView far = linkView(new Rectangle(5000, 5000, 50, 50));
+		index.add(near);
+		index.add(far);
+
+		assertThat(index.find(new Point(120, 120))).containsExactly(near);
+		assertThat(index.find(new Rectangle(4900, 4900, 200, 200))).containsExactly(far);
+	}
+
+	@Test
+	public void findLinksInPaintingOrder() {
+		final ILinkView first = linkView(new Rectangle(0, 0, 1000, 10));
+		final ILinkView second = linkView(new Rectangle(500, 0, 10, 10));
+		final ILinkView third = linkView(new Rectangle(-100, -100, 0, 0));
+		index.add(first);
+		index.add(second);
+		index.add(third);
+
+		assertThat(index.find(new Rectangle(-200, -200, 800, 300))).containsExactly(first, second, third);
+	}
+
+	@Test
+	public void findLinksWithoutBoundsEverywhere() {
+		final ILinkView unbounded = mock(ILinkView.class);
+		index.add(unbounded);
+
+		assertThat(index.find(new Point(-100000, 100000))).containsExactly(unbounded);
+	}
+
+	@Test
+	public void coverOnlyIndexedArea() {
+		index.setIndexedArea(new Rectangle(0, 0, 300, 300));
+
+		assertThat(index.covers(new Rectangle(10, 10, 100, 100))).isTrue();
+		assertThat(index.covers(new Rectangle(250, 10, 100, 100))).isFalse();
+
+		index.clear();
+		assertThat(index.covers(new Rectangle(10, 10, 100, 100))).isFalse();
+	}
+}
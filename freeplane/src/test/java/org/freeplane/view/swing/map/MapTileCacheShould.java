@@ -0,0 +1,92 @@
+package org.freeplane.view.swing.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+public class MapTileCacheShould {
+	private final MapTileCache cache = new MapTileCache();
+	private final AtomicInteger paintedTileCount = new AtomicInteger();
+	private final Consumer<Graphics2D> painter = g -> {
+		paintedTileCount.incrementAndGet();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 2000, 2000);
+	};
+
+	private BufferedImage paint(Rectangle clip) {
+		final BufferedImage image = new BufferedImage(1200, 1200, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g = image.createGraphics();
+		g.clip(clip);
+		cache.paint(g, true, 64, painter);
+		g.dispose();
+		return image;
+	}
+
+	@Test
+	public void paintTilesIntersectingClipOnce() {
+		final BufferedImage image = paint(new Rectangle(0, 0, 600, 100));
+		paint(new Rectangle(10, 10, 20, 20));
+
+		assertThat(paintedTileCount.get()).isEqualTo(2);
+		assertThat(cache.getMissCount()).isEqualTo(2);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(image.getRGB(599, 99)).isEqualTo(Color.RED.getRGB());
+		assertThat(image.getRGB(599, 100)).isEqualTo(Color.BLACK.getRGB());
+	}
+
+	@Test
+	public void paintInvalidatedTilesAgain() {
+		paint(new Rectangle(0, 0, 1024, 512));
+
+		cache.invalidate(new Rectangle(600, 10, 10, 10));
+		paint(new Rectangle(0, 0, 1024, 512));
+
+		assertThat(paintedTileCount.get()).isEqualTo(3);
+		assertThat(cache.getTileCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void notKeepTilesInvalidatedWhilePainting() {
+		final Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		g.setClip(0, 0, 1, 1);
+		cache.paint(g, true, 64, tileGraphics -> {
+			painter.accept(tileGraphics);
+			cache.invalidate(new Rectangle(0, 0, 1, 1));
+		});
+
+		assertThat(cache.getTileCount()).isZero();
+
+		cache.paint(g, true, 64, painter);
+		cache.paint(g, true, 64, painter);
+
+		assertThat(paintedTileCount.get()).isEqualTo(2);
+		assertThat(cache.getTileCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void keepTilesWithinMemoryBudget() {
+		final Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		for (int column = 0; column < 20; column++) {
+			g.setClip(column * MapTileCache.TILE_SIZE, 0, 1, 1);
+			cache.paint(g, true, 4, painter);
+		}
+
+		assertThat(cache.getTileCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void notPaintWithRotatedGraphics() {
+		final Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		g.setClip(0, 0, 1, 1);
+		g.rotate(1);
+
+		assertThat(MapTileCache.canPaint(g)).isFalse();
+	}
+}
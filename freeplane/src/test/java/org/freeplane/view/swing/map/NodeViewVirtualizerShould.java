@@ -0,0 +1,123 @@
+package org.freeplane.view.swing.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapFake;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeViewVirtualizerShould {
+	private final MapFake mapFake = new MapFake();
+	private final NodeModel distantNode = mapFake.addNode("distant");
+	private final NodeModel distantChild = new NodeModel("distant child", mapFake.getRoot().getMap());
+	private Controller backupController;
+	private MapView map;
+	private NodeView rootView;
+	private NodeView distantView;
+	private NodeViewVirtualizer virtualizer;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation));
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+		map = mock(MapView.class);
+		rootView = mock(NodeView.class);
+		distantView = mock(NodeView.class);
+		distantNode.insert(distantChild);
+		when(map.virtualizesNodeViews()).thenReturn(true);
+		when(map.isShowing()).thenReturn(true);
+		when(map.isValid()).thenReturn(true);
+		when(map.getVisibleRect()).thenReturn(new Rectangle(0, 0, 100, 100));
+		when(map.getMap()).thenReturn(mapFake.getRoot().getMap());
+		when(map.getRoot()).thenReturn(rootView);
+		when(map.getNodeView(mapFake.getRoot())).thenReturn(rootView);
+		when(map.getNodeView(distantNode)).thenReturn(distantView);
+		when(rootView.getNode()).thenReturn(mapFake.getRoot());
+		when(rootView.getChildrenViews()).thenReturn(new LinkedList<>(Arrays.asList(distantView)));
+		when(distantView.getNode()).thenReturn(distantNode);
+		when(distantView.getChildrenViews()).thenReturn(new LinkedList<>());
+		when(distantView.getX()).thenReturn(10000);
+		when(distantView.getWidth()).thenReturn(10);
+		when(distantView.getHeight()).thenReturn(10);
+		when(distantView.isValid()).thenReturn(true);
+		when(distantView.getComponentCount()).thenReturn(2);
+		virtualizer = new NodeViewVirtualizer(map);
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private void update() throws Exception {
+		virtualizer.scheduleUpdate();
+		EventQueue.invokeAndWait(() -> {/**/});
+	}
+
+	@Test
+	public void removeChildViewsFarOutsideOfVisibleArea() throws Exception {
+		update();
+
+		verify(distantView).virtualizeChildViews();
+	}
+
+	@Test
+	public void keepChildViewsOfSelectedNodes() throws Exception {
+		when(distantView.isSelected()).thenReturn(true);
+
+		update();
+
+		verify(distantView, never()).virtualizeChildViews();
+	}
+
+	@Test
+	public void materializeRemovedChildViewsOfBranch() throws Exception {
+		update();
+
+		virtualizer.materializeBranch(rootView);
+
+		verify(distantView).materializeChildViews();
+	}
+
+	@Test
+	public void materializePathToNodeWithRemovedView() throws Exception {
+		final NodeView distantChildView = mock(NodeView.class);
+		when(map.getNodeView(distantChild)).thenReturn(null, distantChildView);
+		update();
+		when(distantView.hasVirtualizedChildViews()).thenReturn(true);
+
+		final NodeView materializedView = virtualizer.materializePathTo(distantChild);
+
+		verify(distantView).materializeChildViews();
+		assertThat(materializedView).isSameAs(distantChildView);
+	}
+
+	@Test
+	public void notMaterializeViewsBeforeAnyViewIsRemoved() throws Exception {
+		when(map.getNodeView(any())).thenReturn(null);
+
+		assertThat(virtualizer.materializePathTo(distantChild)).isNull();
+		virtualizer.materializeBranch(rootView);
+
+		verify(rootView, never()).materializeChildViews();
+	}
+}
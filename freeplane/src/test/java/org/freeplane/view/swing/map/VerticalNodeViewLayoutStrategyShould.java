@@ -0,0 +1,85 @@
+package org.freeplane.view.swing.map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Dimension;
+import java.awt.Point;
+
+import org.freeplane.api.ChildNodesAlignment;
+import org.freeplane.api.ChildNodesLayout;
+import org.freeplane.api.ChildrenSides;
+import org.freeplane.features.layout.LayoutController;
+import org.freeplane.features.map.MapFake;
+import org.freeplane.features.map.SummaryLevels;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerticalNodeViewLayoutStrategyShould {
+	private static final int CHILD_WIDTH = 50;
+	private static final int CHILD_HEIGHT = 30;
+	private static final int H_GAP = 10;
+	private static final int V_GAP = 5;
+
+	private Controller backupController;
+	private MapFake mapFake;
+
+	@Before
+	public void setup() {
+		mapFake = new MapFake();
+		Controller controllerMock = mock(Controller.class);
+		ModeController modeControllerMock = mock(ModeController.class);
+		LayoutController layoutControllerMock = mock(LayoutController.class);
+		backupController = Controller.getCurrentController();
+		Controller.setCurrentController(controllerMock);
+		when(controllerMock.getModeController()).thenReturn(modeControllerMock);
+		when(modeControllerMock.getExtension(LayoutController.class)).thenReturn(layoutControllerMock);
+		when(layoutControllerMock.getEffectiveChildNodesLayout(any())).thenReturn(ChildNodesLayout.AUTO);
+		when(layoutControllerMock.sidesOf(any(), any())).thenReturn(LayoutController.RIGHT_SIDE);
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private static NodeViewLayoutInput.Child child() {
+		return new NodeViewLayoutInput.Child(false, false, false, false, true, true, false,
+		    CHILD_WIDTH, CHILD_HEIGHT, 0, 0, 0, CHILD_WIDTH, CHILD_HEIGHT, 0, 0, 0, 0, H_GAP, 0);
+	}
+
+	private NodeViewLayoutInput input(NodeViewLayoutInput.Child... children) {
+		for (int i = 0; i < children.length; i++)
+			mapFake.addNode("child " + i);
+		final SummaryLevels viewLevels = new SummaryLevels(mapFake.getRoot(), mapFake.getRoot());
+		return new NodeViewLayoutInput(children, viewLevels, false, false, false, true,
+		    ChildNodesAlignment.NOT_SET, ChildrenSides.BOTTOM_OR_RIGHT, new Dimension(100, 20),
+		    0, 0, 3, V_GAP, 0, 3);
+	}
+
+	@Test
+	public void placeChildrenBelowEachOtherRightOfContent() throws Exception {
+		final NodeViewLayoutResult result = new VerticalNodeViewLayoutStrategy(input(child(), child())).calculateLayoutData();
+
+		final Point first = result.childLocations[0];
+		final Point second = result.childLocations[1];
+		assertThat(first.x).isEqualTo(100 + H_GAP);
+		assertThat(second.x).isEqualTo(first.x);
+		assertThat(second.y - first.y).isEqualTo(CHILD_HEIGHT + V_GAP);
+		assertThat(result.width).isEqualTo(100 + H_GAP + CHILD_WIDTH);
+		assertThat(result.height).isEqualTo(2 * CHILD_HEIGHT + V_GAP);
+	}
+
+	@Test
+	public void centerContentOnChildren() throws Exception {
+		final NodeViewLayoutResult result = new VerticalNodeViewLayoutStrategy(input(child(), child())).calculateLayoutData();
+
+		final int childrenCenter = result.childLocations[0].y + (2 * CHILD_HEIGHT + V_GAP) / 2;
+		assertThat(result.contentBounds.y + result.contentBounds.height / 2).isEqualTo(childrenCenter);
+	}
+}
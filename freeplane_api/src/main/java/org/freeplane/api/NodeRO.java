@@ -3,6 +3,7 @@ package org.freeplane.api;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 
@@ -482,6 +483,25 @@ public interface NodeRO {
 	 * @since 1.2 */
 	List<? extends Node> findAllDepthFirst();
 
+	/** Lazily searches the branch that starts with this node in breadth-first order for nodes for which
+	 * <code>condition.check(node)</code> returns true. Nodes are only visited as far as the stream is consumed,
+	 * so that searching for the first match does not check the whole branch:
+	 * <pre>
+	 * def kitchen = node.findStream{ it.text == 'kitchen' }.findFirst().orElse(null)
+	 * </pre>
+	 * @since 1.12.8 */
+	Stream<? extends Node> findStream(final NodeCondition condition);
+
+	/** Returns the nodes of the branch that starts with this node in breadth-first order like {@link #findAll()},
+	 * but as a lazily evaluated stream which creates nodes only for the consumed elements.
+	 * @since 1.12.8 */
+	Stream<? extends Node> findAllStream();
+
+	/** Returns the nodes of the branch that starts with this node in depth-first order like {@link #findAllDepthFirst()},
+	 * but as a lazily evaluated stream which creates nodes only for the consumed elements.
+	 * @since 1.12.8 */
+	Stream<? extends Node> findAllDepthFirstStream();
+
 	Date getLastModifiedAt();
 
 	Date getCreatedAt();
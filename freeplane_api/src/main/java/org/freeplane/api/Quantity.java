@@ -6,7 +6,8 @@ import java.text.ParseException;
 import java.util.Locale;
 
 public class Quantity <U extends Enum<U> & PhysicalUnit >{
-    private final static DecimalFormat  ROUNDING_FORMAT = new DecimalFormat("###.#####", DecimalFormatSymbols.getInstance(Locale.US));
+    private final static ThreadLocal<DecimalFormat>  ROUNDING_FORMAT = ThreadLocal.withInitial(
+            () -> new DecimalFormat("###.#####", DecimalFormatSymbols.getInstance(Locale.US)));
 	
 	public static <U extends Enum<U> & PhysicalUnit>  Quantity<U> fromString(String valueString, U defaultUnit) {
 		if(valueString == null)
@@ -25,7 +26,7 @@ public class Quantity <U extends Enum<U> & PhysicalUnit >{
 			unit = defaultUnit;
 		}
 		try {
-            double doubleValue = ROUNDING_FORMAT.parse(numberString).doubleValue();
+            double doubleValue = ROUNDING_FORMAT.get().parse(numberString).doubleValue();
             return new Quantity<U>(doubleValue, unit);
         } catch (ParseException e) {
             throw new NumberFormatException("Invalid number " + numberString);
@@ -50,7 +51,7 @@ public class Quantity <U extends Enum<U> & PhysicalUnit >{
 
 	@Override
 	public String toString() {
-	    String rounded = ROUNDING_FORMAT.format(value);
+	    String rounded = ROUNDING_FORMAT.get().format(value);
 		return rounded + " " + unit;
 	}
 
@@ -0,0 +1,59 @@
+package org.freeplane.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.freeplane.core.util.Compat;
+import org.freeplane.features.filter.FilterController;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.mode.mindmapmode.MModeController;
+import org.freeplane.main.application.CommandLineParser;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.n3.nanoxml.XMLException;
+
+/**
+ * Starts a headless mind map mode controller once per benchmark JVM.
+ */
+public class BenchmarkEnvironment {
+	private static ModeController modeController;
+
+	public static synchronized ModeController modeController() {
+		if (modeController == null) {
+			Compat.setIsApplet(false);
+			if (null == System.getProperty("org.freeplane.core.dir.lib", null)) {
+				System.setProperty("org.freeplane.core.dir.lib", "/lib/");
+			}
+			final FreeplaneHeadlessStarter starter = new FreeplaneHeadlessStarter(CommandLineParser.parse());
+			final Controller controller = starter.createController();
+			starter.createModeControllers(controller);
+			FilterController.getController(controller).loadDefaultConditions();
+			starter.createFrame();
+			modeController = controller.getModeController(MModeController.MODENAME);
+		}
+		return modeController;
+	}
+
+	public static MapModel newMap() {
+		final MapController mapController = modeController().getMapController();
+		return new MMapModel(mapController.duplicator());
+	}
+
+	public static MapModel loadMap(File file) throws IOException, XMLException {
+		final MapModel map = newMap();
+		try (Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)),
+		    StandardCharsets.UTF_8)) {
+			modeController().getMapController().getMapReader().createNodeTreeFromXml(map, reader, Mode.FILE);
+		}
+		return map;
+	}
+}
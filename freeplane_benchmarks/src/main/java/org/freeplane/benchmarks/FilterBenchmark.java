@@ -0,0 +1,46 @@
+package org.freeplane.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.freeplane.features.filter.Filter;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.text.NodeContainsCondition;
+import org.freeplane.features.text.TextController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class FilterBenchmark {
+	@Param({"1000", "100000", "1000000"})
+	public int nodeCount;
+
+	private MapModel map;
+
+	@Setup
+	public void setup() throws Exception {
+		map = BenchmarkEnvironment.loadMap(MapGenerator.mapFile(nodeCount));
+	}
+
+	@Benchmark
+	public Filter calculateFilterResults() {
+		final NodeContainsCondition condition = new NodeContainsCondition(TextController.FILTER_NODE,
+		    MapGenerator.SEARCHED_WORD, false, false, false, false);
+		final Filter filter = new Filter(condition, false, true, false, false, null);
+		filter.calculateFilterResults(map);
+		return filter;
+	}
+}
@@ -0,0 +1,83 @@
+package org.freeplane.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.freeplane.core.util.FreeplaneVersion;
+
+/**
+ * Writes deterministic .mm files of a given size.
+ *
+ * Node i is a child of node (i - 1) / BRANCHING_FACTOR, so maps of equal size
+ * always have the same shape and content and results stay comparable across releases.
+ */
+public class MapGenerator {
+	public static final int BRANCHING_FACTOR = 8;
+	public static final String SEARCHED_WORD = "lorem";
+	private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta",
+	        "iota", "kappa", SEARCHED_WORD, "ipsum", "dolor", "sit", "amet"};
+	private static final Map<Integer, File> generatedMaps = new HashMap<>();
+
+	public static synchronized File mapFile(int nodeCount) throws IOException {
+		File file = generatedMaps.get(nodeCount);
+		if (file == null || !file.exists()) {
+			file = File.createTempFile("benchmark-" + nodeCount + "-", ".mm");
+			file.deleteOnExit();
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+			    StandardCharsets.UTF_8))) {
+				new MapGenerator(writer, nodeCount).write();
+			}
+			generatedMaps.put(nodeCount, file);
+		}
+		return file;
+	}
+
+	private final Writer writer;
+	private final int nodeCount;
+
+	private MapGenerator(Writer writer, int nodeCount) {
+		this.writer = writer;
+		this.nodeCount = nodeCount;
+	}
+
+	private void write() throws IOException {
+		writer.write("<map version=\"");
+		writer.write(FreeplaneVersion.XML_VERSION);
+		writer.write("\">\n");
+		writeNode(0);
+		writer.write("</map>\n");
+	}
+
+	private void writeNode(int index) throws IOException {
+		writer.write("<node TEXT=\"");
+		writer.write(text(index));
+		writer.write("\" ID=\"ID_");
+		writer.write(Integer.toString(index));
+		writer.write("\"");
+		if (index > 0 && index <= BRANCHING_FACTOR)
+			writer.write(index % 2 == 0 ? " POSITION=\"left\"" : " POSITION=\"right\"");
+		writer.write(">\n");
+		if (index % 10 == 3) {
+			writer.write("<attribute NAME=\"index\" VALUE=\"");
+			writer.write(Integer.toString(index));
+			writer.write("\"/>\n");
+		}
+		if (index % 17 == 5)
+			writer.write("<icon BUILTIN=\"yes\"/>\n");
+		final long firstChild = (long) index * BRANCHING_FACTOR + 1;
+		for (long child = firstChild; child < firstChild + BRANCHING_FACTOR && child < nodeCount; child++)
+			writeNode((int) child);
+		writer.write("</node>\n");
+	}
+
+	private static String text(int index) {
+		return WORDS[index % WORDS.length] + ' ' + WORDS[(index / WORDS.length) % WORDS.length] + ' ' + index;
+	}
+}
@@ -0,0 +1,41 @@
+package org.freeplane.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.freeplane.features.map.MapModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class MapLoadBenchmark {
+	@Param({"1000", "100000", "1000000"})
+	public int nodeCount;
+
+	private File mapFile;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkEnvironment.modeController();
+		mapFile = MapGenerator.mapFile(nodeCount);
+	}
+
+	@Benchmark
+	public MapModel createNodeTreeFromXml() throws Exception {
+		return BenchmarkEnvironment.loadMap(mapFile);
+	}
+}
@@ -0,0 +1,70 @@
+package org.freeplane.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapWriter;
+import org.freeplane.features.map.clipboard.MapClipboardController.CopiedNodeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class MapSaveBenchmark {
+	/** Counts written characters, so that only serialization and no I/O is measured. */
+	private static class CountingWriter extends Writer {
+		long count;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@Param({"1000", "100000", "1000000"})
+	public int nodeCount;
+
+	private MapModel map;
+	private MapWriter mapWriter;
+
+	@Setup
+	public void setup() throws Exception {
+		map = BenchmarkEnvironment.loadMap(MapGenerator.mapFile(nodeCount));
+		mapWriter = BenchmarkEnvironment.modeController().getMapController().getMapWriter();
+	}
+
+	@Benchmark
+	public long writeMapAsXml() throws IOException {
+		final CountingWriter writer = new CountingWriter();
+		mapWriter.writeMapAsXml(map, writer, MapWriter.Mode.FILE, CopiedNodeSet.ALL_NODES, false);
+		return writer.count;
+	}
+}
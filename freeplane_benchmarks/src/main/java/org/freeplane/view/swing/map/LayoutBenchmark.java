@@ -0,0 +1,63 @@
+package org.freeplane.view.swing.map;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.freeplane.benchmarks.BenchmarkEnvironment;
+import org.freeplane.benchmarks.MapGenerator;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.mode.ModeController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lives in the view package because the layout strategy is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx12g"})
+public class LayoutBenchmark {
+	@Param({"1000", "100000", "1000000"})
+	public int nodeCount;
+
+	private MapView mapView;
+
+	@Setup
+	public void setup() throws Exception {
+		final MapModel map = BenchmarkEnvironment.loadMap(MapGenerator.mapFile(nodeCount));
+		final ModeController modeController = BenchmarkEnvironment.modeController();
+		SwingUtilities.invokeAndWait(() -> {
+			mapView = new MapView(map, modeController);
+			// there is no frame in headless mode, node views are only completed when the map view is displayable
+			mapView.addNotify();
+		});
+	}
+
+	@Benchmark
+	public NodeView calculateLayoutData() throws InvocationTargetException, InterruptedException {
+		SwingUtilities.invokeAndWait(() -> calculateLayoutData(mapView.getRoot()));
+		return mapView.getRoot();
+	}
+
+	private void calculateLayoutData(NodeView view) {
+		for (NodeView child : view.getChildrenViews())
+			calculateLayoutData(child);
+		if (view.getContent() != null)
+			new VerticalNodeViewLayoutStrategy(NodeViewLayoutInput.of(view, mapView.allowsCompactLayout()))
+			    .calculateLayoutData().applyTo(view);
+	}
+}
@@ -15,10 +15,9 @@ import org.freeplane.features.map.NodeChangeEvent;
 import org.freeplane.features.map.NodeDeletionEvent;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.map.NodeMoveEvent;
-import org.freeplane.features.mode.Controller;
-import org.freeplane.features.mode.ModeController;
 import org.freeplane.features.url.UrlManager;
 import org.freeplane.plugin.script.FormulaCache;
+import org.freeplane.plugin.script.FormulaChangeBatch;
 import org.freeplane.plugin.script.FormulaDependencies;
 import org.freeplane.plugin.script.FormulaUtils;
 
@@ -87,24 +86,20 @@ public class FormulaUpdateChangeListener implements INodeChangeListener, IMapCha
 		refresh(dependencies);
 	}
 
-	private void refresh(final List<NodeModel> dependencies) {
-		final ModeController modeController = Controller.getCurrentModeController();
-		for (NodeModel dependentNode : dependencies) {
-			modeController.getMapController().delayedNodeRefresh(dependentNode, FormulaCache.class,
-			    null, null);
-		}
-	}
-
 	/** in case of insert we look for dependencies of the parent. But the parent is not actually changed in this case.
 	 * So there won't be any updates on the parent, even if it has formula that needs an update due to the
 	 * changed children count. */
 	private void reevaluateNodeDependencies(boolean includeChanged, Collection<NodeModel> nodes) {
-		final List<NodeModel> dependencies = FormulaDependencies.manageChangeAndReturnDependencies(includeChanged, nodes);
-		refresh(dependencies);
+		FormulaChangeBatch.add(includeChanged, nodes);
+	}
+
+	private void refresh(final List<NodeModel> dependencies) {
+		FormulaChangeBatch.refresh(dependencies);
 	}
 
 	@Override
 	public void onRemove(MapModel map) {
+		FormulaChangeBatch.apply();
 		final List<NodeModel> dependencies = FormulaDependencies.removeAndReturnMapDependencies(map);
 		refresh(dependencies);
 	}
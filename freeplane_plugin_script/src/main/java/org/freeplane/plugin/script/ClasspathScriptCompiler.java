@@ -61,6 +61,7 @@ class ClasspathScriptCompiler {
 	 void compileScriptsOnPath(List<String> pathElements) {
 		compileLibraryScripts(pathElements);
         new CompiledScriptCleaner().removeOutdatedCompiledScripts(compileOnlyChangedScriptFiles);
+        CompiledStringScripts.removeUnused(compileOnlyChangedScriptFiles);
         ResourceController.getResourceController().setProperty(LAST_JAVA_COMPILER_VERSION, Compat.JAVA_VERSION);
     }
 
@@ -23,7 +23,7 @@ class CompiledScriptCleaner {
         return lastModificationTime;
     }
 
-    private long calculateLastDependencyModificationTime(File f) {
+    long calculateLastDependencyModificationTime(File f) {
         final long lastModificationTime;
         if(f.isDirectory()) {
             try {
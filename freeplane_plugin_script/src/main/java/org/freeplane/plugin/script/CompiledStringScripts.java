@@ -0,0 +1,137 @@
+package org.freeplane.plugin.script;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.io.FileUtils;
+import org.freeplane.core.util.FreeplaneVersion;
+import org.freeplane.core.util.LogUtils;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+
+/**
+ * Keeps classes compiled from script texts like formulas in the user directory, so that they are not compiled again
+ * after a restart or for other maps.
+ *
+ * Each script is stored in a directory named by a hash of its text, the Groovy, Java and Freeplane versions
+ * and the script class path including the modification times of its elements.
+ * Directories which were not used for a month are removed on startup.
+ */
+class CompiledStringScripts {
+	private static final long UNUSED_CACHE_LIFETIME = TimeUnit.DAYS.toMillis(30);
+	private static final String CLASSES_DIRECTORY = "classes";
+	private static String environmentKey;
+
+	static String classNameOf(String scriptText) {
+		return "Script_" + hash(environmentKey() + '\n' + scriptText);
+	}
+
+	/** Loads the script class from the cache or compiles it using the given function and stores the result. */
+	static Class<?> loadOrCompile(String className, GroovyClassLoader loader, Function<File, Class<?>> compiler) {
+		final File cache = new File(ScriptResources.getCompiledStringScriptsDir(), className);
+		final File classes = new File(cache, CLASSES_DIRECTORY);
+		if (classes.isDirectory()) {
+			try {
+				loader.addURL(ScriptClassLoader.pathToUrl(classes));
+				final Class<?> cachedClass = loader.loadClass(className);
+				cache.setLastModified(System.currentTimeMillis());
+				return cachedClass;
+			}
+			catch (ClassNotFoundException | LinkageError e) {
+				LogUtils.warn("can not load compiled script " + cache, e);
+				FileUtils.deleteQuietly(cache);
+			}
+		}
+		File newCache = null;
+		try {
+			ScriptResources.getCompiledStringScriptsDir().mkdirs();
+			newCache = Files.createTempDirectory(ScriptResources.getCompiledStringScriptsDir().toPath(), className).toFile();
+		}
+		catch (IOException e) {
+			LogUtils.warn(e);
+			return compiler.apply(null);
+		}
+		try {
+			final File newClasses = new File(newCache, CLASSES_DIRECTORY);
+			newClasses.mkdir();
+			final Class<?> compiledClass = compiler.apply(newClasses);
+			replace(cache, newCache);
+			return compiledClass;
+		}
+		finally {
+			FileUtils.deleteQuietly(newCache);
+		}
+	}
+
+	private static void replace(File cache, File newCache) {
+		try {
+			try {
+				Files.move(newCache.toPath(), cache.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(newCache.toPath(), cache.toPath());
+			}
+		}
+		catch (IOException e) {
+			// the cache is stored by another thread compiling the same script
+			if (!cache.isDirectory())
+				LogUtils.warn(e);
+		}
+	}
+
+	static void removeUnused(boolean keepCompiledScripts) {
+		final File compiledScriptsDir = ScriptResources.getCompiledStringScriptsDir();
+		if (!keepCompiledScripts) {
+			FileUtils.deleteQuietly(compiledScriptsDir);
+			return;
+		}
+		final File[] caches = compiledScriptsDir.listFiles();
+		if (caches == null)
+			return;
+		final long oldestUseTime = System.currentTimeMillis() - UNUSED_CACHE_LIFETIME;
+		for (File cache : caches) {
+			if (cache.lastModified() < oldestUseTime)
+				FileUtils.deleteQuietly(cache);
+		}
+	}
+
+	private static synchronized String environmentKey() {
+		if (environmentKey == null) {
+			final StringBuilder key = new StringBuilder();
+			key.append(GroovySystem.getVersion()).append('\n')
+			    .append(System.getProperty("java.specification.version")).append('\n')
+			    .append(FreeplaneVersion.getVersion()).append('\n');
+			final List<String> classpath = ScriptResources.getClasspath();
+			if (classpath != null) {
+				final CompiledScriptCleaner cleaner = new CompiledScriptCleaner();
+				for (String path : classpath)
+					key.append(path).append(' ').append(cleaner.calculateLastDependencyModificationTime(new File(path))).append('\n');
+			}
+			environmentKey = key.toString();
+		}
+		return environmentKey;
+	}
+
+	private static String hash(String text) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder hash = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return hash.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
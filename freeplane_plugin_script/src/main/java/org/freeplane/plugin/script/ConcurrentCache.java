@@ -1,49 +1,137 @@
 package org.freeplane.plugin.script;
 
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
+/**
+ * Least recently used cache which can be read by many threads without locking.
+ *
+ * Each entry records the time of its last access. When the cache grows beyond its maximal size by some slack
+ * one of the writing threads removes the least recently used entries, so that eviction is paid for by many insertions.
+ * Values are computed only once for each key, concurrent callers wait for the first computation.
+ */
 public class ConcurrentCache <K, V> {
+	private static class CacheEntry<V> {
+		final FutureTask<V> value;
+		volatile long lastAccess;
 
-	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+		CacheEntry(Supplier<? extends V> supplier) {
+			this.value = new FutureTask<>(supplier::get);
+		}
+	}
 
-    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-    private final ReentrantReadWriteLock.ReadLock readLock = rwl.readLock();
-    private final ReentrantReadWriteLock.WriteLock writeLock = rwl.writeLock();
+	private final ConcurrentHashMap<K, CacheEntry<V>> cache = new ConcurrentHashMap<>();
+	private final IntSupplier maxSize;
+	private final AtomicLong clock = new AtomicLong();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
 
-	private final LinkedHashMap<K, V> cache ;
-	@SuppressWarnings("serial")
 	public ConcurrentCache(IntSupplier maxSize) {
 		super();
-		cache = new  LinkedHashMap<K, V>(maxSize.getAsInt() + 1, DEFAULT_LOAD_FACTOR, true){
-			@Override
-			protected boolean removeEldestEntry(Entry<K, V> eldest) {
-				return size() > maxSize.getAsInt();
-			}
-		};
+		this.maxSize = maxSize;
 	}
 
 	public V computeIfAbsent(K key, Supplier<? extends V> supplier) {
-        readLock.lock();
-        try {
-            V value = cache.get(key);
-            if (null != value) {
-                return value;
-            }
-        } finally {
-            readLock.unlock();
-        }
-        V value = supplier.get();
-        writeLock.lock();
-        try {
-            V oldValue = cache.putIfAbsent(key, value);
-            return null != oldValue ? oldValue : value;
-        } finally {
-        	writeLock.unlock();
-        }
+		final int maximumSize = maxSize.getAsInt();
+		if (maximumSize <= 0) {
+			missCount.increment();
+			return supplier.get();
+		}
+		CacheEntry<V> entry = cache.get(key);
+		if (entry != null) {
+			hitCount.increment();
+			entry.lastAccess = clock.incrementAndGet();
+		}
+		else {
+			final CacheEntry<V> newEntry = new CacheEntry<>(supplier);
+			newEntry.lastAccess = clock.incrementAndGet();
+			entry = cache.putIfAbsent(key, newEntry);
+			if (entry == null) {
+				missCount.increment();
+				entry = newEntry;
+				entry.value.run();
+				evictIfNecessary(maximumSize);
+			}
+			else {
+				hitCount.increment();
+				entry.lastAccess = newEntry.lastAccess;
+			}
+		}
+		try {
+			return entry.value.get();
+		}
+		catch (ExecutionException e) {
+			cache.remove(key, entry);
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return supplier.get();
+		}
+	}
+
+	private void evictIfNecessary(int maximumSize) {
+		if (cache.size() <= maximumSize + evictionSlack(maximumSize) || !evictionLock.tryLock())
+			return;
+		try {
+			final int evictedEntryCount = cache.size() - maximumSize;
+			if (evictedEntryCount <= 0)
+				return;
+			final List<Map.Entry<K, CacheEntry<V>>> entries = new ArrayList<>(cache.entrySet());
+			entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+			for (int i = 0; i < evictedEntryCount && i < entries.size(); i++) {
+				final Map.Entry<K, CacheEntry<V>> entry = entries.get(i);
+				if (cache.remove(entry.getKey(), entry.getValue()))
+					evictionCount.increment();
+			}
+		}
+		finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private static int evictionSlack(int maximumSize) {
+		return maximumSize / 8;
 	}
 
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public double getHitRatio() {
+		final long hits = getHitCount();
+		final long requests = hits + getMissCount();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConcurrentCache [size=%d, hits=%d, misses=%d, evictions=%d, hit ratio=%.2f]",
+		    cache.size(), getHitCount(), getMissCount(), getEvictionCount(), getHitRatio());
+	}
 }
@@ -0,0 +1,346 @@
+package org.freeplane.plugin.script;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.plugin.script.dependencies.EvaluationDependencies;
+
+/**
+ * Evaluates all formulas of a map in the order given by the dependencies recorded during their previous evaluation.
+ *
+ * The formula nodes are arranged in levels, every node is placed after all formula nodes it accessed,
+ * so that the values it uses are already cached when it is evaluated.
+ * The formulas of one level do not depend on each other, so they are evaluated concurrently on a pool of worker threads
+ * while the calling thread waits.
+ * Nodes using methods which may access any node, nodes in cycles and all nodes of a map without recorded dependencies
+ * are evaluated last on the calling thread, after their scripts were compiled concurrently.
+ *
+ * The order is kept in the map until a node changes or a new dependency is recorded.
+ */
+class DependencyOrderedFormulaEvaluator {
+	private static final int NODES_PER_TASK = 16;
+	private static ExecutorService workerPool;
+
+	/** Formula nodes of a map in evaluation order. */
+	static class EvaluationOrder implements IExtension {
+		final Map<NodeModel, List<String>> formulas;
+		final List<List<NodeModel>> levels;
+		final List<NodeModel> unorderedNodes;
+		private final EvaluationDependencies dependencies;
+		private final long dependencyModificationCount;
+		private final long changeCount;
+
+		private EvaluationOrder(Map<NodeModel, List<String>> formulas, List<List<NodeModel>> levels,
+		                        List<NodeModel> unorderedNodes, EvaluationDependencies dependencies,
+		                        long dependencyModificationCount, long changeCount) {
+			this.formulas = formulas;
+			this.levels = levels;
+			this.unorderedNodes = unorderedNodes;
+			this.dependencies = dependencies;
+			this.dependencyModificationCount = dependencyModificationCount;
+			this.changeCount = changeCount;
+		}
+
+		private boolean isValid(EvaluationDependencies dependencies, long changeCount) {
+			return this.dependencies == dependencies && this.changeCount == changeCount
+			        && (dependencies == null || dependencyModificationCount == dependencies.getModificationCount());
+		}
+	}
+
+	private final MapModel map;
+	private final EvaluationDependencies dependencies;
+	private final BiConsumer<NodeModel, RuntimeException> errorHandler;
+
+	DependencyOrderedFormulaEvaluator(MapModel map, EvaluationDependencies dependencies) {
+		this(map, dependencies, (node, e) -> {/**/});
+	}
+
+	DependencyOrderedFormulaEvaluator(MapModel map, EvaluationDependencies dependencies,
+	                                  BiConsumer<NodeModel, RuntimeException> errorHandler) {
+		this.map = map;
+		this.dependencies = dependencies;
+		this.errorHandler = errorHandler;
+	}
+
+	void evaluate() {
+		FormulaChangeBatch.apply();
+		final EvaluationOrder order = evaluationOrder();
+		// node ids and per map extensions are created here because the worker threads only read them
+		for (NodeModel node : order.formulas.keySet())
+			node.createID();
+		if (FormulaCache.ENABLE_CACHING)
+			FormulaCache.of(map);
+		EvaluationDependencies.of(map);
+		final ExecutorService pool = workerPool();
+		for (List<NodeModel> level : order.levels) {
+			if (pool != null && level.size() > 1)
+				evaluateConcurrently(pool, order.formulas, level);
+			else
+				evaluateCompiledConcurrently(pool, order.formulas, level);
+		}
+		evaluateCompiledConcurrently(pool, order.formulas, order.unorderedNodes);
+	}
+
+	/** Returns the evaluation order kept in the map or computes a new one if it is outdated. */
+	EvaluationOrder evaluationOrder() {
+		final long changeCount = FormulaChangeBatch.getChangeCount();
+		final EvaluationOrder keptOrder = map.getExtension(EvaluationOrder.class);
+		if (keptOrder != null && keptOrder.isValid(dependencies, changeCount))
+			return keptOrder;
+		final long dependencyModificationCount = dependencies != null ? dependencies.getModificationCount() : 0;
+		final Map<NodeModel, List<String>> formulas = collectFormulas(map.getRootNode());
+		final List<List<NodeModel>> levels = new ArrayList<>();
+		final List<NodeModel> unorderedNodes = new ArrayList<>();
+		if (dependencies == null)
+			unorderedNodes.addAll(formulas.keySet());
+		else
+			arrangeInLevels(formulas, levels, unorderedNodes);
+		final EvaluationOrder order = new EvaluationOrder(formulas, levels, unorderedNodes, dependencies,
+		    dependencyModificationCount, changeCount);
+		map.putExtension(EvaluationOrder.class, order);
+		return order;
+	}
+
+	private void evaluate(NodeModel node, String formula) {
+		try {
+			FormulaUtils.evalIfScript(node, formula);
+		}
+		catch (RuntimeException e) {
+			errorHandler.accept(node, e);
+		}
+	}
+
+	private static Map<NodeModel, List<String>> collectFormulas(NodeModel root) {
+		final Map<NodeModel, List<String>> formulas = new LinkedHashMap<>();
+		final ArrayDeque<NodeModel> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			final NodeModel next = stack.pop();
+			addFormula(formulas, next, next.getUserObject());
+			final NodeAttributeTableModel attributeTableModel = next.getExtension(NodeAttributeTableModel.class);
+			if (attributeTableModel != null)
+				attributeTableModel.getAttributes().forEach(a -> addFormula(formulas, next, a.getValue()));
+			final List<NodeModel> children = next.getChildren();
+			for (int i = children.size() - 1; i >= 0; i--)
+				stack.push(children.get(i));
+		}
+		return formulas;
+	}
+
+	private static void addFormula(Map<NodeModel, List<String>> formulas, NodeModel node, Object value) {
+		if (value instanceof String && FormulaUtils.textContainsFormula((String) value))
+			formulas.computeIfAbsent(node, x -> new ArrayList<>(1)).add((String) value);
+	}
+
+	private void arrangeInLevels(Map<NodeModel, List<String>> formulas, List<List<NodeModel>> levels,
+	                             List<NodeModel> unorderedNodes) {
+		final Map<NodeModel, Set<NodeModel>> dependents = new HashMap<>();
+		final Map<NodeModel, Integer> precedentCounts = new HashMap<>();
+		dependencies.forEachNodeAccess((accessingNode, accessedNode) -> addDependency(formulas, dependents,
+		    precedentCounts, accessingNode, accessedNode));
+		dependencies.forEachBranchAccess((accessingNode, branchNode) -> {
+			if (formulas.containsKey(accessingNode) && branchNode.getMap() == map)
+				for (NodeModel accessedNode : formulaNodesInBranch(formulas, branchNode))
+					addDependency(formulas, dependents, precedentCounts, accessingNode, accessedNode);
+		});
+		final Map<NodeModel, Integer> levelByNode = new HashMap<>();
+		final ArrayDeque<NodeModel> readyNodes = new ArrayDeque<>();
+		for (NodeModel node : formulas.keySet()) {
+			if (!precedentCounts.containsKey(node)) {
+				levelByNode.put(node, 0);
+				readyNodes.add(node);
+			}
+		}
+		while (!readyNodes.isEmpty()) {
+			final NodeModel node = readyNodes.poll();
+			final int dependentLevel = levelByNode.get(node) + 1;
+			for (NodeModel dependent : dependents.getOrDefault(node, Collections.emptySet())) {
+				levelByNode.merge(dependent, dependentLevel, Math::max);
+				if (precedentCounts.merge(dependent, -1, Integer::sum) == 0)
+					readyNodes.add(dependent);
+			}
+		}
+		precedentCounts.forEach((node, count) -> {
+			if (count > 0)
+				levelByNode.remove(node);
+		});
+		for (NodeModel node : dependencies.getNodesAccessingAll())
+			levelByNode.remove(node);
+		final List<NodeModel> orderedNodes = new ArrayList<>(formulas.size());
+		for (NodeModel node : formulas.keySet()) {
+			if (levelByNode.containsKey(node))
+				orderedNodes.add(node);
+			else
+				unorderedNodes.add(node);
+		}
+		orderedNodes.sort(Comparator.comparingInt(levelByNode::get));
+		for (NodeModel node : orderedNodes) {
+			final int level = levelByNode.get(node);
+			if (level == levels.size())
+				levels.add(new ArrayList<>());
+			levels.get(level).add(node);
+		}
+	}
+
+	private static void addDependency(Map<NodeModel, List<String>> formulas, Map<NodeModel, Set<NodeModel>> dependents,
+	                                  Map<NodeModel, Integer> precedentCounts, NodeModel accessingNode, NodeModel accessedNode) {
+		if (accessingNode != accessedNode && formulas.containsKey(accessingNode) && formulas.containsKey(accessedNode)
+		        && dependents.computeIfAbsent(accessedNode, x -> new LinkedHashSet<>()).add(accessingNode))
+			precedentCounts.merge(accessingNode, 1, Integer::sum);
+	}
+
+	private static List<NodeModel> formulaNodesInBranch(Map<NodeModel, List<String>> formulas, NodeModel branchNode) {
+		final List<NodeModel> nodes = new ArrayList<>();
+		final ArrayDeque<NodeModel> stack = new ArrayDeque<>(branchNode.getChildren());
+		while (!stack.isEmpty()) {
+			final NodeModel node = stack.pop();
+			if (formulas.containsKey(node))
+				nodes.add(node);
+			stack.addAll(node.getChildren());
+		}
+		return nodes;
+	}
+
+	/** Evaluates the formulas of independent nodes on the worker threads, the errors are reported on the calling thread. */
+	private void evaluateConcurrently(ExecutorService pool, Map<NodeModel, List<String>> formulas, List<NodeModel> nodes) {
+		final List<Callable<List<Runnable>>> tasks = new ArrayList<>();
+		for (int start = 0; start < nodes.size(); start += NODES_PER_TASK) {
+			final List<NodeModel> taskNodes = nodes.subList(start, Math.min(nodes.size(), start + NODES_PER_TASK));
+			tasks.add(() -> {
+				final List<Runnable> errorReports = new ArrayList<>(0);
+				for (NodeModel node : taskNodes) {
+					for (String formula : formulas.get(node)) {
+						try {
+							FormulaUtils.evalIfScript(node, formula);
+						}
+						catch (RuntimeException e) {
+							errorReports.add(() -> errorHandler.accept(node, e));
+						}
+					}
+				}
+				return errorReports;
+			});
+		}
+		for (Future<List<Runnable>> result : invokeAll(pool, tasks)) {
+			try {
+				result.get().forEach(Runnable::run);
+			}
+			catch (ExecutionException e) {
+				rethrowIfError(e.getCause());
+				LogUtils.severe(e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/** Compiles the scripts on the worker threads and evaluates the formulas on the calling thread. */
+	private void evaluateCompiledConcurrently(ExecutorService pool, Map<NodeModel, List<String>> formulas, List<NodeModel> nodes) {
+		final int chunkSize = Math.max(1, ScriptingEngine.getCompiledScriptCacheSize() / 2);
+		for (int start = 0; start < nodes.size(); start += chunkSize) {
+			final List<NodeModel> chunk = nodes.subList(start, Math.min(nodes.size(), start + chunkSize));
+			if (pool != null)
+				compileConcurrently(pool, formulas, chunk);
+			for (NodeModel node : chunk) {
+				for (String formula : formulas.get(node))
+					evaluate(node, formula);
+			}
+		}
+	}
+
+	private void compileConcurrently(ExecutorService pool, Map<NodeModel, List<String>> formulas, List<NodeModel> nodes) {
+		final FormulaCache formulaCache = FormulaCache.ENABLE_CACHING ? FormulaCache.of(map) : null;
+		final Set<String> scripts = new HashSet<>();
+		for (NodeModel node : nodes) {
+			for (String formula : formulas.get(node)) {
+				final String script = FormulaUtils.scriptOf(formula);
+				if (formulaCache == null || !formulaCache.containsResult(node, script))
+					scripts.add(script);
+			}
+		}
+		if (scripts.size() < 2)
+			return;
+		final ScriptingPermissions permissions = ScriptingPermissions.getFormulaPermissions();
+		final List<Callable<Void>> compilations = new ArrayList<>(scripts.size());
+		for (String script : scripts) {
+			compilations.add(() -> {
+				try {
+					ScriptingEngine.compileGroovyScript(script, permissions);
+				}
+				catch (Exception e) {
+					throw e;
+				}
+				catch (Throwable e) {
+					rethrowIfError(e);
+					throw new RuntimeException(e);
+				}
+				return null;
+			});
+		}
+		for (Future<Void> compilation : invokeAll(pool, compilations)) {
+			try {
+				compilation.get();
+			}
+			catch (ExecutionException e) {
+				rethrowIfError(e.getCause());
+				LogUtils.warn(e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private static <T> List<Future<T>> invokeAll(ExecutorService pool, List<Callable<T>> tasks) {
+		try {
+			return pool.invokeAll(tasks);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Collections.emptyList();
+		}
+	}
+
+	private static void rethrowIfError(Throwable throwable) {
+		if (throwable instanceof Error)
+			throw (Error) throwable;
+	}
+
+	private static synchronized ExecutorService workerPool() {
+		final int processorCount = Runtime.getRuntime().availableProcessors();
+		if (processorCount < 2)
+			return null;
+		if (workerPool == null) {
+			workerPool = Executors.newFixedThreadPool(processorCount, r -> {
+				final Thread thread = Executors.defaultThreadFactory().newThread(r);
+				thread.setName("formula evaluator " + thread.getName());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return workerPool;
+	}
+}
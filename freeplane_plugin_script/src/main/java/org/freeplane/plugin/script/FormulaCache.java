@@ -1,24 +1,64 @@
 package org.freeplane.plugin.script;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.plugin.script.dependencies.RelatedElements;
 
+/**
+ * Caches formula results per node and script.
+ *
+ * The estimated memory used by the results and their related elements is limited by the preference
+ * "formula_cache_memory_limit" given in megabytes. When it is exceeded the results of the least recently used
+ * nodes are evicted and computed again on their next access.
+ * The related elements of evicted results are kept for the dependency search within the same limit,
+ * they are evicted before any result and recorded again when the formula is evaluated the next time.
+ * The cache is synchronized because formulas are evaluated on several threads at once,
+ * the formulas themselves are computed outside of the lock.
+ */
 public class FormulaCache implements IExtension{
-	private final HashMap<String, LinkedHashMap<String, CachedResult>> cache = new HashMap<String, LinkedHashMap<String, CachedResult>>();
-	// don't let caching use too much memory - but currently there are little means to cope with unavailable
-	// dependency data. It has to be tested but it should "only" lead to some missing updates.
+	private static final String MEMORY_LIMIT_PROPERTY = "formula_cache_memory_limit";
+	private static final int ENTRY_SIZE = 64;
+	private static final int REFERENCE_SIZE = 8;
+	private static final int OBJECT_SIZE = 16;
+	private static final int RELATED_ELEMENT_SIZE = 48;
+	private static final int EXCEPTION_SIZE = 512;
+
+	private static class NodeResults {
+		final LinkedHashMap<String, CachedResult> results = new LinkedHashMap<String, CachedResult>(8);
+		long weight;
+	}
+
+	private static class EvictedNodeResults {
+		final Map<String, RelatedElements> relatedElements = new HashMap<>(4);
+		long weight;
+	}
+
+	private final LinkedHashMap<String, NodeResults> cache = new LinkedHashMap<String, NodeResults>(16, 0.75f, true);
+	private final LinkedHashMap<String, EvictedNodeResults> relatedElementsOfEvictedResults =
+	        new LinkedHashMap<String, EvictedNodeResults>(16, 0.75f, true);
+	private final long memoryLimit;
+	private long weight;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
 	static final boolean ENABLE_CACHING = !Controller.getCurrentController().getResourceController()
 	    .getBooleanProperty("formula_disable_caching");
 
-	static void removeFromCache(final ArrayList<NodeModel> dependencies) {
+	FormulaCache(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	static void removeFromCache(final Collection<NodeModel> dependencies) {
 			if (ENABLE_CACHING) {
 				for (final NodeModel nodeModel : dependencies) {
 					FormulaCache.of(nodeModel.getMap()).remove(nodeModel);
@@ -29,6 +69,7 @@ public class FormulaCache implements IExtension{
 	static Object getOrThrowCachedResult(final ScriptContext scriptContext, Supplier<Object> computation) {
 	    if (! FormulaCache.ENABLE_CACHING)
 	        return computation.get();
+	    FormulaChangeBatch.apply();
 	    NodeScript nodeScript = scriptContext.getNodeScript();
 	    final FormulaCache formulaCache = FormulaCache.of(nodeScript.node.getMap());
 	    Object value = formulaCache.getOrThrowCachedResult(nodeScript);
@@ -45,16 +86,21 @@ public class FormulaCache implements IExtension{
 	    }
 	}
 
-	private Object getOrThrowCachedResult(final NodeScript nodeScript) {
-		final LinkedHashMap<String, CachedResult> cacheEntry = cache.get(nodeScript.node.createID());
-		if (cacheEntry == null)
-			return null;
-		final CachedResult cachedResult = cacheEntry.get(nodeScript.script);
-		if (cachedResult == null)
+	private synchronized Object getOrThrowCachedResult(final NodeScript nodeScript) {
+		final CachedResult cachedResult = getCachedResult(nodeScript.node.createID(), nodeScript.script);
+		if (cachedResult == null) {
+			missCount++;
 			return null;
+		}
+		hitCount++;
 		return getOrThrowCachedResult(cachedResult.returnedValue);
 	}
 
+	private CachedResult getCachedResult(final String nodeId, final String script) {
+		final NodeResults nodeResults = cache.get(nodeId);
+		return nodeResults != null ? nodeResults.results.get(script) : null;
+	}
+
 	private Object getOrThrowCachedResult(final Object object) {
 		if(object instanceof ExecuteScriptException){
 			throw (ExecuteScriptException)object;
@@ -62,49 +108,165 @@ public class FormulaCache implements IExtension{
 		return object;
 	}
 
-	void put(final NodeScript nodeScript, final CachedResult result) {
-		getOrAdd(nodeScript.node).put(nodeScript.script, result);
+	synchronized void put(final NodeScript nodeScript, final CachedResult result) {
+		final NodeResults nodeResults = getOrAdd(nodeScript.node);
+		forgetRelatedElementsOfEvictedResult(nodeScript);
+		final long resultWeight = weightOf(nodeScript.script, result);
+		final CachedResult replacedResult = nodeResults.results.put(nodeScript.script, result);
+		final long replacedWeight = replacedResult != null ? weightOf(nodeScript.script, replacedResult) : 0;
+		nodeResults.weight += resultWeight - replacedWeight;
+		weight += resultWeight - replacedWeight;
+		evictLeastRecentlyUsed();
 	}
 
-	private LinkedHashMap<String, CachedResult> getOrAdd(final NodeModel node) {
-		LinkedHashMap<String, CachedResult> cacheEntry = cache.get(node.getID());
-		if (cacheEntry == null) {
-			cacheEntry = new LinkedHashMap<String, CachedResult>(8);
-			cache.put(node.getID(), cacheEntry);
+	private NodeResults getOrAdd(final NodeModel node) {
+		NodeResults nodeResults = cache.get(node.getID());
+		if (nodeResults == null) {
+			nodeResults = new NodeResults();
+			cache.put(node.getID(), nodeResults);
 		}
-		return cacheEntry;
+		return nodeResults;
 	}
 
-	void remove(final NodeModel node) {
-		final LinkedHashMap<String, CachedResult> entry = cache.get(node.getID());
-		if (entry != null) {
-//			System.out.println("clearing cache for " + node);
-			entry.clear();
+	private void forgetRelatedElementsOfEvictedResult(final NodeScript nodeScript) {
+		final String nodeId = nodeScript.node.getID();
+		final EvictedNodeResults evictedResults = relatedElementsOfEvictedResults.get(nodeId);
+		if (evictedResults == null)
+			return;
+		final RelatedElements relatedElements = evictedResults.relatedElements.remove(nodeScript.script);
+		if (relatedElements == null)
+			return;
+		final long relatedElementsWeight = weightOf(nodeScript.script, relatedElements);
+		evictedResults.weight -= relatedElementsWeight;
+		weight -= relatedElementsWeight;
+		if (evictedResults.relatedElements.isEmpty())
+			relatedElementsOfEvictedResults.remove(nodeId);
+	}
+
+	private void evictLeastRecentlyUsed() {
+		while (weight > memoryLimit) {
+			if (!relatedElementsOfEvictedResults.isEmpty()) {
+				final Iterator<EvictedNodeResults> iterator = relatedElementsOfEvictedResults.values().iterator();
+				weight -= iterator.next().weight;
+				iterator.remove();
+			}
+			else if (cache.size() > 1) {
+				final Iterator<Map.Entry<String, NodeResults>> iterator = cache.entrySet().iterator();
+				final Map.Entry<String, NodeResults> eldest = iterator.next();
+				iterator.remove();
+				final NodeResults eldestResults = eldest.getValue();
+				weight -= eldestResults.weight;
+				evictionCount += eldestResults.results.size();
+				keepRelatedElements(eldest.getKey(), eldestResults);
+			}
+			else
+				break;
+		}
+	}
+
+	private void keepRelatedElements(final String nodeId, final NodeResults evictedResults) {
+		final EvictedNodeResults keptResults = new EvictedNodeResults();
+		for (Map.Entry<String, CachedResult> result : evictedResults.results.entrySet()) {
+			final RelatedElements relatedElements = result.getValue().relatedElements;
+			if (relatedElements != null) {
+				keptResults.relatedElements.put(result.getKey(), relatedElements);
+				keptResults.weight += weightOf(result.getKey(), relatedElements);
+			}
+		}
+		if (!keptResults.relatedElements.isEmpty()) {
+			relatedElementsOfEvictedResults.put(nodeId, keptResults);
+			weight += keptResults.weight;
 		}
 	}
 
-	static FormulaCache of(final MapModel map) {
-		FormulaCache formulaCache = map.getExtension(FormulaCache.class);
-		if (formulaCache == null) {
-			formulaCache = new FormulaCache();
-			map.addExtension(formulaCache);
+	synchronized void remove(final NodeModel node) {
+		final NodeResults nodeResults = cache.remove(node.getID());
+		if (nodeResults != null) {
+			weight -= nodeResults.weight;
+		}
+		final EvictedNodeResults evictedResults = relatedElementsOfEvictedResults.remove(node.getID());
+		if (evictedResults != null)
+			weight -= evictedResults.weight;
+	}
+
+	public static FormulaCache of(final MapModel map) {
+		synchronized (map) {
+			FormulaCache formulaCache = map.getExtension(FormulaCache.class);
+			if (formulaCache == null) {
+				final long memoryLimit = ResourceController.getResourceController().getLongProperty(MEMORY_LIMIT_PROPERTY, 64) << 20;
+				formulaCache = new FormulaCache(memoryLimit);
+				map.addExtension(formulaCache);
+			}
+			return formulaCache;
 		}
-		return formulaCache;
 	}
 	static void removeFrom(final MapModel map) {
 		map.removeExtension(FormulaCache.class);
 	}
 
-	RelatedElements getAccessedValues(final NodeModel node, final String script) {
+	synchronized boolean containsResult(final NodeModel node, final String script) {
+		return getCachedResult(node.getID(), script) != null;
+	}
+
+	synchronized RelatedElements getAccessedValues(final NodeModel node, final String script) {
 		if(ENABLE_CACHING) {
-			final LinkedHashMap<String, CachedResult> cacheEntry = cache.get(node.getID());
-			if (cacheEntry == null) return null;
-			final CachedResult cachedResult = cacheEntry.get(script);
+			final CachedResult cachedResult = getCachedResult(node.getID(), script);
 			if(cachedResult != null)
 				return cachedResult.relatedElements;
+			final EvictedNodeResults evictedResults = relatedElementsOfEvictedResults.get(node.getID());
+			if(evictedResults != null)
+				return evictedResults.relatedElements.get(script);
 		}
 		return null;
 	}
 
+	synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FormulaCache [results=" + cache.values().stream().mapToInt(r -> r.results.size()).sum()
+		        + ", weight=" + weight + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+	}
+
+	private static long weightOf(final String script, final CachedResult result) {
+		long weight = ENTRY_SIZE + 2L * script.length() + weightOf(result.returnedValue);
+		if (result.relatedElements != null) {
+			weight += RELATED_ELEMENT_SIZE * (long) result.relatedElements.getElements().size();
+		}
+		return weight;
+	}
 
+	private static long weightOf(final String script, final RelatedElements relatedElements) {
+		return ENTRY_SIZE + 2L * script.length() + RELATED_ELEMENT_SIZE * (long) relatedElements.getElements().size();
+	}
+
+	private static long weightOf(final Object value) {
+		if (value == null)
+			return 0;
+		if (value instanceof CharSequence)
+			return OBJECT_SIZE + 2L * ((CharSequence) value).length();
+		if (value instanceof ExecuteScriptException)
+			return EXCEPTION_SIZE;
+		if (value instanceof Collection)
+			return OBJECT_SIZE + REFERENCE_SIZE * (long) ((Collection<?>) value).size();
+		if (value instanceof Map)
+			return OBJECT_SIZE + 2 * REFERENCE_SIZE * (long) ((Map<?, ?>) value).size();
+		if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive())
+			return OBJECT_SIZE + REFERENCE_SIZE * (long) ((Object[]) value).length;
+		return OBJECT_SIZE;
+	}
 }
@@ -0,0 +1,87 @@
+package org.freeplane.plugin.script;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.ui.ViewController;
+
+/**
+ * Collects the nodes changed while the current event is processed and updates the formulas depending on them at once.
+ *
+ * Dependent formulas are found by a single walk over the union of the changed nodes,
+ * their cached results are removed and the nodes are refreshed.
+ * Pending changes are also applied before a cached formula result is read,
+ * so that scripts changing nodes and reading formulas get up to date values.
+ */
+public class FormulaChangeBatch {
+	private static LinkedHashSet<NodeModel> changedNodes = new LinkedHashSet<>();
+	private static LinkedHashSet<NodeModel> includedChangedNodes = new LinkedHashSet<>();
+	private static volatile boolean hasPendingChanges;
+	private static int pendingChangeCount;
+	private static long changeCount;
+	private static long coalescedChangeCount;
+
+	/** Records changed nodes, if includeChanged is set the nodes are refreshed too. */
+	public static void add(boolean includeChanged, Collection<NodeModel> nodes) {
+		final ViewController viewController = Controller.getCurrentController().getViewController();
+		synchronized (FormulaChangeBatch.class) {
+			(includeChanged ? includedChangedNodes : changedNodes).addAll(nodes);
+			changeCount++;
+			if (pendingChangeCount++ > 0) {
+				coalescedChangeCount++;
+				return;
+			}
+			hasPendingChanges = true;
+		}
+		if (viewController.isDispatchThread())
+			viewController.invokeLater(FormulaChangeBatch::apply);
+		else
+			apply();
+	}
+
+	/** Updates the formulas depending on the nodes changed since the last call. */
+	public static void apply() {
+		if (!hasPendingChanges)
+			return;
+		final Collection<NodeModel> nodes;
+		final Collection<NodeModel> includedNodes;
+		synchronized (FormulaChangeBatch.class) {
+			nodes = changedNodes;
+			includedNodes = includedChangedNodes;
+			changedNodes = new LinkedHashSet<>();
+			includedChangedNodes = new LinkedHashSet<>();
+			pendingChangeCount = 0;
+			hasPendingChanges = false;
+		}
+		nodes.removeAll(includedNodes);
+		final List<NodeModel> dependencies = new ArrayList<>(includedNodes);
+		dependencies.addAll(nodes);
+		final List<NodeModel> changedDependencies = FormulaDependencies.manageChangeAndReturnDependencies(false, dependencies);
+		FormulaCache.removeFromCache(includedNodes);
+		changedDependencies.removeAll(includedNodes);
+		changedDependencies.addAll(includedNodes);
+		refresh(changedDependencies);
+	}
+
+	public static void refresh(final Collection<NodeModel> dependencies) {
+		final ModeController modeController = Controller.getCurrentModeController();
+		for (NodeModel dependentNode : dependencies) {
+			modeController.getMapController().delayedNodeRefresh(dependentNode, FormulaCache.class,
+			    null, null);
+		}
+	}
+
+	public static synchronized long getChangeCount() {
+		return changeCount;
+	}
+
+	/** Returns the number of changes which were applied together with previous changes. */
+	public static synchronized long getCoalescedChangeCount() {
+		return coalescedChangeCount;
+	}
+}
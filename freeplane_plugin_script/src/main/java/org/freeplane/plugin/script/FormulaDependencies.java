@@ -9,6 +9,7 @@ import java.util.function.Consumer;
 
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
 import org.freeplane.plugin.script.dependencies.EvaluationDependencies;
 
 public class FormulaDependencies{
@@ -67,6 +68,11 @@ public class FormulaDependencies{
 	}
 
 	public static List<NodeModel> removeAndReturnMapDependencies(MapModel map) {
+		for (MapModel openMap : Controller.getCurrentController().getMapViewManager().getMaps().values()) {
+			final EvaluationDependencies dependencies = openMap.getExtension(EvaluationDependencies.class);
+			if (dependencies != null && openMap != map)
+				dependencies.removeNodesOf(map);
+		}
 		return manageChangeAndReturnDependencies(
 			set -> EvaluationDependencies.of(map).removeAndReturnChangedDependencies(set, map));
 	}
@@ -1,7 +1,7 @@
 package org.freeplane.plugin.script;
 
 import java.net.URL;
-import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -10,12 +10,13 @@ import org.freeplane.core.extension.Configurable;
 import org.freeplane.core.util.HtmlUtils;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.TextUtils;
-import org.freeplane.features.attribute.NodeAttributeTableModel;
 import org.freeplane.features.link.LinkController;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.mindmapmode.MModeController;
+import org.freeplane.features.ui.ViewController;
+import org.freeplane.plugin.script.dependencies.EvaluationDependencies;
 import org.freeplane.plugin.script.dependencies.RelatedElements;
 
 import groovy.lang.GString;
@@ -117,11 +118,21 @@ public class FormulaUtils {
 		if (!FormulaThreadLocalStacks.INSTANCE.push(scriptContext)) {
 			if(FormulaThreadLocalStacks.INSTANCE.ignoresCycles())
 				return 0;
-			showCyclicDependency(nodeScript);
+			final boolean cycleFound = ! FormulaThreadLocalStacks.INSTANCE.findCycle(nodeScript).isEmpty();
 			final String message = TextUtils.format("formula.error.circularReference",
 				nodeScript.node.getID(),
 				HtmlUtils.htmlToPlain(nodeScript.script));
-			Controller.getCurrentController().getViewController().out(TextUtils.getShortText(message, 80, "..."));
+			final ViewController viewController = Controller.getCurrentController().getViewController();
+			final Runnable cycleReport = () -> {
+				if (cycleFound)
+					showCyclicDependency(nodeScript);
+				viewController.out(TextUtils.getShortText(message, 80, "..."));
+			};
+			// formulas evaluated on worker threads report cycles on the event dispatch thread
+			if (viewController.isDispatchThread())
+				cycleReport.run();
+			else
+				viewController.invokeLater(cycleReport);
 			throw new ExecuteScriptException(new CyclicScriptReferenceException(message));
 		}
 		try {
@@ -140,19 +151,26 @@ public class FormulaUtils {
 		final Controller controller = Controller.getCurrentController();
 		if (controller.getMap() != nodeScript.node.getMap())
 			return;
-		final List<NodeScript> cycle = FormulaThreadLocalStacks.INSTANCE.findCycle(nodeScript);
 		final Configurable configurable = controller.getMapViewManager().getMapViewConfiguration();
 		final DependencyHighlighter dependencyHighlighter = new DependencyHighlighter(
 		        LinkController.getController(MModeController.getMModeController()),
 			configurable);
-		if (! cycle.isEmpty())
-			dependencyHighlighter.showCyclicDependency(nodeScript);
+		dependencyHighlighter.showCyclicDependency(nodeScript);
 	}
 
 	public static RelatedElements getRelatedElements(final NodeModel node, final Object object) {
 		if (FormulaCache.ENABLE_CACHING && FormulaUtils.containsFormula(object)) {
-			final RelatedElements accessedValues = FormulaCache.of(node.getMap()).getAccessedValues(node,
-				scriptOf((String) object));
+			final String script = scriptOf((String) object);
+			final FormulaCache formulaCache = FormulaCache.of(node.getMap());
+			RelatedElements accessedValues = formulaCache.getAccessedValues(node, script);
+			if (accessedValues == null && textContainsFormula((String) object)) {
+				// related elements of evicted results can be evicted too, evaluation records them again
+				try {
+					executeScript(node, script);
+				}
+				catch (final ExecuteScriptException e) {/**/}
+				accessedValues = formulaCache.getAccessedValues(node, script);
+			}
 			if (accessedValues != null)
 				return accessedValues;
 		}
@@ -168,20 +186,20 @@ public class FormulaUtils {
 	}
 
 	public static void evaluateAllFormulas(MapModel map) {
-		clearCache(map);
-		evaluateOutdatedFormulas(map);
+		evaluateAllFormulas(map, (node, e) -> {/**/});
 	}
 
-	public static void evaluateOutdatedFormulas(MapModel map) {
-		cacheAllRecursively(map.getRootNode());
+	/**
+	 * Evaluates all formulas of the map and passes the exceptions thrown by failing formulas to the error handler.
+	 * The cached results are dropped, the recorded dependencies are kept to order the evaluation.
+	 */
+	public static void evaluateAllFormulas(MapModel map, BiConsumer<NodeModel, RuntimeException> errorHandler) {
+		FormulaCache.removeFrom(map);
+		new DependencyOrderedFormulaEvaluator(map, map.getExtension(EvaluationDependencies.class), errorHandler).evaluate();
 	}
 
-	static private void cacheAllRecursively(NodeModel node) {
-		cacheIfFormula(node, node.getUserObject());
-		NodeAttributeTableModel attributeTableModel = node.getExtension(NodeAttributeTableModel.class);
-		if(attributeTableModel != null)
-			attributeTableModel.getAttributes().stream().forEach(a -> cacheIfFormula(node, a.getValue()));
-		node.getChildren().stream().forEach(FormulaUtils::cacheAllRecursively);
+	public static void evaluateOutdatedFormulas(MapModel map) {
+		new DependencyOrderedFormulaEvaluator(map, map.getExtension(EvaluationDependencies.class)).evaluate();
 	}
 
 	public static void cacheIfFormula(NodeModel node, Object maybeFormula) {
@@ -282,9 +282,10 @@ public abstract class FreeplaneScriptBaseClass extends Script {
 		this.script = script;
 	}
 
+	/** Returns a new instance of the compiled script class bound to the node, variables set by other runs are not visible to it. */
 	FreeplaneScriptBaseClass withBinding(final NodeModel node, ScriptContext scriptContext) {
 		try {
-        	FreeplaneScriptBaseClass instance = boundVariables != null ? getClass().newInstance() : this;
+        	FreeplaneScriptBaseClass instance = getClass().newInstance();
         	instance.script = script;
             ControllerRO controllerProxy = ProxyFactory.createController(scriptContext);
             NodeRO nodeProxy = ProxyFactory.createNode(node, scriptContext);
@@ -51,7 +51,7 @@ public class GroovyScript implements IScript {
 
     private FreeplaneScriptBaseClass compiledScript;
 
-    private Throwable errorsInScript;
+    private volatile Throwable errorsInScript;
 
     private CompileTimeStrategy compileTimeStrategy;
 
@@ -130,12 +130,23 @@ public class GroovyScript implements IScript {
         }
     }
 
+    /** Compiles the script ahead of its execution, compilation errors are kept and reported by execute. */
+    void compile() throws Throwable {
+        try {
+            trustedCompileAndCache(System.out);
+        }
+        catch (final Throwable e) {
+            if (errorsInScript == null)
+                throw e;
+        }
+    }
+
     private ScriptingSecurityManager createScriptingSecurityManager(PrintStream outStream) {
         return new ScriptSecurity(script, specificPermissions, outStream)
                 .getScriptingSecurityManager();
     }
 
-    private void trustedCompileAndCache(PrintStream outStream) throws Throwable {
+    private synchronized void trustedCompileAndCache(PrintStream outStream) throws Throwable {
 		AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
 
 			@Override
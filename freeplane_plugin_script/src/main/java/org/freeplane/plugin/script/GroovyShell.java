@@ -219,17 +219,29 @@ class GroovyShell extends GroovyObjectSupport {
      * @param scriptText the text of the script
      */
     Script parse(final String scriptText) throws CompilationFailedException {
-        return parse(scriptText, generateScriptName());
+        if(ClasspathScriptCompiler.compilesOnlyChangedScriptFiles())
+            return parseAndCache(scriptText);
+        return parse(createCodeSource(scriptText, generateScriptName()));
     }
 
-    private Script parse(final String scriptText, final String fileName) throws CompilationFailedException {
-        final GroovyCodeSource gcs = AccessController.doPrivileged(new PrivilegedAction<GroovyCodeSource>() {
+    private Script parseAndCache(final String scriptText) {
+        final String className = CompiledStringScripts.classNameOf(scriptText);
+        final GroovyCodeSource codeSource = createCodeSource(scriptText, className + ".groovy");
+        final GroovyClassLoader loader = createClassLoader();
+        final Class<?> scriptClass = CompiledStringScripts.loadOrCompile(className, loader, classes -> {
+            config.setTargetDirectory(classes);
+            return loader.parseClass(codeSource, false);
+        });
+        return InvokerHelper.createScript(scriptClass, binding);
+    }
+
+    private GroovyCodeSource createCodeSource(final String scriptText, final String fileName) {
+        return AccessController.doPrivileged(new PrivilegedAction<GroovyCodeSource>() {
             @Override
             public GroovyCodeSource run() {
                 return new GroovyCodeSource(scriptText, fileName, DEFAULT_CODE_BASE);
             }
         });
-        return parse(gcs);
     }
 
     protected synchronized String generateScriptName() {
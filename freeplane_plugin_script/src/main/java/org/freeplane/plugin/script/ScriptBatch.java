@@ -0,0 +1,240 @@
+package org.freeplane.plugin.script;
+
+import java.awt.BorderLayout;
+import java.awt.EventQueue;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+
+import org.freeplane.core.ui.LabelAndMnemonicSetter;
+import org.freeplane.core.ui.components.UITools;
+import org.freeplane.core.undo.IUndoHandler;
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.core.util.TextUtils;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+
+/**
+ * Executes the scripts stored in the script attributes of many nodes as one operation.
+ *
+ * Each distinct script is compiled once, each node gets a new instance of the compiled script class.
+ * All model changes form one undoable transaction.
+ * A worker thread hands the nodes to the event dispatch thread in slices of {@value #SLICE_MILLIS} ms,
+ * the scripts themselves run on the event dispatch thread.
+ * Formula updates and node refreshes caused by the changes are collected until the current slice is processed,
+ * so the view is updated once per slice.
+ * A modal dialog shows the progress between the slices and blocks any other input until the execution ends.
+ * Canceling it, or closing or leaving the map from a script, rolls back all changes.
+ */
+class ScriptBatch {
+	private static final String PROGRESS_STATUS_KEY = "ExecuteScripts.progress";
+	private static final long SLICE_MILLIS = 200;
+
+	private final Map<String, IScript> scripts = new HashMap<>();
+	private final Function<String, IScript> scriptCompiler;
+
+	ScriptBatch() {
+		this(source -> ScriptingEngine.createGroovyScript(source, null));
+	}
+
+	ScriptBatch(Function<String, IScript> scriptCompiler) {
+		this.scriptCompiler = scriptCompiler;
+	}
+
+	static void executeRecursively(NodeModel root) {
+		new ScriptBatch().execute(branchInExecutionOrder(root));
+	}
+
+	/** Returns the nodes of the branch with the children of each node before the node itself. */
+	static List<NodeModel> branchInExecutionOrder(NodeModel root) {
+		final List<NodeModel> nodes = new ArrayList<>();
+		addRecursively(nodes, root);
+		return nodes;
+	}
+
+	private static void addRecursively(List<NodeModel> nodes, NodeModel node) {
+		for (final NodeModel child : node.getChildren()) {
+			addRecursively(nodes, child);
+		}
+		nodes.add(node);
+	}
+
+	/**
+	 * Executes the scripts of the given nodes in their order and returns when they are executed or canceled.
+	 * The execution stops at the first script error, which is shown to the user.
+	 * The changes made before the error are kept.
+	 */
+	void execute(Collection<NodeModel> nodes) {
+		if (nodes.isEmpty())
+			return;
+		final List<NodeModel> nodeList = new ArrayList<>(nodes);
+		final MapModel map = nodeList.get(0).getMap();
+		final IUndoHandler undoHandler = map.getExtension(IUndoHandler.class);
+		final long startTime = System.currentTimeMillis();
+		final ProgressDialog progressDialog = new ProgressDialog(nodeList.size());
+		if (undoHandler != null)
+			undoHandler.startTransaction();
+		final SwingWorker<Integer, Integer> worker = new SwingWorker<Integer, Integer>() {
+			private int executedNodeCount = 0;
+
+			@Override
+			protected Integer doInBackground() throws Exception {
+				while (executedNodeCount < nodeList.size() && !isCancelled()) {
+					try {
+						EventQueue.invokeAndWait(this::executeSlice);
+					}
+					catch (InvocationTargetException e) {
+						if (e.getCause() instanceof Exception)
+							throw (Exception) e.getCause();
+						throw (Error) e.getCause();
+					}
+					publish(executedNodeCount);
+				}
+				return executedNodeCount;
+			}
+
+			private void executeSlice() {
+				if (isCancelled())
+					return;
+				if (Controller.getCurrentController().getMap() != map) {
+					cancel(false);
+					return;
+				}
+				final long sliceEnd = System.currentTimeMillis() + SLICE_MILLIS;
+				do {
+					executeScripts(nodeList.get(executedNodeCount));
+					executedNodeCount++;
+				}
+				while (executedNodeCount < nodeList.size() && System.currentTimeMillis() < sliceEnd);
+			}
+
+			@Override
+			protected void process(List<Integer> executedNodeCounts) {
+				progressDialog.setProgress(executedNodeCounts.get(executedNodeCounts.size() - 1));
+			}
+
+			@Override
+			protected void done() {
+				progressDialog.dispose();
+				if (undoHandler != null) {
+					if (isCancelled())
+						undoHandler.rollback();
+					else
+						undoHandler.commit();
+				}
+				if (isCancelled()) {
+					LogUtils.info("canceled script execution after " + executedNodeCount + " nodes");
+					return;
+				}
+				LogUtils.info("executed scripts of " + executedNodeCount + " nodes in "
+				        + (System.currentTimeMillis() - startTime) + " ms");
+				try {
+					get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof ExecuteScriptException) {
+						final ExecuteScriptException ex = (ExecuteScriptException) e.getCause();
+						LogUtils.warn(ex);
+						ScriptingEngine.showScriptExceptionErrorMessage(ex);
+					}
+					else
+						LogUtils.severe(e.getCause());
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		progressDialog.onCancel(() -> worker.cancel(false));
+		worker.execute();
+		progressDialog.setVisible(true);
+	}
+
+	@SuppressWarnings("serial")
+	private static class ProgressDialog extends JDialog {
+		private final JProgressBar progressBar;
+		private final JLabel progressLabel;
+		private final JButton cancelButton;
+
+		ProgressDialog(int nodeCount) {
+			super(UITools.getCurrentFrame(), TextUtils.getText("ExecuteScripts.text"), true);
+			setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+			progressBar = new JProgressBar(0, nodeCount);
+			progressLabel = new JLabel(TextUtils.format(PROGRESS_STATUS_KEY, 0, nodeCount));
+			cancelButton = new JButton();
+			LabelAndMnemonicSetter.setLabelAndMnemonic(cancelButton, TextUtils.getRawText("cancel"));
+			final JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+			buttons.add(cancelButton);
+			final JPanel content = new JPanel(new BorderLayout(0, 5));
+			content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+			content.add(progressLabel, BorderLayout.NORTH);
+			content.add(progressBar, BorderLayout.CENTER);
+			content.add(buttons, BorderLayout.SOUTH);
+			setContentPane(content);
+			pack();
+			setLocationRelativeTo(getOwner());
+		}
+
+		void onCancel(Runnable cancel) {
+			final AbstractAction cancelAction = new AbstractAction() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					cancel.run();
+				}
+			};
+			cancelButton.addActionListener(cancelAction);
+			UITools.addEscapeActionToDialog(this, cancelAction);
+			addWindowListener(new WindowAdapter() {
+				@Override
+				public void windowClosing(WindowEvent e) {
+					cancel.run();
+				}
+			});
+		}
+
+		void setProgress(int executedNodeCount) {
+			progressBar.setValue(executedNodeCount);
+			progressLabel.setText(TextUtils.format(PROGRESS_STATUS_KEY, executedNodeCount, progressBar.getMaximum()));
+		}
+	}
+
+	/** Executes the scripts stored in the script attributes of the node in the order of the attributes. */
+	void executeScripts(NodeModel node) {
+		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
+		if (attributes == null) {
+			return;
+		}
+		for (int row = 0; row < attributes.getRowCount(); ++row) {
+			final String attrKey = (String) attributes.getName(row);
+			final Object value = attributes.getValue(row);
+			if (value instanceof String && attrKey.startsWith(ScriptingEngine.SCRIPT_PREFIX)) {
+				executeScript(node, (String) value);
+			}
+		}
+	}
+
+	private void executeScript(NodeModel node, String source) {
+		final IScript script = scripts.computeIfAbsent(source, scriptCompiler);
+		new ScriptRunner(script).execute(node);
+	}
+}
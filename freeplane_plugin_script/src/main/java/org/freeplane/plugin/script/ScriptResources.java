@@ -30,6 +30,7 @@ public class ScriptResources {
 	private static final String BUILTIN_SCRIPTS_DIR = System.getProperty(BUILTIN_SCRIPTS_DIR_PROPERTY,"scripts");
     private static final String PRECOMPILED_SCRIPTS_DIRECTORY = "compiledscripts";
     private static final String COMPILED_SCRIPTS_DIRECTORY = "compiledscripts2";
+    private static final String COMPILED_STRING_SCRIPTS_DIRECTORY = "compiledformulas";
     private static List<String> classpath;
     private static final File builtinScriptsDir = buildBuiltinScriptsDir();
     private static final File userScriptsDir = buildUserScriptsDir(ScriptResources.USER_SCRIPTS_DIR);
@@ -88,4 +89,8 @@ public class ScriptResources {
         return buildUserScriptsDir(COMPILED_SCRIPTS_DIRECTORY);
     }
 
+    static File getCompiledStringScriptsDir() {
+        return buildUserScriptsDir(COMPILED_STRING_SCRIPTS_DIRECTORY);
+    }
+
 }
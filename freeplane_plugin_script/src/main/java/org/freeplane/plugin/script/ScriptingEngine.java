@@ -28,7 +28,6 @@ import org.apache.commons.lang.WordUtils;
 import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.ui.components.UITools;
 import org.freeplane.core.util.TextUtils;
-import org.freeplane.features.attribute.NodeAttributeTableModel;
 import org.freeplane.features.map.NodeModel;
 
 /**
@@ -39,10 +38,15 @@ public class ScriptingEngine {
 	// need a File for caching! Scripts from String have to be cached elsewhere
     private static Map<File, IScript> fileScripts = new ConcurrentHashMap<File, IScript>();
     private static ConcurrentCache<ScriptSpecification, IScript> scripts
-    	= new ConcurrentCache(ScriptingEngine::getCompiledScriptCacheSize);
-    private static int getCompiledScriptCacheSize() {
+    	= new ConcurrentCache<>(ScriptingEngine::getCompiledScriptCacheSize);
+    static int getCompiledScriptCacheSize() {
 		return ResourceController.getResourceController().getIntProperty("compiled_script_cache_size");
 	}
+
+    /** Returns size, hit, miss and eviction counts of the compiled script cache for diagnostics. */
+    public static String getCompiledScriptCacheStatistics() {
+    	return scripts.toString();
+    }
 	/**
 	 * @param permissions if null use default scripting permissions.
 	 * @return the result of the script, or null, if the user has cancelled.
@@ -108,6 +112,13 @@ public class ScriptingEngine {
 		return createScript(script, "groovy", permissions);
 	}
 
+	/** Compiles the script into the cache of compiled scripts, compilation errors are reported when the script is executed. */
+	static void compileGroovyScript(String script, ScriptingPermissions permissions) throws Throwable {
+		final IScript compiledScript = createGroovyScript(script, permissions);
+		if (compiledScript instanceof GroovyScript)
+			((GroovyScript) compiledScript).compile();
+	}
+
     public static Object executeScript(NodeModel node, File scriptFile, ScriptingPermissions permissions) {
         final IScript script = ScriptingEngine.createScript(scriptFile, permissions, false);
         return new ScriptRunner(script).execute(node);
@@ -131,31 +142,6 @@ public class ScriptingEngine {
             .execute(node);
     }
 
-	static void performScriptOperationRecursive(final NodeModel node) {
-		for (final NodeModel child : node.getChildren()) {
-			performScriptOperationRecursive(child);
-		}
-		performScriptOperation(node);
-	}
-
-	static void performScriptOperation(final NodeModel node) {
-		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
-		if (attributes == null) {
-			return;
-		}
-		for (int row = 0; row < attributes.getRowCount(); ++row) {
-			final String attrKey = (String) attributes.getName(row);
-			final Object value = attributes.getValue(row);
-			if(value instanceof String){
-				final String script = (String) value;
-				if (attrKey.startsWith(ScriptingEngine.SCRIPT_PREFIX)) {
-					executeScript(node, script);
-				}
-			}
-		}
-		return;
-	}
-
 	/** @deprecated use ScriptResources.getUserScriptDir() instead. */
     @Deprecated
     public static File getUserScriptDir() {
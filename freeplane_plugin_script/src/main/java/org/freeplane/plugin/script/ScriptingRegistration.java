@@ -55,6 +55,7 @@ import org.freeplane.main.addons.AddOnInstaller;
 import org.freeplane.main.addons.AddOnsController;
 import org.freeplane.main.application.ApplicationLifecycleListener;
 import org.freeplane.main.application.CommandLineOptions;
+import org.freeplane.main.headlessmode.BatchCommands;
 import org.freeplane.n3.nanoxml.IXMLParser;
 import org.freeplane.n3.nanoxml.IXMLReader;
 import org.freeplane.n3.nanoxml.StdXMLReader;
@@ -192,11 +193,34 @@ class ScriptingRegistration {
 			createUserLibDirectory();
 		}
 		registerInitScripts(options.getScriptsToExecute());
+		if (options.getBatchOptions() != null)
+			registerBatchCommands();
 		FilterController.getCurrentFilterController().getConditionFactory().addConditionController(200,
 			new ScriptConditionController());
 		ScriptingPolicy.installRestrictingPolicy();
 	}
 
+	private void registerBatchCommands() {
+		final BatchCommands batchCommands = BatchCommands.getController();
+		if (batchCommands == null)
+			return;
+		batchCommands.add("evaluate", (map, options) -> {
+			final List<String> errors = new ArrayList<>();
+			FormulaUtils.evaluateAllFormulas(map, (node, e) -> errors.add(node.getID() + ": " + e.getMessage()));
+			BatchCommands.save(map, options);
+			if (!errors.isEmpty())
+				throw new ExecuteScriptException(errors.size() + " formulas failed\n" + String.join("\n", errors));
+		});
+		batchCommands.add("script", (map, options) -> {
+			if (options.getScript() == null)
+				throw new IllegalArgumentException("script needs option --script <file>");
+			ScriptingEngine.executeScript(map.getRootNode(), options.getScript(),
+			    ScriptingPermissions.getPermissiveScriptingPermissions());
+			if (!map.isSaved())
+				BatchCommands.save(map, options);
+		});
+	}
+
 	private void registerGuiStuff(ModeController modeController) {
         addPropertiesToOptionPanel();
         modeController.addAction(new ScriptEditor());
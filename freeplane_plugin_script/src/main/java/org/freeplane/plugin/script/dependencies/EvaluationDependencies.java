@@ -1,150 +1,385 @@
 package org.freeplane.plugin.script.dependencies;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
 
 import org.freeplane.core.extension.IExtension;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
 
+/**
+ * Keeps the nodes accessed by formulas of a map.
+ *
+ * The accessed nodes of the map are identified by their ordinals, the nodes accessing them by their ordinals too,
+ * nodes of other maps are numbered separately and stored as negative numbers.
+ * Deleted nodes are only weakly referenced and removed when they are found while collecting the dependencies.
+ * The nodes of other maps are removed when their map is closed, their numbers are reused afterwards.
+ * All methods are synchronized because formulas record their accesses while they are evaluated on several threads.
+ */
 public class EvaluationDependencies implements IExtension{
 
-	static class DependentNodeReferences implements Iterable<NodeModel>{
-		final private WeakHashMap<NodeModel, Void> references = new WeakHashMap<>();
-		void add(NodeModel node) {
-			references.put(node, null);
+	/** Numbers of the nodes which accessed a node, a set of them is added when the list becomes long. */
+	static class DependentNodeNumbers {
+		private static final int MEMBER_SET_THRESHOLD = 32;
+		private int[] numbers = new int[2];
+		private int size;
+		private BitSet members;
+
+		/** Returns false if the number was already contained. */
+		boolean add(int number) {
+			if (contains(number))
+				return false;
+			if (size == numbers.length)
+				numbers = Arrays.copyOf(numbers, size * 2);
+			numbers[size++] = number;
+			if (members != null) {
+				if (number >= 0)
+					members.set(number);
+			}
+			else if (size > MEMBER_SET_THRESHOLD) {
+				members = new BitSet();
+				for (int i = 0; i < size; i++) {
+					if (numbers[i] >= 0)
+						members.set(numbers[i]);
+				}
+			}
+			return true;
 		}
 
-		@Override
-		public Iterator<NodeModel> iterator() {
-			return references.keySet().iterator();
+		private boolean contains(int number) {
+			if (members != null && number >= 0)
+				return members.get(number);
+			for (int i = 0; i < size; i++) {
+				if (numbers[i] == number)
+					return true;
+			}
+			return false;
 		}
-	}
 
-	enum Access {
-		NODE, BRANCH, ALL
-	}
+		int size() {
+			return size;
+		}
 
+		int get(int index) {
+			return numbers[index];
+		}
+
+		/** Replaces the number at the given index by the last one. */
+		void remove(int index) {
+			if (members != null && numbers[index] >= 0)
+				members.clear(numbers[index]);
+			numbers[index] = numbers[--size];
+		}
+	}
 
 	public static EvaluationDependencies of(MapModel map) {
-		EvaluationDependencies dependencies = map.getExtension(EvaluationDependencies.class);
-		if (dependencies == null) {
-			dependencies = new EvaluationDependencies();
-			map.addExtension(dependencies);
+		synchronized (map) {
+			EvaluationDependencies dependencies = map.getExtension(EvaluationDependencies.class);
+			if (dependencies == null) {
+				dependencies = new EvaluationDependencies(map);
+				map.addExtension(dependencies);
+			}
+			return dependencies;
 		}
-		return dependencies;
 	}
 
-	private final WeakHashMap<MapModel, DependentNodeReferences> onMapDependencies = new WeakHashMap<>();
-
-	private final WeakHashMap<NodeModel, DependentNodeReferences> onNodeDependencies = new WeakHashMap<>();
-    private final WeakHashMap<NodeModel, DependentNodeReferences> onBranchDependencies = new WeakHashMap<>();
-    private final WeakHashMap<NodeModel, DependentNodeReferences> onCloneDependencies = new WeakHashMap<>();
-	private final WeakHashMap<NodeModel, Void> onAnyNodeDependencies = new WeakHashMap<>();
-	private final WeakHashMap<NodeModel, Void> onGlobalNodeDependencies = new WeakHashMap<>();
-
-	public void collectChangedDependencies(Set<NodeModel> accessingNodes, final NodeModel accessedNode) {
-		final Iterable<NodeModel> onNode = onNodeDependencies.get(accessedNode);
-		if (onNode != null)
-			collectAccessingNodesRecursively(accessingNodes, onNode);
-        for (Entry<NodeModel, DependentNodeReferences> entry : onBranchDependencies.entrySet()) {
-            final NodeModel branchNode = entry.getKey();
-            if (accessedNode.isDescendantOf(branchNode)) {
-                collectAccessingNodesRecursively(accessingNodes, entry.getValue());
-            }
-        }
-        for (Entry<NodeModel, DependentNodeReferences> entry : onCloneDependencies.entrySet()) {
-            final NodeModel cloneNode = entry.getKey();
-            if (cloneNode.allClones().contains(accessedNode)
-                    || cloneNode.subtreeClones().toCollection().stream().anyMatch(t -> t.isDescendantOf(accessedNode))) {
-                collectAccessingNodesRecursively(accessingNodes, entry.getValue());
-            }
-        }
-		if(! onAnyNodeDependencies.isEmpty()) {
-		    ArrayList<NodeModel> onAnyNodeDependendingNodes = new ArrayList<>(onAnyNodeDependencies.keySet());
-		    onAnyNodeDependencies.clear();
-		    collectAccessingNodesRecursively(accessingNodes, onAnyNodeDependendingNodes);
-		}
-	}
-
-	public void collectGlobalNodeDependencies(Set<NodeModel> accessingNodes) {
-		collectAccessingNodesRecursively(accessingNodes, onGlobalNodeDependencies.keySet());
-	}
-
-	public void removeAndReturnChangedDependencies(Set<NodeModel> accessingNodes, final MapModel accessedMap) {
-		final Iterable<NodeModel> onMap = onMapDependencies.remove(accessedMap);
+	private static final DependentNodeNumbers[] NO_DEPENDENCIES = new DependentNodeNumbers[0];
+	private static final WeakReference<NodeModel> NO_NODE = new WeakReference<>(null);
+
+	private final MapModel map;
+	private WeakReference<NodeModel>[] nodes;
+	private final List<WeakReference<NodeModel>> foreignNodes = new ArrayList<>();
+	private final WeakHashMap<NodeModel, Integer> foreignNodeNumbers = new WeakHashMap<>();
+	private final BitSet freeForeignNodeIndices = new BitSet();
+
+	private DependentNodeNumbers onMapDependencies;
+	private DependentNodeNumbers[] onNodeDependencies = NO_DEPENDENCIES;
+	private DependentNodeNumbers[] onBranchDependencies = NO_DEPENDENCIES;
+	private DependentNodeNumbers[] onCloneDependencies = NO_DEPENDENCIES;
+	private final BitSet onAnyNodeDependencies = new BitSet();
+	private final BitSet onGlobalNodeDependencies = new BitSet();
+	private final BitSet clonesWithDependencies = new BitSet();
+	private int[] pendingNodes = new int[16];
+	private long modificationCount;
+
+	@SuppressWarnings("unchecked")
+	private EvaluationDependencies(MapModel map) {
+		this.map = map;
+		this.nodes = new WeakReference[0];
+	}
+
+	public synchronized void collectChangedDependencies(Set<NodeModel> accessingNodes, final NodeModel accessedNode) {
+		collectRecursively(accessingNodes, addChangedDependencies(accessingNodes, accessedNode, 0));
+	}
+
+	public synchronized void collectGlobalNodeDependencies(Set<NodeModel> accessingNodes) {
+		int pendingNodeCount = 0;
+		for (int number = onGlobalNodeDependencies.nextSetBit(0); number >= 0; number = onGlobalNodeDependencies.nextSetBit(number + 1))
+			pendingNodeCount = addAccessingNode(accessingNodes, number, pendingNodeCount);
+		collectRecursively(accessingNodes, pendingNodeCount);
+	}
+
+	public synchronized void removeAndReturnChangedDependencies(Set<NodeModel> accessingNodes, final MapModel accessedMap) {
+		final DependentNodeNumbers onMap = accessedMap == map ? onMapDependencies : null;
+		onMapDependencies = null;
 		if (onMap != null)
-			collectAccessingNodesRecursively(accessingNodes, onMap);
+			collectRecursively(accessingNodes, addAccessingNodes(accessingNodes, onMap, 0));
 	}
-	private void collectAccessingNodesRecursively(Set<NodeModel> accessingNodes, final Iterable<NodeModel> changedAccessedNodes) {
-		for (NodeModel node : changedAccessedNodes) {
-			// avoid loops
-			if (accessingNodes.add(node)) {
-				collectChangedDependencies(accessingNodes, node);
+
+	private void collectRecursively(Set<NodeModel> accessingNodes, int pendingNodeCount) {
+		while (pendingNodeCount > 0) {
+			final NodeModel node = nodeOf(pendingNodes[--pendingNodeCount]);
+			if (node != null)
+				pendingNodeCount = addChangedDependencies(accessingNodes, node, pendingNodeCount);
+		}
+	}
+
+	private int addChangedDependencies(Set<NodeModel> accessingNodes, NodeModel accessedNode, int pendingNodeCount) {
+		if (accessedNode.getMap() == map) {
+			pendingNodeCount = addAccessingNodes(accessingNodes, dependenciesOf(onNodeDependencies, accessedNode.getOrdinal()),
+			    pendingNodeCount);
+			for (NodeModel branchNode = accessedNode.getParentNode(); branchNode != null; branchNode = branchNode.getParentNode())
+				pendingNodeCount = addAccessingNodes(accessingNodes, dependenciesOf(onBranchDependencies, branchNode.getOrdinal()),
+				    pendingNodeCount);
+			for (int number = clonesWithDependencies.nextSetBit(0); number >= 0; number = clonesWithDependencies.nextSetBit(number + 1)) {
+				final NodeModel cloneNode = nodeOf(number);
+				if (cloneNode == null)
+					clonesWithDependencies.clear(number);
+				else if (cloneNode.allClones().contains(accessedNode)
+				        || cloneNode.subtreeClones().toCollection().stream().anyMatch(t -> t.isDescendantOf(accessedNode)))
+					pendingNodeCount = addAccessingNodes(accessingNodes, onCloneDependencies[number], pendingNodeCount);
 			}
 		}
+		if (!onAnyNodeDependencies.isEmpty()) {
+			for (int number = onAnyNodeDependencies.nextSetBit(0); number >= 0; number = onAnyNodeDependencies.nextSetBit(number + 1))
+				pendingNodeCount = addAccessingNode(accessingNodes, number, pendingNodeCount);
+			onAnyNodeDependencies.clear();
+		}
+		return pendingNodeCount;
+	}
+
+	private int addAccessingNodes(Set<NodeModel> accessingNodes, DependentNodeNumbers dependencies, int pendingNodeCount) {
+		if (dependencies == null)
+			return pendingNodeCount;
+		for (int i = dependencies.size() - 1; i >= 0; i--) {
+			final int number = dependencies.get(i);
+			final NodeModel node = nodeOf(number);
+			if (node == null)
+				dependencies.remove(i);
+			// avoid loops
+			else if (accessingNodes.add(node) && number >= 0)
+				pendingNodeCount = push(number, pendingNodeCount);
+		}
+		return pendingNodeCount;
+	}
+
+	private int addAccessingNode(Set<NodeModel> accessingNodes, int number, int pendingNodeCount) {
+		final NodeModel node = nodeOf(number);
+		if (node != null && accessingNodes.add(node))
+			pendingNodeCount = push(number, pendingNodeCount);
+		return pendingNodeCount;
+	}
+
+	private int push(int number, int pendingNodeCount) {
+		if (pendingNodeCount == pendingNodes.length)
+			pendingNodes = Arrays.copyOf(pendingNodes, pendingNodeCount * 2);
+		pendingNodes[pendingNodeCount] = number;
+		return pendingNodeCount + 1;
 	}
 
 	/** accessedNode was accessed when accessingNode was evaluated. */
-	public void accessNode(NodeModel accessingNode, NodeModel accessedNode) {
-        onNodeDependencies.computeIfAbsent(accessedNode, x -> new DependentNodeReferences()).add(accessingNode);
+	public synchronized void accessNode(NodeModel accessingNode, NodeModel accessedNode) {
+		onNodeDependencies = addDependency(onNodeDependencies, accessingNode, accessedNode);
 		addAccessedMap(accessingNode, accessedNode);
 	}
 
     /** accessedNode.children was accessed when accessingNode was evaluated. */
-    public void accessBranch(NodeModel accessingNode, NodeModel accessedNode) {
-        onBranchDependencies.computeIfAbsent(accessedNode, x -> new DependentNodeReferences()).add(accessingNode);
+    public synchronized void accessBranch(NodeModel accessingNode, NodeModel accessedNode) {
+        onBranchDependencies = addDependency(onBranchDependencies, accessingNode, accessedNode);
         addAccessedMap(accessingNode, accessedNode);
     }
 
     /** accessedNode.children was accessed when accessingNode was evaluated. */
-    public void accessClones(NodeModel accessingNode, NodeModel accessedNode) {
-        onCloneDependencies.computeIfAbsent(accessedNode, x -> new DependentNodeReferences()).add(accessingNode);
+    public synchronized void accessClones(NodeModel accessingNode, NodeModel accessedNode) {
+        onCloneDependencies = addDependency(onCloneDependencies, accessingNode, accessedNode);
+        clonesWithDependencies.set(accessedNode.getOrdinal());
         addAccessedMap(accessingNode, accessedNode);
     }
 
+	private DependentNodeNumbers[] addDependency(DependentNodeNumbers[] dependencies, NodeModel accessingNode, NodeModel accessedNode) {
+		final int accessedNodeNumber = numberOf(accessedNode);
+		if (accessedNodeNumber >= dependencies.length)
+			dependencies = Arrays.copyOf(dependencies, Math.max(accessedNodeNumber + 1, map.getNodeOrdinalCount()));
+		if (dependencies[accessedNodeNumber] == null)
+			dependencies[accessedNodeNumber] = new DependentNodeNumbers();
+		if (dependencies[accessedNodeNumber].add(numberOf(accessingNode)))
+			modificationCount++;
+		return dependencies;
+	}
+
 	private void addAccessedMap(NodeModel accessingNode, NodeModel accessedNode) {
-		final MapModel accessedMap = accessedNode.getMap();
-		if(accessedMap != accessingNode.getMap())
-			onMapDependencies.computeIfAbsent(accessedMap, x -> new DependentNodeReferences()).add(accessingNode);
+		if(accessedNode.getMap() != accessingNode.getMap()) {
+			if (onMapDependencies == null)
+				onMapDependencies = new DependentNodeNumbers();
+			onMapDependencies.add(numberOf(accessingNode));
+		}
 	}
 
 	/** a method was used on the accessingNode that may use any node in the map. */
-	public void accessAll(NodeModel accessingNode) {
-		onAnyNodeDependencies.put(accessingNode, null);
+	public synchronized void accessAll(NodeModel accessingNode) {
+		set(onAnyNodeDependencies, numberOf(accessingNode));
 	}
 
-	public void accessGlobalNode(NodeModel accessingNode) {
-		onGlobalNodeDependencies.put(accessingNode, null);
+	public synchronized void accessGlobalNode(NodeModel accessingNode) {
+		set(onGlobalNodeDependencies, numberOf(accessingNode));
 	}
 
-	public Iterable<NodeModel> getPossibleDependencies(NodeModel node) {
-		Iterable<NodeModel> dependencies = onNodeDependencies.get(node);
-		return dependencies != null ? dependencies : Collections.<NodeModel>emptyList();
+	private void set(BitSet dependencies, int number) {
+		if (!dependencies.get(number)) {
+			dependencies.set(number);
+			modificationCount++;
+		}
 	}
 
-	@Override
-	public String toString() {
-		StringBuilder builder = new StringBuilder();
-		for (Entry<NodeModel, DependentNodeReferences> entry : onNodeDependencies.entrySet()) {
-			builder.append("onNode (" + entry.getKey().getText() + "):\n");
-			for (NodeModel nodeModel : entry.getValue()) {
-				builder.append("  " + nodeModel + "\n");
+	/** Returns a number which changes whenever a new dependency is recorded. */
+	public synchronized long getModificationCount() {
+		return modificationCount;
+	}
+
+	private int numberOf(NodeModel node) {
+		if (node.getMap() != map) {
+			return -1 - foreignNodeNumbers.computeIfAbsent(node, x -> {
+				final int freeIndex = freeForeignNodeIndices.nextSetBit(0);
+				if (freeIndex >= 0) {
+					freeForeignNodeIndices.clear(freeIndex);
+					foreignNodes.set(freeIndex, new WeakReference<>(node));
+					return freeIndex;
+				}
+				foreignNodes.add(new WeakReference<>(node));
+				return foreignNodes.size() - 1;
+			});
+		}
+		final int ordinal = node.getOrdinal();
+		if (ordinal >= nodes.length)
+			nodes = Arrays.copyOf(nodes, Math.max(ordinal + 1, map.getNodeOrdinalCount()));
+		if (nodes[ordinal] == null || nodes[ordinal].get() != node)
+			nodes[ordinal] = new WeakReference<>(node);
+		return ordinal;
+	}
+
+	private NodeModel nodeOf(int number) {
+		if (number < 0) {
+			final NodeModel node = foreignNodes.get(-1 - number).get();
+			return node != null && node.getMap() != map ? node : null;
+		}
+		final NodeModel node = number < nodes.length && nodes[number] != null ? nodes[number].get() : null;
+		return node != null && node.getMap() == map && node.getOrdinal() == number ? node : null;
+	}
+
+	/** Removes the nodes of the closed map which accessed nodes of this map, and the collected nodes of other maps. */
+	public synchronized void removeNodesOf(MapModel removedMap) {
+		final BitSet removedIndices = new BitSet();
+		for (int index = 0; index < foreignNodes.size(); index++) {
+			if (freeForeignNodeIndices.get(index))
+				continue;
+			final NodeModel node = foreignNodes.get(index).get();
+			if (node == null || node.getMap() == removedMap) {
+				if (node != null)
+					foreignNodeNumbers.remove(node);
+				foreignNodes.set(index, NO_NODE);
+				removedIndices.set(index);
 			}
 		}
-		for (Entry<NodeModel, DependentNodeReferences> entry : onBranchDependencies.entrySet()) {
-			builder.append("onBranch (" + entry.getKey().getText() + "):\n");
-			for (NodeModel nodeModel : entry.getValue()) {
-				builder.append("  " + nodeModel + "\n");
+		if (removedIndices.isEmpty())
+			return;
+		removeForeignNodes(onMapDependencies, removedIndices);
+		for (DependentNodeNumbers[] dependencies : Arrays.asList(onNodeDependencies, onBranchDependencies, onCloneDependencies)) {
+			for (DependentNodeNumbers dependentNodeNumbers : dependencies)
+				removeForeignNodes(dependentNodeNumbers, removedIndices);
+		}
+		freeForeignNodeIndices.or(removedIndices);
+	}
+
+	private static void removeForeignNodes(DependentNodeNumbers dependencies, BitSet removedIndices) {
+		if (dependencies == null)
+			return;
+		for (int i = dependencies.size() - 1; i >= 0; i--) {
+			final int number = dependencies.get(i);
+			if (number < 0 && removedIndices.get(-1 - number))
+				dependencies.remove(i);
+		}
+	}
+
+	private static DependentNodeNumbers dependenciesOf(DependentNodeNumbers[] dependencies, int ordinal) {
+		return ordinal < dependencies.length ? dependencies[ordinal] : null;
+	}
+
+	/** Passes each recorded pair of accessing node and accessed node. */
+	public synchronized void forEachNodeAccess(BiConsumer<NodeModel, NodeModel> consumer) {
+		forEachAccess(onNodeDependencies, consumer);
+	}
+
+	/** Passes each recorded pair of accessing node and node whose branch was accessed. */
+	public synchronized void forEachBranchAccess(BiConsumer<NodeModel, NodeModel> consumer) {
+		forEachAccess(onBranchDependencies, consumer);
+	}
+
+	private void forEachAccess(DependentNodeNumbers[] dependencies, BiConsumer<NodeModel, NodeModel> consumer) {
+		for (int accessedNodeNumber = 0; accessedNodeNumber < dependencies.length; accessedNodeNumber++) {
+			final NodeModel accessedNode = dependencies[accessedNodeNumber] != null ? nodeOf(accessedNodeNumber) : null;
+			if (accessedNode != null) {
+				for (NodeModel accessingNode : nodesOf(dependencies[accessedNodeNumber]))
+					consumer.accept(accessingNode, accessedNode);
 			}
 		}
+	}
+
+	private List<NodeModel> nodesOf(DependentNodeNumbers dependencies) {
+		final List<NodeModel> nodes = new ArrayList<>(dependencies.size());
+		for (int i = 0; i < dependencies.size(); i++) {
+			final NodeModel node = nodeOf(dependencies.get(i));
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
+	}
+
+	private List<NodeModel> nodesOf(BitSet numbers) {
+		final List<NodeModel> nodes = new ArrayList<>(numbers.cardinality());
+		for (int number = numbers.nextSetBit(0); number >= 0; number = numbers.nextSetBit(number + 1)) {
+			final NodeModel node = nodeOf(number);
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
+	}
+
+	/** Returns the nodes which used a method that may access any node in the map. */
+	public synchronized Collection<NodeModel> getNodesAccessingAll() {
+		return nodesOf(onAnyNodeDependencies);
+	}
+
+	public synchronized Iterable<NodeModel> getPossibleDependencies(NodeModel node) {
+		final DependentNodeNumbers dependencies = node.getMap() == map ? dependenciesOf(onNodeDependencies, node.getOrdinal()) : null;
+		return dependencies != null ? nodesOf(dependencies) : Collections.<NodeModel>emptyList();
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+		forEachNodeAccess((accessingNode, accessedNode) -> builder.append("onNode (" + accessedNode.getText() + "): " + accessingNode + "\n"));
+		forEachBranchAccess((accessingNode, accessedNode) -> builder.append("onBranch (" + accessedNode.getText() + "): " + accessingNode + "\n"));
 		if (!onAnyNodeDependencies.isEmpty()) {
 			builder.append("onAnyNode:\n");
-			for (NodeModel nodeModel : onAnyNodeDependencies.keySet()) {
+			for (NodeModel nodeModel : nodesOf(onAnyNodeDependencies)) {
 				builder.append("  " + nodeModel + "\n");
 			}
 		}
@@ -825,6 +825,30 @@ class NodeProxy extends AbstractProxy<NodeModel> implements Proxy.Node {
 		return ProxyUtils.findAll(delegate, getScriptContext(), true);
     }
 
+	// NodeRO: R
+	@Override
+	public Stream<? extends Node> findStream(final NodeCondition condition) {
+		final NodeModel delegate = getDelegate();
+		reportBranchAccess(delegate);
+		return ProxyUtils.findStream(condition, delegate, getScriptContext());
+	}
+
+	// NodeRO: R
+	@Override
+	public Stream<? extends Node> findAllStream() {
+		final NodeModel delegate = getDelegate();
+		reportBranchAccess(delegate);
+		return ProxyUtils.findAllStream(delegate, getScriptContext(), false);
+	}
+
+	// NodeRO: R
+	@Override
+	public Stream<? extends Node> findAllDepthFirstStream() {
+		final NodeModel delegate = getDelegate();
+		reportBranchAccess(delegate);
+		return ProxyUtils.findAllStream(delegate, getScriptContext(), true);
+	}
+
 	// NodeRO: R
 	@Override
 	public Date getLastModifiedAt() {
@@ -58,6 +58,16 @@ public class ProxyUtils {
 		return ProxyUtils.createNodeList(ProxyUtils.findImpl(null, node, depthFirst), scriptContext);
 	}
 
+	static Stream<? extends Node> findStream(final NodeCondition condition, final NodeModel node, final ScriptContext scriptContext) {
+		return ProxyUtils.findStreamImpl(createCondition(condition, scriptContext), node, false)
+		    .map(nodeModel -> new NodeProxy(nodeModel, scriptContext));
+	}
+
+	static Stream<? extends Node> findAllStream(final NodeModel node, final ScriptContext scriptContext, boolean depthFirst) {
+		return ProxyUtils.findStreamImpl(null, node, depthFirst)
+		    .map(nodeModel -> new NodeProxy(nodeModel, scriptContext));
+	}
+
 	static List<? extends Node> find(final Closure<Boolean> closure, final NodeModel node, final ScriptContext scriptContext) {
 		return ProxyUtils.find(createCondition(closure, scriptContext), node, scriptContext);
 	}
@@ -114,10 +124,14 @@ public class ProxyUtils {
 	 * @param condition if null every node will match. */
 	@SuppressWarnings("unchecked")
 	private static List<NodeModel> findImpl(final ICondition condition, final NodeModel node, boolean depthFirst) {
+		return findStreamImpl(condition, node, depthFirst).collect(Collectors.toList());
+	}
+
+	private static Stream<NodeModel> findStreamImpl(final ICondition condition, final NodeModel node, boolean depthFirst) {
 		Stream<NodeModel> nodes = depthFirst ? NodeStream.bottomUpOf(node) : NodeStream.of(node);
 		if(condition != null)
 		    nodes = nodes.filter(condition::checkNode);
-		return nodes.collect(Collectors.toList());
+		return nodes;
 	}
 
 	public static List<Proxy.Node> createListOfChildren(final NodeModel nodeModel, final ScriptContext scriptContext) {
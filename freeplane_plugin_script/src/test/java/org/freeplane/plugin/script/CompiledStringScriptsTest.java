@@ -0,0 +1,111 @@
+package org.freeplane.plugin.script;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.mode.Controller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+
+public class CompiledStringScriptsTest {
+	private static final String SCRIPT = "1 + 2";
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	private Controller backupController;
+	private final AtomicInteger compilationCount = new AtomicInteger();
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation));
+		when(resourceControllerMock.getFreeplaneUserDirectory()).thenReturn(temporaryFolder.getRoot().getPath());
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private Class<?> loadOrCompile(String scriptText) {
+		final String className = CompiledStringScripts.classNameOf(scriptText);
+		final CompilerConfiguration config = new CompilerConfiguration();
+		final GroovyClassLoader loader = new GroovyClassLoader(getClass().getClassLoader(), config);
+		return CompiledStringScripts.loadOrCompile(className, loader, classes -> {
+			compilationCount.incrementAndGet();
+			config.setTargetDirectory(classes);
+			return loader.parseClass(new GroovyCodeSource(scriptText, className + ".groovy", "/groovy/shell"), false);
+		});
+	}
+
+	private File cacheDirectory(String scriptText) {
+		return new File(ScriptResources.getCompiledStringScriptsDir(), CompiledStringScripts.classNameOf(scriptText));
+	}
+
+	@Test
+	public void nameScriptClassesByScriptText() throws Exception {
+		assertThat(CompiledStringScripts.classNameOf(SCRIPT)).isEqualTo(CompiledStringScripts.classNameOf(SCRIPT))
+		    .isNotEqualTo(CompiledStringScripts.classNameOf("1 + 3"))
+		    .matches("Script_[0-9a-f]{64}");
+	}
+
+	@Test
+	public void loadScriptClassCompiledBefore() throws Exception {
+		final Class<?> compiledClass = loadOrCompile(SCRIPT);
+
+		final Class<?> loadedClass = loadOrCompile(SCRIPT);
+
+		assertThat(compilationCount.get()).isEqualTo(1);
+		assertThat(loadedClass.getName()).isEqualTo(compiledClass.getName());
+		assertThat(loadedClass).isNotSameAs(compiledClass);
+	}
+
+	@Test
+	public void compileAgainIfStoredClassCanNotBeLoaded() throws Exception {
+		final File classes = new File(cacheDirectory(SCRIPT), "classes");
+		classes.mkdirs();
+
+		loadOrCompile(SCRIPT);
+
+		assertThat(compilationCount.get()).isEqualTo(1);
+		assertThat(new File(classes, CompiledStringScripts.classNameOf(SCRIPT) + ".class")).exists();
+	}
+
+	@Test
+	public void removeScriptsNotUsedForLong() throws Exception {
+		loadOrCompile(SCRIPT);
+		loadOrCompile("1 + 3");
+		cacheDirectory(SCRIPT).setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(40));
+
+		CompiledStringScripts.removeUnused(true);
+
+		assertThat(cacheDirectory(SCRIPT)).doesNotExist();
+		assertThat(cacheDirectory("1 + 3")).exists();
+	}
+
+	@Test
+	public void removeAllScriptsIfTheyAreNotKept() throws Exception {
+		loadOrCompile(SCRIPT);
+
+		CompiledStringScripts.removeUnused(false);
+
+		assertThat(ScriptResources.getCompiledStringScriptsDir()).doesNotExist();
+	}
+}
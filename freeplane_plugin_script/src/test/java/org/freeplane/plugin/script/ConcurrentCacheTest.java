@@ -0,0 +1,60 @@
+package org.freeplane.plugin.script;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+	@Test
+	public void computesValueOnceForConcurrentRequests() throws Exception {
+		final ConcurrentCache<String, Object> cache = new ConcurrentCache<>(() -> 10);
+		final AtomicInteger computations = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Object>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return cache.computeIfAbsent("key", () -> {
+						computations.incrementAndGet();
+						return new Object();
+					});
+				}));
+			}
+			start.countDown();
+			final Object first = results.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<Object> result : results)
+				assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(computations.get()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(7);
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedValues() throws Exception {
+		final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(() -> 8);
+		for (int i = 0; i < 100; i++) {
+			cache.computeIfAbsent(0, () -> -1);
+			final int value = i;
+			cache.computeIfAbsent(i, () -> value);
+		}
+		assertThat(cache.computeIfAbsent(0, () -> 0)).isEqualTo(-1);
+		assertThat(cache.computeIfAbsent(99, () -> 0)).isEqualTo(99);
+		assertThat(cache.computeIfAbsent(1, () -> 0)).isEqualTo(0);
+		assertThat(cache.getEvictionCount()).isGreaterThanOrEqualTo(100 - 9);
+	}
+}
@@ -0,0 +1,102 @@
+package org.freeplane.plugin.script;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.plugin.script.DependencyOrderedFormulaEvaluator.EvaluationOrder;
+import org.freeplane.plugin.script.dependencies.EvaluationDependencies;
+import org.junit.Test;
+
+public class DependencyOrderedFormulaEvaluatorTest {
+	private final MapModel map = new MapModel(null, null, null);
+	private final NodeModel root = new NodeModel("root", map);
+	{
+		map.setRoot(root);
+	}
+	private final NodeModel first = formulaNode("=1");
+	private final NodeModel second = formulaNode("=2");
+	private final NodeModel third = formulaNode("=3");
+	private final EvaluationDependencies dependencies = EvaluationDependencies.of(map);
+
+	private NodeModel formulaNode(String formula) {
+		final NodeModel node = new NodeModel(formula, map);
+		root.insert(node, root.getChildCount());
+		return node;
+	}
+
+	private EvaluationOrder evaluationOrder() {
+		return new DependencyOrderedFormulaEvaluator(map, dependencies).evaluationOrder();
+	}
+
+	@Test
+	public void placeAccessedFormulasBeforeAccessingFormulas() throws Exception {
+		dependencies.accessNode(third, second);
+		dependencies.accessNode(second, first);
+
+		final EvaluationOrder order = evaluationOrder();
+
+		assertThat(order.levels).containsExactly(asList(first), asList(second), asList(third));
+		assertThat(order.unorderedNodes).isEmpty();
+	}
+
+	@Test
+	public void placeIndependentFormulasInOneLevel() throws Exception {
+		dependencies.accessNode(third, first);
+
+		final EvaluationOrder order = evaluationOrder();
+
+		assertThat(order.levels).containsExactly(asList(first, second), asList(third));
+	}
+
+	@Test
+	public void placeFormulasAccessingBranchAfterFormulasInBranch() throws Exception {
+		final NodeModel child = new NodeModel("=4", map);
+		first.insert(child, 0);
+		dependencies.accessBranch(second, first);
+
+		final EvaluationOrder order = evaluationOrder();
+
+		assertThat(order.levels).containsExactly(asList(first, child, third), asList(second));
+	}
+
+	@Test
+	public void evaluateFormulasInCyclesAndFormulasAccessingAllNodesUnordered() throws Exception {
+		dependencies.accessNode(first, second);
+		dependencies.accessNode(second, first);
+		dependencies.accessAll(third);
+
+		final EvaluationOrder order = evaluationOrder();
+
+		assertThat(order.levels).isEmpty();
+		assertThat(order.unorderedNodes).containsExactly(first, second, third);
+	}
+
+	@Test
+	public void evaluateFormulasWithoutRecordedDependenciesUnordered() throws Exception {
+		final EvaluationOrder order = new DependencyOrderedFormulaEvaluator(map, null).evaluationOrder();
+
+		assertThat(order.levels).isEmpty();
+		assertThat(order.unorderedNodes).containsExactly(first, second, third);
+	}
+
+	@Test
+	public void keepEvaluationOrderUntilDependenciesChange() throws Exception {
+		dependencies.accessNode(second, first);
+		final EvaluationOrder order = evaluationOrder();
+
+		assertThat(evaluationOrder()).isSameAs(order);
+
+		dependencies.accessNode(third, second);
+
+		assertThat(evaluationOrder()).isNotSameAs(order);
+		assertThat(evaluationOrder().levels).containsExactly(asList(first), asList(second), asList(third));
+	}
+
+	private static List<NodeModel> asList(NodeModel... nodes) {
+		return Arrays.asList(nodes);
+	}
+}
@@ -0,0 +1,130 @@
+package org.freeplane.plugin.script;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.plugin.script.dependencies.RelatedElements;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FormulaCacheTest {
+	private Controller backupController;
+	private MapModel map;
+	private NodeModel firstNode;
+	private NodeModel secondNode;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class);
+		when(resourceControllerMock.getLongProperty(anyString(), anyLong())).then(x -> x.getArguments()[1]);
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+		map = new MapModel(null, null, null);
+		firstNode = node("first");
+		secondNode = node("second");
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private NodeModel node(String text) {
+		final NodeModel node = new NodeModel(text, map);
+		node.createID();
+		return node;
+	}
+
+	private static CachedResult result(Object value, NodeModel node) {
+		final RelatedElements relatedElements = new RelatedElements(node);
+		relatedElements.relateNode(node);
+		return new CachedResult(value, relatedElements);
+	}
+
+	@Test
+	public void countHitsAndMisses() throws Exception {
+		final ScriptContext scriptContext = new ScriptContext(new NodeScript(firstNode, "1 + 1"));
+
+		FormulaCache.getOrThrowCachedResult(scriptContext, () -> 2);
+		final Object cachedValue = FormulaCache.getOrThrowCachedResult(scriptContext, () -> 3);
+
+		final FormulaCache cache = FormulaCache.of(map);
+		assertThat(cachedValue).isEqualTo(2);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getEvictionCount()).isZero();
+	}
+
+	@Test
+	public void evictLeastRecentlyUsedResultsExceedingMemoryLimit() throws Exception {
+		final FormulaCache cache = new FormulaCache(1);
+
+		cache.put(new NodeScript(firstNode, "1"), result(1, firstNode));
+		cache.put(new NodeScript(secondNode, "2"), result(2, secondNode));
+
+		assertThat(cache.containsResult(firstNode, "1")).isFalse();
+		assertThat(cache.containsResult(secondNode, "2")).isTrue();
+		assertThat(cache.getEvictionCount()).isEqualTo(1);
+	}
+
+	// a result weighs 130, the related elements kept for an evicted result weigh 114
+	@Test
+	public void keepRelatedElementsOfEvictedResultsWithinMemoryLimit() throws Exception {
+		final FormulaCache cache = new FormulaCache(250);
+		final CachedResult evictedResult = result(1, firstNode);
+
+		cache.put(new NodeScript(firstNode, "1"), evictedResult);
+		cache.put(new NodeScript(secondNode, "2"), result(2, secondNode));
+
+		assertThat(cache.containsResult(firstNode, "1")).isFalse();
+		assertThat(cache.getAccessedValues(firstNode, "1")).isSameAs(evictedResult.relatedElements);
+		assertThat(cache.getWeight()).isEqualTo(130 + 114);
+	}
+
+	@Test
+	public void evictRelatedElementsOfEvictedResultsExceedingMemoryLimit() throws Exception {
+		final FormulaCache cache = new FormulaCache(200);
+
+		cache.put(new NodeScript(firstNode, "1"), result(1, firstNode));
+		cache.put(new NodeScript(secondNode, "2"), result(2, secondNode));
+
+		assertThat(cache.getAccessedValues(firstNode, "1")).isNull();
+		assertThat(cache.containsResult(secondNode, "2")).isTrue();
+		assertThat(cache.getWeight()).isEqualTo(130);
+	}
+
+	@Test
+	public void replaceRelatedElementsOfEvictedResultsByNewResult() throws Exception {
+		final FormulaCache cache = new FormulaCache(250);
+		cache.put(new NodeScript(firstNode, "1"), result(1, firstNode));
+		cache.put(new NodeScript(secondNode, "2"), result(2, secondNode));
+		final CachedResult newResult = result(1, firstNode);
+
+		cache.put(new NodeScript(firstNode, "1"), newResult);
+
+		assertThat(cache.getAccessedValues(firstNode, "1")).isSameAs(newResult.relatedElements);
+		assertThat(cache.getWeight()).isLessThanOrEqualTo(250);
+	}
+
+	@Test
+	public void dropRelatedElementsOfEvictedResultsOfRemovedNodes() throws Exception {
+		final FormulaCache cache = new FormulaCache(250);
+		cache.put(new NodeScript(firstNode, "1"), result(1, firstNode));
+		cache.put(new NodeScript(secondNode, "2"), result(2, secondNode));
+
+		cache.remove(firstNode);
+
+		assertThat(cache.getAccessedValues(firstNode, "1")).isNull();
+		assertThat(cache.getWeight()).isEqualTo(130);
+	}
+}
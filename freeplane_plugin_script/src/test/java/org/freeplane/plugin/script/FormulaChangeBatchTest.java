@@ -0,0 +1,152 @@
+package org.freeplane.plugin.script;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.ui.ViewController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FormulaChangeBatchTest {
+	private Controller backupController;
+	private ViewController viewController;
+	private MapController mapController;
+	private final List<Runnable> laterRunnables = new ArrayList<>();
+	private MapModel map;
+	private NodeModel firstNode;
+	private NodeModel secondNode;
+	private NodeModel formulaNode;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		when(controllerMock.getResourceController()).thenReturn(mock(ResourceController.class));
+		viewController = mock(ViewController.class);
+		when(viewController.isDispatchThread()).thenReturn(true);
+		doAnswer(invocation -> laterRunnables.add(invocation.getArgument(0))).when(viewController).invokeLater(any());
+		when(controllerMock.getViewController()).thenReturn(viewController);
+		final ModeController modeController = mock(ModeController.class);
+		mapController = mock(MapController.class);
+		when(modeController.getMapController()).thenReturn(mapController);
+		when(controllerMock.getModeController()).thenReturn(modeController);
+		Controller.setCurrentController(controllerMock);
+		map = new MapModel(null, null, null);
+		firstNode = node("first");
+		secondNode = node("second");
+		formulaNode = node("=first + second");
+		FormulaDependencies.accessNode(formulaNode, firstNode);
+		FormulaDependencies.accessNode(formulaNode, secondNode);
+	}
+
+	@After
+	public void tearDown() {
+		FormulaChangeBatch.apply();
+		Controller.setCurrentController(backupController);
+	}
+
+	private NodeModel node(String text) {
+		final NodeModel node = new NodeModel(text, map);
+		node.createID();
+		return node;
+	}
+
+	private void runLater() {
+		laterRunnables.forEach(Runnable::run);
+		laterRunnables.clear();
+	}
+
+	private void verifyRefreshed(NodeModel node, int times) {
+		verify(mapController, times(times)).delayedNodeRefresh(same(node), eq(FormulaCache.class), isNull(), isNull());
+	}
+
+	@Test
+	public void applyChangesOfOneEventTogether() throws Exception {
+		final long changeCount = FormulaChangeBatch.getChangeCount();
+		final long coalescedChangeCount = FormulaChangeBatch.getCoalescedChangeCount();
+
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+		FormulaChangeBatch.add(false, singletonList(secondNode));
+
+		assertThat(laterRunnables).hasSize(1);
+		verifyRefreshed(formulaNode, 0);
+		assertThat(FormulaChangeBatch.getChangeCount() - changeCount).isEqualTo(2);
+		assertThat(FormulaChangeBatch.getCoalescedChangeCount() - coalescedChangeCount).isEqualTo(1);
+		runLater();
+		verifyRefreshed(formulaNode, 1);
+	}
+
+	@Test
+	public void refreshDependentFormulaOnceForRepeatedChangesOfSameNode() throws Exception {
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+		FormulaChangeBatch.add(false, asList(firstNode, firstNode));
+		runLater();
+
+		verifyRefreshed(formulaNode, 1);
+		verifyRefreshed(firstNode, 0);
+	}
+
+	@Test
+	public void refreshIncludedChangedNodes() throws Exception {
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+		FormulaChangeBatch.add(true, singletonList(firstNode));
+		runLater();
+
+		verifyRefreshed(firstNode, 1);
+		verifyRefreshed(formulaNode, 1);
+	}
+
+	@Test
+	public void startNewBatchAfterChangesWereApplied() throws Exception {
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+		runLater();
+		final long coalescedChangeCount = FormulaChangeBatch.getCoalescedChangeCount();
+
+		FormulaChangeBatch.add(false, singletonList(secondNode));
+
+		assertThat(laterRunnables).hasSize(1);
+		assertThat(FormulaChangeBatch.getCoalescedChangeCount()).isEqualTo(coalescedChangeCount);
+	}
+
+	@Test
+	public void applyChangesImmediatelyOutsideOfEventDispatchThread() throws Exception {
+		when(viewController.isDispatchThread()).thenReturn(false);
+
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+
+		verify(viewController, never()).invokeLater(any());
+		verifyRefreshed(formulaNode, 1);
+	}
+
+	@Test
+	public void applyPendingChangesOnRequest() throws Exception {
+		FormulaChangeBatch.add(false, singletonList(firstNode));
+
+		FormulaChangeBatch.apply();
+
+		verifyRefreshed(formulaNode, 1);
+		runLater();
+		verifyRefreshed(formulaNode, 1);
+	}
+}
@@ -0,0 +1,127 @@
+package org.freeplane.plugin.script;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.attribute.Attribute;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptBatchTest {
+	private final MapModel map = new MapModel(null, null, null);
+	private final List<String> compiledSources = new ArrayList<>();
+	private final Map<String, IScript> scripts = new HashMap<>();
+	private final ScriptBatch batch = new ScriptBatch(source -> {
+		compiledSources.add(source);
+		return scripts.computeIfAbsent(source, s -> mock(IScript.class));
+	});
+	private Controller backupController;
+
+	@Before
+	public void setup() {
+		backupController = Controller.getCurrentController();
+		final Controller controllerMock = mock(Controller.class);
+		final ResourceController resourceControllerMock = mock(ResourceController.class,
+		    invocation -> invocation.getMethod().getReturnType() == String.class ? "" : RETURNS_DEFAULTS.answer(invocation));
+		when(controllerMock.getResourceController()).thenReturn(resourceControllerMock);
+		Controller.setCurrentController(controllerMock);
+	}
+
+	@After
+	public void tearDown() {
+		Controller.setCurrentController(backupController);
+	}
+
+	private NodeModel node(NodeModel parent, String text) {
+		final NodeModel node = new NodeModel(text, map);
+		if (parent != null)
+			parent.insert(node, parent.getChildCount());
+		return node;
+	}
+
+	private static void addAttribute(NodeModel node, String name, Object value) {
+		NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
+		if (attributes == NodeAttributeTableModel.EMTPY_ATTRIBUTES) {
+			attributes = new NodeAttributeTableModel();
+			node.addExtension(attributes);
+		}
+		attributes.silentlyAddRowNoUndo(node, new Attribute(name, value));
+	}
+
+	private void verifyExecuted(String source, NodeModel node, int times) {
+		verify(scripts.get(source), times(times)).execute(same(node), any(), any(), any());
+	}
+
+	@Test
+	public void executeChildrenBeforeTheirParent() throws Exception {
+		final NodeModel root = node(null, "root");
+		final NodeModel first = node(root, "first");
+		final NodeModel firstChild = node(first, "first child");
+		final NodeModel second = node(root, "second");
+
+		assertThat(ScriptBatch.branchInExecutionOrder(root)).containsExactly(firstChild, first, second, root);
+	}
+
+	@Test
+	public void executeScriptAttributesInTheirOrder() throws Exception {
+		final NodeModel node = node(null, "node");
+		addAttribute(node, "script1", "first()");
+		addAttribute(node, "other", "other()");
+		addAttribute(node, "script2", "second()");
+
+		batch.executeScripts(node);
+
+		assertThat(compiledSources).containsExactly("first()", "second()");
+		verifyExecuted("first()", node, 1);
+		verifyExecuted("second()", node, 1);
+	}
+
+	@Test
+	public void compileEachScriptOnce() throws Exception {
+		final NodeModel first = node(null, "first");
+		final NodeModel second = node(null, "second");
+		addAttribute(first, "script1", "same()");
+		addAttribute(second, "script1", "same()");
+
+		batch.executeScripts(first);
+		batch.executeScripts(second);
+
+		assertThat(compiledSources).containsExactly("same()");
+		verifyExecuted("same()", first, 1);
+		verifyExecuted("same()", second, 1);
+	}
+
+	@Test
+	public void ignoreScriptAttributesWithoutText() throws Exception {
+		final NodeModel node = node(null, "node");
+		addAttribute(node, "script1", 42);
+
+		batch.executeScripts(node);
+
+		assertThat(compiledSources).isEmpty();
+	}
+
+	@Test
+	public void ignoreNodesWithoutAttributes() throws Exception {
+		batch.executeScripts(node(null, "node"));
+
+		assertThat(compiledSources).isEmpty();
+	}
+}
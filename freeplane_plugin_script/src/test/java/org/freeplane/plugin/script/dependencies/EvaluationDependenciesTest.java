@@ -0,0 +1,111 @@
+package org.freeplane.plugin.script.dependencies;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.junit.Test;
+
+public class EvaluationDependenciesTest {
+	private final MapModel map = map();
+	private final MapModel otherMap = map();
+	private final EvaluationDependencies dependencies = EvaluationDependencies.of(map);
+	private final NodeModel parent = child(map.getRootNode(), "parent");
+	private final NodeModel child = child(parent, "child");
+	private final NodeModel formula = child(map.getRootNode(), "formula");
+	private final NodeModel otherFormula = child(map.getRootNode(), "other formula");
+
+	private static MapModel map() {
+		final MapModel map = new MapModel(null, null, null);
+		map.setRoot(new NodeModel("root", map));
+		return map;
+	}
+
+	private static NodeModel child(NodeModel parent, String text) {
+		final NodeModel child = new NodeModel(text, parent.getMap());
+		parent.insert(child, parent.getChildCount());
+		return child;
+	}
+
+	private Set<NodeModel> changed(NodeModel node) {
+		final Set<NodeModel> accessingNodes = new LinkedHashSet<>();
+		dependencies.collectChangedDependencies(accessingNodes, node);
+		return accessingNodes;
+	}
+
+	@Test
+	public void invalidateNodesAccessingChangedNodeTransitively() throws Exception {
+		dependencies.accessNode(formula, child);
+		dependencies.accessNode(otherFormula, formula);
+
+		assertThat(changed(child)).containsExactlyInAnyOrder(formula, otherFormula);
+		assertThat(changed(parent)).isEmpty();
+	}
+
+	@Test
+	public void invalidateNodesAccessingParentOfChangedNode() throws Exception {
+		dependencies.accessNode(formula, parent);
+
+		assertThat(changed(parent)).containsExactly(formula);
+		assertThat(changed(child)).isEmpty();
+	}
+
+	@Test
+	public void invalidateNodesAccessingBranchOfChangedNode() throws Exception {
+		dependencies.accessBranch(formula, map.getRootNode());
+
+		assertThat(changed(child)).containsExactly(formula);
+	}
+
+	@Test
+	public void invalidateNodesAccessingGlobalNodes() throws Exception {
+		dependencies.accessGlobalNode(formula);
+		final Set<NodeModel> accessingNodes = new LinkedHashSet<>();
+
+		dependencies.collectGlobalNodeDependencies(accessingNodes);
+
+		assertThat(accessingNodes).containsExactly(formula);
+	}
+
+	@Test
+	public void invalidateNodesAccessingAllNodesOnAnyChange() throws Exception {
+		dependencies.accessAll(formula);
+
+		assertThat(changed(child)).containsExactly(formula);
+	}
+
+	@Test
+	public void invalidateNodesOfOtherMapAccessingChangedNode() throws Exception {
+		final NodeModel foreignFormula = child(otherMap.getRootNode(), "foreign formula");
+		dependencies.accessNode(foreignFormula, child);
+
+		assertThat(changed(child)).containsExactly(foreignFormula);
+	}
+
+	@Test
+	public void invalidateNodesOfOtherMapAccessingRemovedMap() throws Exception {
+		final NodeModel foreignFormula = child(otherMap.getRootNode(), "foreign formula");
+		dependencies.accessNode(foreignFormula, child);
+		final Set<NodeModel> accessingNodes = new LinkedHashSet<>();
+
+		dependencies.removeAndReturnChangedDependencies(accessingNodes, map);
+
+		assertThat(accessingNodes).containsExactly(foreignFormula);
+	}
+
+	@Test
+	public void forgetNodesOfRemovedOtherMap() throws Exception {
+		final NodeModel foreignFormula = child(otherMap.getRootNode(), "foreign formula");
+		dependencies.accessNode(foreignFormula, child);
+
+		dependencies.removeNodesOf(otherMap);
+		final NodeModel thirdMapFormula = child(map().getRootNode(), "third map formula");
+		dependencies.accessNode(thirdMapFormula, parent);
+
+		assertThat(changed(child)).isEmpty();
+		assertThat(changed(parent)).containsExactly(thirdMapFormula);
+	}
+}
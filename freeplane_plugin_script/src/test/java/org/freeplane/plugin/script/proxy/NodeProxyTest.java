@@ -0,0 +1,78 @@
+package org.freeplane.plugin.script.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.freeplane.api.Node;
+import org.freeplane.api.NodeCondition;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeProxyTest {
+	private final MapModel map = new MapModel(null, null, null);
+	private NodeProxy root;
+
+	@Before
+	public void setup() {
+		final NodeModel rootNode = node(null, "root");
+		map.setRoot(rootNode);
+		for (int child = 0; child < 10; child++) {
+			final NodeModel childNode = node(rootNode, "child " + child);
+			for (int grandchild = 0; grandchild < 10; grandchild++)
+				node(childNode, "grandchild " + child + "." + grandchild);
+		}
+		root = new NodeProxy(rootNode, null);
+	}
+
+	private NodeModel node(NodeModel parent, String text) {
+		final NodeModel node = new NodeModel(text, map);
+		if (parent != null)
+			parent.insert(node, parent.getChildCount());
+		return node;
+	}
+
+	private static List<NodeModel> delegates(Stream<? extends Node> nodes) {
+		return nodes.map(node -> ((NodeProxy) node).getDelegate()).collect(Collectors.toList());
+	}
+
+	private static List<NodeModel> delegates(List<? extends Node> nodes) {
+		return delegates(nodes.stream());
+	}
+
+	@Test
+	public void streamNodesInOrderOfFindAll() throws Exception {
+		assertThat(delegates(root.findAllStream())).containsExactlyElementsOf(delegates(root.findAll()));
+	}
+
+	@Test
+	public void streamNodesInOrderOfFindAllDepthFirst() throws Exception {
+		assertThat(delegates(root.findAllDepthFirstStream()))
+		    .containsExactlyElementsOf(delegates(root.findAllDepthFirst()));
+	}
+
+	@Test
+	public void streamMatchingNodesInOrderOfFind() throws Exception {
+		final NodeCondition condition = node -> ((NodeProxy) node).getDelegate().getText().endsWith("3");
+
+		assertThat(delegates(root.findStream(condition))).containsExactlyElementsOf(delegates(root.find(condition)));
+	}
+
+	@Test
+	public void checkNodesOnlyUntilFirstMatchIsFound() throws Exception {
+		final AtomicInteger checkCount = new AtomicInteger();
+
+		final NodeModel firstMatch = root.findStream(node -> {
+			checkCount.incrementAndGet();
+			return ((NodeProxy) node).getDelegate().getText().equals("child 0");
+		}).findFirst().map(node -> ((NodeProxy) node).getDelegate()).orElse(null);
+
+		assertThat(firstMatch.getText()).isEqualTo("child 0");
+		assertThat(checkCount.get()).isEqualTo(2);
+	}
+}